@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.threadtest;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.wicket.threadtest.tester.SimpleGetCommand;
+import org.apache.wicket.threadtest.tester.Tester;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the same requests with increasing numbers of concurrent clients within one session and logs
+ * the throughput of each run. All requests of a session contend for the same pages, so this shows
+ * how the page locking and the storing of pages scale with many waiting requests. Run it against a
+ * container that serves requests with virtual threads to compare it with platform threads.
+ * <p>
+ * The numbers of threads can be passed as arguments, the default is 100, 1000 and 2000.
+ */
+public class App1Test4
+{
+	private static final Logger log = LoggerFactory.getLogger(App1Test4.class);
+
+	private static final int ITERATIONS = 5;
+
+	/**
+	 * @param args
+	 *            the numbers of threads to run with
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		int[] threadCounts = { 100, 1000, 2000 };
+		if (args.length > 0)
+		{
+			threadCounts = new int[args.length];
+			for (int i = 0; i < args.length; i++)
+			{
+				threadCounts[i] = Integer.parseInt(args[i]);
+			}
+		}
+
+		List<String> gets = Arrays.asList(
+			"/app1/wicket/bookmarkable/org.apache.wicket.threadtest.apps.app1.Home",
+			"/app1/wicket/page?0-${iteration}.ILinkListener-link");
+
+		StringBuilder report = new StringBuilder();
+		for (int threads : threadCounts)
+		{
+			SimpleGetCommand getCmd = new SimpleGetCommand(gets, ITERATIONS);
+			Tester tester = new Tester(getCmd, threads, false);
+			tester.run();
+
+			long requests = (long)threads * ITERATIONS * gets.size();
+			long duration = Math.max(1, tester.getDuration());
+			report.append("\n")
+				.append(threads)
+				.append(" threads: ")
+				.append(requests)
+				.append(" requests in ")
+				.append(duration)
+				.append(" ms, ")
+				.append(requests * 1000 / duration)
+				.append(" requests/s");
+		}
+		log.info("\n******** throughput" + report);
+	}
+}
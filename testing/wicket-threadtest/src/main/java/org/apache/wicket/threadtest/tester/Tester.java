@@ -119,6 +119,9 @@ public final class Tester implements CommandRunnerObserver
 
 	private int port = 8090;
 
+	/** duration of the last run in milliseconds */
+	private long duration;
+
 	/**
 	 * Construct.
 	 * 
@@ -163,6 +166,16 @@ public final class Tester implements CommandRunnerObserver
 		return host;
 	}
 
+	/**
+	 * Gets the time the requests of the last run took, not counting the start of the server.
+	 * 
+	 * @return duration in milliseconds
+	 */
+	public long getDuration()
+	{
+		return duration;
+	}
+
 	/**
 	 * Gets port.
 	 * 
@@ -264,6 +277,7 @@ public final class Tester implements CommandRunnerObserver
 
 			long end = System.currentTimeMillis();
 			long time = end - start;
+			duration = time;
 			log.info("\n******** finished in " + Duration.milliseconds(time) + " (" + time +
 				" milis)");
 
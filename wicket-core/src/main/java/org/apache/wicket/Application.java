@@ -54,8 +54,8 @@ import org.apache.wicket.page.DefaultPageManagerContext;
 import org.apache.wicket.page.IPageManager;
 import org.apache.wicket.page.IPageManagerContext;
 import org.apache.wicket.page.PageAccessSynchronizer;
-import org.apache.wicket.protocol.http.DummyRequestLogger;
 import org.apache.wicket.protocol.http.IRequestLogger;
+import org.apache.wicket.protocol.http.RequestLogger;
 import org.apache.wicket.protocol.http.WebApplication;
 import org.apache.wicket.protocol.http.WebSession;
 import org.apache.wicket.request.IExceptionMapper;
@@ -68,6 +68,7 @@ import org.apache.wicket.request.cycle.IRequestCycleListener;
 import org.apache.wicket.request.cycle.RequestCycle;
 import org.apache.wicket.request.cycle.RequestCycleContext;
 import org.apache.wicket.request.cycle.RequestCycleListenerCollection;
+import org.apache.wicket.request.cycle.RequestTimings;
 import org.apache.wicket.request.mapper.CompoundRequestMapper;
 import org.apache.wicket.request.mapper.ICompoundRequestMapper;
 import org.apache.wicket.request.mapper.IMapperContext;
@@ -760,7 +761,7 @@ public abstract class Application implements UnboundListener, IEventSink
 	 */
 	protected IRequestLogger newRequestLogger()
 	{
-		return new DummyRequestLogger();
+		return new RequestLogger();
 	}
 
 	/**
@@ -1072,7 +1073,7 @@ public abstract class Application implements UnboundListener, IEventSink
 		checkSettingsAvailable();
 		if (frameworkSettings == null)
 		{
-			frameworkSettings = new FrameworkSettings();
+			frameworkSettings = new FrameworkSettings(this);
 		}
 		return frameworkSettings;
 	}
@@ -1305,6 +1306,14 @@ public abstract class Application implements UnboundListener, IEventSink
 		return pageManager;
 	}
 
+	/**
+	 * @return the synchronizer of the access to pages, e.g. for its lock wait statistics
+	 */
+	public final PageAccessSynchronizer getPageAccessSynchronizer()
+	{
+		return pageAccessSynchronizer;
+	}
+
 	/**
 	 * 
 	 * @return the page manager context
@@ -1501,10 +1510,43 @@ public abstract class Application implements UnboundListener, IEventSink
 		requestCycle.getListeners().add(requestCycleListeners);
 		requestCycle.getListeners().add(new AbstractRequestCycleListener()
 		{
+			@Override
+			public void onRequestHandlerResolved(final RequestCycle requestCycle,
+				final IRequestHandler handler)
+			{
+				logEventTarget(handler);
+			}
+
+			@Override
+			public void onRequestHandlerScheduled(final RequestCycle requestCycle,
+				final IRequestHandler handler)
+			{
+				logResponseTarget(handler);
+			}
+
+			@Override
+			public void onEndRequest(final RequestCycle requestCycle)
+			{
+				IRequestLogger requestLogger = getRequestLogger();
+				if (requestLogger != null)
+				{
+					requestLogger.requestTime(System.currentTimeMillis() -
+						requestCycle.getStartTime());
+				}
+			}
+
 			@Override
 			public void onDetach(final RequestCycle requestCycle)
 			{
-				getPageManager().commitRequest();
+				long start = System.nanoTime();
+				try
+				{
+					getPageManager().commitRequest();
+				}
+				finally
+				{
+					requestCycle.endPhase(RequestTimings.Phase.COMMIT, start);
+				}
 			}
 		});
 		return requestCycle;
@@ -19,6 +19,8 @@ package org.apache.wicket;
 import org.apache.wicket.markup.MarkupParser;
 import org.apache.wicket.page.IManageablePage;
 import org.apache.wicket.request.component.IRequestablePage;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.request.cycle.RequestTimings;
 import org.apache.wicket.request.mapper.IMapperContext;
 import org.apache.wicket.request.mapper.parameter.PageParameters;
 import org.apache.wicket.request.resource.ResourceReferenceRegistry;
@@ -114,7 +116,20 @@ public class DefaultMapperContext implements IMapperContext
 	 */
 	public IRequestablePage getPageInstance(final int pageId)
 	{
-		IManageablePage manageablePage = Application.get().getPageManager().getPage(pageId);
+		IManageablePage manageablePage;
+		long start = System.nanoTime();
+		try
+		{
+			manageablePage = Application.get().getPageManager().getPage(pageId);
+		}
+		finally
+		{
+			RequestCycle requestCycle = RequestCycle.get();
+			if (requestCycle != null)
+			{
+				requestCycle.endPhase(RequestTimings.Phase.RESTORE, start);
+			}
+		}
 		IRequestablePage requestablePage = null;
 		if (manageablePage instanceof IRequestablePage)
 		{
@@ -131,4 +146,4 @@ public class DefaultMapperContext implements IMapperContext
 	{
 		return Application.get().getHomePage();
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -19,10 +19,16 @@ package org.apache.wicket;
 import org.apache.wicket.page.IPageManager;
 import org.apache.wicket.page.IPageManagerContext;
 import org.apache.wicket.page.PersistentPageManager;
+import org.apache.wicket.pageStore.AsynchronousDataStore;
+import org.apache.wicket.pageStore.CompressingDataStore;
 import org.apache.wicket.pageStore.DefaultPageStore;
+import org.apache.wicket.pageStore.DeltaDataStore;
 import org.apache.wicket.pageStore.DiskDataStore;
+import org.apache.wicket.pageStore.ICompressionCodec;
 import org.apache.wicket.pageStore.IDataStore;
 import org.apache.wicket.pageStore.IPageStore;
+import org.apache.wicket.pageStore.OffHeapPageCache;
+import org.apache.wicket.util.lang.Bytes;
 
 /**
  * {@link IPageManagerProvider} implementation that creates new instance of {@link IPageManager}
@@ -50,14 +56,105 @@ public class DefaultPageManagerProvider implements IPageManagerProvider
 
 	public IPageManager get(IPageManagerContext pageManagerContext)
 	{
-		IDataStore dataStore = new DiskDataStore(application.getName(), getMaxSizePerSession(),
-			getFileChannelPoolCapacity());
-		IPageStore pageStore = new DefaultPageStore(application.getName(), dataStore,
-			getCacheSize());
+		IDataStore dataStore = newDataStore();
+		ICompressionCodec compressionCodec = getCompressionCodec();
+		if (compressionCodec != null)
+		{
+			dataStore = new CompressingDataStore(dataStore, compressionCodec);
+		}
+		if (getMaxDeltasPerBase() > 0)
+		{
+			dataStore = new DeltaDataStore(dataStore, getMaxDeltasPerBase());
+		}
+		if (getAsynchronousWriterCount() > 0)
+		{
+			final int capacity = getAsynchronousQueueCapacity();
+			dataStore = new AsynchronousDataStore(dataStore, getAsynchronousWriterCount(),
+				getAsynchronousOverflowPolicy())
+			{
+				@Override
+				protected int getMaxQueuedEntries()
+				{
+					return capacity;
+				}
+			};
+		}
+		Bytes offHeapCacheSize = getOffHeapCacheSize();
+		OffHeapPageCache offHeapPageCache = offHeapCacheSize.bytes() > 0 ? new OffHeapPageCache(
+			offHeapCacheSize) : null;
+		IPageStore pageStore = new DefaultPageStore(application.getName(),
+			application.getFrameworkSettings().getSerializer(), dataStore, getCacheSize(),
+			offHeapPageCache);
 		return new PersistentPageManager(application.getName(), pageStore, pageManagerContext);
 
 	}
 
+	/**
+	 * Creates the data store that persists the serialized pages.
+	 * 
+	 * @return data store
+	 */
+	protected IDataStore newDataStore()
+	{
+		return new DiskDataStore(application.getName(), getMaxSizePerSession(),
+			getFileChannelPoolCapacity());
+	}
+
+	/**
+	 * @return number of threads writing pages to the data store in the background, or
+	 *         <code>0</code> to write them on the request thread
+	 */
+	protected int getAsynchronousWriterCount()
+	{
+		return 0;
+	}
+
+	/**
+	 * @return maximum number of pages waiting to be written by the background writers
+	 */
+	protected int getAsynchronousQueueCapacity()
+	{
+		return AsynchronousDataStore.DEFAULT_MAX_QUEUED_ENTRIES;
+	}
+
+	/**
+	 * @return what to do with pages stored while the background writers' queue is full
+	 */
+	protected AsynchronousDataStore.OverflowPolicy getAsynchronousOverflowPolicy()
+	{
+		return AsynchronousDataStore.OverflowPolicy.WRITE_THROUGH;
+	}
+
+	/**
+	 * @return codec compressing the pages before they are written to the data store, or
+	 *         <code>null</code> to write them uncompressed
+	 * @see CompressingDataStore
+	 * @see org.apache.wicket.pageStore.DeflaterCompressionCodec
+	 */
+	protected ICompressionCodec getCompressionCodec()
+	{
+		return null;
+	}
+
+	/**
+	 * @return number of page versions stored as delta against a snapshot of a page before a new
+	 *         snapshot is taken, or <code>0</code> to store each page in full
+	 * @see DeltaDataStore
+	 */
+	protected int getMaxDeltasPerBase()
+	{
+		return 0;
+	}
+
+	/**
+	 * @return memory outside of the Java heap used to cache serialized pages, or zero bytes to
+	 *         read them from the data store every time
+	 */
+	protected Bytes getOffHeapCacheSize()
+	{
+		return Bytes.bytes(0);
+	}
+
 	protected int getMaxSizePerSession()
 	{
 		return DEFAULT_MAX_SIZE_PER_SESSION;
@@ -16,12 +16,15 @@
  */
 package org.apache.wicket;
 
+import java.nio.charset.Charset;
 import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.wicket.markup.ComponentTag;
 import org.apache.wicket.markup.IMarkupFragment;
@@ -40,6 +43,8 @@ import org.apache.wicket.markup.resolver.ComponentResolvers;
 import org.apache.wicket.model.IComponentInheritedModel;
 import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.IWrapModel;
+import org.apache.wicket.protocol.http.BufferedWebResponse;
+import org.apache.wicket.request.Response;
 import org.apache.wicket.settings.IDebugSettings;
 import org.apache.wicket.util.string.ComponentStrings;
 import org.apache.wicket.util.string.Strings;
@@ -97,6 +102,12 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 	/** Log for reporting. */
 	private static final Logger log = LoggerFactory.getLogger(MarkupContainer.class);
 
+	/** Children are looked up by id in a hash index once there are more than this many */
+	private static final int CHILD_INDEX_THRESHOLD = 32;
+
+	/** Raw markup of at least this length is written with its cached encoding */
+	private static final int PRE_ENCODED_MARKUP_LENGTH = 32;
+
 	/** List of children or single child */
 	private Object children;
 
@@ -1128,7 +1139,7 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 	 * @param object
 	 * @return The id of the object (object can be component or componentsourcentry)
 	 */
-	private final String getId(Object object)
+	private static String getId(Object object)
 	{
 		if (object instanceof Component)
 		{
@@ -1169,29 +1180,10 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 		}
 		else
 		{
-			Object[] children = null;
-			int size = 0;
-			if (this.children instanceof ChildList)
-			{
-				children = ((ChildList)this.children).childs;
-				size = ((ChildList)this.children).size;
-			}
-			else
+			int index = children_indexOf(id);
+			if (index != -1)
 			{
-				children = (Object[])this.children;
-				size = children.length;
-			}
-			for (int i = 0; i < size; i++)
-			{
-				if (getId(children[i]).equals(id))
-				{
-					component = (Component)postprocess(children[i], true, this, i);
-					if (children[i] != component)
-					{
-						children[i] = component;
-					}
-					break;
-				}
+				component = children_get(index);
 			}
 		}
 		return component;
@@ -1203,6 +1195,16 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 	 * @return The index of the given child component
 	 */
 	private final int children_indexOf(Component child)
+	{
+		return children_indexOf(child.getId());
+	}
+
+	/**
+	 * 
+	 * @param id
+	 * @return The index of the child component with the given id
+	 */
+	private final int children_indexOf(String id)
 	{
 		if (children == null)
 		{
@@ -1210,29 +1212,29 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 		}
 		if (children instanceof Object[] == false && children instanceof ChildList == false)
 		{
-			if (getId(children).equals(child.getId()))
+			if (getId(children).equals(id))
 			{
 				return 0;
 			}
 		}
 		else
 		{
-			int size = 0;
-			Object[] children;
-			if (this.children instanceof Object[])
+			if (children instanceof Object[] &&
+				((Object[])children).length > CHILD_INDEX_THRESHOLD)
 			{
-				children = (Object[])this.children;
-				size = children.length;
+				// switch to the list, which keeps an index
+				children = new ChildList(children);
 			}
-			else
+
+			if (children instanceof ChildList)
 			{
-				children = ((ChildList)this.children).childs;
-				size = ((ChildList)this.children).size;
+				return ((ChildList)children).indexOfId(id);
 			}
 
-			for (int i = 0; i < size; i++)
+			Object[] children = (Object[])this.children;
+			for (int i = 0; i < children.length; i++)
 			{
-				if (getId(children[i]).equals(child.getId()))
+				if (getId(children[i]).equals(id))
 				{
 					return i;
 				}
@@ -1503,10 +1505,34 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 			{
 				log.debug("Rendering raw markup");
 			}
-			getResponse().write(element.toCharSequence());
+			renderRawMarkup(element);
 		}
 	}
 
+	/**
+	 * Writes raw markup to the response. Static markup written to a buffered response is passed
+	 * along with its encoding, which is cached with the markup, so that it is encoded only once.
+	 * 
+	 * @param element
+	 */
+	private void renderRawMarkup(final MarkupElement element)
+	{
+		Response response = getResponse();
+		CharSequence markup = element.toCharSequence();
+		if ((element instanceof RawMarkup) && (response instanceof BufferedWebResponse) &&
+			(markup.length() >= PRE_ENCODED_MARKUP_LENGTH))
+		{
+			BufferedWebResponse bufferedResponse = (BufferedWebResponse)response;
+			Charset charset = bufferedResponse.getCharset();
+			if (charset != null)
+			{
+				bufferedResponse.write(markup, ((RawMarkup)element).getBytes(charset));
+				return;
+			}
+		}
+		response.write(markup);
+	}
+
 	/**
 	 * Handle the container's body. If your override of this method does not advance the markup
 	 * stream to the close tag for the openTag, a runtime exception will be thrown by the framework.
@@ -1678,9 +1704,17 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 		if (children instanceof ChildList)
 		{
 			ChildList lst = (ChildList)children;
-			Object[] tmp = new Object[lst.size];
-			System.arraycopy(lst.childs, 0, tmp, 0, lst.size);
-			children = tmp;
+			if (lst.size > CHILD_INDEX_THRESHOLD)
+			{
+				// keep the list with its index for large containers
+				lst.trimToSize();
+			}
+			else
+			{
+				Object[] tmp = new Object[lst.size];
+				System.arraycopy(lst.childs, 0, tmp, 0, lst.size);
+				children = tmp;
+			}
 		}
 	}
 
@@ -1839,6 +1873,9 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 		private int size;
 		private Object[] childs;
 
+		/** index of the first child with an id, only built for large lists */
+		private transient Map<String, Integer> index;
+
 		/**
 		 * Construct.
 		 * 
@@ -1875,6 +1912,14 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 		{
 			ensureCapacity(size + 1);
 			childs[size++] = o;
+			if (index != null)
+			{
+				String id = getId(o);
+				if (index.containsKey(id) == false)
+				{
+					index.put(id, size - 1);
+				}
+			}
 			return true;
 		}
 
@@ -1890,6 +1935,7 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 			System.arraycopy(childs, index, childs, index + 1, size - index);
 			childs[index] = element;
 			size++;
+			this.index = null;
 		}
 
 		@Override
@@ -1902,6 +1948,10 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 
 			Object oldValue = childs[index];
 			childs[index] = element;
+			if (this.index != null && getId(oldValue).equals(getId(element)) == false)
+			{
+				this.index = null;
+			}
 			return oldValue;
 		}
 
@@ -1921,10 +1971,89 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 				System.arraycopy(childs, index + 1, childs, index, numMoved);
 			}
 			childs[--size] = null; // Let gc do its work
+			this.index = null;
 
 			return oldValue;
 		}
 
+		/**
+		 * Swaps two children.
+		 * 
+		 * @param idx1
+		 * @param idx2
+		 */
+		public void swap(int idx1, int idx2)
+		{
+			Object tmp = childs[idx1];
+			childs[idx1] = childs[idx2];
+			childs[idx2] = tmp;
+
+			if (index != null)
+			{
+				String id1 = getId(childs[idx1]);
+				String id2 = getId(childs[idx2]);
+				Integer index1 = index.get(id1);
+				Integer index2 = index.get(id2);
+				if (index1 != null && index1 == idx2 && index2 != null && index2 == idx1)
+				{
+					index.put(id1, idx1);
+					index.put(id2, idx2);
+				}
+				else
+				{
+					// another child with one of the ids comes first
+					index = null;
+				}
+			}
+		}
+
+		/**
+		 * @param id
+		 * @return the index of the first child with the given id or -1
+		 */
+		public int indexOfId(String id)
+		{
+			if (size <= CHILD_INDEX_THRESHOLD)
+			{
+				for (int i = 0; i < size; i++)
+				{
+					if (getId(childs[i]).equals(id))
+					{
+						return i;
+					}
+				}
+				return -1;
+			}
+
+			if (index == null)
+			{
+				index = new HashMap<String, Integer>(size * 2);
+				for (int i = 0; i < size; i++)
+				{
+					String childId = getId(childs[i]);
+					if (index.containsKey(childId) == false)
+					{
+						index.put(childId, i);
+					}
+				}
+			}
+			Integer i = index.get(id);
+			return i != null ? i : -1;
+		}
+
+		/**
+		 * Reduces the capacity to the number of children.
+		 */
+		public void trimToSize()
+		{
+			if (childs.length > size)
+			{
+				Object[] tmp = new Object[size];
+				System.arraycopy(childs, 0, tmp, 0, size);
+				childs = tmp;
+			}
+		}
+
 		/**
 		 * @param minCapacity
 		 */
@@ -1983,10 +2112,7 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 		}
 		else
 		{
-			ChildList list = (ChildList)children;
-			Object tmp = list.childs[idx1];
-			list.childs[idx1] = list.childs[idx2];
-			list.childs[idx2] = tmp;
+			((ChildList)children).swap(idx1, idx2);
 		}
 	}
 
@@ -28,6 +28,8 @@ import org.apache.wicket.behavior.Behavior;
 import org.apache.wicket.request.Request;
 import org.apache.wicket.request.RequestHandlerStack.ReplaceHandlerException;
 import org.apache.wicket.request.component.IRequestableComponent;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.request.cycle.RequestTimings;
 import org.apache.wicket.request.handler.ListenerInvocationNotAllowedException;
 import org.apache.wicket.request.http.WebRequest;
 import org.apache.wicket.util.lang.Classes;
@@ -254,6 +256,7 @@ public class RequestListenerInterface
 			frozen = page.setFreezePageId(true);
 		}
 
+		long start = System.nanoTime();
 		try
 		{
 			method.invoke(target);
@@ -282,6 +285,12 @@ public class RequestListenerInterface
 			{
 				page.setFreezePageId(frozen);
 			}
+
+			RequestCycle requestCycle = RequestCycle.get();
+			if (requestCycle != null)
+			{
+				requestCycle.endPhase(RequestTimings.Phase.INVOKE, start);
+			}
 		}
 	}
 
@@ -16,11 +16,18 @@
  */
 package org.apache.wicket;
 
+import org.apache.wicket.request.IRequestHandler;
 import org.apache.wicket.request.component.IRequestablePage;
+import org.apache.wicket.request.handler.BookmarkableListenerInterfaceRequestHandler;
+import org.apache.wicket.request.handler.BookmarkablePageRequestHandler;
+import org.apache.wicket.request.handler.IPageClassRequestHandler;
+import org.apache.wicket.request.handler.RenderPageRequestHandler;
+import org.apache.wicket.request.handler.resource.ResourceReferenceRequestHandler;
 import org.apache.wicket.request.mapper.BookmarkableMapper;
 import org.apache.wicket.request.mapper.BufferedResponseMapper;
 import org.apache.wicket.request.mapper.CompoundRequestMapper;
 import org.apache.wicket.request.mapper.HomePageMapper;
+import org.apache.wicket.request.mapper.MountedMapper;
 import org.apache.wicket.request.mapper.PageInstanceMapper;
 import org.apache.wicket.request.mapper.ResourceReferenceMapper;
 import org.apache.wicket.request.mapper.parameter.PageParametersEncoder;
@@ -54,6 +61,36 @@ public class SystemMapper extends CompoundRequestMapper
 		add(new BufferedResponseMapper());
 	}
 
+	/**
+	 * Handlers for bookmarkable pages are keyed by the name of their page class, so only the
+	 * {@link MountedMapper} of that class is asked to map them. Resource reference handlers are
+	 * keyed by {@link ResourceReferenceRequestHandler}, all other handlers by their class.
+	 * 
+	 * @see org.apache.wicket.request.mapper.CompoundRequestMapper#getHandlerKey(org.apache.wicket.request.IRequestHandler)
+	 */
+	@Override
+	protected Object getHandlerKey(IRequestHandler handler)
+	{
+		if (handler instanceof BookmarkablePageRequestHandler ||
+			handler instanceof RenderPageRequestHandler)
+		{
+			Class<?> pageClass = ((IPageClassRequestHandler)handler).getPageClass();
+			return pageClass != null ? pageClass.getName() : null;
+		}
+		else if (handler instanceof BookmarkableListenerInterfaceRequestHandler)
+		{
+			// same as the mappers, which check the class of the page instance
+			return ((BookmarkableListenerInterfaceRequestHandler)handler).getPage()
+				.getClass()
+				.getName();
+		}
+		else if (handler instanceof ResourceReferenceRequestHandler)
+		{
+			return ResourceReferenceRequestHandler.class;
+		}
+		return handler.getClass();
+	}
+
 	private IProvider<Boolean> useTimestampsProvider()
 	{
 		return new IProvider<Boolean>()
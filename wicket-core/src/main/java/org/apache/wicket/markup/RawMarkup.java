@@ -16,6 +16,9 @@
  */
 package org.apache.wicket.markup;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
 /**
  * This class is for framework purposes only, which is why the class is (default) protected.
  * <p>
@@ -29,6 +32,9 @@ public final class RawMarkup extends MarkupElement
 	/** The raw markup string * */
 	private final CharSequence string;
 
+	/** The raw markup encoded in the charset it was last requested for */
+	private transient volatile Encoded encoded;
+
 	/**
 	 * Create a RawMarkup element referencing an uninterpreted markup string.
 	 * 
@@ -96,6 +102,28 @@ public final class RawMarkup extends MarkupElement
 		return string;
 	}
 
+	/**
+	 * Returns the raw markup encoded in the given charset. As markup is cached and shared by all
+	 * renders of a component, the bytes are kept for the next call with the same charset.
+	 * 
+	 * @param charset
+	 *            the charset to encode the markup in
+	 * @return the encoded markup, must not be modified
+	 */
+	public byte[] getBytes(final Charset charset)
+	{
+		Encoded current = encoded;
+		if (current == null || !current.charset.equals(charset))
+		{
+			ByteBuffer buffer = charset.encode(toString());
+			byte[] bytes = new byte[buffer.remaining()];
+			buffer.get(bytes);
+			current = new Encoded(charset, bytes);
+			encoded = current;
+		}
+		return current.bytes;
+	}
+
 	/**
 	 * @return This raw markup string
 	 */
@@ -113,4 +141,19 @@ public final class RawMarkup extends MarkupElement
 	{
 		return "[Raw markup]";
 	}
+
+	/**
+	 * Markup bytes together with their charset, to be replaced at once.
+	 */
+	private static final class Encoded
+	{
+		private final Charset charset;
+		private final byte[] bytes;
+
+		private Encoded(final Charset charset, final byte[] bytes)
+		{
+			this.charset = charset;
+			this.bytes = bytes;
+		}
+	}
 }
@@ -31,6 +31,7 @@ import org.apache.wicket.markup.WicketTag;
 import org.apache.wicket.markup.html.IHeaderResponse;
 import org.apache.wicket.markup.html.TransparentWebMarkupContainer;
 import org.apache.wicket.markup.renderStrategy.AbstractHeaderRenderStrategy;
+import org.apache.wicket.protocol.http.StreamingWebResponse;
 import org.apache.wicket.request.Response;
 import org.apache.wicket.response.StringResponse;
 
@@ -187,6 +188,12 @@ public class HtmlHeaderContainer extends TransparentWebMarkupContainer
 			// Restore the original response
 			getRequestCycle().setResponse(webResponse);
 		}
+
+		// Send the header section right away if the page is streamed
+		if (webResponse instanceof StreamingWebResponse)
+		{
+			((StreamingWebResponse)webResponse).commit();
+		}
 	}
 
 	/**
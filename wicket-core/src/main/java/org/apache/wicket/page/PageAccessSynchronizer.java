@@ -18,18 +18,30 @@ package org.apache.wicket.page;
 
 import java.util.Date;
 import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 
+import org.apache.wicket.WicketRuntimeException;
 import org.apache.wicket.util.IProvider;
 import org.apache.wicket.util.ValueProvider;
 import org.apache.wicket.util.lang.Args;
 import org.apache.wicket.util.time.Duration;
-import org.apache.wicket.util.time.Time;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Synchronizes access to page instances from multiple threads
+ * <p>
+ * Each locked page has its own queue of waiting threads. They get the lock in the order they asked
+ * for it, handed over directly by the thread releasing it, so releasing a page wakes only the next
+ * thread waiting for that page. Waiting threads park instead of waiting on a monitor, so they don't
+ * pin the carrier thread when requests are handled by virtual threads. When a thread fails to get a
+ * lock in time, the warning names the thread holding it, and with debug logging enabled includes
+ * that thread's stack trace.
  * 
  * @author Igor Vaynberg (ivaynberg)
  */
@@ -40,12 +52,21 @@ public class PageAccessSynchronizer
 	/** map of which pages are owned by which threads */
 	private final ConcurrentHashMap<Integer, PageLock> locks = new ConcurrentHashMap<Integer, PageLock>();
 
-	/** used to synchronize various code points */
-	private final Object semaphore = new Object();
-
 	/** timeout value for acquiring a page lock */
 	private final IProvider<Duration> timeout;
 
+	/** number of times a thread had to wait for a lock */
+	private final AtomicLong waits = new AtomicLong();
+
+	/** total time threads waited for locks in nanoseconds */
+	private final AtomicLong waitTime = new AtomicLong();
+
+	/** longest time a thread waited for a lock in nanoseconds */
+	private final AtomicLong maxWaitTime = new AtomicLong();
+
+	/** number of times a thread gave up waiting for a lock */
+	private final AtomicLong timeouts = new AtomicLong();
+
 	/**
 	 * Constructor
 	 * 
@@ -69,11 +90,6 @@ public class PageAccessSynchronizer
 		this.timeout = timeout;
 	}
 
-	private static long remaining(Time start, Duration timeout)
-	{
-		return Math.max(0, timeout.subtract(start.elapsedSince()).getMilliseconds());
-	}
-
 	/**
 	 * Acquire a lock to a page
 	 * 
@@ -86,56 +102,84 @@ public class PageAccessSynchronizer
 	{
 		final Duration timeout = this.timeout.get();
 		final Thread thread = Thread.currentThread();
-		final PageLock lock = new PageLock(pageId, thread);
-		final Time start = Time.now();
+		final long start = System.nanoTime();
+		final long deadline = start + timeout.getMilliseconds() * 1000000;
 
-		boolean locked = false;
+		logger.debug("{} attempting to acquire lock to page {}", thread.getName(), pageId);
 
-		while (!locked && start.elapsedSince().lessThan(timeout))
+		while (true)
 		{
-			logger.debug("{} attempting to acquire lock to page {}", thread.getName(), pageId);
+			PageLock lock = locks.get(pageId);
+			if (lock == null)
+			{
+				PageLock created = new PageLock(pageId, thread);
+				lock = locks.putIfAbsent(pageId, created);
+				if (lock == null)
+				{
+					// first thread to acquire lock
+					logger.debug("{} acquired lock to page {}", thread.getName(), pageId);
+					return;
+				}
+			}
 
-			PageLock previous = locks.putIfAbsent(pageId, lock);
-			if (previous == null || previous.getThread() == thread)
+			if (lock.getThread() == thread)
 			{
-				// first thread to acquire lock or lock is already owned by this thread
-				locked = true;
+				// lock is already owned by this thread
+				return;
 			}
-			else
+
+			Boolean acquired = lock.acquire(thread, deadline);
+			if (acquired == null)
 			{
-				// wait for a lock to become available
-				long remaining = remaining(start, timeout);
-				if (remaining > 0)
-				{
-					synchronized (semaphore)
-					{
-						if (logger.isDebugEnabled())
-						{
-							logger.debug("{} waiting for lock to page {} for {}", new Object[] {
-									thread.getName(), pageId, Duration.milliseconds(remaining) });
-						}
-						try
-						{
-							semaphore.wait(remaining);
-						}
-						catch (InterruptedException e)
-						{
-							// TODO better exception
-							throw new RuntimeException(e);
-						}
-					}
-				}
+				// the lock has been released and removed in the meantime
+				continue;
 			}
+
+			long waited = System.nanoTime() - start;
+			waits.incrementAndGet();
+			waitTime.addAndGet(waited);
+			long max = maxWaitTime.get();
+			while (waited > max && !maxWaitTime.compareAndSet(max, waited))
+			{
+				max = maxWaitTime.get();
+			}
+
+			if (acquired)
+			{
+				logger.debug("{} acquired lock to page {}", thread.getName(), pageId);
+				return;
+			}
+
+			timeouts.incrementAndGet();
+			onTimeout(lock, thread, timeout);
+			throw new CouldNotLockPageException(pageId, thread.getName(), timeout);
 		}
-		if (locked)
-		{
-			logger.debug("{} acquired lock to page {}", thread.getName(), pageId);
-		}
-		else
+	}
+
+	/**
+	 * Logs the failure to get a lock in time.
+	 * 
+	 * @param lock
+	 * @param thread
+	 *            the thread that failed to get the lock
+	 * @param timeout
+	 */
+	private void onTimeout(PageLock lock, Thread thread, Duration timeout)
+	{
+		Thread owner = lock.getThread();
+		String ownerName = owner != null ? owner.getName() : null;
+		logger.warn("{} failed to acquire lock to page {} within {}, the lock is held by {}",
+			new Object[] { thread.getName(), lock.getPageId(), timeout, ownerName });
+
+		if (owner != null && logger.isDebugEnabled())
 		{
-			logger.warn("{} failed to acquire lock to page {}, attempted for {} out of allowed {}",
-				new Object[] { thread.getName(), pageId, start.elapsedSince(), timeout });
-			throw new CouldNotLockPageException(pageId, thread.getName(), timeout);
+			StringBuilder trace = new StringBuilder();
+			for (StackTraceElement element : owner.getStackTrace())
+			{
+				trace.append("\n\tat ").append(element);
+			}
+			logger.debug("stack trace of {} holding the lock to page {}:{}", new Object[] {
+					ownerName, lock.getPageId(), trace });
 		}
 	}
 
@@ -147,28 +191,56 @@ public class PageAccessSynchronizer
 		final Thread thread = Thread.currentThread();
 		final Iterator<PageLock> locks = this.locks.values().iterator();
 
-		boolean changed = false;
 		while (locks.hasNext())
 		{
-			// remove all locks held by this thread
+			// release all locks held by this thread
 			final PageLock lock = locks.next();
 			if (lock.getThread() == thread)
 			{
-				locks.remove();
-				logger.debug("{} released lock to page {}", thread.getName(), lock.getPageId());
-				changed = true;
+				Thread next = lock.release(this.locks);
+				if (next != null)
+				{
+					logger.debug("{} handed lock to page {} over to {}", new Object[] {
+							thread.getName(), lock.getPageId(), next.getName() });
+				}
+				else
+				{
+					logger.debug("{} released lock to page {}", thread.getName(), lock.getPageId());
+				}
 			}
 		}
+	}
 
-		if (changed)
-		{
-			// if any locks were removed notify threads waiting for a lock
-			synchronized (semaphore)
-			{
-				logger.debug("{} notifying blocked threads", thread.getName());
-				semaphore.notifyAll();
-			}
-		}
+	/**
+	 * @return how often a thread had to wait for the lock to a page
+	 */
+	public long getLockWaitCount()
+	{
+		return waits.get();
+	}
+
+	/**
+	 * @return the total time threads waited for the locks to pages
+	 */
+	public Duration getTotalLockWaitTime()
+	{
+		return Duration.milliseconds(waitTime.get() / 1000000);
+	}
+
+	/**
+	 * @return the longest time a thread waited for the lock to a page
+	 */
+	public Duration getMaxLockWaitTime()
+	{
+		return Duration.milliseconds(maxWaitTime.get() / 1000000);
+	}
+
+	/**
+	 * @return how often a thread failed to get the lock to a page within the timeout
+	 */
+	public long getLockTimeoutCount()
+	{
+		return timeouts.get();
 	}
 
 	/**
@@ -224,7 +296,16 @@ public class PageAccessSynchronizer
 		private final Date created;
 
 		/** thread that owns the lock */
-		private final Thread thread;
+		private volatile Thread thread;
+
+		/** threads waiting for the lock, in the order they asked for it */
+		private final Queue<Thread> waiting = new LinkedList<Thread>();
+
+		/** whether the lock has been released without anyone waiting and removed from the map */
+		private boolean removed = false;
+
+		/** guards {@link #waiting}, {@link #removed} and the handover of {@link #thread} */
+		private final ReentrantLock mutex = new ReentrantLock();
 
 		/**
 		 * Constructor
@@ -239,6 +320,110 @@ public class PageAccessSynchronizer
 			created = new Date();
 		}
 
+		/**
+		 * Waits until the lock is handed over to the thread.
+		 * 
+		 * @param thread
+		 *            the current thread
+		 * @param deadline
+		 *            the value of {@link System#nanoTime()} after which to give up
+		 * @return whether the thread got the lock, or <code>null</code> if the lock has been
+		 *         removed and another one has to be acquired
+		 */
+		private Boolean acquire(Thread thread, long deadline)
+		{
+			mutex.lock();
+			try
+			{
+				if (removed)
+				{
+					return null;
+				}
+				waiting.add(thread);
+			}
+			finally
+			{
+				mutex.unlock();
+			}
+
+			while (true)
+			{
+				long remaining;
+				mutex.lock();
+				try
+				{
+					if (this.thread == thread)
+					{
+						return true;
+					}
+					remaining = deadline - System.nanoTime();
+					if (remaining <= 0)
+					{
+						waiting.remove(thread);
+						return false;
+					}
+				}
+				finally
+				{
+					mutex.unlock();
+				}
+
+				LockSupport.parkNanos(remaining);
+
+				if (Thread.interrupted())
+				{
+					mutex.lock();
+					try
+					{
+						if (this.thread != thread)
+						{
+							waiting.remove(thread);
+						}
+					}
+					finally
+					{
+						mutex.unlock();
+					}
+					// keep the interrupted status, the lock is released with the others if it was
+					// handed over meanwhile
+					thread.interrupt();
+					throw new WicketRuntimeException(thread.getName() +
+						" was interrupted while waiting for the lock to page " + pageId);
+				}
+			}
+		}
+
+		/**
+		 * Hands the lock over to the next waiting thread, or removes it if there is none.
+		 * 
+		 * @param locks
+		 *            the map holding the lock
+		 * @return the thread that got the lock
+		 */
+		private Thread release(ConcurrentHashMap<Integer, PageLock> locks)
+		{
+			mutex.lock();
+			try
+			{
+				Thread next = waiting.poll();
+				thread = next;
+				if (next != null)
+				{
+					LockSupport.unpark(next);
+				}
+				else
+				{
+					removed = true;
+					locks.remove(pageId, this);
+				}
+				return next;
+			}
+			finally
+			{
+				mutex.unlock();
+			}
+		}
+
 		/**
 		 * @return page id of locked page
 		 */
@@ -262,7 +447,5 @@ public class PageAccessSynchronizer
 		{
 			return thread;
 		}
-
-
 	}
 }
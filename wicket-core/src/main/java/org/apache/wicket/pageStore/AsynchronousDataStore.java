@@ -17,87 +17,167 @@
 package org.apache.wicket.pageStore;
 
 import java.util.Iterator;
-import java.util.Map;
-import java.util.Queue;
+import java.util.LinkedList;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
- * Facade for {@link IDataStore} that does the actual saving in worker thread.
- * 
+ * Facade for {@link IDataStore} that does the actual saving in worker threads.
+ * <p>
+ * Pending entries are partitioned into stripes by the hash of their session id, each stripe being
+ * served by its own writer thread. This keeps the order of writes within a session while writes of
+ * different sessions proceed in parallel. What happens when a stripe's queue is full is decided
+ * by the {@link OverflowPolicy}.
+ *
  * @author Matej Knopp
  */
 public class AsynchronousDataStore implements IDataStore
 {
-	private static final Object WRITE_LOCK = new Object();
+	private static final Logger log = LoggerFactory.getLogger(AsynchronousDataStore.class);
+
+	/** default number of queued entries */
+	public static final int DEFAULT_MAX_QUEUED_ENTRIES = 100;
 
-	private final AtomicBoolean destroy = new AtomicBoolean(false);
+	/**
+	 * Decides what happens to an entry that is stored while the queue of its stripe is full.
+	 */
+	public enum OverflowPolicy {
+		/** the storing thread waits until the writer has made room in the queue */
+		BLOCK,
+
+		/**
+		 * the oldest queued entry of the stripe is discarded, its page will not be available
+		 * anymore
+		 */
+		DROP_OLDEST,
+
+		/** the entry is written to the underlying data store on the storing thread */
+		WRITE_THROUGH
+	}
 
 	private final IDataStore dataStore;
 
-	private final Queue<Entry> entries = new ConcurrentLinkedQueue<Entry>();
+	private final Stripe[] stripes;
+
+	private final OverflowPolicy overflowPolicy;
+
+	/** entries waiting to be written, by key */
+	private final ConcurrentMap<String, Entry> entryMap = new ConcurrentHashMap<String, Entry>();
+
+	private volatile boolean destroyed = false;
+
+	private final AtomicLong writeCount = new AtomicLong();
+
+	private final AtomicLong writeTime = new AtomicLong();
+
+	private final AtomicLong maxWriteTime = new AtomicLong();
 
-	private final Map<String, Entry> entryMap = new ConcurrentHashMap<String, Entry>();
+	private final AtomicLong dropCount = new AtomicLong();
+
+	private final AtomicLong writeThroughCount = new AtomicLong();
 
 	/**
-	 * Construct.
-	 * 
+	 * Construct with a single writer thread which writes synchronously if more than
+	 * {@link #getMaxQueuedEntries()} are queued.
+	 *
 	 * @param dataStore
 	 */
 	public AsynchronousDataStore(final IDataStore dataStore)
 	{
+		this(dataStore, 1, OverflowPolicy.WRITE_THROUGH);
+	}
+
+	/**
+	 * Construct.
+	 *
+	 * @param dataStore
+	 *            the data store doing the actual writes
+	 * @param writerCount
+	 *            number of writer threads
+	 * @param overflowPolicy
+	 *            what to do if the queue is full
+	 */
+	public AsynchronousDataStore(final IDataStore dataStore, final int writerCount,
+		final OverflowPolicy overflowPolicy)
+	{
+		Args.notNull(dataStore, "dataStore");
+		Args.notNull(overflowPolicy, "overflowPolicy");
+		if (writerCount < 1)
+		{
+			throw new IllegalArgumentException("writerCount must be at least 1");
+		}
+
 		this.dataStore = dataStore;
+		this.overflowPolicy = overflowPolicy;
 
-		new Thread(new PageSavingRunnable(), "Wicket-PageSavingThread").start();
+		stripes = new Stripe[writerCount];
+		for (int i = 0; i < writerCount; i++)
+		{
+			stripes[i] = new Stripe();
+			stripes[i].writer = new Thread(new PageSavingRunnable(stripes[i]),
+				"Wicket-PageSavingThread-" + i);
+			stripes[i].writer.setDaemon(true);
+			stripes[i].writer.start();
+		}
 	}
 
 	/**
+	 * Waits for the writer threads to store all queued entries and destroys the underlying data
+	 * store.
+	 *
 	 * @see org.apache.wicket.pageStore.IDataStore#destroy()
 	 */
 	public void destroy()
 	{
-		destroy.set(true);
+		destroyed = true;
 
-		synchronized (entries)
+		for (Stripe stripe : stripes)
 		{
-			// let the saving thread continue
-			entries.notify();
+			stripe.lock.lock();
+			try
+			{
+				// let the saving thread finish
+				stripe.notEmpty.signalAll();
+				stripe.notFull.signalAll();
+			}
+			finally
+			{
+				stripe.lock.unlock();
+			}
 		}
 
-		try
+		for (Stripe stripe : stripes)
 		{
-			synchronized (destroy)
+			try
 			{
-				destroy.wait();
+				stripe.writer.join();
+			}
+			catch (InterruptedException e)
+			{
+				log.warn("Interrupted while waiting for the page saving thread to finish", e);
+				Thread.currentThread().interrupt();
+				break;
 			}
-		}
-		catch (InterruptedException e)
-		{
-			e.printStackTrace();
 		}
 
 		dataStore.destroy();
 	}
 
-	/**
-	 * Little helper
-	 * 
-	 * @param sessionId
-	 * @param id
-	 * @return Entry
-	 */
-	private Entry getEntry(final String sessionId, final int id)
-	{
-		return entryMap.get(getKey(sessionId, id));
-	}
-
 	/**
 	 * @see org.apache.wicket.pageStore.IDataStore#getData(java.lang.String, int)
 	 */
 	public byte[] getData(final String sessionId, final int id)
 	{
-		Entry entry = getEntry(sessionId, id);
+		Entry entry = entryMap.get(getKey(sessionId, id));
 		if (entry != null)
 		{
 			return entry.getData();
@@ -114,11 +194,11 @@ public class AsynchronousDataStore implements IDataStore
 	}
 
 	/**
-	 * @return max queue size
+	 * @return max queue size, shared evenly by the writer threads
 	 */
 	protected int getMaxQueuedEntries()
 	{
-		return 100;
+		return DEFAULT_MAX_QUEUED_ENTRIES;
 	}
 
 	/**
@@ -126,20 +206,33 @@ public class AsynchronousDataStore implements IDataStore
 	 */
 	public void removeData(final String sessionId, final int id)
 	{
-		synchronized (WRITE_LOCK)
+		final String key = getKey(sessionId, id);
+		final Stripe stripe = getStripe(sessionId);
+
+		// wait for a running write to finish so it can not store the removed data afterwards
+		stripe.writeLock.lock();
+		try
 		{
-			String key = getKey(sessionId, id);
-			if (key != null)
+			stripe.lock.lock();
+			try
 			{
 				Entry entry = entryMap.remove(key);
 				if (entry != null)
 				{
-					entries.remove(entry);
+					stripe.queue.remove(entry);
+					stripe.notFull.signalAll();
 				}
 			}
-
+			finally
+			{
+				stripe.lock.unlock();
+			}
+			dataStore.removeData(sessionId, id);
+		}
+		finally
+		{
+			stripe.writeLock.unlock();
 		}
-		dataStore.removeData(sessionId, id);
 	}
 
 	/**
@@ -147,20 +240,35 @@ public class AsynchronousDataStore implements IDataStore
 	 */
 	public void removeData(final String sessionId)
 	{
-		synchronized (WRITE_LOCK)
+		final Stripe stripe = getStripe(sessionId);
+
+		stripe.writeLock.lock();
+		try
 		{
-			for (Iterator<Entry> iter = entries.iterator(); iter.hasNext();)
+			stripe.lock.lock();
+			try
 			{
-				Entry e = iter.next();
-				if (e.getSessionId().equals(sessionId))
+				for (Iterator<Entry> iter = stripe.queue.iterator(); iter.hasNext();)
 				{
-					iter.remove();
-					entryMap.remove(getKey(e));
+					Entry e = iter.next();
+					if (e.getSessionId().equals(sessionId))
+					{
+						iter.remove();
+						entryMap.remove(getKey(e));
+					}
 				}
+				stripe.notFull.signalAll();
 			}
+			finally
+			{
+				stripe.lock.unlock();
+			}
+			dataStore.removeData(sessionId);
+		}
+		finally
+		{
+			stripe.writeLock.unlock();
 		}
-
-		dataStore.removeData(sessionId);
 	}
 
 	/**
@@ -168,24 +276,177 @@ public class AsynchronousDataStore implements IDataStore
 	 */
 	public void storeData(final String sessionId, final int id, final byte[] data)
 	{
-		if (entryMap.size() > getMaxQueuedEntries())
-		{
-			dataStore.storeData(sessionId, id, data);
-		}
-		else
+		final Entry entry = new Entry(sessionId, id, data);
+		final String key = getKey(entry);
+		final Stripe stripe = getStripe(sessionId);
+		final int capacity = Math.max(1, getMaxQueuedEntries() / stripes.length);
+
+		stripe.lock.lock();
+		try
 		{
-			Entry entry = new Entry(sessionId, id, data);
-			entryMap.put(getKey(sessionId, id), entry);
-			entries.add(entry);
-			synchronized (entries)
+			// a newer version replaces a queued one
+			Entry previous = entryMap.remove(key);
+			if (previous != null)
 			{
-				entries.notify();
+				stripe.queue.remove(previous);
 			}
+
+			if (stripe.queue.size() >= capacity && destroyed == false)
+			{
+				switch (overflowPolicy)
+				{
+					case BLOCK :
+						// keeps the interrupt status of the storing thread
+						while (stripe.queue.size() >= capacity && destroyed == false)
+						{
+							stripe.notFull.awaitUninterruptibly();
+						}
+						break;
+
+					case DROP_OLDEST :
+						Entry oldest = stripe.queue.removeFirst();
+						entryMap.remove(getKey(oldest), oldest);
+						dropCount.incrementAndGet();
+						log.debug("Queue full, dropped page {} of session {}",
+							oldest.getPageId(), oldest.getSessionId());
+						break;
+
+					case WRITE_THROUGH :
+						// written below, outside the queue lock
+						break;
+				}
+			}
+
+			if (destroyed == false && stripe.queue.size() < capacity)
+			{
+				entryMap.put(key, entry);
+				stripe.queue.addLast(entry);
+				stripe.notEmpty.signal();
+				return;
+			}
+		}
+		finally
+		{
+			stripe.lock.unlock();
+		}
+
+		writeThroughCount.incrementAndGet();
+		stripe.writeLock.lock();
+		try
+		{
+			write(entry);
+		}
+		finally
+		{
+			stripe.writeLock.unlock();
+		}
+	}
+
+	/**
+	 * @return number of entries waiting to be written
+	 */
+	public int getQueuedEntryCount()
+	{
+		return entryMap.size();
+	}
+
+	/**
+	 * @return number of writer threads
+	 */
+	public int getWriterCount()
+	{
+		return stripes.length;
+	}
+
+	/**
+	 * @return the policy applied when the queue is full
+	 */
+	public OverflowPolicy getOverflowPolicy()
+	{
+		return overflowPolicy;
+	}
+
+	/**
+	 * @return number of entries written to the underlying data store
+	 */
+	public long getWriteCount()
+	{
+		return writeCount.get();
+	}
+
+	/**
+	 * @return number of entries written on the storing thread because the queue was full
+	 */
+	public long getWriteThroughCount()
+	{
+		return writeThroughCount.get();
+	}
+
+	/**
+	 * @return number of entries discarded because the queue was full
+	 */
+	public long getDropCount()
+	{
+		return dropCount.get();
+	}
+
+	/**
+	 * @return average time spent writing a single entry to the underlying data store
+	 */
+	public Duration getAverageWriteTime()
+	{
+		long count = writeCount.get();
+		return Duration.milliseconds(count == 0 ? 0 : (double)writeTime.get() / count / 1000000);
+	}
+
+	/**
+	 * @return longest time spent writing a single entry to the underlying data store
+	 */
+	public Duration getMaxWriteTime()
+	{
+		return Duration.milliseconds((double)maxWriteTime.get() / 1000000);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "[AsynchronousDataStore writers=" + getWriterCount() + ", queued=" +
+			getQueuedEntryCount() + ", written=" + getWriteCount() + ", writeThrough=" +
+			getWriteThroughCount() + ", dropped=" + getDropCount() + ", averageWriteTime=" +
+			getAverageWriteTime() + "]";
+	}
+
+	/**
+	 * Writes the entry to the underlying data store and records the time it took.
+	 *
+	 * @param entry
+	 */
+	private void write(final Entry entry)
+	{
+		long start = System.nanoTime();
+		dataStore.storeData(entry.getSessionId(), entry.getPageId(), entry.getData());
+		long time = System.nanoTime() - start;
+
+		writeCount.incrementAndGet();
+		writeTime.addAndGet(time);
+		long max;
+		while (time > (max = maxWriteTime.get()) && !maxWriteTime.compareAndSet(max, time))
+		{
+			// retry
 		}
 	}
 
 	/**
-	 * 
+	 * @param sessionId
+	 * @return the stripe responsible for the session
+	 */
+	private Stripe getStripe(final String sessionId)
+	{
+		return stripes[(sessionId.hashCode() & Integer.MAX_VALUE) % stripes.length];
+	}
+
+	/**
+	 *
 	 * @param pageId
 	 * @param sessionId
 	 * @return generated key
@@ -196,7 +457,7 @@ public class AsynchronousDataStore implements IDataStore
 	}
 
 	/**
-	 * 
+	 *
 	 * @param entry
 	 * @return generated key
 	 */
@@ -206,7 +467,7 @@ public class AsynchronousDataStore implements IDataStore
 	}
 
 	/**
-	 * 
+	 *
 	 */
 	private static class Entry
 	{
@@ -238,53 +499,104 @@ public class AsynchronousDataStore implements IDataStore
 	}
 
 	/**
-	 * 
+	 * Queue of a single writer thread. {@link java.util.concurrent.locks.Lock}s are used instead of
+	 * monitors so threads waiting for the underlying data store don't pin their carrier threads.
+	 */
+	private static class Stripe
+	{
+		/** guarded by {@link #lock} */
+		private final LinkedList<Entry> queue = new LinkedList<Entry>();
+
+		private final Lock lock = new ReentrantLock();
+
+		/** signalled when an entry is queued or the store is destroyed */
+		private final Condition notEmpty = lock.newCondition();
+
+		/** signalled when an entry leaves the queue or the store is destroyed */
+		private final Condition notFull = lock.newCondition();
+
+		/** held while an entry of this stripe is written to the underlying data store */
+		private final Lock writeLock = new ReentrantLock();
+
+		private Thread writer;
+	}
+
+	/**
+	 *
 	 */
 	private class PageSavingRunnable implements Runnable
 	{
+		private final Stripe stripe;
+
+		private PageSavingRunnable(final Stripe stripe)
+		{
+			this.stripe = stripe;
+		}
+
 		public void run()
 		{
-			while (destroy.get() == false || !entries.isEmpty())
+			while (true)
 			{
-				if (entries.isEmpty())
+				stripe.lock.lock();
+				try
 				{
-					try
+					while (stripe.queue.isEmpty() && destroyed == false)
 					{
-						synchronized (entries)
+						try
+						{
+							stripe.notEmpty.await();
+						}
+						catch (InterruptedException e)
 						{
-							entries.wait();
+							log.debug("Page saving thread interrupted", e);
 						}
 					}
-					catch (InterruptedException e)
+					if (stripe.queue.isEmpty())
 					{
-						e.printStackTrace();
+						// destroyed and nothing left to write
+						return;
 					}
 				}
+				finally
+				{
+					stripe.lock.unlock();
+				}
 
-				synchronized (WRITE_LOCK)
+				stripe.writeLock.lock();
+				try
 				{
-					Entry entry = entries.poll();
+					final Entry entry;
+					stripe.lock.lock();
+					try
+					{
+						// the queue may have been emptied by removeData() in the meantime
+						entry = stripe.queue.poll();
+						stripe.notFull.signalAll();
+					}
+					finally
+					{
+						stripe.lock.unlock();
+					}
 					if (entry != null)
 					{
-						dataStore.storeData(entry.getSessionId(), entry.getPageId(),
-							entry.getData());
-						entryMap.remove(getKey(entry));
+						try
+						{
+							write(entry);
+						}
+						catch (RuntimeException e)
+						{
+							log.error("Error storing page " + entry.getPageId() + " of session " +
+								entry.getSessionId(), e);
+						}
+
+						// the entry was visible to getData() until now
+						entryMap.remove(getKey(entry), entry);
 					}
 				}
-			}
-
-			try
-			{
-				Thread.sleep(10);
-			}
-			catch (InterruptedException e)
-			{
-				e.printStackTrace();
-			}
-
-			synchronized (destroy)
-			{
-				destroy.notify();
+				finally
+				{
+					stripe.writeLock.unlock();
+				}
 			}
 		}
 	}
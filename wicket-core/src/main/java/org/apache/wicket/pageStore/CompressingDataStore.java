@@ -0,0 +1,298 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * Facade for {@link IDataStore} that compresses the page data before it is stored, so the
+ * underlying data store keeps more pages in the same space and writes less.
+ * <p>
+ * Pages smaller than {@link #getMinimumSize()}, and pages the codec can't make at least
+ * {@link #MIN_SAVING_PERCENT} percent smaller, are stored uncompressed. If several pages in a row
+ * don't compress, only every {@link #RETRY_INTERVAL}th one is tried until one compresses again, so
+ * data that is compressed already doesn't cost any time.
+ * 
+ * @see ICompressionCodec
+ */
+public class CompressingDataStore implements IDataStore
+{
+	/** default size of the smallest page to compress */
+	public static final int DEFAULT_MINIMUM_SIZE = 1024;
+
+	/** percentage of the size a page has to save to be stored compressed */
+	public static final int MIN_SAVING_PERCENT = 10;
+
+	/** number of pages in a row that have to fail to compress before compression is skipped */
+	public static final int RETRY_INTERVAL = 16;
+
+	/** marks compressed data, data not starting with it is returned as is */
+	private static final byte[] MAGIC = { 'W', 'C', 'M', 'P' };
+
+	/** length of the header: magic and size of the uncompressed data */
+	private static final int HEADER_LENGTH = MAGIC.length + 4;
+
+	private final IDataStore dataStore;
+
+	private final ICompressionCodec codec;
+
+	private final int minimumSize;
+
+	/** number of pages that didn't compress since the last one that did */
+	private final AtomicInteger failures = new AtomicInteger();
+
+	private final AtomicLong compressedCount = new AtomicLong();
+
+	private final AtomicLong uncompressedCount = new AtomicLong();
+
+	private final AtomicLong pageBytes = new AtomicLong();
+
+	private final AtomicLong storedBytes = new AtomicLong();
+
+	private final AtomicLong compressionTime = new AtomicLong();
+
+	private final AtomicLong decompressionTime = new AtomicLong();
+
+	/**
+	 * Construct.
+	 * 
+	 * @param dataStore
+	 *            the data store the compressed data is stored in
+	 * @param codec
+	 *            the codec compressing the data
+	 */
+	public CompressingDataStore(final IDataStore dataStore, final ICompressionCodec codec)
+	{
+		this(dataStore, codec, DEFAULT_MINIMUM_SIZE);
+	}
+
+	/**
+	 * Construct.
+	 * 
+	 * @param dataStore
+	 *            the data store the compressed data is stored in
+	 * @param codec
+	 *            the codec compressing the data
+	 * @param minimumSize
+	 *            size of the smallest page to compress
+	 */
+	public CompressingDataStore(final IDataStore dataStore, final ICompressionCodec codec,
+		final int minimumSize)
+	{
+		Args.notNull(dataStore, "dataStore");
+		Args.notNull(codec, "codec");
+
+		this.dataStore = dataStore;
+		this.codec = codec;
+		this.minimumSize = Math.max(minimumSize, HEADER_LENGTH);
+	}
+
+	/**
+	 * @return size of the smallest page to compress
+	 */
+	public int getMinimumSize()
+	{
+		return minimumSize;
+	}
+
+	/**
+	 * @return number of pages stored compressed
+	 */
+	public long getCompressedCount()
+	{
+		return compressedCount.get();
+	}
+
+	/**
+	 * @return number of pages stored uncompressed
+	 */
+	public long getUncompressedCount()
+	{
+		return uncompressedCount.get();
+	}
+
+	/**
+	 * @return total size of the pages stored
+	 */
+	public long getPageBytes()
+	{
+		return pageBytes.get();
+	}
+
+	/**
+	 * @return total size of the data written to the underlying data store
+	 */
+	public long getStoredBytes()
+	{
+		return storedBytes.get();
+	}
+
+	/**
+	 * @return size of the data written to the underlying data store relative to the size of the
+	 *         pages, <code>1</code> if nothing has been stored yet
+	 */
+	public double getCompressionRatio()
+	{
+		long pages = pageBytes.get();
+		return pages > 0 ? (double)storedBytes.get() / pages : 1;
+	}
+
+	/**
+	 * @return milliseconds spent compressing pages, including the ones stored uncompressed
+	 *         afterwards
+	 */
+	public long getCompressionTime()
+	{
+		return compressionTime.get() / 1000000;
+	}
+
+	/**
+	 * @return milliseconds spent restoring compressed pages
+	 */
+	public long getDecompressionTime()
+	{
+		return decompressionTime.get() / 1000000;
+	}
+
+	/**
+	 * @see org.apache.wicket.pageStore.IDataStore#getData(java.lang.String, int)
+	 */
+	public byte[] getData(final String sessionId, final int id)
+	{
+		byte[] data = dataStore.getData(sessionId, id);
+		if (data == null || !isCompressed(data))
+		{
+			return data;
+		}
+
+		int length = ((data[MAGIC.length] & 0xFF) << 24) | ((data[MAGIC.length + 1] & 0xFF) << 16) |
+			((data[MAGIC.length + 2] & 0xFF) << 8) | (data[MAGIC.length + 3] & 0xFF);
+		long start = System.nanoTime();
+		byte[] result = codec.decompress(data, HEADER_LENGTH, length);
+		decompressionTime.addAndGet(System.nanoTime() - start);
+		return result;
+	}
+
+	/**
+	 * @see org.apache.wicket.pageStore.IDataStore#storeData(java.lang.String, int, byte[])
+	 */
+	public void storeData(final String sessionId, final int id, final byte[] data)
+	{
+		byte[] stored = data;
+		if (data != null && data.length >= minimumSize && shouldTry())
+		{
+			long start = System.nanoTime();
+			byte[] compressed = codec.compress(data);
+			compressionTime.addAndGet(System.nanoTime() - start);
+
+			int length = HEADER_LENGTH + compressed.length;
+			if (length <= data.length - data.length / 100 * MIN_SAVING_PERCENT)
+			{
+				failures.set(0);
+				stored = new byte[length];
+				System.arraycopy(MAGIC, 0, stored, 0, MAGIC.length);
+				stored[MAGIC.length] = (byte)(data.length >>> 24);
+				stored[MAGIC.length + 1] = (byte)(data.length >>> 16);
+				stored[MAGIC.length + 2] = (byte)(data.length >>> 8);
+				stored[MAGIC.length + 3] = (byte)data.length;
+				System.arraycopy(compressed, 0, stored, HEADER_LENGTH, compressed.length);
+			}
+			else
+			{
+				failures.incrementAndGet();
+			}
+		}
+
+		if (data != null)
+		{
+			(stored != data ? compressedCount : uncompressedCount).incrementAndGet();
+			pageBytes.addAndGet(data.length);
+			storedBytes.addAndGet(stored.length);
+		}
+		dataStore.storeData(sessionId, id, stored);
+	}
+
+	/**
+	 * @return whether to try to compress the next page, which is skipped for most pages after
+	 *         several pages in a row didn't compress
+	 */
+	private boolean shouldTry()
+	{
+		int count = failures.get();
+		if (count < RETRY_INTERVAL)
+		{
+			return true;
+		}
+		return failures.incrementAndGet() % RETRY_INTERVAL == 0;
+	}
+
+	/**
+	 * @see org.apache.wicket.pageStore.IDataStore#removeData(java.lang.String, int)
+	 */
+	public void removeData(final String sessionId, final int id)
+	{
+		dataStore.removeData(sessionId, id);
+	}
+
+	/**
+	 * @see org.apache.wicket.pageStore.IDataStore#removeData(java.lang.String)
+	 */
+	public void removeData(final String sessionId)
+	{
+		dataStore.removeData(sessionId);
+	}
+
+	/**
+	 * @see org.apache.wicket.pageStore.IDataStore#destroy()
+	 */
+	public void destroy()
+	{
+		dataStore.destroy();
+		codec.destroy();
+	}
+
+	/**
+	 * @see org.apache.wicket.pageStore.IDataStore#isReplicated()
+	 */
+	public boolean isReplicated()
+	{
+		return dataStore.isReplicated();
+	}
+
+	/**
+	 * @param data
+	 * @return whether the data has been compressed by this store
+	 */
+	private static boolean isCompressed(final byte[] data)
+	{
+		if (data.length < HEADER_LENGTH)
+		{
+			return false;
+		}
+		for (int i = 0; i < MAGIC.length; i++)
+		{
+			if (data[i] != MAGIC[i])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+}
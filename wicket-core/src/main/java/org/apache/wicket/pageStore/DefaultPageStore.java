@@ -24,9 +24,10 @@ import java.util.List;
 
 import org.apache.wicket.Page;
 import org.apache.wicket.page.IManageablePage;
+import org.apache.wicket.serialize.ISerializer;
+import org.apache.wicket.serialize.JavaSerializer;
 import org.apache.wicket.util.lang.Args;
 import org.apache.wicket.util.lang.Objects;
-import org.apache.wicket.util.lang.WicketObjects;
 
 /**
  * Wicket's default page store
@@ -40,6 +41,11 @@ public class DefaultPageStore implements IPageStore
 
 	private final IDataStore pageDataStore;
 
+	private final ISerializer pageSerializer;
+
+	/** optional second level cache between {@link #serializedPagesCache} and the data store */
+	private final OffHeapPageCache offHeapPageCache;
+
 	/**
 	 * Construct.
 	 * 
@@ -49,13 +55,34 @@ public class DefaultPageStore implements IPageStore
 	 */
 	public DefaultPageStore(final String applicationName, final IDataStore dataStore,
 		final int cacheSize)
+	{
+		this(applicationName, new JavaSerializer(applicationName), dataStore, cacheSize, null);
+	}
+
+	/**
+	 * Construct.
+	 * 
+	 * @param applicationName
+	 * @param pageSerializer
+	 *            serializer for the pages
+	 * @param dataStore
+	 * @param cacheSize
+	 * @param offHeapPageCache
+	 *            cache for serialized pages consulted before the data store, may be
+	 *            <code>null</code>
+	 */
+	public DefaultPageStore(final String applicationName, final ISerializer pageSerializer,
+		final IDataStore dataStore, final int cacheSize, final OffHeapPageCache offHeapPageCache)
 	{
 		Args.notNull(applicationName, "applicationName");
+		Args.notNull(pageSerializer, "pageSerializer");
 		Args.notNull(dataStore, "DataStore");
 
 		this.applicationName = applicationName;
+		this.pageSerializer = pageSerializer;
 		pageDataStore = dataStore;
 		serializedPagesCache = new SerializedPagesCache(cacheSize);
+		this.offHeapPageCache = offHeapPageCache;
 	}
 
 	/**
@@ -63,6 +90,10 @@ public class DefaultPageStore implements IPageStore
 	 */
 	public void destroy()
 	{
+		if (offHeapPageCache != null)
+		{
+			offHeapPageCache.clear();
+		}
 		pageDataStore.destroy();
 	}
 
@@ -74,7 +105,21 @@ public class DefaultPageStore implements IPageStore
 	 */
 	protected byte[] getPageData(final String sessionId, final int pageId)
 	{
-		return pageDataStore.getData(sessionId, pageId);
+		if (offHeapPageCache == null)
+		{
+			return pageDataStore.getData(sessionId, pageId);
+		}
+
+		byte[] data = offHeapPageCache.getData(sessionId, pageId);
+		if (data == null)
+		{
+			data = pageDataStore.getData(sessionId, pageId);
+			if (data != null)
+			{
+				offHeapPageCache.storeData(sessionId, pageId, data);
+			}
+		}
+		return data;
 	}
 
 	/**
@@ -84,6 +129,10 @@ public class DefaultPageStore implements IPageStore
 	 */
 	protected void removePageData(final String sessionId, final int pageId)
 	{
+		if (offHeapPageCache != null)
+		{
+			offHeapPageCache.removeData(sessionId, pageId);
+		}
 		pageDataStore.removeData(sessionId, pageId);
 	}
 
@@ -93,6 +142,10 @@ public class DefaultPageStore implements IPageStore
 	 */
 	protected void removePageData(final String sessionId)
 	{
+		if (offHeapPageCache != null)
+		{
+			offHeapPageCache.removeData(sessionId);
+		}
 		pageDataStore.removeData(sessionId);
 	}
 
@@ -104,6 +157,10 @@ public class DefaultPageStore implements IPageStore
 	 */
 	protected void storePageData(final String sessionId, final int pageId, final byte[] data)
 	{
+		if (offHeapPageCache != null && data != null)
+		{
+			offHeapPageCache.storeData(sessionId, pageId, data);
+		}
 		pageDataStore.storeData(sessionId, pageId, data);
 	}
 
@@ -361,7 +418,7 @@ public class DefaultPageStore implements IPageStore
 		Args.notNull(sessionId, "sessionId");
 		Args.notNull(page, "page");
 
-		byte data[] = WicketObjects.objectToByteArray(page, applicationName);
+		byte data[] = pageSerializer.serialize(page);
 		return new SerializedPage(sessionId, page.getPageId(), data);
 	}
 
@@ -372,7 +429,7 @@ public class DefaultPageStore implements IPageStore
 	 */
 	protected IManageablePage deserializePage(final byte data[])
 	{
-		return (IManageablePage)WicketObjects.byteArrayToObject(data);
+		return (IManageablePage)pageSerializer.deserialize(data);
 	}
 
 	/**
@@ -0,0 +1,206 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.wicket.WicketRuntimeException;
+
+/**
+ * {@link ICompressionCodec} using the JDK's {@link Deflater}. The deflaters and inflaters are kept
+ * for reuse, as each of them allocates native memory. That memory is only freed by
+ * {@link Deflater#end()} and {@link Inflater#end()}, which is done for the instances that are
+ * discarded and for the pooled ones on {@link #destroy()}.
+ */
+public class DeflaterCompressionCodec implements ICompressionCodec
+{
+	private final int level;
+
+	private final Queue<Deflater> deflaters = new ConcurrentLinkedQueue<Deflater>();
+
+	private final Queue<Inflater> inflaters = new ConcurrentLinkedQueue<Inflater>();
+
+	private volatile boolean destroyed = false;
+
+	/**
+	 * Construct with {@link Deflater#BEST_SPEED}, which leaves the pages a bit bigger than the
+	 * default level for a fraction of the time.
+	 */
+	public DeflaterCompressionCodec()
+	{
+		this(Deflater.BEST_SPEED);
+	}
+
+	/**
+	 * Construct.
+	 * 
+	 * @param level
+	 *            compression level, see {@link Deflater#setLevel(int)}
+	 */
+	public DeflaterCompressionCodec(final int level)
+	{
+		if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION)
+		{
+			throw new IllegalArgumentException("Invalid compression level: " + level);
+		}
+		this.level = level;
+	}
+
+	/**
+	 * @see org.apache.wicket.pageStore.ICompressionCodec#compress(byte[])
+	 */
+	public byte[] compress(final byte[] data)
+	{
+		Deflater deflater = deflaters.poll();
+		if (deflater == null)
+		{
+			deflater = new Deflater(level);
+		}
+		boolean reusable = false;
+		try
+		{
+			deflater.setInput(data);
+			deflater.finish();
+
+			byte[] buffer = new byte[data.length / 2 + 64];
+			int length = 0;
+			while (!deflater.finished())
+			{
+				if (length == buffer.length)
+				{
+					byte[] grown = new byte[buffer.length * 2];
+					System.arraycopy(buffer, 0, grown, 0, length);
+					buffer = grown;
+				}
+				length += deflater.deflate(buffer, length, buffer.length - length);
+			}
+
+			byte[] result = new byte[length];
+			System.arraycopy(buffer, 0, result, 0, length);
+			reusable = true;
+			return result;
+		}
+		finally
+		{
+			if (reusable)
+			{
+				deflater.reset();
+				deflaters.offer(deflater);
+				if (destroyed)
+				{
+					// destroyed while compressing, the deflater may have missed the cleanup
+					endDeflaters();
+				}
+			}
+			else
+			{
+				deflater.end();
+			}
+		}
+	}
+
+	/**
+	 * @see org.apache.wicket.pageStore.ICompressionCodec#decompress(byte[], int, int)
+	 */
+	public byte[] decompress(final byte[] compressed, final int offset, final int length)
+	{
+		Inflater inflater = inflaters.poll();
+		if (inflater == null)
+		{
+			inflater = new Inflater();
+		}
+		boolean reusable = false;
+		try
+		{
+			inflater.setInput(compressed, offset, compressed.length - offset);
+
+			byte[] data = new byte[length];
+			int inflated = 0;
+			while (inflated < length && !inflater.finished())
+			{
+				int count = inflater.inflate(data, inflated, length - inflated);
+				if (count == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+				{
+					break;
+				}
+				inflated += count;
+			}
+			if (inflated != length)
+			{
+				throw new WicketRuntimeException("Compressed data is truncated, restored " +
+					inflated + " of " + length + " bytes");
+			}
+			reusable = true;
+			return data;
+		}
+		catch (DataFormatException e)
+		{
+			throw new WicketRuntimeException("Compressed data is corrupt", e);
+		}
+		finally
+		{
+			if (reusable)
+			{
+				inflater.reset();
+				inflaters.offer(inflater);
+				if (destroyed)
+				{
+					endInflaters();
+				}
+			}
+			else
+			{
+				inflater.end();
+			}
+		}
+	}
+
+	/**
+	 * Frees the native memory of the pooled deflaters and inflaters. The codec can still be used
+	 * afterwards, but doesn't pool any more.
+	 * 
+	 * @see org.apache.wicket.pageStore.ICompressionCodec#destroy()
+	 */
+	public void destroy()
+	{
+		destroyed = true;
+		endDeflaters();
+		endInflaters();
+	}
+
+	private void endDeflaters()
+	{
+		Deflater deflater;
+		while ((deflater = deflaters.poll()) != null)
+		{
+			deflater.end();
+		}
+	}
+
+	private void endInflaters()
+	{
+		Inflater inflater;
+		while ((inflater = inflaters.poll()) != null)
+		{
+			inflater.end();
+		}
+	}
+}
@@ -0,0 +1,676 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import org.apache.wicket.util.lang.Args;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Facade for {@link IDataStore} that stores the pages of a session as binary deltas against a
+ * base snapshot, instead of storing each page in full. Successive versions of a page serialize to
+ * mostly the same bytes, so the deltas are usually a small fraction of the page size.
+ * <p>
+ * The base is a full copy of a page of the session stored under an id of its own, so it can not be
+ * overwritten when the page is stored again. A new base is taken after
+ * {@link #getMaxDeltasPerBase()} deltas, or if a page differs too much from the current one. Each
+ * page is restored from its base and its delta alone, so the cost of restoring a page doesn't
+ * depend on the number of versions stored before.
+ * <p>
+ * The deltas are computed on the thread storing the data, so this store is best wrapped by an
+ * {@link AsynchronousDataStore}. A page can be restored only as long as its base is kept by the
+ * underlying data store; stores that evict the oldest entries, like the {@link DiskDataStore},
+ * evict a base together with the pages depending on it.
+ */
+public class DeltaDataStore implements IDataStore
+{
+	private static final Logger log = LoggerFactory.getLogger(DeltaDataStore.class);
+
+	/** default number of deltas stored against one base */
+	public static final int DEFAULT_MAX_DELTAS_PER_BASE = 20;
+
+	/** marks the stored data as a delta, page data not starting with it is returned as is */
+	private static final byte[] MAGIC = { 'W', 'D', 'L', 'T' };
+
+	/** length of the fixed part of the header: magic, base id and base checksum */
+	private static final int HEADER_LENGTH = MAGIC.length + 8;
+
+	/** length of the blocks of the base looked up in the page */
+	private static final int BLOCK = 16;
+
+	private static final int HASH_FACTOR = 31;
+
+	/** HASH_FACTOR ^ (BLOCK - 1), to remove the first byte of a block from its hash */
+	private static final int HASH_POWER;
+
+	static
+	{
+		int power = 1;
+		for (int i = 1; i < BLOCK; i++)
+		{
+			power *= HASH_FACTOR;
+		}
+		HASH_POWER = power;
+	}
+
+	private final IDataStore dataStore;
+
+	private final int maxDeltasPerBase;
+
+	private final ConcurrentMap<String, SessionEntry> sessions = new ConcurrentHashMap<String, SessionEntry>();
+
+	/**
+	 * the next id for a base, counting up from a random value so bases left from a previous run
+	 * are unlikely to be overwritten
+	 */
+	private final AtomicLong nextBaseId = new AtomicLong(new Random().nextInt());
+
+	private final AtomicLong pageBytes = new AtomicLong();
+
+	private final AtomicLong storedBytes = new AtomicLong();
+
+	/**
+	 * Construct.
+	 * 
+	 * @param dataStore
+	 *            the data store the bases and deltas are stored in
+	 */
+	public DeltaDataStore(final IDataStore dataStore)
+	{
+		this(dataStore, DEFAULT_MAX_DELTAS_PER_BASE);
+	}
+
+	/**
+	 * Construct.
+	 * 
+	 * @param dataStore
+	 *            the data store the bases and deltas are stored in
+	 * @param maxDeltasPerBase
+	 *            number of pages stored as delta against one base before a new base is taken
+	 */
+	public DeltaDataStore(final IDataStore dataStore, final int maxDeltasPerBase)
+	{
+		Args.notNull(dataStore, "dataStore");
+		if (maxDeltasPerBase < 1)
+		{
+			throw new IllegalArgumentException("maxDeltasPerBase must be at least 1");
+		}
+		this.dataStore = dataStore;
+		this.maxDeltasPerBase = maxDeltasPerBase;
+	}
+
+	/**
+	 * @return number of pages stored as delta against one base before a new base is taken
+	 */
+	public int getMaxDeltasPerBase()
+	{
+		return maxDeltasPerBase;
+	}
+
+	/**
+	 * @return total size of the pages stored
+	 */
+	public long getPageBytes()
+	{
+		return pageBytes.get();
+	}
+
+	/**
+	 * @return total size of the bases and deltas written to the underlying data store
+	 */
+	public long getStoredBytes()
+	{
+		return storedBytes.get();
+	}
+
+	/**
+	 * @see org.apache.wicket.pageStore.IDataStore#getData(java.lang.String, int)
+	 */
+	public byte[] getData(final String sessionId, final int id)
+	{
+		SessionEntry entry = sessions.get(sessionId);
+		if (entry == null)
+		{
+			return getData(sessionId, id, null);
+		}
+
+		// a page stored meanwhile could release the base of the page read
+		entry.lock.lock();
+		try
+		{
+			return getData(sessionId, id, entry);
+		}
+		finally
+		{
+			entry.lock.unlock();
+		}
+	}
+
+	private byte[] getData(final String sessionId, final int id, final SessionEntry entry)
+	{
+		byte[] data = dataStore.getData(sessionId, id);
+		if (data == null || !isDelta(data))
+		{
+			return data;
+		}
+
+		int baseId = readInt(data, MAGIC.length);
+		int checksum = readInt(data, MAGIC.length + 4);
+
+		byte[] base = entry != null ? entry.getBase(baseId) : null;
+		if (base == null)
+		{
+			base = dataStore.getData(sessionId, baseId);
+			if (base == null)
+			{
+				log.debug("Base {} of page {} in session {} isn't stored anymore", new Object[] {
+						baseId, id, sessionId });
+				return null;
+			}
+			if (checksum(base) != checksum)
+			{
+				log.warn("Base {} of page {} in session {} has been overwritten", new Object[] {
+						baseId, id, sessionId });
+				return null;
+			}
+		}
+		return applyDelta(base, data, HEADER_LENGTH);
+	}
+
+	/**
+	 * @see org.apache.wicket.pageStore.IDataStore#storeData(java.lang.String, int, byte[])
+	 */
+	public void storeData(final String sessionId, final int id, final byte[] data)
+	{
+		SessionEntry entry = sessions.get(sessionId);
+		if (entry == null)
+		{
+			entry = new SessionEntry();
+			SessionEntry existing = sessions.putIfAbsent(sessionId, entry);
+			if (existing != null)
+			{
+				entry = existing;
+			}
+		}
+
+		entry.lock.lock();
+		try
+		{
+			byte[] delta = null;
+			if (entry.baseId != null && entry.deltaCount < maxDeltasPerBase)
+			{
+				byte[] base = entry.getBase(entry.baseId);
+				if (base == null)
+				{
+					base = dataStore.getData(sessionId, entry.baseId);
+					if (base != null && checksum(base) != entry.baseChecksum)
+					{
+						base = null;
+					}
+				}
+				if (base != null)
+				{
+					delta = createDelta(entry.baseId, entry.baseChecksum, base, data);
+					// a delta of more than half of the page isn't worth it, take a new base
+					if (delta.length > data.length / 2)
+					{
+						delta = null;
+					}
+				}
+			}
+
+			if (delta == null)
+			{
+				int baseId = newBaseId();
+				int checksum = checksum(data);
+				dataStore.storeData(sessionId, baseId, data);
+				storedBytes.addAndGet(data.length);
+
+				Integer previous = entry.baseId;
+				entry.baseId = baseId;
+				entry.baseChecksum = checksum;
+				entry.baseData = new SoftReference<byte[]>(data);
+				entry.deltaCount = 0;
+				entry.baseReferences.put(baseId, 0);
+				if (previous != null)
+				{
+					releaseBase(sessionId, entry, previous, 0);
+				}
+
+				delta = createDelta(baseId, checksum, data, data);
+			}
+			else
+			{
+				entry.deltaCount++;
+			}
+
+			dataStore.storeData(sessionId, id, delta);
+			pageBytes.addAndGet(data.length);
+			storedBytes.addAndGet(delta.length);
+
+			Integer previousBase = entry.pageBases.put(id, entry.baseId);
+			entry.baseReferences.put(entry.baseId, entry.baseReferences.get(entry.baseId) + 1);
+			if (previousBase != null)
+			{
+				releaseBase(sessionId, entry, previousBase, 1);
+			}
+		}
+		finally
+		{
+			entry.lock.unlock();
+		}
+	}
+
+	/**
+	 * @see org.apache.wicket.pageStore.IDataStore#removeData(java.lang.String, int)
+	 */
+	public void removeData(final String sessionId, final int id)
+	{
+		SessionEntry entry = sessions.get(sessionId);
+		if (entry != null)
+		{
+			entry.lock.lock();
+			try
+			{
+				dataStore.removeData(sessionId, id);
+				Integer base = entry.pageBases.remove(id);
+				if (base != null)
+				{
+					releaseBase(sessionId, entry, base, 1);
+				}
+			}
+			finally
+			{
+				entry.lock.unlock();
+			}
+		}
+		else
+		{
+			dataStore.removeData(sessionId, id);
+		}
+	}
+
+	/**
+	 * @see org.apache.wicket.pageStore.IDataStore#removeData(java.lang.String)
+	 */
+	public void removeData(final String sessionId)
+	{
+		sessions.remove(sessionId);
+		dataStore.removeData(sessionId);
+	}
+
+	/**
+	 * @see org.apache.wicket.pageStore.IDataStore#destroy()
+	 */
+	public void destroy()
+	{
+		sessions.clear();
+		dataStore.destroy();
+	}
+
+	/**
+	 * @see org.apache.wicket.pageStore.IDataStore#isReplicated()
+	 */
+	public boolean isReplicated()
+	{
+		return dataStore.isReplicated();
+	}
+
+	/**
+	 * Releases references to a base and removes it once no page depends on it anymore, unless it
+	 * is the current base.
+	 * 
+	 * @param sessionId
+	 * @param entry
+	 * @param baseId
+	 * @param references
+	 *            number of references to release
+	 */
+	private void releaseBase(final String sessionId, final SessionEntry entry,
+		final Integer baseId, final int references)
+	{
+		Integer count = entry.baseReferences.get(baseId);
+		if (count == null)
+		{
+			return;
+		}
+		int remaining = count - references;
+		if (remaining <= 0 && !baseId.equals(entry.baseId))
+		{
+			entry.baseReferences.remove(baseId);
+			dataStore.removeData(sessionId, baseId);
+		}
+		else
+		{
+			entry.baseReferences.put(baseId, remaining);
+		}
+	}
+
+	/**
+	 * @return an id for a new base, negative so it doesn't clash with the ids of pages and never
+	 *         <code>-1</code>, which the {@link PageWindowManager} uses for free windows
+	 */
+	private int newBaseId()
+	{
+		return Integer.MIN_VALUE + (int)(nextBaseId.getAndIncrement() & 0x3FFFFFFF);
+	}
+
+	/**
+	 * The bases of a session and the pages depending on them.
+	 */
+	private static class SessionEntry
+	{
+		private final ReentrantLock lock = new ReentrantLock();
+
+		/** current base, <code>null</code> until the first page is stored */
+		private Integer baseId;
+
+		private int baseChecksum;
+
+		/** the data of the current base, kept to create the deltas without reading it */
+		private SoftReference<byte[]> baseData;
+
+		private int deltaCount;
+
+		/** base id by page id */
+		private final Map<Integer, Integer> pageBases = new HashMap<Integer, Integer>();
+
+		/** number of pages by base id */
+		private final Map<Integer, Integer> baseReferences = new HashMap<Integer, Integer>();
+
+		/**
+		 * @param id
+		 * @return the data of the base if it is the current one and still in memory
+		 */
+		private byte[] getBase(int id)
+		{
+			if (baseData != null && baseId != null && baseId == id)
+			{
+				return baseData.get();
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * @param data
+	 * @return whether the data is a delta created by this store
+	 */
+	private static boolean isDelta(final byte[] data)
+	{
+		if (data.length < HEADER_LENGTH)
+		{
+			return false;
+		}
+		for (int i = 0; i < MAGIC.length; i++)
+		{
+			if (data[i] != MAGIC[i])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int checksum(final byte[] data)
+	{
+		CRC32 crc = new CRC32();
+		crc.update(data);
+		return (int)crc.getValue();
+	}
+
+	/**
+	 * Creates the delta to restore the data from the base. It consists of the header and a
+	 * sequence of operations, each being a number of bytes to be taken from the delta followed by
+	 * a number of bytes to be copied from an offset in the base.
+	 * 
+	 * @param baseId
+	 * @param checksum
+	 *            checksum of the base
+	 * @param base
+	 * @param data
+	 * @return delta
+	 */
+	static byte[] createDelta(final int baseId, final int checksum, final byte[] base,
+		final byte[] data)
+	{
+		Output out = new Output(HEADER_LENGTH + 64);
+		out.write(MAGIC, 0, MAGIC.length);
+		out.writeInt(baseId);
+		out.writeInt(checksum);
+		out.writeVarInt(data.length);
+
+		int literalStart = 0;
+		if (base.length >= BLOCK && data.length >= BLOCK)
+		{
+			// index the blocks of the base by their hash
+			int bits = 4;
+			while ((1 << bits) < (base.length / BLOCK) * 2)
+			{
+				bits++;
+			}
+			int[] table = new int[1 << bits];
+			for (int p = 0; p + BLOCK <= base.length; p += BLOCK)
+			{
+				table[index(hash(base, p), bits)] = p + 1;
+			}
+
+			// look the blocks up at each position of the data
+			int i = 0;
+			int hash = hash(data, 0);
+			while (i + BLOCK <= data.length)
+			{
+				int candidate = table[index(hash, bits)] - 1;
+				if (candidate >= 0 && matches(base, candidate, data, i))
+				{
+					int start = i;
+					int offset = candidate;
+					while (start > literalStart && offset > 0 &&
+						data[start - 1] == base[offset - 1])
+					{
+						start--;
+						offset--;
+					}
+					int end = i + BLOCK;
+					int baseEnd = candidate + BLOCK;
+					while (end < data.length && baseEnd < base.length &&
+						data[end] == base[baseEnd])
+					{
+						end++;
+						baseEnd++;
+					}
+
+					out.writeVarInt(start - literalStart);
+					out.write(data, literalStart, start - literalStart);
+					out.writeVarInt(end - start);
+					out.writeVarInt(offset);
+
+					i = end;
+					literalStart = end;
+					if (i + BLOCK <= data.length)
+					{
+						hash = hash(data, i);
+					}
+				}
+				else
+				{
+					if (i + BLOCK < data.length)
+					{
+						hash = (hash - (data[i] & 0xFF) * HASH_POWER) * HASH_FACTOR +
+							(data[i + BLOCK] & 0xFF);
+					}
+					i++;
+				}
+			}
+		}
+		if (literalStart < data.length)
+		{
+			out.writeVarInt(data.length - literalStart);
+			out.write(data, literalStart, data.length - literalStart);
+			out.writeVarInt(0);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Restores the data from the base and the operations of a delta.
+	 * 
+	 * @param base
+	 * @param delta
+	 * @param offset
+	 *            offset of the data length in the delta, followed by the operations
+	 * @return restored data
+	 */
+	static byte[] applyDelta(final byte[] base, final byte[] delta, final int offset)
+	{
+		int[] position = { offset };
+		byte[] data = new byte[readVarInt(delta, position)];
+		int length = 0;
+		while (length < data.length)
+		{
+			int literal = readVarInt(delta, position);
+			System.arraycopy(delta, position[0], data, length, literal);
+			position[0] += literal;
+			length += literal;
+
+			int copy = readVarInt(delta, position);
+			if (copy > 0)
+			{
+				System.arraycopy(base, readVarInt(delta, position), data, length, copy);
+				length += copy;
+			}
+		}
+		return data;
+	}
+
+	private static int hash(final byte[] data, final int offset)
+	{
+		int hash = 0;
+		for (int i = offset; i < offset + BLOCK; i++)
+		{
+			hash = hash * HASH_FACTOR + (data[i] & 0xFF);
+		}
+		return hash;
+	}
+
+	private static int index(final int hash, final int bits)
+	{
+		return (hash * 0x9E3779B1) >>> (32 - bits);
+	}
+
+	private static boolean matches(final byte[] base, final int baseOffset, final byte[] data,
+		final int offset)
+	{
+		for (int i = 0; i < BLOCK; i++)
+		{
+			if (base[baseOffset + i] != data[offset + i])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int readInt(final byte[] data, final int offset)
+	{
+		return ((data[offset] & 0xFF) << 24) | ((data[offset + 1] & 0xFF) << 16) |
+			((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+	}
+
+	private static int readVarInt(final byte[] data, final int[] position)
+	{
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do
+		{
+			b = data[position[0]++];
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		}
+		while ((b & 0x80) != 0);
+		return value;
+	}
+
+	/**
+	 * Growing byte buffer the deltas are written to.
+	 */
+	private static class Output
+	{
+		private byte[] buffer;
+		private int length;
+
+		private Output(int capacity)
+		{
+			buffer = new byte[capacity];
+		}
+
+		private void ensureCapacity(int additional)
+		{
+			if (length + additional > buffer.length)
+			{
+				byte[] grown = new byte[Math.max(buffer.length * 2, length + additional)];
+				System.arraycopy(buffer, 0, grown, 0, length);
+				buffer = grown;
+			}
+		}
+
+		private void write(byte[] data, int offset, int count)
+		{
+			ensureCapacity(count);
+			System.arraycopy(data, offset, buffer, length, count);
+			length += count;
+		}
+
+		private void writeInt(int value)
+		{
+			ensureCapacity(4);
+			buffer[length++] = (byte)(value >>> 24);
+			buffer[length++] = (byte)(value >>> 16);
+			buffer[length++] = (byte)(value >>> 8);
+			buffer[length++] = (byte)value;
+		}
+
+		private void writeVarInt(int value)
+		{
+			ensureCapacity(5);
+			while ((value & ~0x7F) != 0)
+			{
+				buffer[length++] = (byte)((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			buffer[length++] = (byte)value;
+		}
+
+		private byte[] toByteArray()
+		{
+			byte[] result = new byte[length];
+			System.arraycopy(buffer, 0, result, 0, length);
+			return result;
+		}
+	}
+}
@@ -32,6 +32,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.wicket.Application;
 import org.apache.wicket.WicketRuntimeException;
@@ -157,11 +158,16 @@ public class DiskDataStore implements IDataStore
 		SessionEntry sessionEntry = getSessionEntry(sessionId, false);
 		if (sessionEntry != null)
 		{
-			synchronized (sessionEntry)
+			sessionEntry.lock.lock();
+			try
 			{
 				sessionEntryMap.remove(sessionEntry.sessionId);
 				sessionEntry.unbind();
 			}
+			finally
+			{
+				sessionEntry.lock.unlock();
+			}
 		}
 	}
 
@@ -275,12 +281,24 @@ public class DiskDataStore implements IDataStore
 		private PageWindowManager manager;
 		private boolean unbound = false;
 
+		/**
+		 * guards the entry, a {@link java.util.concurrent.locks.Lock} instead of a monitor so the
+		 * disk I/O done while holding it doesn't pin the carrier of a virtual thread
+		 */
+		private transient ReentrantLock lock = new ReentrantLock();
+
 		protected SessionEntry(DiskDataStore diskDataStore, String sessionId)
 		{
 			this.diskDataStore = diskDataStore;
 			this.sessionId = sessionId;
 		}
 
+		private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+		{
+			in.defaultReadObject();
+			lock = new ReentrantLock();
+		}
+
 		private PageWindowManager getManager()
 		{
 			if (manager == null)
@@ -313,36 +331,44 @@ public class DiskDataStore implements IDataStore
 		 * @param pageId
 		 * @param data
 		 */
-		public synchronized void savePage(int pageId, byte data[])
+		public void savePage(int pageId, byte data[])
 		{
-			if (unbound)
-			{
-				return;
-			}
-			// only save page that has some data
-			if (data != null)
+			lock.lock();
+			try
 			{
-				// allocate window for page
-				PageWindow window = getManager().createPageWindow(pageId, data.length);
-
-				// take the filechannel from the pool
-				FileChannel channel = diskDataStore.fileChannelPool.getFileChannel(getFileName(),
-					true);
-				try
-				{
-					// write the content
-					channel.write(ByteBuffer.wrap(data), window.getFilePartOffset());
-				}
-				catch (IOException e)
+				if (unbound)
 				{
-					log.error("Error writing to a channel " + channel, e);
+					return;
 				}
-				finally
+				// only save page that has some data
+				if (data != null)
 				{
-					// return the "borrowed" file channel
-					diskDataStore.fileChannelPool.returnFileChannel(channel);
+					// allocate window for page
+					PageWindow window = getManager().createPageWindow(pageId, data.length);
+
+					// take the filechannel from the pool
+					FileChannel channel = diskDataStore.fileChannelPool.getFileChannel(
+						getFileName(), true);
+					try
+					{
+						// write the content
+						channel.write(ByteBuffer.wrap(data), window.getFilePartOffset());
+					}
+					catch (IOException e)
+					{
+						log.error("Error writing to a channel " + channel, e);
+					}
+					finally
+					{
+						// return the "borrowed" file channel
+						diskDataStore.fileChannelPool.returnFileChannel(channel);
+					}
 				}
 			}
+			finally
+			{
+				lock.unlock();
+			}
 		}
 
 		/**
@@ -350,13 +376,21 @@ public class DiskDataStore implements IDataStore
 		 * 
 		 * @param pageId
 		 */
-		public synchronized void removePage(int pageId)
+		public void removePage(int pageId)
 		{
-			if (unbound)
+			lock.lock();
+			try
 			{
-				return;
+				if (unbound)
+				{
+					return;
+				}
+				getManager().removePage(pageId);
+			}
+			finally
+			{
+				lock.unlock();
 			}
-			getManager().removePage(pageId);
 		}
 
 		/**
@@ -398,33 +432,49 @@ public class DiskDataStore implements IDataStore
 		 * @param id
 		 * @return page data or null if the page is no longer in pagemap file
 		 */
-		public synchronized byte[] loadPage(int id)
+		public byte[] loadPage(int id)
 		{
-			if (unbound)
+			lock.lock();
+			try
 			{
-				return null;
+				if (unbound)
+				{
+					return null;
+				}
+				byte[] result = null;
+				PageWindow window = getManager().getPageWindow(id);
+				if (window != null)
+				{
+					result = loadPage(window);
+				}
+				return result;
 			}
-			byte[] result = null;
-			PageWindow window = getManager().getPageWindow(id);
-			if (window != null)
+			finally
 			{
-				result = loadPage(window);
+				lock.unlock();
 			}
-			return result;
 		}
 
 		/**
 		 * Deletes all files for this session.
 		 */
-		public synchronized void unbind()
+		public void unbind()
 		{
-			diskDataStore.fileChannelPool.closeAndDeleteFileChannel(getFileName());
-			File sessionFolder = diskDataStore.getSessionFolder(sessionId, false);
-			if (sessionFolder.exists())
+			lock.lock();
+			try
+			{
+				diskDataStore.fileChannelPool.closeAndDeleteFileChannel(getFileName());
+				File sessionFolder = diskDataStore.getSessionFolder(sessionId, false);
+				if (sessionFolder.exists())
+				{
+					sessionFolder.delete();
+				}
+				unbound = true;
+			}
+			finally
 			{
-				sessionFolder.delete();
+				lock.unlock();
 			}
-			unbound = true;
 		}
 	}
 
@@ -446,7 +496,7 @@ public class DiskDataStore implements IDataStore
 	 * 
 	 * @return folder
 	 */
-	private static File getDefaultFileStoreFolder()
+	static File getDefaultFileStoreFolder()
 	{
 		File dir = null;
 
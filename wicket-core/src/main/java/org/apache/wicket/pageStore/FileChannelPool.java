@@ -21,12 +21,18 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.channels.FileChannel;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.Map;
-import java.util.Set;
-
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.wicket.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,32 +46,49 @@ import org.slf4j.LoggerFactory;
  * {@link FileChannelPool} class.
  * <p>
  * {@link FileChannelPool} allows to specify maximum number of opened {@link FileChannel}s.
+ * Channels are reference counted, looking up an already opened channel does not block. When the
+ * capacity is exceeded the least recently used idle channels are closed by a background thread.
  * <p>
- * Note that under certain circumstances (when there are no empty slots in pool) the initial
- * capacity can be exceeded (more files are opened then the specified capacity is). If this happens,
- * a warning is written to log, as this probably means that there is a problem with page store.
- * 
+ * Note that under certain circumstances (when there are no idle channels in pool) the capacity can
+ * be exceeded (more files are opened then the specified capacity is). If this happens, a warning is
+ * written to log, as this probably means that there is a problem with page store.
+ *
  * @author Matej Knopp
  */
 public class FileChannelPool
 {
 	private static final Logger log = LoggerFactory.getLogger(FileChannelPool.class);
 
-	private final Map<String, FileChannel> nameToChannel = new HashMap<String, FileChannel>();
+	private final ConcurrentMap<String, PooledChannel> nameToChannel = new ConcurrentHashMap<String, PooledChannel>();
+
+	private final ConcurrentMap<FileChannel, PooledChannel> channelToPooled = new ConcurrentHashMap<FileChannel, PooledChannel>();
 
-	private final Map<FileChannel, String> channelToName = new HashMap<FileChannel, String>();
+	/** number of open channels */
+	private final AtomicInteger openCount = new AtomicInteger();
 
-	private final Map<FileChannel, Integer> channelToUseCount = new HashMap<FileChannel, Integer>();
+	private final AtomicLong acquireCount = new AtomicLong();
 
-	private final LinkedList<FileChannel> idleChannels = new LinkedList<FileChannel>();
+	private final AtomicLong acquireTime = new AtomicLong();
 
-	private final Set<FileChannel> channelsToDeleteOnReturn = new HashSet<FileChannel>();
+	private final AtomicLong openedCount = new AtomicLong();
 
 	private final int capacity;
 
+	private final Lock reduceLock = new ReentrantLock();
+
+	/** signalled when {@link #reduceRequested} or {@link #destroyed} is set */
+	private final Condition reduceCondition = reduceLock.newCondition();
+
+	/** guarded by {@link #reduceLock} */
+	private boolean reduceRequested = false;
+
+	private volatile boolean destroyed = false;
+
+	private final Thread reducer;
+
 	/**
 	 * Construct.
-	 * 
+	 *
 	 * @param capacity
 	 *            Maximum number of opened file channels.
 	 */
@@ -82,11 +105,15 @@ public class FileChannelPool
 		{
 			log.debug("Starting file channel pool with capacity of " + capacity + " channels");
 		}
+
+		reducer = new Thread(new ReduceRunnable(), "Wicket-FileChannelPoolThread");
+		reducer.setDaemon(true);
+		reducer.start();
 	}
 
 	/**
 	 * Creates a new file channel with specified file name.
-	 * 
+	 *
 	 * @param fileName
 	 * @param createIfDoesNotExist
 	 *            in case the file does not exist this parameter determines if the file should be
@@ -112,45 +139,39 @@ public class FileChannelPool
 	}
 
 	/**
-	 * Tries to reduce (close) enough channels to have at least one channel free (so that there are
-	 * maximum capacity - 1 opened channel).
+	 * Closes the least recently used idle channels until the pool fits into its capacity.
 	 */
 	private void reduceChannels()
 	{
-		// how much channels we need to close?
-		int channelsToReduce = nameToChannel.size() - capacity + 1;
-
-		// while there are still channels to close and we have still idle
-		// channels left
-		while (channelsToReduce > 0 && idleChannels.isEmpty() == false)
+		if (openCount.get() <= capacity)
 		{
-			FileChannel channel = idleChannels.getFirst();
-			String channelName = channelToName.get(channel);
-
-			// remove oldest idle channel
-			idleChannels.removeFirst();
-			nameToChannel.remove(channelName);
-			channelToName.remove(channel);
+			return;
+		}
 
-			// this shouldn't really happen
-			if (channelToUseCount.get(channel) != null)
+		// snapshot the usage times, they may change while sorting
+		List<IdleChannel> idle = new ArrayList<IdleChannel>();
+		for (PooledChannel pooled : nameToChannel.values())
+		{
+			if (pooled.useCount.get() == 0)
 			{
-				log.warn("Channel " + channelName + " is both idle and in use at the same time!");
-				channelToUseCount.remove(channel);
+				idle.add(new IdleChannel(pooled));
 			}
+		}
+		Collections.sort(idle);
 
-			try
-			{
-				channel.close();
-			}
-			catch (IOException e)
+		for (int i = 0; i < idle.size() && openCount.get() > capacity; i++)
+		{
+			PooledChannel pooled = idle.get(i).pooled;
+
+			// skip channels which have been taken in the meantime
+			if (pooled.useCount.compareAndSet(0, PooledChannel.CLOSED))
 			{
-				log.error("Error closing file channel", e);
+				nameToChannel.remove(pooled.name, pooled);
+				close(pooled);
 			}
-			--channelsToReduce;
 		}
 
-		if (channelsToReduce > 0)
+		if (openCount.get() > capacity)
 		{
 			log.warn("Unable to reduce enough channels, no idle channels left to remove.");
 		}
@@ -159,103 +180,136 @@ public class FileChannelPool
 	/**
 	 * Returns a channel for given file. If the file doesn't exist, the createIfDoesNotExit
 	 * attribute specifies if the file should be created.
-	 * 
+	 *
 	 * Do NOT call close on the returned chanel. Instead call
 	 * {@link #returnFileChannel(FileChannel)}
-	 * 
+	 *
 	 * @param fileName
 	 * @param createIfDoesNotExist
 	 * @return file channel
 	 */
-	public synchronized FileChannel getFileChannel(String fileName, boolean createIfDoesNotExist)
+	public FileChannel getFileChannel(String fileName, boolean createIfDoesNotExist)
 	{
-		FileChannel channel = nameToChannel.get(fileName);
-		if (channel == null)
+		final long start = System.nanoTime();
+		try
 		{
-			channel = newFileChannel(fileName, createIfDoesNotExist);
-			if (channel != null)
+			while (true)
 			{
-				// we need to create new channel
-				// first, check how many channels we have already opened
-				if (nameToChannel.size() >= capacity)
+				PooledChannel pooled = nameToChannel.get(fileName);
+				if (pooled == null)
 				{
-					reduceChannels();
+					FileChannel channel = newFileChannel(fileName, createIfDoesNotExist);
+					if (channel == null)
+					{
+						return null;
+					}
+
+					// the new channel is registered already in use
+					PooledChannel created = new PooledChannel(fileName, channel);
+					channelToPooled.put(channel, created);
+					pooled = nameToChannel.putIfAbsent(fileName, created);
+					if (pooled == null)
+					{
+						openedCount.incrementAndGet();
+						if (openCount.incrementAndGet() > capacity)
+						{
+							requestReduce();
+						}
+						return channel;
+					}
+
+					// another thread opened the file first
+					channelToPooled.remove(channel);
+					closeQuietly(channel);
 				}
 
-				nameToChannel.put(fileName, channel);
-				channelToName.put(channel, fileName);
+				if (pooled.acquire())
+				{
+					return pooled.channel;
+				}
+				// the channel was closed concurrently, look it up again
 			}
 		}
-
-		if (channel != null)
+		finally
 		{
-			// increase the usage count for this channel
-
-			Integer count = channelToUseCount.get(channel);
-			if (count == null || count == 0)
-			{
-				channelToUseCount.put(channel, 1);
-				idleChannels.remove(channel);
-			}
-			else
-			{
-				count = count + 1;
-				channelToUseCount.put(channel, count);
-			}
+			acquireCount.incrementAndGet();
+			acquireTime.addAndGet(System.nanoTime() - start);
 		}
-
-		return channel;
 	}
 
 	/**
 	 * Returns the channel to the pool. It is necessary to call this for every channel obtained by
 	 * calling {@link #getFileChannel(String, boolean)}.
-	 * 
+	 *
 	 * @param channel
 	 */
-	public synchronized void returnFileChannel(FileChannel channel)
+	public void returnFileChannel(FileChannel channel)
 	{
-		Integer count = channelToUseCount.get(channel);
-		if (count == null || count == 0)
+		PooledChannel pooled = channelToPooled.get(channel);
+		if (pooled == null || pooled.useCount.get() <= 0)
 		{
 			throw new IllegalArgumentException("Trying to return unused channel");
 		}
 
-		count = count - 1;
-
-		// decrease the usage count
-		if (count == 0)
+		pooled.lastUsed = System.nanoTime();
+		if (pooled.useCount.decrementAndGet() == 0)
 		{
-			channelToUseCount.remove(channel);
-			if (channelsToDeleteOnReturn.contains(channel))
+			if (pooled.deleteOnReturn)
 			{
-				closeAndDelete(channel);
+				closeAndDelete(pooled);
 			}
-			else
+			else if (openCount.get() > capacity)
 			{
-				// this was the last usage, add chanel to idle channels
-				idleChannels.addLast(channel);
+				requestReduce();
 			}
 		}
-		else
+	}
+
+	/**
+	 * Closes the channel unless it has been taken again and deletes its file.
+	 *
+	 * @param pooled
+	 */
+	private void closeAndDelete(PooledChannel pooled)
+	{
+		if (pooled.useCount.compareAndSet(0, PooledChannel.CLOSED))
 		{
-			channelToUseCount.put(channel, count);
+			close(pooled);
+			deleteUnlessReopened(pooled.name);
 		}
 	}
 
 	/**
-	 * 
-	 * @param channel
+	 * Deletes the file unless a new channel has been opened for it meanwhile, which happens when
+	 * the file is used again after it has been marked for deletion.
+	 *
+	 * @param name
 	 */
-	private void closeAndDelete(FileChannel channel)
+	private void deleteUnlessReopened(String name)
 	{
-		channelsToDeleteOnReturn.remove(channel);
-		String name = channelToName.get(channel);
-		channelToName.remove(channel);
+		if (nameToChannel.containsKey(name) == false)
+		{
+			new File(name).delete();
+		}
+	}
 
-		channelToUseCount.remove(channel);
-		idleChannels.remove(channel);
+	/**
+	 * Closes a channel which has been marked as closed.
+	 *
+	 * @param pooled
+	 */
+	private void close(PooledChannel pooled)
+	{
+		channelToPooled.remove(pooled.channel);
+		openCount.decrementAndGet();
+		closeQuietly(pooled.channel);
+	}
 
+	/**
+	 * @param channel
+	 */
+	private static void closeQuietly(FileChannel channel)
+	{
 		try
 		{
 			channel.close();
@@ -264,33 +318,27 @@ public class FileChannelPool
 		{
 			log.error("Error closing file channel", e);
 		}
-
-		File file = new File(name);
-		file.delete();
 	}
 
 	/**
 	 * Closes the file channel with given name and removes it from pool. Also removes the file from
-	 * file system. If the channel is in use, the pool first waits until the chanel is returned to
-	 * the pool and then closes it.
-	 * 
+	 * file system. If the channel is in use, it is closed and its file removed as soon as it is
+	 * returned to the pool; this method doesn't wait for that.
+	 *
 	 * @param name
 	 */
-	public synchronized void closeAndDeleteFileChannel(String name)
+	public void closeAndDeleteFileChannel(String name)
 	{
-		FileChannel channel = nameToChannel.get(name);
-		if (channel != null)
+		PooledChannel pooled = nameToChannel.remove(name);
+		if (pooled != null)
 		{
-			nameToChannel.remove(name);
-
-			Integer count = channelToUseCount.get(channel);
-			if (count != null && count > 0)
-			{
-				channelsToDeleteOnReturn.add(channel);
-			}
-			else
+			// whoever sees the channel unused first closes it
+			pooled.deleteOnReturn = true;
+			closeAndDelete(pooled);
+			if (pooled.useCount.get() == PooledChannel.CLOSED)
 			{
-				closeAndDelete(channel);
+				// may have been closed as idle channel before
+				deleteUnlessReopened(name);
 			}
 		}
 		else
@@ -303,19 +351,194 @@ public class FileChannelPool
 	/**
 	 * Destroys the {@link FileChannel} pool and closes all opened channels.
 	 */
-	public synchronized void destroy()
+	public void destroy()
 	{
 		log.debug("Destroying FileChannel pool");
-		for (FileChannel channel : channelToName.keySet())
+
+		destroyed = true;
+		reduceLock.lock();
+		try
+		{
+			reduceCondition.signalAll();
+		}
+		finally
+		{
+			reduceLock.unlock();
+		}
+
+		for (FileChannel channel : channelToPooled.keySet())
+		{
+			closeQuietly(channel);
+		}
+	}
+
+	/**
+	 * @return number of currently opened channels
+	 */
+	public int getOpenChannelCount()
+	{
+		return openCount.get();
+	}
+
+	/**
+	 * @return number of channels opened since the pool was created
+	 */
+	public long getOpenedChannelCount()
+	{
+		return openedCount.get();
+	}
+
+	/**
+	 * @return number of {@link #getFileChannel(String, boolean)} calls
+	 */
+	public long getAcquireCount()
+	{
+		return acquireCount.get();
+	}
+
+	/**
+	 * @return average time spent in {@link #getFileChannel(String, boolean)}, including opening
+	 *         files
+	 */
+	public Duration getAverageAcquireTime()
+	{
+		long count = acquireCount.get();
+		return Duration.milliseconds(count == 0 ? 0 : (double)acquireTime.get() / count / 1000000);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "[FileChannelPool capacity=" + capacity + ", open=" + getOpenChannelCount() +
+			", opened=" + getOpenedChannelCount() + ", acquired=" + getAcquireCount() +
+			", averageAcquireTime=" + getAverageAcquireTime() + "]";
+	}
+
+	/**
+	 * Wakes up the thread closing idle channels.
+	 */
+	private void requestReduce()
+	{
+		reduceLock.lock();
+		try
+		{
+			reduceRequested = true;
+			reduceCondition.signalAll();
+		}
+		finally
+		{
+			reduceLock.unlock();
+		}
+	}
+
+	/**
+	 * A file channel with its usage count.
+	 */
+	private static final class PooledChannel
+	{
+		/** use count of a channel that has been closed and may not be taken anymore */
+		private static final int CLOSED = -1;
+
+		private final String name;
+
+		private final FileChannel channel;
+
+		private final AtomicInteger useCount = new AtomicInteger(1);
+
+		private volatile long lastUsed = System.nanoTime();
+
+		private volatile boolean deleteOnReturn = false;
+
+		private PooledChannel(String name, FileChannel channel)
 		{
-			try
+			this.name = name;
+			this.channel = channel;
+		}
+
+		/**
+		 * @return <code>false</code> if the channel has been closed
+		 */
+		private boolean acquire()
+		{
+			while (true)
 			{
-				channel.close();
+				int count = useCount.get();
+				if (count == CLOSED)
+				{
+					return false;
+				}
+				if (useCount.compareAndSet(count, count + 1))
+				{
+					return true;
+				}
 			}
-			catch (IOException e)
+		}
+	}
+
+	/**
+	 * An idle channel ordered by the time it was last used.
+	 */
+	private static final class IdleChannel implements Comparable<IdleChannel>
+	{
+		private final PooledChannel pooled;
+
+		private final long lastUsed;
+
+		private IdleChannel(PooledChannel pooled)
+		{
+			this.pooled = pooled;
+			lastUsed = pooled.lastUsed;
+		}
+
+		public int compareTo(IdleChannel o)
+		{
+			return lastUsed < o.lastUsed ? -1 : (lastUsed == o.lastUsed ? 0 : 1);
+		}
+	}
+
+	/**
+	 *
+	 */
+	private class ReduceRunnable implements Runnable
+	{
+		public void run()
+		{
+			while (true)
 			{
-				log.error("Error closing file channel", e);
+				reduceLock.lock();
+				try
+				{
+					while (reduceRequested == false && destroyed == false)
+					{
+						try
+						{
+							reduceCondition.await();
+						}
+						catch (InterruptedException e)
+						{
+							log.debug("File channel pool thread interrupted", e);
+						}
+					}
+					if (destroyed)
+					{
+						return;
+					}
+					reduceRequested = false;
+				}
+				finally
+				{
+					reduceLock.unlock();
+				}
+
+				try
+				{
+					reduceChannels();
+				}
+				catch (RuntimeException e)
+				{
+					log.error("Error closing idle file channels", e);
+				}
 			}
 		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+/**
+ * Compresses the page data written by a {@link CompressingDataStore}. Implementations have to be
+ * thread safe.
+ * 
+ * @see DeflaterCompressionCodec
+ */
+public interface ICompressionCodec
+{
+	/**
+	 * Compresses the data.
+	 * 
+	 * @param data
+	 *            data to compress
+	 * @return compressed data
+	 */
+	byte[] compress(byte[] data);
+
+	/**
+	 * Restores the data compressed by {@link #compress(byte[])}.
+	 * 
+	 * @param compressed
+	 *            the compressed data
+	 * @param offset
+	 *            offset of the compressed data in the array
+	 * @param length
+	 *            length of the restored data
+	 * @return restored data
+	 */
+	byte[] decompress(byte[] compressed, int offset, int length);
+
+	/**
+	 * Releases the resources held by the codec, called when the data store is destroyed.
+	 */
+	void destroy();
+}
@@ -0,0 +1,637 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.util.lang.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A data store that appends the pages of all sessions to a small number of shared, memory mapped
+ * segment files. Unlike {@link DiskDataStore} it does not need a file per session, which keeps the
+ * number of open file handles independent of the number of sessions.
+ * <p>
+ * The location of every page is kept in an in-memory index. Space of removed or replaced pages is
+ * reclaimed by a background thread that copies the remaining pages out of mostly empty segments,
+ * after which the segments are reused. The oldest pages of a session are discarded once the
+ * session exceeds its maximum size.
+ * <p>
+ * The index is not persisted, all pages are lost when the store is destroyed.
+ */
+public class MappedSegmentDataStore implements IDataStore
+{
+	private static final Logger log = LoggerFactory.getLogger(MappedSegmentDataStore.class);
+
+	/** default size of a single segment file */
+	public static final Bytes DEFAULT_SEGMENT_SIZE = Bytes.megabytes(16);
+
+	/** segments with less than this ratio of live data are compacted */
+	private static final double COMPACTION_THRESHOLD = 0.5;
+
+	private final File storeFolder;
+
+	private final int maxSizePerSession;
+
+	private final int segmentSize;
+
+	/** all segments, guarded by itself together with {@link #freeSegments} and the positions */
+	private final List<Segment> segments = new ArrayList<Segment>();
+
+	private final LinkedList<Segment> freeSegments = new LinkedList<Segment>();
+
+	/** the segment pages are appended to */
+	private Segment activeSegment;
+
+	private final ConcurrentMap<String, SessionIndex> sessions = new ConcurrentHashMap<String, SessionIndex>();
+
+	private final Object compactionLock = new Object();
+
+	/** guarded by {@link #compactionLock} */
+	private boolean compactionRequested = false;
+
+	private volatile boolean destroyed = false;
+
+	private final Thread compactor;
+
+	/**
+	 * Construct.
+	 *
+	 * @param applicationName
+	 * @param fileStoreFolder
+	 *            folder the segment files are created in
+	 * @param maxSizePerSession
+	 *            maximum number of bytes kept for a single session
+	 * @param segmentSize
+	 *            size of a single segment file
+	 */
+	public MappedSegmentDataStore(final String applicationName, final File fileStoreFolder,
+		final int maxSizePerSession, final Bytes segmentSize)
+	{
+		if (segmentSize.bytes() > Integer.MAX_VALUE)
+		{
+			throw new IllegalArgumentException("segmentSize must not exceed 2GB");
+		}
+
+		storeFolder = new File(fileStoreFolder, applicationName + "-segmentstore");
+		this.maxSizePerSession = maxSizePerSession;
+		this.segmentSize = (int)segmentSize.bytes();
+
+		try
+		{
+			storeFolder.mkdirs();
+		}
+		catch (SecurityException e)
+		{
+			throw new WicketRuntimeException(
+				"SecurityException occurred while creating MappedSegmentDataStore. Consider using a non-disk based IDataStore implementation.",
+				e);
+		}
+
+		compactor = new Thread(new CompactionRunnable(), "Wicket-SegmentCompactionThread");
+		compactor.setDaemon(true);
+		compactor.start();
+	}
+
+	/**
+	 * Construct.
+	 *
+	 * @param applicationName
+	 * @param maxSizePerSession
+	 *            maximum number of bytes kept for a single session
+	 */
+	public MappedSegmentDataStore(final String applicationName, final int maxSizePerSession)
+	{
+		this(applicationName, DiskDataStore.getDefaultFileStoreFolder(), maxSizePerSession,
+			DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * @see org.apache.wicket.pageStore.IDataStore#destroy()
+	 */
+	public void destroy()
+	{
+		destroyed = true;
+		synchronized (compactionLock)
+		{
+			compactionLock.notifyAll();
+		}
+		try
+		{
+			compactor.join();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+
+		sessions.clear();
+		synchronized (segments)
+		{
+			for (Segment segment : segments)
+			{
+				segment.close();
+			}
+			segments.clear();
+			freeSegments.clear();
+			activeSegment = null;
+		}
+		storeFolder.delete();
+	}
+
+	/**
+	 * @see org.apache.wicket.pageStore.IDataStore#getData(java.lang.String, int)
+	 */
+	public byte[] getData(final String sessionId, final int id)
+	{
+		SessionIndex index = sessions.get(sessionId);
+		if (index == null)
+		{
+			return null;
+		}
+
+		// the page may be moved by the compaction between the lookup and the read
+		for (int i = 0; i < 3; i++)
+		{
+			Location location;
+			synchronized (index)
+			{
+				location = index.pages.get(id);
+			}
+			if (location == null)
+			{
+				return null;
+			}
+			byte[] data = read(location);
+			if (data != null)
+			{
+				return data;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @see org.apache.wicket.pageStore.IDataStore#isReplicated()
+	 */
+	public boolean isReplicated()
+	{
+		return false;
+	}
+
+	/**
+	 * @see org.apache.wicket.pageStore.IDataStore#removeData(java.lang.String, int)
+	 */
+	public void removeData(final String sessionId, final int id)
+	{
+		SessionIndex index = sessions.get(sessionId);
+		if (index != null)
+		{
+			synchronized (index)
+			{
+				index.remove(id);
+			}
+		}
+	}
+
+	/**
+	 * @see org.apache.wicket.pageStore.IDataStore#removeData(java.lang.String)
+	 */
+	public void removeData(final String sessionId)
+	{
+		SessionIndex index = sessions.remove(sessionId);
+		if (index != null)
+		{
+			synchronized (index)
+			{
+				index.removed = true;
+				for (Location location : index.pages.values())
+				{
+					release(location);
+				}
+				index.pages.clear();
+			}
+			requestCompaction();
+		}
+	}
+
+	/**
+	 * @see org.apache.wicket.pageStore.IDataStore#storeData(java.lang.String, int, byte[])
+	 */
+	public void storeData(final String sessionId, final int id, final byte[] data)
+	{
+		// only save page that has some data
+		if (data == null)
+		{
+			return;
+		}
+
+		if (data.length > segmentSize || data.length > maxSizePerSession)
+		{
+			log.warn("Page " + id + " of session " + sessionId + " is too large to be stored (" +
+				data.length + " bytes)");
+			removeData(sessionId, id);
+			return;
+		}
+
+		Location location = append(data);
+
+		SessionIndex index = new SessionIndex();
+		SessionIndex existing = sessions.putIfAbsent(sessionId, index);
+		if (existing != null)
+		{
+			index = existing;
+		}
+
+		synchronized (index)
+		{
+			if (index.removed)
+			{
+				release(location);
+				return;
+			}
+
+			index.remove(id);
+			index.pages.put(id, location);
+			index.size += location.length;
+
+			// discard the oldest pages of the session
+			Iterator<Location> oldest = index.pages.values().iterator();
+			while (index.size > maxSizePerSession && oldest.hasNext())
+			{
+				Location discarded = oldest.next();
+				oldest.remove();
+				index.size -= discarded.length;
+				release(discarded);
+			}
+		}
+	}
+
+	/**
+	 * @return number of segment files
+	 */
+	public int getSegmentCount()
+	{
+		synchronized (segments)
+		{
+			return segments.size();
+		}
+	}
+
+	/**
+	 * Moves the pages out of segments which mostly contain removed pages and makes those segments
+	 * available for new pages. Called by the compaction thread after sessions have been removed.
+	 */
+	synchronized void compact()
+	{
+		List<Segment> candidates = new ArrayList<Segment>();
+		synchronized (segments)
+		{
+			for (Segment segment : segments)
+			{
+				if (segment != activeSegment && segment.position > 0 &&
+					segment.live.get() <= segment.position * COMPACTION_THRESHOLD)
+				{
+					candidates.add(segment);
+				}
+			}
+		}
+
+		for (Segment segment : candidates)
+		{
+			relocate(segment);
+
+			segment.lock.writeLock().lock();
+			try
+			{
+				// pages still being appended keep the segment alive
+				if (segment.live.get() == 0)
+				{
+					segment.generation++;
+					synchronized (segments)
+					{
+						segment.position = 0;
+						freeSegments.add(segment);
+					}
+				}
+			}
+			finally
+			{
+				segment.lock.writeLock().unlock();
+			}
+		}
+	}
+
+	/**
+	 * Copies the indexed pages of the segment to the active segment.
+	 *
+	 * @param segment
+	 */
+	private void relocate(final Segment segment)
+	{
+		for (SessionIndex index : sessions.values())
+		{
+			Map<Integer, Location> moved = new LinkedHashMap<Integer, Location>();
+			synchronized (index)
+			{
+				for (Map.Entry<Integer, Location> entry : index.pages.entrySet())
+				{
+					if (entry.getValue().segment == segment)
+					{
+						moved.put(entry.getKey(), entry.getValue());
+					}
+				}
+			}
+
+			for (Map.Entry<Integer, Location> entry : moved.entrySet())
+			{
+				byte[] data = read(entry.getValue());
+				if (data == null)
+				{
+					continue;
+				}
+				Location location = append(data);
+				synchronized (index)
+				{
+					if (index.removed == false &&
+						index.pages.get(entry.getKey()) == entry.getValue())
+					{
+						// replacing the value keeps the page's position in the eviction order
+						index.pages.put(entry.getKey(), location);
+						release(entry.getValue());
+					}
+					else
+					{
+						release(location);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reserves space in the active segment and copies the data into it.
+	 *
+	 * @param data
+	 * @return location of the data
+	 */
+	private Location append(final byte[] data)
+	{
+		final Location location;
+		synchronized (segments)
+		{
+			if (activeSegment == null || activeSegment.position + data.length > segmentSize)
+			{
+				activeSegment = freeSegments.isEmpty() ? newSegment() : freeSegments.removeFirst();
+			}
+			location = new Location(activeSegment, activeSegment.generation,
+				activeSegment.position, data.length);
+			activeSegment.position += data.length;
+			activeSegment.live.addAndGet(data.length);
+		}
+
+		ByteBuffer buffer = location.segment.buffer.duplicate();
+		buffer.position(location.offset);
+		buffer.put(data);
+		return location;
+	}
+
+	/**
+	 * @param location
+	 * @return the data at the location or <code>null</code> if the segment has been reused
+	 */
+	private byte[] read(final Location location)
+	{
+		Segment segment = location.segment;
+		segment.lock.readLock().lock();
+		try
+		{
+			if (segment.generation != location.generation)
+			{
+				return null;
+			}
+			ByteBuffer buffer = segment.buffer.duplicate();
+			buffer.position(location.offset);
+			byte[] data = new byte[location.length];
+			buffer.get(data);
+			return data;
+		}
+		finally
+		{
+			segment.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Marks the space of a location as unused.
+	 *
+	 * @param location
+	 */
+	private void release(final Location location)
+	{
+		if (location.segment.live.addAndGet(-location.length) == 0)
+		{
+			requestCompaction();
+		}
+	}
+
+	/**
+	 * Creates a new segment file, must be called while holding the lock on {@link #segments}.
+	 *
+	 * @return segment
+	 */
+	private Segment newSegment()
+	{
+		File file = new File(storeFolder, "segment-" + segments.size() + ".data");
+		try
+		{
+			Segment segment = new Segment(file, segmentSize);
+			segments.add(segment);
+			return segment;
+		}
+		catch (IOException e)
+		{
+			throw new WicketRuntimeException("Could not create segment file " + file, e);
+		}
+	}
+
+	/**
+	 * Wakes up the compaction thread.
+	 */
+	private void requestCompaction()
+	{
+		synchronized (compactionLock)
+		{
+			compactionRequested = true;
+			compactionLock.notifyAll();
+		}
+	}
+
+	/**
+	 * Location of a page inside a segment.
+	 */
+	private static final class Location
+	{
+		private final Segment segment;
+
+		/** generation of the segment the location is valid for */
+		private final int generation;
+
+		private final int offset;
+
+		private final int length;
+
+		private Location(final Segment segment, final int generation, final int offset,
+			final int length)
+		{
+			this.segment = segment;
+			this.generation = generation;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+
+	/**
+	 * Pages of a single session in the order they were stored, guarded by itself.
+	 */
+	private final class SessionIndex
+	{
+		private final LinkedHashMap<Integer, Location> pages = new LinkedHashMap<Integer, Location>();
+
+		private int size = 0;
+
+		private boolean removed = false;
+
+		private void remove(final int id)
+		{
+			Location location = pages.remove(id);
+			if (location != null)
+			{
+				size -= location.length;
+				release(location);
+			}
+		}
+	}
+
+	/**
+	 * A memory mapped segment file.
+	 */
+	private static final class Segment
+	{
+		private final File file;
+
+		private final RandomAccessFile randomAccessFile;
+
+		private final MappedByteBuffer buffer;
+
+		/** held for reading while data is read, for writing when the segment is reused */
+		private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+		/** number of bytes of indexed or still being appended pages */
+		private final AtomicInteger live = new AtomicInteger();
+
+		/** incremented every time the segment is reused */
+		private volatile int generation = 0;
+
+		/** end of the appended data, guarded by the store's segments */
+		private int position = 0;
+
+		private Segment(final File file, final int size) throws IOException
+		{
+			this.file = file;
+			randomAccessFile = new RandomAccessFile(file, "rw");
+			buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+		}
+
+		private void close()
+		{
+			try
+			{
+				randomAccessFile.close();
+			}
+			catch (IOException e)
+			{
+				log.debug("Error closing segment file " + file, e);
+			}
+
+			// the mapping itself is released when the buffer is garbage collected
+			if (file.delete() == false)
+			{
+				file.deleteOnExit();
+			}
+		}
+	}
+
+	/**
+	 *
+	 */
+	private class CompactionRunnable implements Runnable
+	{
+		public void run()
+		{
+			while (true)
+			{
+				synchronized (compactionLock)
+				{
+					while (compactionRequested == false && destroyed == false)
+					{
+						try
+						{
+							compactionLock.wait();
+						}
+						catch (InterruptedException e)
+						{
+							log.debug("Segment compaction thread interrupted", e);
+						}
+					}
+					if (destroyed)
+					{
+						return;
+					}
+					compactionRequested = false;
+				}
+
+				try
+				{
+					compact();
+				}
+				catch (RuntimeException e)
+				{
+					log.error("Error compacting segments", e);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,427 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
+import org.apache.wicket.util.lang.Objects;
+
+/**
+ * Cache for serialized pages that keeps the data outside of the Java heap, in direct
+ * {@link ByteBuffer}s. It is used by {@link DefaultPageStore} as a second level between its small
+ * on-heap cache and the {@link IDataStore}, so recently used pages can be restored without disk
+ * access and without adding to the garbage collector's work.
+ * <p>
+ * The cache is split into segments by the hash of (session id, page id), each segment having its
+ * own lock and its own part of the memory. Within a segment the memory is divided into blocks of
+ * {@value #BLOCK_SIZE} bytes, a page occupies as many blocks as it needs and the least recently
+ * used pages are evicted when a segment runs out of blocks. Pages larger than a segment are not
+ * cached.
+ */
+public class OffHeapPageCache
+{
+	/** size of the blocks the memory is divided into */
+	public static final int BLOCK_SIZE = 4096;
+
+	/** default number of independently locked segments */
+	public static final int DEFAULT_SEGMENT_COUNT = 16;
+
+	private final Segment[] segments;
+
+	private final long maxSize;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * Construct.
+	 *
+	 * @param maxSize
+	 *            amount of memory allocated for the cache
+	 */
+	public OffHeapPageCache(final Bytes maxSize)
+	{
+		this(maxSize, DEFAULT_SEGMENT_COUNT);
+	}
+
+	/**
+	 * Construct.
+	 *
+	 * @param maxSize
+	 *            amount of memory allocated for the cache
+	 * @param segmentCount
+	 *            number of independently locked segments
+	 */
+	public OffHeapPageCache(final Bytes maxSize, final int segmentCount)
+	{
+		Args.notNull(maxSize, "maxSize");
+		if (segmentCount < 1)
+		{
+			throw new IllegalArgumentException("segmentCount must be at least 1");
+		}
+
+		long blocksPerSegment = maxSize.bytes() / segmentCount / BLOCK_SIZE;
+		if (blocksPerSegment < 1 || blocksPerSegment * BLOCK_SIZE > Integer.MAX_VALUE)
+		{
+			throw new IllegalArgumentException("Invalid cache size " + maxSize + " for " +
+				segmentCount + " segments");
+		}
+
+		segments = new Segment[segmentCount];
+		for (int i = 0; i < segmentCount; i++)
+		{
+			segments[i] = new Segment((int)blocksPerSegment);
+		}
+		this.maxSize = blocksPerSegment * BLOCK_SIZE * segmentCount;
+	}
+
+	/**
+	 * @param sessionId
+	 * @param pageId
+	 * @return the cached page data or <code>null</code>
+	 */
+	public byte[] getData(final String sessionId, final int pageId)
+	{
+		Key key = new Key(sessionId, pageId);
+		byte[] data = getSegment(key).get(key);
+		if (data != null)
+		{
+			hits.incrementAndGet();
+		}
+		else
+		{
+			misses.incrementAndGet();
+		}
+		return data;
+	}
+
+	/**
+	 * Caches the page data, replacing a previous version of the page.
+	 *
+	 * @param sessionId
+	 * @param pageId
+	 * @param data
+	 */
+	public void storeData(final String sessionId, final int pageId, final byte[] data)
+	{
+		Args.notNull(data, "data");
+
+		Key key = new Key(sessionId, pageId);
+		getSegment(key).put(key, data);
+	}
+
+	/**
+	 * @param sessionId
+	 * @param pageId
+	 */
+	public void removeData(final String sessionId, final int pageId)
+	{
+		Key key = new Key(sessionId, pageId);
+		getSegment(key).remove(key);
+	}
+
+	/**
+	 * Removes all pages of the session.
+	 *
+	 * @param sessionId
+	 */
+	public void removeData(final String sessionId)
+	{
+		for (Segment segment : segments)
+		{
+			segment.removeSession(sessionId);
+		}
+	}
+
+	/**
+	 * Removes all pages.
+	 */
+	public void clear()
+	{
+		for (Segment segment : segments)
+		{
+			segment.clear();
+		}
+	}
+
+	/**
+	 * @return number of cached pages
+	 */
+	public int getPageCount()
+	{
+		int count = 0;
+		for (Segment segment : segments)
+		{
+			synchronized (segment)
+			{
+				count += segment.entries.size();
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return memory occupied by cached pages, in whole blocks
+	 */
+	public Bytes getSize()
+	{
+		long blocks = 0;
+		for (Segment segment : segments)
+		{
+			synchronized (segment)
+			{
+				blocks += segment.blockCount - segment.freeCount;
+			}
+		}
+		return Bytes.bytes(blocks * BLOCK_SIZE);
+	}
+
+	/**
+	 * @return amount of memory allocated for the cache
+	 */
+	public Bytes getMaxSize()
+	{
+		return Bytes.bytes(maxSize);
+	}
+
+	/**
+	 * @return number of lookups that found the page
+	 */
+	public long getHits()
+	{
+		return hits.get();
+	}
+
+	/**
+	 * @return number of lookups that did not find the page
+	 */
+	public long getMisses()
+	{
+		return misses.get();
+	}
+
+	/**
+	 * @return number of pages evicted to make room for others
+	 */
+	public long getEvictions()
+	{
+		return evictions.get();
+	}
+
+	@Override
+	public String toString()
+	{
+		return "[OffHeapPageCache pages=" + getPageCount() + ", size=" + getSize() + ", maxSize=" +
+			getMaxSize() + ", hits=" + getHits() + ", misses=" + getMisses() + ", evictions=" +
+			getEvictions() + "]";
+	}
+
+	private Segment getSegment(final Key key)
+	{
+		return segments[(key.hashCode() & Integer.MAX_VALUE) % segments.length];
+	}
+
+	/**
+	 * Identifies a page.
+	 */
+	private static final class Key
+	{
+		private final String sessionId;
+
+		private final int pageId;
+
+		private Key(final String sessionId, final int pageId)
+		{
+			Args.notNull(sessionId, "sessionId");
+
+			this.sessionId = sessionId;
+			this.pageId = pageId;
+		}
+
+		@Override
+		public boolean equals(final Object obj)
+		{
+			if (this == obj)
+			{
+				return true;
+			}
+			if (obj instanceof Key == false)
+			{
+				return false;
+			}
+			Key that = (Key)obj;
+			return pageId == that.pageId && sessionId.equals(that.sessionId);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return Objects.hashCode(sessionId, pageId);
+		}
+	}
+
+	/**
+	 * The blocks occupied by a page.
+	 */
+	private static final class Entry
+	{
+		private final int[] blocks;
+
+		private final int length;
+
+		private Entry(final int[] blocks, final int length)
+		{
+			this.blocks = blocks;
+			this.length = length;
+		}
+	}
+
+	/**
+	 * Part of the cache with its own memory, guarded by itself.
+	 */
+	private final class Segment
+	{
+		private final ByteBuffer buffer;
+
+		/** pages in least recently used order */
+		private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16,
+			0.75f, true);
+
+		private final int blockCount;
+
+		/** stack of free block indices */
+		private final int[] freeBlocks;
+
+		private int freeCount;
+
+		private Segment(final int blockCount)
+		{
+			this.blockCount = blockCount;
+			buffer = ByteBuffer.allocateDirect(blockCount * BLOCK_SIZE);
+			freeBlocks = new int[blockCount];
+			for (int i = 0; i < blockCount; i++)
+			{
+				freeBlocks[i] = blockCount - 1 - i;
+			}
+			freeCount = blockCount;
+		}
+
+		private synchronized byte[] get(final Key key)
+		{
+			Entry entry = entries.get(key);
+			if (entry == null)
+			{
+				return null;
+			}
+
+			byte[] data = new byte[entry.length];
+			int offset = 0;
+			for (int block : entry.blocks)
+			{
+				int length = Math.min(BLOCK_SIZE, data.length - offset);
+				buffer.position(block * BLOCK_SIZE);
+				buffer.get(data, offset, length);
+				offset += length;
+			}
+			return data;
+		}
+
+		private synchronized void put(final Key key, final byte[] data)
+		{
+			release(entries.remove(key));
+
+			int needed = (data.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+			if (needed > blockCount)
+			{
+				return;
+			}
+
+			Iterator<Entry> eldest = entries.values().iterator();
+			while (freeCount < needed)
+			{
+				release(eldest.next());
+				eldest.remove();
+				evictions.incrementAndGet();
+			}
+
+			int[] blocks = new int[needed];
+			int offset = 0;
+			for (int i = 0; i < needed; i++)
+			{
+				blocks[i] = freeBlocks[--freeCount];
+				int length = Math.min(BLOCK_SIZE, data.length - offset);
+				buffer.position(blocks[i] * BLOCK_SIZE);
+				buffer.put(data, offset, length);
+				offset += length;
+			}
+			entries.put(key, new Entry(blocks, data.length));
+		}
+
+		private synchronized void remove(final Key key)
+		{
+			release(entries.remove(key));
+		}
+
+		private synchronized void removeSession(final String sessionId)
+		{
+			for (Iterator<Map.Entry<Key, Entry>> i = entries.entrySet().iterator(); i.hasNext();)
+			{
+				Map.Entry<Key, Entry> entry = i.next();
+				if (entry.getKey().sessionId.equals(sessionId))
+				{
+					release(entry.getValue());
+					i.remove();
+				}
+			}
+		}
+
+		private synchronized void clear()
+		{
+			for (Entry entry : entries.values())
+			{
+				release(entry);
+			}
+			entries.clear();
+		}
+
+		/**
+		 * Puts the blocks of the entry back on the free stack.
+		 *
+		 * @param entry
+		 *            may be <code>null</code>
+		 */
+		private void release(final Entry entry)
+		{
+			if (entry != null)
+			{
+				for (int block : entry.blocks)
+				{
+					freeBlocks[freeCount++] = block;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.http;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.wicket.request.Url;
+
+/**
+ * Base class for {@link IBufferedResponseStore}s that counts the hits, misses and evictions.
+ */
+public abstract class AbstractBufferedResponseStore implements IBufferedResponseStore
+{
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * @see org.apache.wicket.protocol.http.IBufferedResponseStore#remove(java.lang.String,
+	 *      org.apache.wicket.request.Url)
+	 */
+	public final BufferedWebResponse remove(String sessionId, Url url)
+	{
+		BufferedWebResponse response = removeResponse(sessionId, url);
+		if (response != null)
+		{
+			hits.incrementAndGet();
+		}
+		return response;
+	}
+
+	/**
+	 * Removes the response for a URL. Most requests don't have a stored response, so this has to
+	 * be cheap if there is none.
+	 * 
+	 * @param sessionId
+	 * @param url
+	 * @return the response or <code>null</code> if none is stored
+	 */
+	protected abstract BufferedWebResponse removeResponse(String sessionId, Url url);
+
+	/**
+	 * Counts a response that was stored for the URL but couldn't be returned.
+	 */
+	protected final void onMissed()
+	{
+		misses.incrementAndGet();
+	}
+
+	/**
+	 * Counts a response dropped because the store was full or it expired.
+	 */
+	protected final void onEvicted()
+	{
+		evictions.incrementAndGet();
+	}
+
+	/**
+	 * Creates the key for a response.
+	 * 
+	 * @param sessionId
+	 * @param url
+	 * @return key
+	 */
+	protected String getKey(String sessionId, Url url)
+	{
+		return sessionId + url.toString();
+	}
+
+	/**
+	 * @see org.apache.wicket.protocol.http.IBufferedResponseStore#getHitCount()
+	 */
+	public long getHitCount()
+	{
+		return hits.get();
+	}
+
+	/**
+	 * @see org.apache.wicket.protocol.http.IBufferedResponseStore#getMissCount()
+	 */
+	public long getMissCount()
+	{
+		return misses.get();
+	}
+
+	/**
+	 * @see org.apache.wicket.protocol.http.IBufferedResponseStore#getEvictionCount()
+	 */
+	public long getEvictionCount()
+	{
+		return evictions.get();
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		return "[" + getClass().getSimpleName() + " hits=" + getHitCount() + ", misses=" +
+			getMissCount() + ", evictions=" + getEvictionCount() + "]";
+	}
+}
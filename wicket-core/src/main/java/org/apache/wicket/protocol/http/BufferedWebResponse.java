@@ -18,14 +18,24 @@ package org.apache.wicket.protocol.http;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
 import java.util.ArrayList;
 import java.util.List;
 
 import javax.servlet.http.Cookie;
 
 import org.apache.wicket.Application;
+import org.apache.wicket.IClusterable;
 import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.protocol.http.servlet.ServletWebResponse;
 import org.apache.wicket.request.Response;
 import org.apache.wicket.request.http.WebResponse;
 import org.apache.wicket.response.filter.IResponseFilter;
@@ -34,14 +44,22 @@ import org.apache.wicket.util.string.AppendingStringBuffer;
 
 /**
  * Subclass of {@link WebResponse} that buffers the actions and performs those on another response.
+ * <p>
+ * The buffered actions can be serialized, e.g. by an {@link IBufferedResponseStore} that keeps
+ * the response outside of the heap.
  * 
  * @see #writeTo(WebResponse)
  * 
  * @author Matej Knopp
  */
-public class BufferedWebResponse extends WebResponse implements IMetaDataBufferingWebResponse
+public class BufferedWebResponse extends WebResponse
+	implements
+		IMetaDataBufferingWebResponse,
+		IClusterable
 {
-	private final WebResponse originalResponse;
+	private static final long serialVersionUID = 1L;
+
+	private final transient WebResponse originalResponse;
 
 	/**
 	 * Construct.
@@ -88,8 +106,10 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 		}
 	}
 
-	private static abstract class Action
+	private static abstract class Action implements IClusterable
 	{
+		private static final long serialVersionUID = 1L;
+
 		protected abstract void invoke(WebResponse response);
 	}
 
@@ -100,12 +120,37 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 	 */
 	private static abstract class MetaDataAction extends Action
 	{
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * Part of the buffered text that has been written together with its encoded bytes.
+	 */
+	private static class EncodedText
+	{
+		private final int start;
+		private final int end;
+		private final byte[] bytes;
+
+		public EncodedText(int start, int end, byte[] bytes)
+		{
+			this.start = start;
+			this.end = end;
+			this.bytes = bytes;
+		}
 	}
 
 	private static class WriteCharSequenceAction extends Action
 	{
+		private static final long serialVersionUID = 1L;
+
 		private final StringBuilder builder = new StringBuilder(4096);
 
+		/** parts of the text that don't need to be encoded again, all in {@link #encodedCharset} */
+		private transient List<EncodedText> encoded;
+
+		private transient Charset encodedCharset;
+
 		public WriteCharSequenceAction()
 		{
 
@@ -116,6 +161,36 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 			builder.append(sequence);
 		}
 
+		public void append(CharSequence sequence, byte[] bytes, Charset charset)
+		{
+			if (encoded == null || !charset.equals(encodedCharset))
+			{
+				// text encoded in a previous charset would be written in the wrong one
+				encoded = new ArrayList<EncodedText>();
+				encodedCharset = charset;
+			}
+			int start = builder.length();
+			builder.append(sequence);
+			encoded.add(new EncodedText(start, builder.length(), bytes));
+		}
+
+		public void clear()
+		{
+			builder.setLength(0);
+			encoded = null;
+		}
+
+		public long getSizeInBytes()
+		{
+			long size = builder.length() * 2L;
+			if (encoded != null)
+			{
+				// the encoded bytes are shared with the markup cache
+				size += encoded.size() * 16L;
+			}
+			return size;
+		}
+
 		@Override
 		protected void invoke(WebResponse response)
 		{
@@ -133,13 +208,43 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 					filter.filter(responseBuffer);
 				}
 			}
-			response.write(builder);
+
+			if (encoded != null && encodedCharset.equals(getBinaryTextCharset(response)))
+			{
+				writeEncoded(response);
+			}
+			else
+			{
+				response.write(builder);
+			}
+		}
+
+		/**
+		 * Writes the text as bytes, encoding only the parts that haven't been written encoded
+		 * already.
+		 * 
+		 * @param response
+		 */
+		private void writeEncoded(WebResponse response)
+		{
+			CharsetEncoder encoder = newEncoder(encodedCharset);
+
+			int position = 0;
+			for (EncodedText text : encoded)
+			{
+				encode(response, encoder, builder, position, text.start);
+				response.write(text.bytes);
+				position = text.end;
+			}
+			encode(response, encoder, builder, position, builder.length());
 		}
 	}
 
 	private static class WriteDataAction extends Action
 	{
-		private final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		private static final long serialVersionUID = 1L;
+
+		private transient ByteArrayOutputStream stream = new ByteArrayOutputStream();
 
 		public WriteDataAction()
 		{
@@ -158,15 +263,43 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 			}
 		}
 
+		public void append(byte data[], int offset, int length)
+		{
+			stream.write(data, offset, length);
+		}
+
+		public long getSizeInBytes()
+		{
+			return stream.size();
+		}
+
 		@Override
 		protected void invoke(WebResponse response)
 		{
 			writeStream(response, stream);
 		}
+
+		private void writeObject(ObjectOutputStream out) throws IOException
+		{
+			out.defaultWriteObject();
+			out.writeInt(stream.size());
+			stream.writeTo(out);
+		}
+
+		private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+		{
+			in.defaultReadObject();
+			byte[] data = new byte[in.readInt()];
+			in.readFully(data);
+			stream = new ByteArrayOutputStream(data.length);
+			stream.write(data, 0, data.length);
+		}
 	}
 
 	private static class CloseAction extends Action
 	{
+		private static final long serialVersionUID = 1L;
+
 		@Override
 		protected void invoke(WebResponse response)
 		{
@@ -174,15 +307,59 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 		}
 	}
 
-	private static class AddCookieAction extends MetaDataAction
+	/**
+	 * Action on a cookie, which is serialized by its attributes.
+	 */
+	private static abstract class CookieAction extends MetaDataAction
 	{
-		private final Cookie cookie;
+		private static final long serialVersionUID = 1L;
 
-		public AddCookieAction(Cookie cookie)
+		protected transient Cookie cookie;
+
+		public CookieAction(Cookie cookie)
 		{
 			this.cookie = cookie;
 		}
 
+		private void writeObject(ObjectOutputStream out) throws IOException
+		{
+			out.defaultWriteObject();
+			out.writeObject(cookie.getName());
+			out.writeObject(cookie.getValue());
+			out.writeObject(cookie.getComment());
+			out.writeObject(cookie.getDomain());
+			out.writeObject(cookie.getPath());
+			out.writeInt(cookie.getMaxAge());
+			out.writeBoolean(cookie.getSecure());
+			out.writeInt(cookie.getVersion());
+		}
+
+		private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+		{
+			in.defaultReadObject();
+			cookie = new Cookie((String)in.readObject(), (String)in.readObject());
+			cookie.setComment((String)in.readObject());
+			String domain = (String)in.readObject();
+			if (domain != null)
+			{
+				cookie.setDomain(domain);
+			}
+			cookie.setPath((String)in.readObject());
+			cookie.setMaxAge(in.readInt());
+			cookie.setSecure(in.readBoolean());
+			cookie.setVersion(in.readInt());
+		}
+	}
+
+	private static class AddCookieAction extends CookieAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		public AddCookieAction(Cookie cookie)
+		{
+			super(cookie);
+		}
+
 		@Override
 		protected void invoke(WebResponse response)
 		{
@@ -190,13 +367,13 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 		}
 	}
 
-	private static class ClearCookieAction extends MetaDataAction
+	private static class ClearCookieAction extends CookieAction
 	{
-		private final Cookie cookie;
+		private static final long serialVersionUID = 1L;
 
 		public ClearCookieAction(Cookie cookie)
 		{
-			this.cookie = cookie;
+			super(cookie);
 		}
 
 		@Override
@@ -208,6 +385,8 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 
 	private static class SetHeaderAction extends MetaDataAction
 	{
+		private static final long serialVersionUID = 1L;
+
 		private final String name;
 		private final String value;
 
@@ -226,6 +405,8 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 
 	private static class SetDateHeaderAction extends MetaDataAction
 	{
+		private static final long serialVersionUID = 1L;
+
 		private final String name;
 		private final long value;
 
@@ -244,6 +425,8 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 
 	private static class SetContentLengthAction extends Action
 	{
+		private static final long serialVersionUID = 1L;
+
 		private final long contentLength;
 
 		public SetContentLengthAction(long contentLength)
@@ -260,6 +443,8 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 
 	private static class SetContentTypeAction extends Action
 	{
+		private static final long serialVersionUID = 1L;
+
 		private final String contentType;
 
 		public SetContentTypeAction(String contentType)
@@ -276,6 +461,8 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 
 	private static class SetStatusAction extends MetaDataAction
 	{
+		private static final long serialVersionUID = 1L;
+
 		private final int sc;
 
 		public SetStatusAction(int sc)
@@ -292,6 +479,8 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 
 	private static class SendErrorAction extends Action
 	{
+		private static final long serialVersionUID = 1L;
+
 		private final int sc;
 		private final String msg;
 
@@ -310,6 +499,8 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 
 	private static class SendRedirectAction extends Action
 	{
+		private static final long serialVersionUID = 1L;
+
 		private final String url;
 
 		public SendRedirectAction(String url)
@@ -326,6 +517,8 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 
 	private static class FlushAction extends Action
 	{
+		private static final long serialVersionUID = 1L;
+
 		@Override
 		protected void invoke(WebResponse response)
 		{
@@ -337,6 +530,9 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 	private WriteCharSequenceAction charSequenceAction;
 	private WriteDataAction dataAction;
 
+	/** charset of the content type, <code>null</code> if none has been set */
+	private transient Charset charset;
+
 	@Override
 	public void reset()
 	{
@@ -344,6 +540,7 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 		actions.clear();
 		charSequenceAction = null;
 		dataAction = null;
+		charset = null;
 	}
 
 	@Override
@@ -368,6 +565,55 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 	public void setContentType(String mimeType)
 	{
 		actions.add(new SetContentTypeAction(mimeType));
+		charset = parseCharset(mimeType);
+	}
+
+	/**
+	 * Returns the charset parsed from the content type.
+	 * 
+	 * @see #write(CharSequence, byte[])
+	 * 
+	 * @return charset or <code>null</code> if the content type doesn't specify a supported one
+	 */
+	public Charset getCharset()
+	{
+		return charset;
+	}
+
+	/**
+	 * Extracts the charset parameter of a content type.
+	 * 
+	 * @param contentType
+	 * @return charset or <code>null</code>
+	 */
+	private static Charset parseCharset(String contentType)
+	{
+		if (contentType == null)
+		{
+			return null;
+		}
+		String[] parameters = contentType.split(";");
+		for (int i = 1; i < parameters.length; i++)
+		{
+			String parameter = parameters[i].trim();
+			if (parameter.regionMatches(true, 0, "charset=", 0, 8))
+			{
+				String name = parameter.substring(8).trim();
+				if (name.length() > 1 && name.startsWith("\"") && name.endsWith("\""))
+				{
+					name = name.substring(1, name.length() - 1);
+				}
+				try
+				{
+					return Charset.forName(name);
+				}
+				catch (IllegalArgumentException e)
+				{
+					return null;
+				}
+			}
+		}
+		return null;
 	}
 
 	@Override
@@ -399,6 +645,61 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 		charSequenceAction.append(sequence);
 	}
 
+	/**
+	 * Writes text that has already been encoded in the charset of this response, see
+	 * {@link #getCharset()}. The text is buffered as any other, but when this response is written to
+	 * a {@link ServletWebResponse} with that charset, the bytes are passed to its output stream as
+	 * they are instead of encoding the text again. That is useful for text that is written
+	 * repeatedly, like static markup, whose encoding can be cached.
+	 * 
+	 * @param sequence
+	 *            text
+	 * @param encoded
+	 *            the text encoded in {@link #getCharset()}
+	 */
+	public void write(CharSequence sequence, byte[] encoded)
+	{
+		Args.notNull(encoded, "encoded");
+
+		if (charset == null)
+		{
+			write(sequence);
+			return;
+		}
+
+		if (dataAction != null)
+		{
+			throw new IllegalStateException(
+				"Can't call write(CharSequence) after write(byte[]) has been called.");
+		}
+
+		if (charSequenceAction == null)
+		{
+			charSequenceAction = new WriteCharSequenceAction();
+			actions.add(charSequenceAction);
+		}
+		charSequenceAction.append(sequence, encoded, charset);
+	}
+
+	/**
+	 * Returns an estimate of the memory held by the buffered content.
+	 * 
+	 * @return size in bytes
+	 */
+	public long getSizeInBytes()
+	{
+		long size = 0;
+		if (charSequenceAction != null)
+		{
+			size += charSequenceAction.getSizeInBytes();
+		}
+		if (dataAction != null)
+		{
+			size += dataAction.getSizeInBytes();
+		}
+		return size;
+	}
+
 	/**
 	 * Returns the text already written to this response.
 	 * 
@@ -433,7 +734,7 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 		}
 		if (charSequenceAction != null)
 		{
-			charSequenceAction.builder.setLength(0);
+			charSequenceAction.clear();
 		}
 		write(text);
 	}
@@ -454,6 +755,22 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 		dataAction.append(array);
 	}
 
+	@Override
+	public void write(byte[] array, int offset, int length)
+	{
+		if (charSequenceAction != null)
+		{
+			throw new IllegalStateException(
+				"Can't call write(byte[]) after write(CharSequence) has been called.");
+		}
+		if (dataAction == null)
+		{
+			dataAction = new WriteDataAction();
+			actions.add(dataAction);
+		}
+		dataAction.append(array, offset, length);
+	}
+
 	@Override
 	public void sendRedirect(String url)
 	{
@@ -507,6 +824,67 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 		actions.add(new FlushAction());
 	}
 
+	/**
+	 * Returns the charset of text written as bytes to the response.
+	 * 
+	 * @see ServletWebResponse#getBinaryTextCharset()
+	 * 
+	 * @param response
+	 * @return charset or <code>null</code> if text must be written as such
+	 */
+	static Charset getBinaryTextCharset(WebResponse response)
+	{
+		if (response instanceof ServletWebResponse)
+		{
+			return ((ServletWebResponse)response).getBinaryTextCharset();
+		}
+		else if (response instanceof HeaderBufferingWebResponse)
+		{
+			return ((HeaderBufferingWebResponse)response).getBinaryTextCharset();
+		}
+		return null;
+	}
+
+	/**
+	 * Creates an encoder with the same error handling as the writer of a servlet response.
+	 * 
+	 * @param charset
+	 * @return encoder
+	 */
+	static CharsetEncoder newEncoder(Charset charset)
+	{
+		return charset.newEncoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+
+	/**
+	 * Encodes a part of the text and writes the bytes to the response.
+	 * 
+	 * @param response
+	 * @param encoder
+	 * @param text
+	 * @param start
+	 * @param end
+	 */
+	static void encode(WebResponse response, CharsetEncoder encoder, CharSequence text, int start,
+		int end)
+	{
+		if (start < end)
+		{
+			try
+			{
+				ByteBuffer bytes = encoder.encode(CharBuffer.wrap(text, start, end));
+				response.write(bytes.array(), bytes.arrayOffset() + bytes.position(),
+					bytes.remaining());
+			}
+			catch (CharacterCodingException e)
+			{
+				throw new WicketRuntimeException(e);
+			}
+		}
+	}
+
 	private static final void writeStream(final Response response, ByteArrayOutputStream stream)
 	{
 		final boolean copied[] = { false };
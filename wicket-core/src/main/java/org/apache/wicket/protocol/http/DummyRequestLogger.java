@@ -16,13 +16,15 @@
  */
 package org.apache.wicket.protocol.http;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.apache.wicket.Application;
 import org.apache.wicket.MetaDataKey;
@@ -69,7 +71,8 @@ public class DummyRequestLogger implements IRequestLogger
 
 	private final AtomicInteger peakSessions = new AtomicInteger();
 
-	private final List<RequestData> requests;
+	/** the most recent requests, created with the first one */
+	private volatile RecentRequests requests;
 
 	private final Map<String, SessionData> liveSessions;
 
@@ -80,25 +83,7 @@ public class DummyRequestLogger implements IRequestLogger
 	 */
 	public DummyRequestLogger()
 	{
-		requests = Collections.synchronizedList(new LinkedList<RequestData>()
-		{
-			private static final long serialVersionUID = 1L;
-
-			/**
-			 * @see java.util.LinkedList#add(java.lang.Object)
-			 */
-			@Override
-			public void add(int index, RequestData o)
-			{
-				super.add(index, o);
-				if (size() > Application.get().getRequestLoggerSettings().getRequestsWindowSize())
-				{
-					removeLast();
-				}
-			}
-		});
 		liveSessions = new ConcurrentHashMap<String, SessionData>();
-
 	}
 
 	public int getCurrentActiveRequestCount()
@@ -119,9 +104,50 @@ public class DummyRequestLogger implements IRequestLogger
 		return peakSessions.get();
 	}
 
+	/**
+	 * @return a snapshot of the most recent requests, the latest one first
+	 */
 	public List<RequestData> getRequests()
 	{
-		return Collections.unmodifiableList(requests);
+		RecentRequests recent = requests;
+		if (recent == null)
+		{
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(recent.toList());
+	}
+
+	/**
+	 * Adds the request to the most recent ones, dropping the oldest one when the
+	 * {@link org.apache.wicket.settings.IRequestLoggerSettings#getRequestsWindowSize() window} is
+	 * full.
+	 * 
+	 * @param rd
+	 */
+	private void addRequest(RequestData rd)
+	{
+		int windowSize = Application.get().getRequestLoggerSettings().getRequestsWindowSize();
+		if (windowSize <= 0)
+		{
+			requests = null;
+			return;
+		}
+		RecentRequests recent = requests;
+		if (recent == null || recent.capacity() != windowSize)
+		{
+			// the window size changed, requests logged concurrently may get lost
+			RecentRequests resized = new RecentRequests(windowSize);
+			if (recent != null)
+			{
+				List<RequestData> previous = recent.toList();
+				for (int i = Math.min(previous.size(), windowSize) - 1; i >= 0; i--)
+				{
+					resized.add(previous.get(i));
+				}
+			}
+			requests = recent = resized;
+		}
+		recent.add(rd);
 	}
 
 	public int getTotalCreatedSessions()
@@ -260,15 +286,17 @@ public class DummyRequestLogger implements IRequestLogger
 			{
 				rd.setActiveRequest(activeRequests.decrementAndGet());
 			}
-			Session session = Session.get();
-			String sessionId = session.getId();
+			// don't create a session just to log the request
+			Session session = Session.exists() ? Session.get() : null;
+			String sessionId = session != null ? session.getId() : null;
 			rd.setSessionId(sessionId);
 
 			Object sessionInfo = getSessionInfo(session);
 			rd.setSessionInfo(sessionInfo);
 
 			long sizeInBytes = -1;
-			if (Application.get().getRequestLoggerSettings().getRecordSessionSize())
+			if (session != null &&
+				Application.get().getRequestLoggerSettings().getRecordSessionSize())
 			{
 				try
 				{
@@ -287,7 +315,7 @@ public class DummyRequestLogger implements IRequestLogger
 			rd.setSessionSize(sizeInBytes);
 			rd.setTimeTaken(timeTaken);
 
-			requests.add(0, rd);
+			addRequest(rd);
 			if (sessionId != null)
 			{
 				SessionData sd = liveSessions.get(sessionId);
@@ -319,11 +347,23 @@ public class DummyRequestLogger implements IRequestLogger
 	public void sessionCreated(String sessionId)
 	{
 		liveSessions.put(sessionId, new SessionData(sessionId));
-		if (liveSessions.size() > peakSessions.get())
+		updatePeak(peakSessions, liveSessions.size());
+		totalCreatedSessions.incrementAndGet();
+	}
+
+	/**
+	 * Raises the peak to the value if it is higher.
+	 * 
+	 * @param peak
+	 * @param value
+	 */
+	static void updatePeak(AtomicInteger peak, int value)
+	{
+		int current = peak.get();
+		while (value > current && !peak.compareAndSet(current, value))
 		{
-			peakSessions.set(liveSessions.size());
+			current = peak.get();
 		}
-		totalCreatedSessions.incrementAndGet();
 	}
 
 	public void sessionDestroyed(String sessionId)
@@ -415,4 +455,49 @@ public class DummyRequestLogger implements IRequestLogger
 		return "";
 	}
 
+	/**
+	 * Ring buffer of a fixed number of requests, which can be added to without locking.
+	 */
+	private static final class RecentRequests
+	{
+		private final AtomicReferenceArray<RequestData> slots;
+
+		/** the number of requests ever added */
+		private final AtomicLong added = new AtomicLong();
+
+		private RecentRequests(int capacity)
+		{
+			slots = new AtomicReferenceArray<RequestData>(capacity);
+		}
+
+		private int capacity()
+		{
+			return slots.length();
+		}
+
+		private void add(RequestData rd)
+		{
+			long index = added.getAndIncrement();
+			slots.set((int)(index % slots.length()), rd);
+		}
+
+		/**
+		 * @return the requests, the latest one first
+		 */
+		private List<RequestData> toList()
+		{
+			long end = added.get();
+			long start = Math.max(0, end - slots.length());
+			List<RequestData> list = new ArrayList<RequestData>((int)(end - start));
+			for (long index = end - 1; index >= start; index--)
+			{
+				RequestData rd = slots.get((int)(index % slots.length()));
+				if (rd != null)
+				{
+					list.add(rd);
+				}
+			}
+			return list;
+		}
+	}
 }
@@ -0,0 +1,290 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.UUID;
+
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.request.Url;
+import org.apache.wicket.serialize.ISerializer;
+import org.apache.wicket.util.file.Files;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link IBufferedResponseStore} that writes the responses to files, one per session and URL. The
+ * files are written and claimed with atomic renames, so the folder can be shared by the nodes of a
+ * cluster, e.g. on a network file system. The node that processes the request after the redirect
+ * then finds the response no matter which node rendered it.
+ * <p>
+ * Responses older than the lifetime are deleted from time to time when responses are stored.
+ */
+public class FileBufferedResponseStore extends AbstractBufferedResponseStore
+{
+	private static final Logger log = LoggerFactory.getLogger(FileBufferedResponseStore.class);
+
+	private static final String SUFFIX = ".response";
+
+	private final File folder;
+
+	private final long lifetime;
+
+	private final ISerializer serializer;
+
+	/** the time of the last removal of expired responses */
+	private volatile long lastCleanup = System.currentTimeMillis();
+
+	/**
+	 * Construct.
+	 * 
+	 * @param folder
+	 *            the folder to write the responses to
+	 * @param lifetime
+	 *            the duration of time to keep a response
+	 * @param serializer
+	 *            the serializer for the responses
+	 */
+	public FileBufferedResponseStore(File folder, Duration lifetime, ISerializer serializer)
+	{
+		Args.notNull(folder, "folder");
+		Args.notNull(lifetime, "lifetime");
+		Args.notNull(serializer, "serializer");
+
+		this.folder = folder;
+		this.lifetime = lifetime.getMilliseconds();
+		this.serializer = serializer;
+
+		folder.mkdirs();
+	}
+
+	/**
+	 * @see org.apache.wicket.protocol.http.IBufferedResponseStore#store(java.lang.String,
+	 *      org.apache.wicket.request.Url, org.apache.wicket.protocol.http.BufferedWebResponse)
+	 */
+	public void store(String sessionId, Url url, BufferedWebResponse response)
+	{
+		String key = getKey(sessionId, url);
+		byte[] data = serializer.serialize(response);
+		if (data == null)
+		{
+			// the serializer logged the reason already
+			return;
+		}
+
+		File file = getFile(key);
+		File temp = new File(folder, file.getName() + "." + UUID.randomUUID() + ".tmp");
+		try
+		{
+			OutputStream stream = new FileOutputStream(temp);
+			try
+			{
+				DataOutputStream out = new DataOutputStream(stream);
+				out.writeUTF(key);
+				out.write(data);
+				out.flush();
+			}
+			finally
+			{
+				stream.close();
+			}
+
+			// replace a previous response for the same URL
+			if (temp.renameTo(file) == false &&
+				(file.delete() == false || temp.renameTo(file) == false))
+			{
+				throw new IOException("Could not rename " + temp + " to " + file);
+			}
+		}
+		catch (IOException e)
+		{
+			Files.remove(temp);
+			log.error("Could not store the response for URL " + url, e);
+		}
+
+		removeExpired();
+	}
+
+	/**
+	 * @see org.apache.wicket.protocol.http.IBufferedResponseStore#contains(java.lang.String,
+	 *      org.apache.wicket.request.Url)
+	 */
+	public boolean contains(String sessionId, Url url)
+	{
+		// a single stat, the last modification time is 0 if there is no file
+		long lastModified = getFile(getKey(sessionId, url)).lastModified();
+		return lastModified != 0 && isExpired(lastModified) == false;
+	}
+
+	/**
+	 * @see org.apache.wicket.protocol.http.AbstractBufferedResponseStore#removeResponse(java.lang.String,
+	 *      org.apache.wicket.request.Url)
+	 */
+	@Override
+	protected BufferedWebResponse removeResponse(String sessionId, Url url)
+	{
+		String key = getKey(sessionId, url);
+		File file = getFile(key);
+		if (file.exists() == false)
+		{
+			return null;
+		}
+
+		// only one node can rename the file, it gets the response
+		File claimed = new File(folder, file.getName() + "." + UUID.randomUUID() + ".claimed");
+		if (file.renameTo(claimed) == false)
+		{
+			// taken by another node
+			onMissed();
+			return null;
+		}
+
+		try
+		{
+			if (isExpired(claimed))
+			{
+				onEvicted();
+				onMissed();
+				return null;
+			}
+
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+				Files.readBytes(claimed)));
+			if (key.equals(in.readUTF()) == false)
+			{
+				// another URL with the same hash
+				return null;
+			}
+			byte[] data = new byte[in.available()];
+			in.readFully(data);
+			return (BufferedWebResponse)serializer.deserialize(data);
+		}
+		catch (IOException e)
+		{
+			log.error("Could not read the response for URL " + url, e);
+			onMissed();
+			return null;
+		}
+		catch (WicketRuntimeException e)
+		{
+			// e.g. written by another version of the application, the page is rendered again
+			log.error("Could not read the response for URL " + url, e);
+			onMissed();
+			return null;
+		}
+		finally
+		{
+			Files.remove(claimed);
+		}
+	}
+
+	/**
+	 * Deletes the expired responses, at most once per lifetime.
+	 */
+	private void removeExpired()
+	{
+		long now = System.currentTimeMillis();
+		if (now - lastCleanup < lifetime)
+		{
+			return;
+		}
+		lastCleanup = now;
+
+		File[] files = folder.listFiles();
+		if (files == null)
+		{
+			return;
+		}
+		for (File file : files)
+		{
+			if (isExpired(file) && Files.remove(file) && file.getName().endsWith(SUFFIX))
+			{
+				onEvicted();
+			}
+		}
+	}
+
+	private boolean isExpired(File file)
+	{
+		return isExpired(file.lastModified());
+	}
+
+	private boolean isExpired(long lastModified)
+	{
+		return System.currentTimeMillis() - lastModified >= lifetime;
+	}
+
+	/**
+	 * Returns the file for a key. The name is a hash of the key, which is written to the file to
+	 * tell collisions apart.
+	 * 
+	 * @param key
+	 * @return file
+	 */
+	private File getFile(String key)
+	{
+		try
+		{
+			byte[] hash = MessageDigest.getInstance("SHA-1").digest(key.getBytes("UTF-8"));
+			StringBuilder name = new StringBuilder(hash.length * 2 + SUFFIX.length());
+			for (byte b : hash)
+			{
+				name.append(Character.forDigit((b >> 4) & 0xF, 16));
+				name.append(Character.forDigit(b & 0xF, 16));
+			}
+			name.append(SUFFIX);
+			return new File(folder, name.toString());
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			throw new WicketRuntimeException(e);
+		}
+		catch (IOException e)
+		{
+			throw new WicketRuntimeException(e);
+		}
+	}
+
+	/**
+	 * Keeps the files, they may be used by other nodes and expire anyway.
+	 * 
+	 * @see org.apache.wicket.protocol.http.IBufferedResponseStore#destroy()
+	 */
+	public void destroy()
+	{
+	}
+
+	/**
+	 * @see org.apache.wicket.protocol.http.AbstractBufferedResponseStore#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		return "[FileBufferedResponseStore folder=" + folder + ", hits=" + getHitCount() +
+			", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + "]";
+	}
+}
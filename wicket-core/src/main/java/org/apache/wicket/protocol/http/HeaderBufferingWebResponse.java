@@ -16,9 +16,12 @@
  */
 package org.apache.wicket.protocol.http;
 
+import java.nio.charset.Charset;
+
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.wicket.protocol.http.servlet.ServletWebResponse;
 import org.apache.wicket.request.http.WebResponse;
 
 /**
@@ -165,6 +168,41 @@ class HeaderBufferingWebResponse extends WebResponse implements IMetaDataBufferi
 		originalResponse.write(array);
 	}
 
+	@Override
+	public void write(byte[] array, int offset, int length)
+	{
+		writeBuffered();
+		originalResponse.write(array, offset, length);
+	}
+
+	/**
+	 * Writes the buffered meta data, so that the charset of the content type has been applied to
+	 * the original response, and returns its charset for text written as bytes.
+	 * 
+	 * @see ServletWebResponse#getBinaryTextCharset()
+	 * 
+	 * @return charset or <code>null</code>
+	 */
+	Charset getBinaryTextCharset()
+	{
+		if (originalResponse instanceof ServletWebResponse)
+		{
+			writeBuffered();
+			return ((ServletWebResponse)originalResponse).getBinaryTextCharset();
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the container response of the original response. The buffered meta data must have
+	 * been written with {@link #flush()} before data is written to it directly.
+	 */
+	@Override
+	public Object getContainerResponse()
+	{
+		return originalResponse.getContainerResponse();
+	}
+
 	@Override
 	public void reset()
 	{
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.http;
+
+import org.apache.wicket.request.Url;
+import org.apache.wicket.settings.IRequestCycleSettings.RenderStrategy;
+
+/**
+ * Keeps the responses rendered with {@link RenderStrategy#REDIRECT_TO_BUFFER} until the client
+ * requests them after the redirect. A response is requested only once and can be dropped when the
+ * client doesn't ask for it in time, the page is then rendered again.
+ * 
+ * @see WebApplication#setBufferedResponseStore(IBufferedResponseStore)
+ */
+public interface IBufferedResponseStore
+{
+	/**
+	 * Stores a response.
+	 * 
+	 * @param sessionId
+	 *            the id of the session the response was rendered for
+	 * @param url
+	 *            the URL the client will request the response with
+	 * @param response
+	 *            the buffered response
+	 */
+	void store(String sessionId, Url url, BufferedWebResponse response);
+
+	/**
+	 * Checks whether a response is stored for a URL.
+	 * 
+	 * @param sessionId
+	 * @param url
+	 * @return <code>true</code> if a response is stored
+	 */
+	boolean contains(String sessionId, Url url);
+
+	/**
+	 * Removes the response for a URL.
+	 * 
+	 * @param sessionId
+	 * @param url
+	 * @return the response or <code>null</code> if none is stored
+	 */
+	BufferedWebResponse remove(String sessionId, Url url);
+
+	/**
+	 * @return how many stored responses have been removed by {@link #remove(String, Url)}
+	 */
+	long getHitCount();
+
+	/**
+	 * @return how often a response had been stored for a requested URL but couldn't be returned,
+	 *         e.g. because it expired before the client asked for it. Requests for URLs without a
+	 *         stored response aren't counted.
+	 */
+	long getMissCount();
+
+	/**
+	 * @return how many responses have been dropped because the store was full or they expired
+	 */
+	long getEvictionCount();
+
+	/**
+	 * Called when the application is destroyed.
+	 */
+	void destroy();
+}
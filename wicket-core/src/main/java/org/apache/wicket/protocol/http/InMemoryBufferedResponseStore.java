@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.http;
+
+import org.apache.wicket.request.Url;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
+import org.apache.wicket.util.time.Duration;
+
+/**
+ * {@link IBufferedResponseStore} that keeps the responses in the heap, limited by their total size
+ * and lifetime. The least recently stored responses are dropped when the limit is exceeded.
+ * <p>
+ * This is the default store. It only works when the client's request after the redirect is
+ * processed by the same node, see {@link FileBufferedResponseStore} for clusters without sticky
+ * sessions.
+ */
+public class InMemoryBufferedResponseStore extends AbstractBufferedResponseStore
+{
+	private final StoredResponsesMap responses;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param maxSize
+	 *            the maximum total size of the responses, the most recently stored response is
+	 *            kept even if it is larger
+	 * @param lifetime
+	 *            the duration of time to keep a response
+	 */
+	public InMemoryBufferedResponseStore(Bytes maxSize, Duration lifetime)
+	{
+		Args.notNull(maxSize, "maxSize");
+		Args.notNull(lifetime, "lifetime");
+
+		responses = new StoredResponsesMap(Integer.MAX_VALUE, maxSize.bytes(), lifetime)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void onEvicted(BufferedWebResponse response)
+			{
+				InMemoryBufferedResponseStore.this.onEvicted();
+			}
+		};
+	}
+
+	/**
+	 * @see org.apache.wicket.protocol.http.IBufferedResponseStore#store(java.lang.String,
+	 *      org.apache.wicket.request.Url, org.apache.wicket.protocol.http.BufferedWebResponse)
+	 */
+	public void store(String sessionId, Url url, BufferedWebResponse response)
+	{
+		String key = getKey(sessionId, url);
+		synchronized (responses)
+		{
+			responses.put(key, response);
+		}
+	}
+
+	/**
+	 * @see org.apache.wicket.protocol.http.IBufferedResponseStore#contains(java.lang.String,
+	 *      org.apache.wicket.request.Url)
+	 */
+	public boolean contains(String sessionId, Url url)
+	{
+		String key = getKey(sessionId, url);
+		synchronized (responses)
+		{
+			boolean stored = responses.containsKey(key);
+			// checks the lifetime
+			if (responses.get(key) != null)
+			{
+				return true;
+			}
+			if (stored)
+			{
+				// expired before the client asked for it
+				onMissed();
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * @see org.apache.wicket.protocol.http.AbstractBufferedResponseStore#removeResponse(java.lang.String,
+	 *      org.apache.wicket.request.Url)
+	 */
+	@Override
+	protected BufferedWebResponse removeResponse(String sessionId, Url url)
+	{
+		String key = getKey(sessionId, url);
+		synchronized (responses)
+		{
+			boolean stored = responses.containsKey(key);
+			// checks the lifetime
+			BufferedWebResponse response = responses.get(key);
+			if (response != null)
+			{
+				responses.remove(key);
+			}
+			else if (stored)
+			{
+				onMissed();
+			}
+			return response;
+		}
+	}
+
+	/**
+	 * @return the total size of the stored responses
+	 */
+	public Bytes getSize()
+	{
+		synchronized (responses)
+		{
+			return Bytes.bytes(responses.getSize());
+		}
+	}
+
+	/**
+	 * @see org.apache.wicket.protocol.http.IBufferedResponseStore#destroy()
+	 */
+	public void destroy()
+	{
+		synchronized (responses)
+		{
+			responses.clear();
+		}
+	}
+
+	/**
+	 * @see org.apache.wicket.protocol.http.AbstractBufferedResponseStore#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		return "[InMemoryBufferedResponseStore hits=" + getHitCount() + ", misses=" +
+			getMissCount() + ", evictions=" + getEvictionCount() + ", size=" + getSize() + "]";
+	}
+}
@@ -0,0 +1,434 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.http;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.wicket.MetaDataKey;
+import org.apache.wicket.request.IRequestHandler;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.request.handler.IPageClassRequestHandler;
+
+/**
+ * Request logger that keeps statistics about the requests in addition to what the
+ * {@link DummyRequestLogger} records: the number of requests and a histogram of their times, in
+ * total and per type of request handler and page class, the number of requests per second over
+ * the last minute and the peak number of concurrently active requests.
+ * <p>
+ * All statistics are updated without locking, so the logger can be enabled in production. The
+ * <code>wicket-jmx</code> module exposes them as attributes of its request logger MBean.
+ * 
+ * @see org.apache.wicket.settings.IRequestLoggerSettings#setRequestLoggerEnabled(boolean)
+ */
+public class RequestLogger extends DummyRequestLogger
+{
+	/** the number of seconds the requests per second are averaged over */
+	private static final int THROUGHPUT_WINDOW = 60;
+
+	private static final MetaDataKey<Handlers> HANDLERS = new MetaDataKey<Handlers>()
+	{
+		private static final long serialVersionUID = 1L;
+	};
+
+	private final RequestTimes requestTimes = new RequestTimes();
+
+	private final ConcurrentMap<String, RequestTimes> handlerTimes = new ConcurrentHashMap<String, RequestTimes>();
+
+	private final ConcurrentMap<String, RequestTimes> pageTimes = new ConcurrentHashMap<String, RequestTimes>();
+
+	private final Throughput throughput = new Throughput(THROUGHPUT_WINDOW);
+
+	private final AtomicInteger peakActiveRequests = new AtomicInteger();
+
+	/**
+	 * Construct.
+	 */
+	public RequestLogger()
+	{
+	}
+
+	/**
+	 * @see org.apache.wicket.protocol.http.DummyRequestLogger#logEventTarget(org.apache.wicket.request.IRequestHandler)
+	 */
+	@Override
+	public void logEventTarget(IRequestHandler requestHandler)
+	{
+		super.logEventTarget(requestHandler);
+		Handlers handlers = getHandlers();
+		if (handlers.event == null)
+		{
+			handlers.event = requestHandler;
+		}
+	}
+
+	/**
+	 * @see org.apache.wicket.protocol.http.DummyRequestLogger#logResponseTarget(org.apache.wicket.request.IRequestHandler)
+	 */
+	@Override
+	public void logResponseTarget(IRequestHandler requestHandler)
+	{
+		super.logResponseTarget(requestHandler);
+		getHandlers().response = requestHandler;
+	}
+
+	private Handlers getHandlers()
+	{
+		RequestCycle requestCycle = RequestCycle.get();
+		Handlers handlers = requestCycle.getMetaData(HANDLERS);
+		if (handlers == null)
+		{
+			handlers = new Handlers();
+			requestCycle.setMetaData(HANDLERS, handlers);
+			updatePeak(peakActiveRequests, getCurrentActiveRequestCount());
+		}
+		return handlers;
+	}
+
+	/**
+	 * Records the time of the request in the statistics, attributed to the handler that responded
+	 * to it.
+	 * 
+	 * @see org.apache.wicket.protocol.http.DummyRequestLogger#requestTime(long)
+	 */
+	@Override
+	public void requestTime(long timeTaken)
+	{
+		super.requestTime(timeTaken);
+
+		RequestCycle requestCycle = RequestCycle.get();
+		Handlers handlers = requestCycle.getMetaData(HANDLERS);
+		if (handlers != null)
+		{
+			requestCycle.setMetaData(HANDLERS, null);
+
+			requestTimes.add(timeTaken);
+			throughput.add(System.currentTimeMillis());
+
+			IRequestHandler handler = handlers.response != null ? handlers.response
+				: handlers.event;
+			getRequestTimes(handlerTimes, handler.getClass().getName()).add(timeTaken);
+
+			Class<?> pageClass = getPageClass(handlers.response);
+			if (pageClass == null)
+			{
+				pageClass = getPageClass(handlers.event);
+			}
+			if (pageClass != null)
+			{
+				getRequestTimes(pageTimes, pageClass.getName()).add(timeTaken);
+			}
+		}
+	}
+
+	private static RequestTimes getRequestTimes(ConcurrentMap<String, RequestTimes> times,
+		String key)
+	{
+		RequestTimes result = times.get(key);
+		if (result == null)
+		{
+			result = new RequestTimes();
+			RequestTimes existing = times.putIfAbsent(key, result);
+			if (existing != null)
+			{
+				result = existing;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @param handler
+	 * @return the class of the page the handler is for, or <code>null</code>
+	 */
+	private static Class<?> getPageClass(IRequestHandler handler)
+	{
+		if (handler instanceof IPageClassRequestHandler)
+		{
+			try
+			{
+				return ((IPageClassRequestHandler)handler).getPageClass();
+			}
+			catch (RuntimeException e)
+			{
+				// the page of a handler that was not executed may not be available anymore
+				log.debug("Page class of " + handler + " not available", e);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the times of all requests
+	 */
+	public RequestTimes getRequestTimes()
+	{
+		return requestTimes;
+	}
+
+	/**
+	 * @return the times of the requests by the class name of the handler that responded to them
+	 */
+	public Map<String, RequestTimes> getRequestTimesByHandler()
+	{
+		return Collections.unmodifiableMap(handlerTimes);
+	}
+
+	/**
+	 * @return the times of the requests by the class name of the page they were for
+	 */
+	public Map<String, RequestTimes> getRequestTimesByPage()
+	{
+		return Collections.unmodifiableMap(pageTimes);
+	}
+
+	/**
+	 * @return the average number of requests per second over the last minute
+	 */
+	public double getRequestsPerSecond()
+	{
+		return throughput.getAverage(System.currentTimeMillis());
+	}
+
+	/**
+	 * @return the highest number of requests active at the same time
+	 */
+	public int getPeakActiveRequestCount()
+	{
+		return peakActiveRequests.get();
+	}
+
+	/**
+	 * The handlers of the current request.
+	 */
+	private static final class Handlers
+	{
+		private IRequestHandler event;
+
+		private IRequestHandler response;
+	}
+
+	/**
+	 * Histogram of request times, with buckets growing roughly exponentially from 1 millisecond to
+	 * one minute.
+	 */
+	public static final class RequestTimes
+	{
+		/** the upper limits of the buckets in milliseconds, the last bucket has no limit */
+		private static final long[] LIMITS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000,
+				5000, 10000, 20000, 60000 };
+
+		private final AtomicLongArray buckets = new AtomicLongArray(LIMITS.length + 1);
+
+		private final AtomicLong count = new AtomicLong();
+
+		private final AtomicLong total = new AtomicLong();
+
+		private final AtomicLong max = new AtomicLong();
+
+		private RequestTimes()
+		{
+		}
+
+		private void add(long time)
+		{
+			int bucket = Arrays.binarySearch(LIMITS, time);
+			buckets.incrementAndGet(bucket >= 0 ? bucket : -bucket - 1);
+			count.incrementAndGet();
+			total.addAndGet(time);
+
+			long current = max.get();
+			while (time > current && !max.compareAndSet(current, time))
+			{
+				current = max.get();
+			}
+		}
+
+		/**
+		 * @return the number of requests
+		 */
+		public long getCount()
+		{
+			return count.get();
+		}
+
+		/**
+		 * @return the total time of the requests in milliseconds
+		 */
+		public long getTotalTime()
+		{
+			return total.get();
+		}
+
+		/**
+		 * @return the time of the slowest request in milliseconds
+		 */
+		public long getMaxTime()
+		{
+			return max.get();
+		}
+
+		/**
+		 * @return the average time of the requests in milliseconds
+		 */
+		public double getAverageTime()
+		{
+			long n = count.get();
+			return n > 0 ? (double)total.get() / n : 0;
+		}
+
+		/**
+		 * @return the upper limits of the buckets in milliseconds, the last bucket holds the
+		 *         requests taking longer than the last limit
+		 */
+		public static long[] getBucketLimits()
+		{
+			return LIMITS.clone();
+		}
+
+		/**
+		 * @return the number of requests in each bucket
+		 */
+		public long[] getBucketCounts()
+		{
+			long[] counts = new long[buckets.length()];
+			for (int i = 0; i < counts.length; i++)
+			{
+				counts[i] = buckets.get(i);
+			}
+			return counts;
+		}
+
+		/**
+		 * Estimates a percentile by the upper limit of the bucket it falls into.
+		 * 
+		 * @param percentile
+		 *            the percentile, between 0 and 100
+		 * @return the time in milliseconds that the given percentage of the requests didn't
+		 *         exceed, <code>0</code> if there were no requests
+		 */
+		public long getPercentile(double percentile)
+		{
+			long[] counts = getBucketCounts();
+			long n = 0;
+			for (long c : counts)
+			{
+				n += c;
+			}
+			long rank = (long)Math.ceil(n * percentile / 100);
+			long seen = 0;
+			for (int i = 0; i < LIMITS.length; i++)
+			{
+				seen += counts[i];
+				if (seen > 0 && seen >= rank)
+				{
+					return Math.min(LIMITS[i], getMaxTime());
+				}
+			}
+			return getMaxTime();
+		}
+
+		/**
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public String toString()
+		{
+			return "count=" + getCount() + ",avg=" + Math.round(getAverageTime()) + ",p50=" +
+				getPercentile(50) + ",p90=" + getPercentile(90) + ",p99=" + getPercentile(99) +
+				",max=" + getMaxTime();
+		}
+	}
+
+	/**
+	 * Counts the requests of each second in a sliding window, packing the second and its count into
+	 * one long so a slot can be moved on to a new second atomically.
+	 */
+	private static final class Throughput
+	{
+		private static final int COUNT_BITS = 24;
+
+		private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+		private final AtomicLongArray slots;
+
+		private final int window;
+
+		private final long started = System.currentTimeMillis() / 1000;
+
+		private Throughput(int window)
+		{
+			this.window = window;
+			// one more slot than the window, for the current second
+			slots = new AtomicLongArray(window + 1);
+		}
+
+		private void add(long now)
+		{
+			long second = now / 1000;
+			int slot = (int)(second % slots.length());
+			while (true)
+			{
+				long value = slots.get(slot);
+				long update;
+				if (value >>> COUNT_BITS == second)
+				{
+					if ((value & COUNT_MASK) == COUNT_MASK)
+					{
+						return;
+					}
+					update = value + 1;
+				}
+				else
+				{
+					update = second << COUNT_BITS | 1;
+				}
+				if (slots.compareAndSet(slot, value, update))
+				{
+					return;
+				}
+			}
+		}
+
+		/**
+		 * @param now
+		 * @return the average number of requests per second over the window, not counting the
+		 *         current second
+		 */
+		private double getAverage(long now)
+		{
+			long second = now / 1000;
+			int seconds = (int)Math.max(1, Math.min(window, second - started));
+			long total = 0;
+			for (long s = second - seconds; s < second; s++)
+			{
+				long value = slots.get((int)(s % slots.length()));
+				if (value >>> COUNT_BITS == s)
+				{
+					total += value & COUNT_MASK;
+				}
+			}
+			return (double)total / seconds;
+		}
+	}
+}
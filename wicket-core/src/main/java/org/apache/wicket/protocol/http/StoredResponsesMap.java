@@ -16,6 +16,7 @@
  */
 package org.apache.wicket.protocol.http;
 
+import java.util.Iterator;
 import java.util.Map;
 
 import org.apache.wicket.util.collections.MostRecentlyUsedMap;
@@ -24,7 +25,8 @@ import org.apache.wicket.util.time.Time;
 
 /**
  * A map that contains the buffered responses. It has a constraint on the maximum entries that it
- * can contain, and a constraint on the duration of time an entry is considered valid/non-expired
+ * can contain, on the total size of the responses, and a constraint on the duration of time an
+ * entry is considered valid/non-expired
  */
 class StoredResponsesMap extends MostRecentlyUsedMap<String, Object>
 {
@@ -41,6 +43,9 @@ class StoredResponsesMap extends MostRecentlyUsedMap<String, Object>
 
 		/** the time when this response is stored */
 		private Time creationTime;
+
+		/** the size of the response when it was stored */
+		private long size;
 	}
 
 	/**
@@ -48,6 +53,16 @@ class StoredResponsesMap extends MostRecentlyUsedMap<String, Object>
 	 */
 	private final Duration lifetime;
 
+	/**
+	 * The maximum total size of the stored responses
+	 */
+	private final long maxSize;
+
+	/**
+	 * The total size of the stored responses
+	 */
+	private long size = 0;
+
 	/**
 	 * Construct.
 	 * 
@@ -57,9 +72,26 @@ class StoredResponsesMap extends MostRecentlyUsedMap<String, Object>
 	 *            the duration of time to keep an entry in the map before considering it expired
 	 */
 	public StoredResponsesMap(int maxEntries, Duration lifetime)
+	{
+		this(maxEntries, Long.MAX_VALUE, lifetime);
+	}
+
+	/**
+	 * Construct.
+	 * 
+	 * @param maxEntries
+	 *            how much entries this map can contain
+	 * @param maxSize
+	 *            the maximum total size of the responses in bytes, the most recently stored
+	 *            response is kept even if it is larger
+	 * @param lifetime
+	 *            the duration of time to keep an entry in the map before considering it expired
+	 */
+	public StoredResponsesMap(int maxEntries, long maxSize, Duration lifetime)
 	{
 		super(maxEntries);
 
+		this.maxSize = maxSize;
 		this.lifetime = lifetime;
 	}
 
@@ -67,19 +99,41 @@ class StoredResponsesMap extends MostRecentlyUsedMap<String, Object>
 	protected boolean removeEldestEntry(java.util.Map.Entry<String, Object> eldest)
 	{
 		boolean removed = super.removeEldestEntry(eldest);
+		Value value = (Value)eldest.getValue();
 		if (removed == false)
 		{
-			Value value = (Value)eldest.getValue();
 			Duration elapsedTime = Time.now().subtract(value.creationTime);
 			if (lifetime.lessThanOrEqual(elapsedTime))
 			{
-				removedValue = value.response;
 				removed = true;
 			}
 		}
+		if (removed)
+		{
+			removedValue = value.response;
+			size -= value.size;
+			onEvicted(value.response);
+		}
 		return removed;
 	}
 
+	/**
+	 * Called when a response is removed because the map is full or the response expired.
+	 * 
+	 * @param response
+	 */
+	protected void onEvicted(BufferedWebResponse response)
+	{
+	}
+
+	/**
+	 * @return the total size of the stored responses in bytes
+	 */
+	public long getSize()
+	{
+		return size;
+	}
+
 	@Override
 	public BufferedWebResponse put(String key, Object bufferedResponse)
 	{
@@ -92,7 +146,23 @@ class StoredResponsesMap extends MostRecentlyUsedMap<String, Object>
 		Value value = new Value();
 		value.creationTime = Time.now();
 		value.response = (BufferedWebResponse)bufferedResponse;
+		value.size = value.response.getSizeInBytes();
+		size += value.size;
 		Value oldValue = (Value)super.put(key, value);
+		if (oldValue != null)
+		{
+			size -= oldValue.size;
+		}
+
+		// remove the least recently used responses until the others fit
+		Iterator<Object> values = values().iterator();
+		while (size > maxSize && size() > 1)
+		{
+			Value eldest = (Value)values.next();
+			values.remove();
+			size -= eldest.size;
+			onEvicted(eldest.response);
+		}
 
 		return oldValue != null ? oldValue.response : null;
 	}
@@ -113,6 +183,7 @@ class StoredResponsesMap extends MostRecentlyUsedMap<String, Object>
 			{
 				// expired, remove it
 				remove(key);
+				onEvicted(value.response);
 			}
 		}
 		return result;
@@ -122,7 +193,19 @@ class StoredResponsesMap extends MostRecentlyUsedMap<String, Object>
 	public BufferedWebResponse remove(Object key)
 	{
 		Value removedValue = (Value)super.remove(key);
-		return removedValue != null ? removedValue.response : null;
+		if (removedValue != null)
+		{
+			size -= removedValue.size;
+			return removedValue.response;
+		}
+		return null;
+	}
+
+	@Override
+	public void clear()
+	{
+		super.clear();
+		size = 0;
 	}
 
 	@Override
@@ -0,0 +1,294 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.http;
+
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+
+import javax.servlet.http.Cookie;
+
+import org.apache.wicket.markup.html.internal.HtmlHeaderContainer;
+import org.apache.wicket.request.http.WebResponse;
+import org.apache.wicket.settings.IRequestCycleSettings;
+
+/**
+ * {@link BufferedWebResponse} that buffers a page only until it is committed, which the
+ * {@link HtmlHeaderContainer} does right after the header section of the page has been rendered.
+ * The buffered headers and markup are then written and flushed to the original response, so the
+ * browser can start loading the referenced resources, and the remaining markup is passed on in
+ * chunks while the components render.
+ * <p>
+ * Once committed, headers can't be changed anymore and the response can't be reset, so an error
+ * during the rendering of the body results in an incomplete page.
+ *
+ * @see IRequestCycleSettings#setBufferResponse(boolean)
+ */
+public class StreamingWebResponse extends BufferedWebResponse
+{
+	private static final long serialVersionUID = 1L;
+
+	/** Text is passed on to the original response in chunks of about this many characters */
+	private static final int CHUNK_SIZE = 4096;
+
+	private final transient WebResponse originalResponse;
+
+	private boolean committed = false;
+
+	/** Text written after the response has been committed, not yet passed on */
+	private final StringBuilder pending = new StringBuilder();
+
+	/** Charset of the text written as bytes to the original response */
+	private transient Charset binaryCharset;
+
+	private transient CharsetEncoder encoder;
+
+	/**
+	 * Construct.
+	 *
+	 * @param originalResponse
+	 */
+	public StreamingWebResponse(WebResponse originalResponse)
+	{
+		super(originalResponse);
+		this.originalResponse = originalResponse;
+	}
+
+	/**
+	 * Writes what has been buffered so far to the original response and flushes it. Everything
+	 * written afterwards is passed on without buffering the whole response.
+	 */
+	public void commit()
+	{
+		if (!committed)
+		{
+			super.writeTo(originalResponse);
+			committed = true;
+
+			// the rest of the text has to be written the same way the buffered one was
+			binaryCharset = getBinaryTextCharset(originalResponse);
+			if (binaryCharset != null)
+			{
+				encoder = newEncoder(binaryCharset);
+			}
+			originalResponse.flush();
+		}
+	}
+
+	/**
+	 * @return whether the response has been committed
+	 */
+	public boolean isCommitted()
+	{
+		return committed;
+	}
+
+	/**
+	 * Passes the pending text on to the original response.
+	 *
+	 * @param all
+	 *            whether to pass on all of it, otherwise a trailing high surrogate is kept for the
+	 *            next chunk
+	 */
+	private void writePending(boolean all)
+	{
+		int end = pending.length();
+		if (!all && end > 0 && Character.isHighSurrogate(pending.charAt(end - 1)))
+		{
+			end--;
+		}
+		if (end > 0)
+		{
+			if (encoder != null)
+			{
+				encode(originalResponse, encoder, pending, 0, end);
+			}
+			else
+			{
+				originalResponse.write(pending.subSequence(0, end));
+			}
+			pending.delete(0, end);
+		}
+	}
+
+	private void checkHeader()
+	{
+		if (committed)
+		{
+			throw new IllegalStateException("Header was already written to response!");
+		}
+	}
+
+	@Override
+	public void write(CharSequence sequence)
+	{
+		if (committed)
+		{
+			pending.append(sequence);
+			if (pending.length() >= CHUNK_SIZE)
+			{
+				writePending(false);
+			}
+		}
+		else
+		{
+			super.write(sequence);
+		}
+	}
+
+	@Override
+	public void write(CharSequence sequence, byte[] encoded)
+	{
+		if (committed && binaryCharset != null && binaryCharset.equals(getCharset()))
+		{
+			writePending(true);
+			originalResponse.write(encoded);
+		}
+		else if (committed)
+		{
+			write(sequence);
+		}
+		else
+		{
+			super.write(sequence, encoded);
+		}
+	}
+
+	@Override
+	public CharSequence getText()
+	{
+		checkHeader();
+		return super.getText();
+	}
+
+	@Override
+	public void setText(CharSequence text)
+	{
+		checkHeader();
+		super.setText(text);
+	}
+
+	/**
+	 * Writes the buffered response, or once committed the text not yet passed on, to the original
+	 * response.
+	 *
+	 * @see org.apache.wicket.protocol.http.BufferedWebResponse#writeTo(org.apache.wicket.request.http.WebResponse)
+	 */
+	@Override
+	public void writeTo(WebResponse response)
+	{
+		if (committed)
+		{
+			if (response != originalResponse)
+			{
+				throw new IllegalStateException("Response has already been written to " +
+					originalResponse);
+			}
+			writePending(true);
+		}
+		else
+		{
+			super.writeTo(response);
+		}
+	}
+
+	@Override
+	public void flush()
+	{
+		if (committed)
+		{
+			writePending(true);
+			originalResponse.flush();
+		}
+		else
+		{
+			super.flush();
+		}
+	}
+
+	@Override
+	public void reset()
+	{
+		if (committed)
+		{
+			throw new IllegalStateException("Response has already been flushed!");
+		}
+		super.reset();
+	}
+
+	@Override
+	public void addCookie(Cookie cookie)
+	{
+		checkHeader();
+		super.addCookie(cookie);
+	}
+
+	@Override
+	public void clearCookie(Cookie cookie)
+	{
+		checkHeader();
+		super.clearCookie(cookie);
+	}
+
+	@Override
+	public void setContentLength(long length)
+	{
+		checkHeader();
+		super.setContentLength(length);
+	}
+
+	@Override
+	public void setContentType(String mimeType)
+	{
+		checkHeader();
+		super.setContentType(mimeType);
+	}
+
+	@Override
+	public void setDateHeader(String name, long date)
+	{
+		checkHeader();
+		super.setDateHeader(name, date);
+	}
+
+	@Override
+	public void setHeader(String name, String value)
+	{
+		checkHeader();
+		super.setHeader(name, value);
+	}
+
+	@Override
+	public void setStatus(int sc)
+	{
+		checkHeader();
+		super.setStatus(sc);
+	}
+
+	@Override
+	public void sendRedirect(String url)
+	{
+		checkHeader();
+		super.sendRedirect(url);
+	}
+
+	@Override
+	public void sendError(int sc, String msg)
+	{
+		checkHeader();
+		super.sendError(sc, msg);
+	}
+}
@@ -61,6 +61,7 @@ import org.apache.wicket.util.file.IFileUploadCleaner;
 import org.apache.wicket.util.file.IResourceFinder;
 import org.apache.wicket.util.file.WebApplicationPath;
 import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
 import org.apache.wicket.util.lang.PackageName;
 import org.apache.wicket.util.time.Duration;
 import org.apache.wicket.util.watch.IModificationWatcher;
@@ -467,6 +468,8 @@ public abstract class WebApplication extends Application
 			fileUploadCleaner.destroy();
 		}
 
+		bufferedResponseStore.destroy();
+
 		super.internalDestroy();
 
 	}
@@ -645,11 +648,34 @@ public abstract class WebApplication extends Application
 	}
 
 	/*
-	 * Can contain at most 1000 responses and each entry can live at most one minute for now there
-	 * is no need to configure these parameters externally
+	 * By default the responses can take at most 16 MB and each entry can live at most one minute
+	 */
+	private IBufferedResponseStore bufferedResponseStore = new InMemoryBufferedResponseStore(
+		Bytes.megabytes(16), Duration.seconds(60));
+
+	/**
+	 * Sets the store for the responses rendered to a buffer until the client requests them after
+	 * the redirect.
+	 * 
+	 * @see org.apache.wicket.settings.IRequestCycleSettings.RenderStrategy#REDIRECT_TO_BUFFER
+	 * 
+	 * @param bufferedResponseStore
+	 */
+	public final void setBufferedResponseStore(IBufferedResponseStore bufferedResponseStore)
+	{
+		Args.notNull(bufferedResponseStore, "bufferedResponseStore");
+
+		this.bufferedResponseStore.destroy();
+		this.bufferedResponseStore = bufferedResponseStore;
+	}
+
+	/**
+	 * @return the store for the responses rendered to a buffer
 	 */
-	private final StoredResponsesMap storedResponses = new StoredResponsesMap(1000,
-		Duration.seconds(60));
+	public final IBufferedResponseStore getBufferedResponseStore()
+	{
+		return bufferedResponseStore;
+	}
 
 	/**
 	 * 
@@ -659,8 +685,7 @@ public abstract class WebApplication extends Application
 	 */
 	public boolean hasBufferedResponse(String sessionId, Url url)
 	{
-		String key = sessionId + url.toString();
-		return storedResponses.containsKey(key);
+		return bufferedResponseStore.contains(sessionId, url);
 	}
 
 	/**
@@ -671,8 +696,7 @@ public abstract class WebApplication extends Application
 	 */
 	public BufferedWebResponse getAndRemoveBufferedResponse(String sessionId, Url url)
 	{
-		String key = sessionId + url.toString();
-		return storedResponses.remove(key);
+		return bufferedResponseStore.remove(sessionId, url);
 	}
 
 	/**
@@ -683,8 +707,7 @@ public abstract class WebApplication extends Application
 	 */
 	public void storeBufferedResponse(String sessionId, Url url, BufferedWebResponse response)
 	{
-		String key = sessionId + url.toString();
-		storedResponses.put(key, response);
+		bufferedResponseStore.store(sessionId, url, response);
 	}
 
 	@Override
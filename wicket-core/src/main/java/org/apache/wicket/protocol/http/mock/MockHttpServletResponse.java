@@ -20,6 +20,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
 import java.text.DateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -284,7 +285,15 @@ public class MockHttpServletResponse implements HttpServletResponse, IMetaDataBu
 	{
 		if (mode == MODE_BINARY)
 		{
-			return new String(byteStream.toByteArray());
+			// text may have been written as bytes in the character encoding
+			try
+			{
+				return new String(byteStream.toByteArray(), characterEncoding);
+			}
+			catch (UnsupportedEncodingException e)
+			{
+				return new String(byteStream.toByteArray());
+			}
 		}
 		else
 		{
@@ -40,6 +40,12 @@ public class ServletWebResponse extends WebResponse
 	private final HttpServletResponse httpServletResponse;
 	private final ServletWebRequest webRequest;
 
+	/** whether the writer of the servlet response has been used */
+	private boolean writerUsed = false;
+
+	/** whether the output stream of the servlet response has been used */
+	private boolean outputStreamUsed = false;
+
 	/**
 	 * Construct.
 	 * 
@@ -103,12 +109,29 @@ public class ServletWebResponse extends WebResponse
 		httpServletResponse.setHeader(name, value);
 	}
 
+	/**
+	 * Writes the text with the writer of the servlet response. Once bytes have been written the
+	 * writer can't be used anymore, the text is then encoded in the character encoding of the
+	 * response and written to the output stream.
+	 * 
+	 * @see org.apache.wicket.request.Response#write(java.lang.CharSequence)
+	 */
 	@Override
 	public void write(CharSequence sequence)
 	{
 		try
 		{
-			httpServletResponse.getWriter().append(sequence);
+			if (outputStreamUsed)
+			{
+				String encoding = httpServletResponse.getCharacterEncoding();
+				httpServletResponse.getOutputStream().write(
+					sequence.toString().getBytes(encoding != null ? encoding : "ISO-8859-1"));
+			}
+			else
+			{
+				writerUsed = true;
+				httpServletResponse.getWriter().append(sequence);
+			}
 		}
 		catch (IOException e)
 		{
@@ -121,6 +144,7 @@ public class ServletWebResponse extends WebResponse
 	{
 		try
 		{
+			outputStreamUsed = true;
 			httpServletResponse.getOutputStream().write(array);
 		}
 		catch (IOException e)
@@ -129,6 +153,56 @@ public class ServletWebResponse extends WebResponse
 		}
 	}
 
+	@Override
+	public void write(byte[] array, int offset, int length)
+	{
+		try
+		{
+			outputStreamUsed = true;
+			httpServletResponse.getOutputStream().write(array, offset, length);
+		}
+		catch (IOException e)
+		{
+			throw new WicketRuntimeException(e);
+		}
+	}
+
+	/**
+	 * Returns the charset text has to be encoded in to be written with {@link #write(byte[])}, which
+	 * is the character encoding of the servlet response. Once text has been written with
+	 * {@link #write(CharSequence)} the output stream can't be used anymore and <code>null</code> is
+	 * returned.
+	 * 
+	 * @return charset for text written as bytes or <code>null</code> if text must be written with
+	 *         {@link #write(CharSequence)}
+	 */
+	public Charset getBinaryTextCharset()
+	{
+		if (writerUsed)
+		{
+			return null;
+		}
+		String encoding = httpServletResponse.getCharacterEncoding();
+		if (encoding == null)
+		{
+			return null;
+		}
+		try
+		{
+			return Charset.forName(encoding);
+		}
+		catch (IllegalArgumentException e)
+		{
+			return null;
+		}
+	}
+
+	@Override
+	public HttpServletResponse getContainerResponse()
+	{
+		return httpServletResponse;
+	}
+
 	@Override
 	public void setStatus(int sc)
 	{
@@ -246,8 +320,7 @@ public class ServletWebResponse extends WebResponse
 				 * using multipart ajax handling) and the headers are not available because XHR is
 				 * not used and that is the only way javascript has access to response headers.
 				 */
-				httpServletResponse.getWriter().write(
-					"<ajax-response><redirect><![CDATA[" + url + "]]></redirect></ajax-response>");
+				write("<ajax-response><redirect><![CDATA[" + url + "]]></redirect></ajax-response>");
 
 				setContentType("text/xml;charset=" +
 					webRequest.getHttpServletRequest().getCharacterEncoding());
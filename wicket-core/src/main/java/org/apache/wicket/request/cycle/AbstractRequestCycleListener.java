@@ -35,6 +35,19 @@ public abstract class AbstractRequestCycleListener implements IRequestCycleListe
 	{
 	}
 
+	public void onRequestHandlerResolved(final RequestCycle cycle, final IRequestHandler handler)
+	{
+	}
+
+	public void onRequestHandlerScheduled(final RequestCycle cycle, final IRequestHandler handler)
+	{
+	}
+
+	public void onEndPhase(final RequestCycle cycle, final RequestTimings.Phase phase,
+		final long duration)
+	{
+	}
+
 	public IRequestHandler onException(final RequestCycle cycle, Exception ex)
 	{
 		return null;
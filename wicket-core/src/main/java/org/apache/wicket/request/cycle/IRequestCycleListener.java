@@ -48,6 +48,36 @@ public interface IRequestCycleListener
 	 */
 	void onEndRequest(RequestCycle cycle);
 
+	/**
+	 * Called when the request has been resolved to a request handler, before it is executed
+	 * 
+	 * @param cycle
+	 * @param handler
+	 *            the handler the request was resolved to
+	 */
+	void onRequestHandlerResolved(RequestCycle cycle, IRequestHandler handler);
+
+	/**
+	 * Called when a request handler has been scheduled to be executed after the current one
+	 * 
+	 * @param cycle
+	 * @param handler
+	 *            the scheduled handler
+	 */
+	void onRequestHandlerScheduled(RequestCycle cycle, IRequestHandler handler);
+
+	/**
+	 * Called when the request cycle has gone through a phase of the request
+	 * 
+	 * @param cycle
+	 * @param phase
+	 *            the phase
+	 * @param duration
+	 *            the time spent in the phase in nanoseconds
+	 * @see RequestCycle#getTimings()
+	 */
+	void onEndPhase(RequestCycle cycle, RequestTimings.Phase phase, long duration);
+
 	/**
 	 * Called after the request cycle has been detached
 	 * 
@@ -72,4 +102,4 @@ public interface IRequestCycleListener
 	 *            {@link RequestCycle#handleException(Exception)}
 	 */
 	IRequestHandler onException(RequestCycle cycle, Exception ex);
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -110,6 +110,8 @@ public class RequestCycle extends RequestHandlerStack implements IRequestCycle,
 	/** the time that this request cycle object was created. */
 	private final long startTime = System.currentTimeMillis();
 
+	private final RequestTimings timings = new RequestTimings();
+
 	/**
 	 * Construct.
 	 * 
@@ -176,7 +178,15 @@ public class RequestCycle extends RequestHandlerStack implements IRequestCycle,
 	 */
 	protected IRequestHandler resolveRequestHandler()
 	{
-		return requestMapper.mapRequest(request);
+		long start = System.nanoTime();
+		try
+		{
+			return requestMapper.mapRequest(request);
+		}
+		finally
+		{
+			endPhase(RequestTimings.Phase.MAP, start);
+		}
 	}
 
 	/**
@@ -202,6 +212,7 @@ public class RequestCycle extends RequestHandlerStack implements IRequestCycle,
 			IRequestHandler handler = resolveRequestHandler();
 			if (handler != null)
 			{
+				listeners.onRequestHandlerResolved(this, handler);
 				executeRequestHandler(handler);
 				return true;
 			}
@@ -496,17 +507,33 @@ public class RequestCycle extends RequestHandlerStack implements IRequestCycle,
 			log.error("Exception occurred during onAfterRequest", e);
 		}
 
+		long start = System.nanoTime();
 		try
 		{
 			super.detach();
 		}
 		finally
 		{
+			endPhase(RequestTimings.Phase.DETACH, start);
 			listeners.onDetach(this);
 			set(null);
 		}
 	}
 
+	/**
+	 * @see org.apache.wicket.request.RequestHandlerStack#scheduleRequestHandlerAfterCurrent(org.apache.wicket.request.IRequestHandler)
+	 */
+	@Override
+	public void scheduleRequestHandlerAfterCurrent(IRequestHandler handler)
+	{
+		super.scheduleRequestHandlerAfterCurrent(handler);
+
+		if (handler != null)
+		{
+			listeners.onRequestHandlerScheduled(this, handler);
+		}
+	}
+
 	/**
 	 * Convenience method for setting next page to be rendered.
 	 * 
@@ -575,6 +602,29 @@ public class RequestCycle extends RequestHandlerStack implements IRequestCycle,
 		return startTime;
 	}
 
+	/**
+	 * @return the time spent in the phases of this request so far
+	 */
+	public final RequestTimings getTimings()
+	{
+		return timings;
+	}
+
+	/**
+	 * Records that this request went through a phase and notifies the listeners.
+	 * 
+	 * @param phase
+	 *            the phase
+	 * @param start
+	 *            the value of {@link System#nanoTime()} when the phase started
+	 */
+	public final void endPhase(RequestTimings.Phase phase, long start)
+	{
+		long duration = System.nanoTime() - start;
+		timings.add(phase, duration);
+		listeners.onEndPhase(this, phase, duration);
+	}
+
 	/** {@inheritDoc} */
 	public void onEvent(IEvent<?> event)
 	{
@@ -57,6 +57,40 @@ public class RequestCycleListenerCollection extends ListenerCollection<IRequestC
 		});
 	}
 
+	public void onRequestHandlerResolved(final RequestCycle cycle, final IRequestHandler handler)
+	{
+		notify(new INotifier<IRequestCycleListener>()
+		{
+			public void notify(IRequestCycleListener listener)
+			{
+				listener.onRequestHandlerResolved(cycle, handler);
+			}
+		});
+	}
+
+	public void onRequestHandlerScheduled(final RequestCycle cycle, final IRequestHandler handler)
+	{
+		notify(new INotifier<IRequestCycleListener>()
+		{
+			public void notify(IRequestCycleListener listener)
+			{
+				listener.onRequestHandlerScheduled(cycle, handler);
+			}
+		});
+	}
+
+	public void onEndPhase(final RequestCycle cycle, final RequestTimings.Phase phase,
+		final long duration)
+	{
+		notify(new INotifier<IRequestCycleListener>()
+		{
+			public void notify(IRequestCycleListener listener)
+			{
+				listener.onEndPhase(cycle, phase, duration);
+			}
+		});
+	}
+
 	public IRequestHandler onException(final RequestCycle cycle, final Exception ex)
 	{
 		final List<IRequestHandler> handlers = new ArrayList<IRequestHandler>();
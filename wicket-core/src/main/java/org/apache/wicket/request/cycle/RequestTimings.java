@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.cycle;
+
+import org.apache.wicket.util.string.AppendingStringBuffer;
+
+/**
+ * The time a {@link RequestCycle} spent in each phase of the request. Phases can nest, e.g. a page
+ * is restored while its listener is invoked or while it is rendered, and can occur several times,
+ * in which case their times are added.
+ * <p>
+ * Instances belong to one request cycle and are not thread safe.
+ * 
+ * @see RequestCycle#getTimings()
+ * @see IRequestCycleListener#onEndPhase(RequestCycle, Phase, long)
+ */
+public final class RequestTimings
+{
+	/**
+	 * The phases of a request.
+	 */
+	public enum Phase {
+		/** mapping the request to a request handler */
+		MAP("map"),
+
+		/** getting a page from the page manager */
+		RESTORE("restore"),
+
+		/** invoking a request listener interface, e.g. a link's onClick() */
+		INVOKE("invoke"),
+
+		/** rendering a page */
+		RENDER("render"),
+
+		/** detaching the request handlers */
+		DETACH("detach"),
+
+		/** committing the changed pages to the page manager */
+		COMMIT("commit");
+
+		private final String metricName;
+
+		private Phase(String metricName)
+		{
+			this.metricName = metricName;
+		}
+
+		/**
+		 * @return the name of the phase in the <code>Server-Timing</code> header
+		 */
+		public String getMetricName()
+		{
+			return metricName;
+		}
+	}
+
+	private static final Phase[] PHASES = Phase.values();
+
+	private final long[] times = new long[PHASES.length];
+
+	private final int[] counts = new int[PHASES.length];
+
+	/**
+	 * Construct.
+	 */
+	RequestTimings()
+	{
+	}
+
+	/**
+	 * @param phase
+	 * @param duration
+	 *            in nanoseconds
+	 */
+	void add(Phase phase, long duration)
+	{
+		times[phase.ordinal()] += duration;
+		counts[phase.ordinal()]++;
+	}
+
+	/**
+	 * @param phase
+	 * @return the time spent in the phase in nanoseconds
+	 */
+	public long getTime(Phase phase)
+	{
+		return times[phase.ordinal()];
+	}
+
+	/**
+	 * @param phase
+	 * @return how often the request went through the phase
+	 */
+	public int getCount(Phase phase)
+	{
+		return counts[phase.ordinal()];
+	}
+
+	/**
+	 * Formats the times of the phases the request went through so far as the value of a
+	 * <code>Server-Timing</code> header, e.g. <code>map;dur=0.12, render;dur=10.5</code>. The
+	 * durations are in milliseconds.
+	 * 
+	 * @return the header value, empty if the request didn't go through any phase yet
+	 */
+	public String toServerTiming()
+	{
+		AppendingStringBuffer buffer = new AppendingStringBuffer(128);
+		for (Phase phase : PHASES)
+		{
+			if (counts[phase.ordinal()] > 0)
+			{
+				if (buffer.length() > 0)
+				{
+					buffer.append(", ");
+				}
+				buffer.append(phase.getMetricName());
+				buffer.append(";dur=");
+				// milliseconds with two decimals
+				long hundredths = (times[phase.ordinal()] + 5000) / 10000;
+				buffer.append(hundredths / 100);
+				buffer.append('.');
+				long fraction = hundredths % 100;
+				if (fraction < 10)
+				{
+					buffer.append('0');
+				}
+				buffer.append(fraction);
+			}
+		}
+		return buffer.toString();
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		return toServerTiming();
+	}
+}
@@ -19,18 +19,22 @@ package org.apache.wicket.request.handler.render;
 import org.apache.wicket.Application;
 import org.apache.wicket.Session;
 import org.apache.wicket.protocol.http.BufferedWebResponse;
+import org.apache.wicket.protocol.http.StreamingWebResponse;
 import org.apache.wicket.protocol.http.WebApplication;
 import org.apache.wicket.request.IRequestHandler;
 import org.apache.wicket.request.Request;
+import org.apache.wicket.request.RequestHandlerStack.ReplaceHandlerException;
 import org.apache.wicket.request.Response;
 import org.apache.wicket.request.Url;
 import org.apache.wicket.request.component.IRequestablePage;
 import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.request.cycle.RequestTimings;
 import org.apache.wicket.request.handler.RenderPageRequestHandler;
 import org.apache.wicket.request.handler.RenderPageRequestHandler.RedirectPolicy;
 import org.apache.wicket.request.http.WebRequest;
 import org.apache.wicket.request.http.WebResponse;
 import org.apache.wicket.settings.IRequestCycleSettings.RenderStrategy;
+import org.apache.wicket.util.lang.Exceptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -76,9 +80,57 @@ public class WebPageRenderer extends PageRenderer
 		return Application.get().getRequestCycleSettings().getRenderStrategy() == RenderStrategy.REDIRECT_TO_BUFFER;
 	}
 
-	private void renderPage()
+	private boolean isStreamingRender(boolean isAjax)
 	{
-		getPage().renderPage();
+		return !isAjax && !Application.get().getRequestCycleSettings().getBufferResponse();
+	}
+
+	private void renderPage(RequestCycle requestCycle)
+	{
+		long start = System.nanoTime();
+		try
+		{
+			getPage().renderPage();
+		}
+		finally
+		{
+			requestCycle.endPhase(RequestTimings.Phase.RENDER, start);
+		}
+	}
+
+	/**
+	 * Adds the <code>Server-Timing</code> header with the times of the request phases so far, if
+	 * enabled.
+	 * 
+	 * @param response
+	 * @param requestCycle
+	 * @see org.apache.wicket.settings.IRequestCycleSettings#setServerTimingHeader(boolean)
+	 */
+	private void setServerTimingHeader(WebResponse response, RequestCycle requestCycle)
+	{
+		if (Application.get().getRequestCycleSettings().getServerTimingHeader())
+		{
+			String timing = requestCycle.getTimings().toServerTiming();
+			if (timing.length() > 0)
+			{
+				response.setHeader("Server-Timing", timing);
+			}
+		}
+	}
+
+	/**
+	 * Writes the buffered response to the response of the request cycle. The
+	 * <code>Server-Timing</code> header goes to the target response directly, the buffered one
+	 * would replay it after the body.
+	 * 
+	 * @param response
+	 * @param requestCycle
+	 */
+	private void writeResponse(BufferedWebResponse response, RequestCycle requestCycle)
+	{
+		WebResponse target = (WebResponse)requestCycle.getResponse();
+		setServerTimingHeader(target, requestCycle);
+		response.writeTo(target);
 	}
 
 	/**
@@ -147,7 +199,7 @@ public class WebPageRenderer extends PageRenderer
 		try
 		{
 			requestCycle.setResponse(response);
-			getPage().renderPage();
+			renderPage(requestCycle);
 
 			if (scheduled == null && requestCycle.getRequestHandlerScheduledAfterCurrent() != null)
 			{
@@ -169,6 +221,77 @@ public class WebPageRenderer extends PageRenderer
 		}
 	}
 
+	/**
+	 * Renders page to a {@link StreamingWebResponse}, which sends the header section of the page to
+	 * the client as soon as it has been rendered and the body while it renders. All URLs in page
+	 * will be rendered relative to <code>targetUrl</code>
+	 * 
+	 * @param targetUrl
+	 * @param requestCycle
+	 */
+	protected void streamPage(Url targetUrl, RequestCycle requestCycle)
+	{
+		IRequestHandler scheduled = requestCycle.getRequestHandlerScheduledAfterCurrent();
+
+		// keep the original response
+		final WebResponse originalResponse = (WebResponse)requestCycle.getResponse();
+
+		StreamingWebResponse response = new StreamingWebResponse(originalResponse);
+
+		// keep the original base URL
+		Url originalBaseUrl = requestCycle.getUrlRenderer().setBaseUrl(targetUrl);
+
+		try
+		{
+			setServerTimingHeader(originalResponse, requestCycle);
+			requestCycle.setResponse(response);
+			renderPage(requestCycle);
+		}
+		catch (RuntimeException e)
+		{
+			if (response.isCommitted() == false)
+			{
+				// nothing has been sent yet, the exception is handled as usual
+				throw e;
+			}
+
+			ReplaceHandlerException replacer = Exceptions.findCause(e,
+				ReplaceHandlerException.class);
+			if (replacer != null)
+			{
+				// e.g. a RestartResponseException, the page is ended where it was thrown
+				logger.warn("Cannot honor " + replacer.getClass().getSimpleName() +
+					" thrown while streaming the page for URL " + requestCycle.getRequest()
+						.getUrl() + ", the header section has already been sent");
+			}
+			else
+			{
+				// the client already got the header section, it's too late for an error page
+				logger.error("Error while streaming the page for URL " + requestCycle.getRequest()
+					.getUrl() + ", the response is incomplete", e);
+			}
+		}
+		finally
+		{
+			// restore original response and base URL
+			requestCycle.setResponse(originalResponse);
+			requestCycle.getUrlRenderer().setBaseUrl(originalBaseUrl);
+		}
+
+		if (scheduled == null && requestCycle.getRequestHandlerScheduledAfterCurrent() != null)
+		{
+			if (response.isCommitted() == false)
+			{
+				// like in renderPage(Url, RequestCycle) the scheduled handler overwrites the response
+				return;
+			}
+			logger.warn("Ignoring the request handler scheduled while streaming the page for URL " +
+				requestCycle.getRequest().getUrl() + ", the page has already been sent");
+			requestCycle.scheduleRequestHandlerAfterCurrent(null);
+		}
+		response.writeTo(originalResponse);
+	}
+
 	/**
 	 * 
 	 * @param url
@@ -179,6 +302,7 @@ public class WebPageRenderer extends PageRenderer
 		WebResponse response = (WebResponse)requestCycle.getResponse();
 		String relativeUrl = requestCycle.getUrlRenderer().renderUrl(url);
 		response.reset();
+		setServerTimingHeader(response, requestCycle);
 		response.sendRedirect(relativeUrl);
 	}
 
@@ -205,7 +329,7 @@ public class WebPageRenderer extends PageRenderer
 		{
 			logger.warn("The Buffered response should be handled by BufferedResponseRequestHandler");
 			// if there is saved response for this URL render it
-			bufferedResponse.writeTo((WebResponse)requestCycle.getResponse());
+			writeResponse(bufferedResponse, requestCycle);
 		}
 		else if (getRedirectPolicy() == RedirectPolicy.NEVER_REDIRECT || isOnePassRender() //
 			||
@@ -221,10 +345,17 @@ public class WebPageRenderer extends PageRenderer
 			// or the targetUrl matches current url and the page is not stateless
 			// or the targetUrl matches current url, page is stateless but it's redirect-to-render
 			// just render the page
-			BufferedWebResponse response = renderPage(currentUrl, requestCycle);
-			if (response != null)
+			if (isStreamingRender(isAjax))
+			{
+				streamPage(currentUrl, requestCycle);
+			}
+			else
 			{
-				response.writeTo((WebResponse)requestCycle.getResponse());
+				BufferedWebResponse response = renderPage(currentUrl, requestCycle);
+				if (response != null)
+				{
+					writeResponse(response, requestCycle);
+				}
 			}
 		}
 		else if ((!targetUrl.equals(currentUrl) && getRedirectPolicy() == RedirectPolicy.ALWAYS_REDIRECT) //
@@ -286,7 +417,7 @@ public class WebPageRenderer extends PageRenderer
 				// also for listener interface on stateful page we want to redirect
 				// after the listener is invoked, but on stateless page the user
 				// must ask for redirect explicitly
-				response.writeTo((WebResponse)requestCycle.getResponse());
+				writeResponse(response, requestCycle);
 			}
 			else
 			{
@@ -16,14 +16,19 @@
  */
 package org.apache.wicket.request.mapper;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.apache.wicket.Application;
+import org.apache.wicket.IClusterable;
+import org.apache.wicket.MetaDataKey;
+import org.apache.wicket.Session;
 import org.apache.wicket.request.IRequestHandler;
 import org.apache.wicket.request.IRequestMapper;
 import org.apache.wicket.request.Request;
 import org.apache.wicket.request.Url;
 import org.apache.wicket.util.IProvider;
 import org.apache.wicket.util.crypt.ICrypt;
-import org.apache.wicket.util.crypt.ICryptFactory;
 import org.apache.wicket.util.string.Strings;
 
 /**
@@ -33,9 +38,17 @@ import org.apache.wicket.util.string.Strings;
  */
 public class CryptoMapper implements IRequestMapper
 {
+	/** metadata key of the per session cache of encrypted URLs */
+	private static final MetaDataKey<EncryptedUrlCache> ENCRYPTED_URLS = new MetaDataKey<EncryptedUrlCache>()
+	{
+		private static final long serialVersionUID = 1L;
+	};
+
 	private final IRequestMapper wrappedMapper;
 	private final IProvider<ICrypt> cryptProvider;
 
+	private int encryptedUrlCacheSize;
+
 	public CryptoMapper(IRequestMapper wrappedMapper, Application application)
 	{
 		this(wrappedMapper, new ApplicationCryptProvider(application));
@@ -76,20 +89,79 @@ public class CryptoMapper implements IRequestMapper
 		return wrappedMapper.mapRequest(request.cloneWithUrl(url));
 	}
 
+	/**
+	 * Sets the number of encrypted URLs kept in each session. Links rendered repeatedly, e.g. the
+	 * same link in every row of a table, are then encrypted only once. The cache is disabled by
+	 * default.
+	 * 
+	 * @param encryptedUrlCacheSize
+	 *            maximum number of URLs cached per session, <code>0</code> to disable the cache
+	 * @return {@code this} for chaining
+	 */
+	public CryptoMapper setEncryptedUrlCacheSize(int encryptedUrlCacheSize)
+	{
+		this.encryptedUrlCacheSize = encryptedUrlCacheSize;
+		return this;
+	}
+
+	/**
+	 * @return maximum number of encrypted URLs cached per session
+	 */
+	public int getEncryptedUrlCacheSize()
+	{
+		return encryptedUrlCacheSize;
+	}
+
 	private ICrypt getCrypt()
 	{
-		ICryptFactory factory = Application.get().getSecuritySettings().getCryptFactory();
-		return factory.newCrypt();
+		return cryptProvider.get();
 	}
 
 	private Url encryptUrl(Url url)
 	{
+		String urlString = url.toString();
+
+		EncryptedUrlCache cache = getEncryptedUrlCache();
+		String encryptedUrlString = cache != null ? cache.get(urlString) : null;
+		if (encryptedUrlString == null)
+		{
+			encryptedUrlString = getCrypt().encryptUrlSafe(urlString);
+			if (cache != null && encryptedUrlString != null)
+			{
+				cache.put(urlString, encryptedUrlString);
+			}
+		}
+
 		Url encrypted = new Url();
-		String encryptedUrlString = getCrypt().encryptUrlSafe(url.toString());
 		encrypted.addQueryParameter("x", encryptedUrlString);
 		return encrypted;
 	}
 
+	/**
+	 * @return the cache of the current session or <code>null</code> if URLs are not cached
+	 */
+	private EncryptedUrlCache getEncryptedUrlCache()
+	{
+		if (encryptedUrlCacheSize <= 0 || Session.exists() == false)
+		{
+			return null;
+		}
+
+		Session session = Session.get();
+		if (session.isTemporary())
+		{
+			return null;
+		}
+
+		EncryptedUrlCache cache = session.getMetaData(ENCRYPTED_URLS);
+		if (cache == null || cache.maxSize != encryptedUrlCacheSize)
+		{
+			cache = new EncryptedUrlCache(encryptedUrlCacheSize);
+			session.setMetaData(ENCRYPTED_URLS, cache);
+		}
+		return cache;
+	}
+
 	private Url decryptUrl(Request request, Url encryptedUrl)
 	{
 		if (encryptedUrl.getSegments().isEmpty() && encryptedUrl.getQueryParameters().isEmpty())
@@ -120,6 +192,43 @@ public class CryptoMapper implements IRequestMapper
 		return url;
 	}
 
+	/**
+	 * Least recently used plain to encrypted URLs of a session.
+	 */
+	private static class EncryptedUrlCache implements IClusterable
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final int maxSize;
+
+		private final Map<String, String> urls;
+
+		private EncryptedUrlCache(final int maxSize)
+		{
+			this.maxSize = maxSize;
+			urls = new LinkedHashMap<String, String>(16, 0.75f, true)
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, String> eldest)
+				{
+					return size() > maxSize;
+				}
+			};
+		}
+
+		private synchronized String get(String url)
+		{
+			return urls.get(url);
+		}
+
+		private synchronized void put(String url, String encryptedUrl)
+		{
+			urls.put(url, encryptedUrl);
+		}
+	}
+
 	private static class ApplicationCryptProvider implements IProvider<ICrypt>
 	{
 		private final Application application;
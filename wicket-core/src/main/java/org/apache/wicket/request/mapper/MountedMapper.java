@@ -50,7 +50,7 @@ import org.apache.wicket.util.lang.Args;
  * 
  * @author Matej Knopp
  */
-public class MountedMapper extends AbstractBookmarkableMapper
+public class MountedMapper extends AbstractBookmarkableMapper implements IIndexableRequestMapper
 {
 	private final IPageParametersEncoder pageParametersEncoder;
 
@@ -266,6 +266,37 @@ public class MountedMapper extends AbstractBookmarkableMapper
 		return pageClass.equals(this.getPageClass());
 	}
 
+	/**
+	 * Subclasses that map URLs outside of the mount path must override this method to return
+	 * <code>null</code>.
+	 * 
+	 * @see org.apache.wicket.request.mapper.IIndexableRequestMapper#getIndexedSegments()
+	 */
+	public String[] getIndexedSegments()
+	{
+		return mountSegments;
+	}
+
+	/**
+	 * Returns the name of the mounted page class, see {@link org.apache.wicket.SystemMapper}. Subclasses that map
+	 * handlers for other page classes must override this method to return <code>null</code>.
+	 * 
+	 * @see org.apache.wicket.request.mapper.IIndexableRequestMapper#getHandlerKey()
+	 */
+	public Object getHandlerKey()
+	{
+		// other providers may return different classes over time
+		if (pageClassProvider.getClass() == ClassProvider.class)
+		{
+			Class<? extends IRequestablePage> pageClass = getPageClass();
+			if (pageClass != null)
+			{
+				return pageClass.getName();
+			}
+		}
+		return null;
+	}
+
 	private Class<? extends IRequestablePage> getPageClass()
 	{
 		return pageClassProvider.get();
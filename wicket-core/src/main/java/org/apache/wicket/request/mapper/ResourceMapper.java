@@ -17,7 +17,6 @@
 package org.apache.wicket.request.mapper;
 
 import org.apache.wicket.request.IRequestHandler;
-import org.apache.wicket.request.IRequestMapper;
 import org.apache.wicket.request.Request;
 import org.apache.wicket.request.Url;
 import org.apache.wicket.request.handler.resource.ResourceReferenceRequestHandler;
@@ -53,7 +52,7 @@ import org.apache.wicket.util.lang.Args;
  *
  * @author Peter Ertl
  */
-public class ResourceMapper extends AbstractMapper implements IRequestMapper
+public class ResourceMapper extends AbstractMapper implements IIndexableRequestMapper
 {
 	// encode page parameters into url + decode page parameters from url
 	private final IPageParametersEncoder parametersEncoder;
@@ -131,6 +130,22 @@ public class ResourceMapper extends AbstractMapper implements IRequestMapper
 		return new ResourceReferenceRequestHandler(resourceReference, parameters);
 	}
 
+	/**
+	 * @see org.apache.wicket.request.mapper.IIndexableRequestMapper#getIndexedSegments()
+	 */
+	public String[] getIndexedSegments()
+	{
+		return mountSegments;
+	}
+
+	/**
+	 * @see org.apache.wicket.request.mapper.IIndexableRequestMapper#getHandlerKey()
+	 */
+	public Object getHandlerKey()
+	{
+		return ResourceReferenceRequestHandler.class;
+	}
+
 	public int getCompatibilityScore(Request request)
 	{
 		return 0; // pages always have priority over resources
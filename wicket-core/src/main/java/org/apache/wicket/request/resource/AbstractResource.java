@@ -16,10 +16,19 @@
  */
 package org.apache.wicket.request.resource;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.http.HttpServletResponse;
 
@@ -29,8 +38,10 @@ import org.apache.wicket.request.Response;
 import org.apache.wicket.request.http.WebRequest;
 import org.apache.wicket.request.http.WebResponse;
 import org.apache.wicket.settings.IResourceSettings;
-import org.apache.wicket.util.io.Streams;
+import org.apache.wicket.util.io.IOUtils;
 import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
+import org.apache.wicket.util.string.Strings;
 import org.apache.wicket.util.time.Duration;
 
 /**
@@ -43,6 +54,17 @@ public abstract class AbstractResource implements IResource
 {
 	private static final long serialVersionUID = 1L;
 
+	/** content encoding for gzip compressed data */
+	public static final String GZIP_ENCODING = "gzip";
+
+	/**
+	 * maximum size of streamed resources whose entity tag is computed from their content, larger
+	 * resources get a weak entity tag based on length and modification time
+	 */
+	public static final Bytes MAX_CONTENT_ETAG_SIZE = Bytes.megabytes(1);
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
 	/**
 	 * Construct.
 	 */
@@ -72,8 +94,11 @@ public abstract class AbstractResource implements IResource
 		private ContentDisposition contentDisposition = ContentDisposition.INLINE;
 		private String contentType = null;
 		private String textEncoding;
+		private String contentEncoding;
+		private boolean varyAcceptEncoding = false;
 		private long contentLength = -1;
 		private Date lastModified = null;
+		private String eTag = null;
 		private WriteCallback writeCallback;
 		private Duration cacheDuration;
 		private WebResponse.CacheScope cacheScope;
@@ -219,6 +244,48 @@ public abstract class AbstractResource implements IResource
 			return textEncoding;
 		}
 
+		/**
+		 * Sets the content encoding (e.g. {@link AbstractResource#GZIP_ENCODING}) of the data that
+		 * will be written. The data written by the {@link WriteCallback} must already be encoded
+		 * accordingly.
+		 * 
+		 * @param contentEncoding
+		 *            content encoding of response body or <code>null</code> for identity
+		 */
+		public void setContentEncoding(String contentEncoding)
+		{
+			this.contentEncoding = contentEncoding;
+		}
+
+		/**
+		 * @return content encoding of response body or <code>null</code>
+		 */
+		public String getContentEncoding()
+		{
+			return contentEncoding;
+		}
+
+		/**
+		 * Marks the response as depending on the <code>Accept-Encoding</code> request header, so
+		 * caches will keep separate copies for compressed and uncompressed responses.
+		 * 
+		 * @param varyAcceptEncoding
+		 *            <code>true</code> if the response body was negotiated
+		 */
+		public void setVaryAcceptEncoding(boolean varyAcceptEncoding)
+		{
+			this.varyAcceptEncoding = varyAcceptEncoding;
+		}
+
+		/**
+		 * @return <code>true</code> if the response body depends on the
+		 *         <code>Accept-Encoding</code> request header
+		 */
+		public boolean isVaryAcceptEncoding()
+		{
+			return varyAcceptEncoding;
+		}
+
 		/**
 		 * Sets the content length (in bytes) of the data. Content length is optional but it's
 		 * recommended to set it so that the browser can show download progress.
@@ -261,10 +328,36 @@ public abstract class AbstractResource implements IResource
 			return lastModified;
 		}
 
+		/**
+		 * Sets the entity tag of the resource. The entity tag identifies the exact content of the
+		 * response, so it must change whenever the data (or its content encoding) changes. If
+		 * the entity tag is set Wicket checks the <code>If-None-Match</code> request header to
+		 * determine if the data really needs to be sent to client.
+		 * 
+		 * @see AbstractResource#newContentETag(byte[])
+		 * 
+		 * @param eTag
+		 *            quoted entity tag, e.g. <code>"a1b2c3"</code> or <code>W/"a1b2c3"</code>
+		 */
+		public void setETag(String eTag)
+		{
+			this.eTag = eTag;
+		}
+
+		/**
+		 * @return entity tag or <code>null</code>
+		 */
+		public String getETag()
+		{
+			return eTag;
+		}
+
 		/**
 		 * Check to determine if the resource data needs to be written. This method checks the
-		 * <code>If-Modified-Since</code> request header and compares it to lastModified property.
-		 * In order for this method to work {@link #setLastModified(Date)} has to be called first.
+		 * <code>If-None-Match</code> request header against the entity tag and otherwise the
+		 * <code>If-Modified-Since</code> request header against the lastModified property. In
+		 * order for this method to work {@link #setETag(String)} or
+		 * {@link #setLastModified(Date)} has to be called first.
 		 * 
 		 * @param attributes
 		 *            request attributes
@@ -274,6 +367,14 @@ public abstract class AbstractResource implements IResource
 		public boolean dataNeedsToBeWritten(Attributes attributes)
 		{
 			WebRequest request = (WebRequest)attributes.getRequest();
+
+			// [If-None-Match] takes precedence over [If-Modified-Since], see RFC 2616, 14.26
+			String ifNoneMatch = request.getHeader("If-None-Match");
+			if (ifNoneMatch != null && eTag != null)
+			{
+				return matchesETag(ifNoneMatch, eTag) == false;
+			}
+
 			Date ifModifiedSince = request.getIfModifiedSinceHeader();
 			Date lastModified = getLastModified();
 
@@ -443,9 +544,20 @@ public abstract class AbstractResource implements IResource
 			response.setLastModifiedTime(lastModified.getTime());
 		}
 
+		// 1b. Entity Tag
+		if (data.getETag() != null)
+		{
+			response.setHeader("ETag", data.getETag());
+		}
+
 		// 2. Caching
 		configureCache(request, response, data, attributes);
 
+		if (data.isVaryAcceptEncoding())
+		{
+			response.setHeader("Vary", "Accept-Encoding");
+		}
+
 		if (!data.dataNeedsToBeWritten(attributes))
 		{
 			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
@@ -499,19 +611,449 @@ public abstract class AbstractResource implements IResource
 			}
 		}
 
-		// 5. Content Length
+		// 5. Content Encoding
+		if (data.getContentEncoding() != null)
+		{
+			response.setHeader("Content-Encoding", data.getContentEncoding());
+		}
+
+		// 6. Ranges
+		long[] range = null;
+		if (contentLength != -1 && data.getWriteCallback() instanceof PartWriteCallback)
+		{
+			response.setHeader("Accept-Ranges", "bytes");
+
+			String rangeHeader = request.getHeader("Range");
+			if (rangeHeader != null && isRangeApplicable(request, data))
+			{
+				range = parseRange(rangeHeader, contentLength);
+				if (range != null && range.length == 0)
+				{
+					response.setHeader("Content-Range", "bytes */" + contentLength);
+					response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+					return;
+				}
+			}
+		}
+		if (range != null)
+		{
+			response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+			response.setHeader("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" +
+				contentLength);
+			contentLength = range[1] - range[0] + 1;
+		}
+
+		// 7. Content Length
 		if (contentLength != -1)
 		{
 			response.setContentLength(contentLength);
 		}
 
-		// 6. Flush the response
+		// 8. Flush the response
 		// This is necessary for firefox if this resource is an image, otherwise it messes up
 		// other images on page
 		response.flush();
 
-		// 7. Write Data
-		data.getWriteCallback().writeData(attributes);
+		// 9. Write Data
+		if (range != null)
+		{
+			((PartWriteCallback)data.getWriteCallback()).writeData(attributes, range[0],
+				contentLength);
+		}
+		else
+		{
+			data.getWriteCallback().writeData(attributes);
+		}
+	}
+
+	/**
+	 * Checks the <code>If-Range</code> request header: a range may only be sent if the client's
+	 * partial copy is still current, i.e. the entity tag (strong comparison) or the modification
+	 * date match.
+	 * 
+	 * @param request
+	 *            web request
+	 * @param data
+	 *            resource data
+	 * @return <code>true</code> if the <code>Range</code> header should be honored
+	 */
+	private static boolean isRangeApplicable(final WebRequest request, final ResourceResponse data)
+	{
+		String ifRange = request.getHeader("If-Range");
+		if (ifRange == null)
+		{
+			return true;
+		}
+
+		ifRange = ifRange.trim();
+		if (ifRange.startsWith("\"") || ifRange.startsWith("W/"))
+		{
+			String eTag = data.getETag();
+			return eTag != null && eTag.startsWith("W/") == false && eTag.equals(ifRange);
+		}
+
+		Date lastModified = data.getLastModified();
+		if (lastModified == null)
+		{
+			return false;
+		}
+		try
+		{
+			return request.getDateHeader("If-Range") / 1000 == lastModified.getTime() / 1000;
+		}
+		catch (IllegalArgumentException e)
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * Parses a <code>Range</code> header value. Only a single byte range is supported, requests
+	 * for multiple ranges are answered with the whole content.
+	 * 
+	 * @param header
+	 *            the header value, e.g. <code>bytes=0-499</code>, <code>bytes=500-</code> or
+	 *            <code>bytes=-500</code>
+	 * @param length
+	 *            the length of the content
+	 * @return first and last byte position (inclusive), an empty array if the range is not
+	 *         satisfiable or <code>null</code> if the header should be ignored
+	 */
+	static long[] parseRange(final String header, final long length)
+	{
+		String value = header.trim();
+		if (value.startsWith("bytes=") == false || value.indexOf(',') != -1)
+		{
+			return null;
+		}
+		value = value.substring("bytes=".length()).trim();
+
+		int dash = value.indexOf('-');
+		if (dash == -1)
+		{
+			return null;
+		}
+
+		try
+		{
+			String first = value.substring(0, dash).trim();
+			String last = value.substring(dash + 1).trim();
+
+			long start;
+			long end;
+			if (first.length() == 0)
+			{
+				// suffix range: the last n bytes
+				long suffix = Long.parseLong(last);
+				if (suffix <= 0)
+				{
+					return new long[0];
+				}
+				start = Math.max(0, length - suffix);
+				end = length - 1;
+			}
+			else
+			{
+				start = Long.parseLong(first);
+				end = length - 1;
+				if (last.length() != 0)
+				{
+					long lastPosition = Long.parseLong(last);
+					if (lastPosition < start)
+					{
+						// syntactically invalid
+						return null;
+					}
+					end = Math.min(lastPosition, end);
+				}
+			}
+
+			if (start >= length || start < 0)
+			{
+				return new long[0];
+			}
+			return new long[] { start, end };
+		}
+		catch (NumberFormatException e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Checks whether the response for the given content type may be sent gzip compressed. This is
+	 * the case if compression is not disabled in the resource settings, the content type is
+	 * compressible and the client accepts gzip encoding.
+	 * 
+	 * @see IResourceSettings#getDisableGZipCompression()
+	 * 
+	 * @param attributes
+	 *            request attributes
+	 * @param contentType
+	 *            content type of the response (may be <code>null</code>)
+	 * @return <code>true</code> if a gzip compressed response can be sent
+	 */
+	protected boolean acceptsGzip(final Attributes attributes, final String contentType)
+	{
+		if (isCompressionEnabled(contentType) == false)
+		{
+			return false;
+		}
+		if (attributes.getRequest() instanceof WebRequest == false)
+		{
+			return false;
+		}
+		String acceptEncoding = ((WebRequest)attributes.getRequest()).getHeader("Accept-Encoding");
+		return acceptsEncoding(acceptEncoding, GZIP_ENCODING);
+	}
+
+	/**
+	 * Checks whether responses with the given content type are negotiated for compression at all.
+	 * If so the response should be marked with {@link ResourceResponse#setVaryAcceptEncoding(boolean)}.
+	 * 
+	 * @param contentType
+	 *            content type (may be <code>null</code>)
+	 * @return <code>true</code> if compression is enabled and the content type is compressible
+	 */
+	protected boolean isCompressionEnabled(final String contentType)
+	{
+		return Application.get().getResourceSettings().getDisableGZipCompression() == false &&
+			isCompressible(contentType);
+	}
+
+	/**
+	 * Checks whether content of the given type benefits from compression. Textual content types
+	 * are compressible, images and other binary formats usually are compressed already.
+	 * 
+	 * @param contentType
+	 *            content type (may be <code>null</code>)
+	 * @return <code>true</code> if content of this type should be compressed
+	 */
+	protected boolean isCompressible(final String contentType)
+	{
+		if (Strings.isEmpty(contentType))
+		{
+			return false;
+		}
+		String type = contentType.toLowerCase();
+		int semicolon = type.indexOf(';');
+		if (semicolon != -1)
+		{
+			type = type.substring(0, semicolon);
+		}
+		type = type.trim();
+
+		return type.startsWith("text/") || type.endsWith("javascript") ||
+			type.endsWith("/json") || type.endsWith("+json") || type.endsWith("/xml") ||
+			type.endsWith("+xml");
+	}
+
+	/**
+	 * Checks whether an <code>Accept-Encoding</code> header value accepts the given encoding,
+	 * taking quality values into account.
+	 * 
+	 * @param acceptEncoding
+	 *            the header value (may be <code>null</code>)
+	 * @param encoding
+	 *            the encoding to check
+	 * @return <code>true</code> if the encoding is accepted
+	 */
+	static boolean acceptsEncoding(final String acceptEncoding, final String encoding)
+	{
+		if (Strings.isEmpty(acceptEncoding))
+		{
+			return false;
+		}
+
+		Boolean wildcard = null;
+		for (String token : Strings.split(acceptEncoding, ','))
+		{
+			String name = token;
+			boolean accepted = true;
+			int semicolon = token.indexOf(';');
+			if (semicolon != -1)
+			{
+				name = token.substring(0, semicolon);
+				accepted = hasPositiveQuality(token.substring(semicolon + 1));
+			}
+			name = name.trim();
+
+			if (name.equalsIgnoreCase(encoding) || name.equalsIgnoreCase("x-" + encoding))
+			{
+				return accepted;
+			}
+			else if (name.equals("*"))
+			{
+				wildcard = accepted;
+			}
+		}
+		return wildcard != null && wildcard;
+	}
+
+	/**
+	 * @param parameters
+	 *            parameters of an <code>Accept-Encoding</code> token, e.g. "q=0.5"
+	 * @return <code>false</code> if the quality is zero
+	 */
+	private static boolean hasPositiveQuality(final String parameters)
+	{
+		for (String parameter : Strings.split(parameters, ';'))
+		{
+			parameter = parameter.trim();
+			if (parameter.startsWith("q="))
+			{
+				try
+				{
+					return Double.parseDouble(parameter.substring(2).trim()) > 0;
+				}
+				catch (NumberFormatException e)
+				{
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Compresses data with gzip.
+	 * 
+	 * @param data
+	 *            uncompressed data
+	 * @return gzip compressed data
+	 */
+	protected static byte[] gzip(final byte[] data)
+	{
+		try
+		{
+			ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(32, data.length / 4));
+			GZIPOutputStream gzip = new GZIPOutputStream(out);
+			gzip.write(data);
+			gzip.close();
+			return out.toByteArray();
+		}
+		catch (IOException e)
+		{
+			throw new WicketRuntimeException("Unable to compress data", e);
+		}
+	}
+
+	/**
+	 * Creates a strong entity tag from the digest of the data.
+	 * 
+	 * @param data
+	 *            resource data
+	 * @return quoted entity tag
+	 */
+	protected static String newContentETag(final byte[] data)
+	{
+		MessageDigest digest = newDigest();
+		digest.update(data);
+		return toETag(digest.digest());
+	}
+
+	/**
+	 * Creates a strong entity tag from the digest of the stream's content. The stream is read
+	 * completely but not closed.
+	 * 
+	 * @param stream
+	 *            resource data
+	 * @return quoted entity tag
+	 * @throws IOException
+	 */
+	protected static String newContentETag(final InputStream stream) throws IOException
+	{
+		MessageDigest digest = newDigest();
+		byte[] buffer = new byte[4096];
+		int read;
+		while ((read = stream.read(buffer)) != -1)
+		{
+			digest.update(buffer, 0, read);
+		}
+		return toETag(digest.digest());
+	}
+
+	/**
+	 * Creates a weak entity tag from the length and the modification time of a resource, for
+	 * resources which are too expensive to digest.
+	 * 
+	 * @param length
+	 *            length of the resource
+	 * @param lastModified
+	 *            modification time of the resource
+	 * @return quoted weak entity tag
+	 */
+	protected static String newWeakETag(final long length, final long lastModified)
+	{
+		return "W/\"" + Long.toHexString(length) + '-' + Long.toHexString(lastModified) + '"';
+	}
+
+	/**
+	 * Derives the entity tag of an encoded representation from the entity tag of the identity
+	 * representation, e.g. <code>"abc"</code> becomes <code>"abc-gzip"</code>.
+	 * 
+	 * @param eTag
+	 *            quoted entity tag of the identity representation
+	 * @param contentEncoding
+	 *            the content encoding
+	 * @return quoted entity tag of the encoded representation
+	 */
+	protected static String encodedETag(final String eTag, final String contentEncoding)
+	{
+		return eTag.substring(0, eTag.length() - 1) + '-' + contentEncoding + '"';
+	}
+
+	/**
+	 * Checks whether an <code>If-None-Match</code> header value matches an entity tag, using the
+	 * weak comparison function.
+	 * 
+	 * @param ifNoneMatch
+	 *            the header value
+	 * @param eTag
+	 *            the quoted entity tag
+	 * @return <code>true</code> if one of the listed entity tags matches
+	 */
+	static boolean matchesETag(final String ifNoneMatch, final String eTag)
+	{
+		String opaque = stripWeak(eTag);
+		for (String candidate : Strings.split(ifNoneMatch, ','))
+		{
+			candidate = candidate.trim();
+			if (candidate.equals("*") || stripWeak(candidate).equals(opaque))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String stripWeak(final String eTag)
+	{
+		return eTag.startsWith("W/") ? eTag.substring(2) : eTag;
+	}
+
+	private static MessageDigest newDigest()
+	{
+		try
+		{
+			return MessageDigest.getInstance("MD5");
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			throw new WicketRuntimeException(e);
+		}
+	}
+
+	private static String toETag(final byte[] digest)
+	{
+		StringBuilder eTag = new StringBuilder(digest.length * 2 + 2);
+		eTag.append('"');
+		for (byte b : digest)
+		{
+			eTag.append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+		}
+		eTag.append('"');
+		return eTag.toString();
 	}
 
 	/**
@@ -523,6 +1065,9 @@ public abstract class AbstractResource implements IResource
 	 */
 	public static abstract class WriteCallback
 	{
+		/** pool of buffers used for copying streams to the response */
+		private static final BufferPool BUFFERS = new BufferPool(8192, 64);
+
 		/**
 		 * Write the resource data to response.
 		 * 
@@ -542,43 +1087,158 @@ public abstract class AbstractResource implements IResource
 		protected final void writeStream(Attributes attributes, InputStream stream)
 		{
 			final Response response = attributes.getResponse();
-			OutputStream s = new OutputStream()
+			final byte[] buffer = BUFFERS.acquire();
+			try
 			{
-				@Override
-				public void write(int b) throws IOException
+				int read;
+				while ((read = stream.read(buffer)) != -1)
 				{
-					response.write(new byte[] { (byte)b });
+					response.write(buffer, 0, read);
 				}
+			}
+			catch (IOException e)
+			{
+				throw new WicketRuntimeException(e);
+			}
+			finally
+			{
+				BUFFERS.release(buffer);
+			}
+		}
 
-				@Override
-				public void write(byte[] b) throws IOException
+		/**
+		 * Convenience method to write a part of an {@link InputStream} to response.
+		 * 
+		 * @param attributes
+		 *            request attributes
+		 * @param stream
+		 *            input stream, positioned at its start
+		 * @param offset
+		 *            number of bytes to skip
+		 * @param length
+		 *            number of bytes to write
+		 */
+		protected final void writeStream(Attributes attributes, InputStream stream, long offset,
+			long length)
+		{
+			final Response response = attributes.getResponse();
+			final byte[] buffer = BUFFERS.acquire();
+			try
+			{
+				long skip = offset;
+				while (skip > 0)
 				{
-					response.write(b);
+					long skipped = stream.skip(skip);
+					if (skipped <= 0)
+					{
+						if (stream.read() == -1)
+						{
+							throw new IOException("Unexpected end of stream");
+						}
+						skipped = 1;
+					}
+					skip -= skipped;
 				}
 
-				@Override
-				public void write(byte[] b, int off, int len) throws IOException
+				long remaining = length;
+				while (remaining > 0)
 				{
-					if (off == 0 && len == b.length)
-					{
-						write(b);
-					}
-					else
+					int read = stream.read(buffer, 0, (int)Math.min(buffer.length, remaining));
+					if (read == -1)
 					{
-						byte copy[] = new byte[len];
-						System.arraycopy(b, off, copy, 0, len);
-						write(copy);
+						throw new IOException("Unexpected end of stream");
 					}
+					response.write(buffer, 0, read);
+					remaining -= read;
 				}
-			};
+			}
+			catch (IOException e)
+			{
+				throw new WicketRuntimeException(e);
+			}
+			finally
+			{
+				BUFFERS.release(buffer);
+			}
+		}
+
+		/**
+		 * Convenience method to write a part of a file to response. If the response gives access
+		 * to the servlet output stream the file is transferred with
+		 * {@link FileChannel#transferTo(long, long, WritableByteChannel)}, which lets containers
+		 * whose output stream is a {@link WritableByteChannel} send the file without copying it
+		 * through the Java heap.
+		 * 
+		 * @param attributes
+		 *            request attributes
+		 * @param file
+		 *            the file
+		 * @param offset
+		 *            position of the first byte to write
+		 * @param length
+		 *            number of bytes to write
+		 */
+		protected final void writeFile(Attributes attributes, File file, long offset, long length)
+		{
+			FileInputStream input = null;
 			try
 			{
-				Streams.copy(stream, s);
+				input = new FileInputStream(file);
+
+				Object containerResponse = attributes.getResponse().getContainerResponse();
+				if (containerResponse instanceof HttpServletResponse)
+				{
+					OutputStream output = ((HttpServletResponse)containerResponse).getOutputStream();
+					WritableByteChannel target = output instanceof WritableByteChannel
+						? (WritableByteChannel)output : Channels.newChannel(output);
+
+					FileChannel channel = input.getChannel();
+					long position = offset;
+					long remaining = length;
+					while (remaining > 0)
+					{
+						long transferred = channel.transferTo(position, remaining, target);
+						if (transferred <= 0)
+						{
+							throw new IOException("Unexpected end of file " + file);
+						}
+						position += transferred;
+						remaining -= transferred;
+					}
+				}
+				else
+				{
+					writeStream(attributes, input, offset, length);
+				}
 			}
 			catch (IOException e)
 			{
 				throw new WicketRuntimeException(e);
 			}
+			finally
+			{
+				IOUtils.closeQuietly(input);
+			}
 		}
 	}
+
+	/**
+	 * {@link WriteCallback} that is able to write a part of the resource data. Resources using it
+	 * and setting a content length support requests with a <code>Range</code> header, which are
+	 * answered with <code>206 Partial Content</code>.
+	 */
+	public static abstract class PartWriteCallback extends WriteCallback
+	{
+		/**
+		 * Write a part of the resource data to response.
+		 * 
+		 * @param attributes
+		 *            request attributes
+		 * @param offset
+		 *            position of the first byte to write
+		 * @param length
+		 *            number of bytes to write
+		 */
+		public abstract void writeData(Attributes attributes, long offset, long length);
+	}
 }
\ No newline at end of file
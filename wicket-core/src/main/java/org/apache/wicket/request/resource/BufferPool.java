@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.resource;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A small pool of equally sized byte buffers used to copy resource streams to the response
+ * without allocating a new buffer for every request. If the pool is exhausted new buffers are
+ * allocated, buffers released to a full pool are left to the garbage collector.
+ */
+final class BufferPool
+{
+	private final Queue<byte[]> buffers = new ConcurrentLinkedQueue<byte[]>();
+
+	/** number of buffers in {@link #buffers}, tracked separately since size() is O(n) */
+	private final AtomicInteger pooled = new AtomicInteger();
+
+	private final int bufferSize;
+
+	private final int maxPooled;
+
+	/**
+	 * Construct.
+	 *
+	 * @param bufferSize
+	 *            size of the buffers
+	 * @param maxPooled
+	 *            maximum number of idle buffers kept in the pool
+	 */
+	BufferPool(final int bufferSize, final int maxPooled)
+	{
+		this.bufferSize = bufferSize;
+		this.maxPooled = maxPooled;
+	}
+
+	/**
+	 * @return a buffer which must be given back with {@link #release(byte[])}
+	 */
+	byte[] acquire()
+	{
+		byte[] buffer = buffers.poll();
+		if (buffer == null)
+		{
+			return new byte[bufferSize];
+		}
+		pooled.decrementAndGet();
+		return buffer;
+	}
+
+	/**
+	 * @param buffer
+	 *            a buffer obtained from {@link #acquire()} which is not used anymore
+	 */
+	void release(final byte[] buffer)
+	{
+		if (pooled.incrementAndGet() <= maxPooled)
+		{
+			buffers.offer(buffer);
+		}
+		else
+		{
+			pooled.decrementAndGet();
+		}
+	}
+}
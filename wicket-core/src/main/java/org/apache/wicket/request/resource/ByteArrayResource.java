@@ -38,6 +38,12 @@ public class ByteArrayResource extends AbstractResource
 
 	private final String filename;
 
+	/** gzip compressed variant of the binary data, computed on first use */
+	private transient byte[] compressedArray;
+
+	/** entity tag of the binary data, computed on first use */
+	private transient String eTag;
+
 	/**
 	 * Creates a Resource from the given byte array with its content type
 	 * 
@@ -88,6 +94,37 @@ public class ByteArrayResource extends AbstractResource
 		filename = null;
 	}
 
+	/**
+	 * @return entity tag of the binary data
+	 */
+	private String getETag()
+	{
+		if (eTag == null)
+		{
+			eTag = newContentETag(array);
+		}
+		return eTag;
+	}
+
+	/**
+	 * @return gzip compressed data or <code>null</code> if the data does not get smaller by
+	 *         compression
+	 */
+	private byte[] getCompressedArray()
+	{
+		byte[] compressed = compressedArray;
+		if (compressed == null)
+		{
+			compressed = gzip(array);
+			if (compressed.length >= array.length)
+			{
+				compressed = array;
+			}
+			compressedArray = compressed;
+		}
+		return compressed != array ? compressed : null;
+	}
+
 	protected void configureResponse(final ResourceResponse response, final Attributes attributes)
 	{
 	}
@@ -103,6 +140,14 @@ public class ByteArrayResource extends AbstractResource
 		response.setContentType(contentType);
 		response.setLastModified(lastModified.toDate());
 
+		boolean compress = false;
+		if (isCompressionEnabled(contentType))
+		{
+			response.setVaryAcceptEncoding(true);
+			compress = acceptsGzip(attributes, contentType) && getCompressedArray() != null;
+		}
+		response.setETag(compress ? encodedETag(getETag(), GZIP_ENCODING) : getETag());
+
 		if (response.dataNeedsToBeWritten(attributes))
 		{
 			if (filename != null)
@@ -115,12 +160,30 @@ public class ByteArrayResource extends AbstractResource
 				response.setContentDisposition(ContentDisposition.INLINE);
 			}
 
-			response.setWriteCallback(new WriteCallback()
+			final byte[] bytes;
+			if (compress)
+			{
+				bytes = getCompressedArray();
+				response.setContentEncoding(GZIP_ENCODING);
+			}
+			else
+			{
+				bytes = array;
+			}
+			response.setContentLength(bytes.length);
+			response.setWriteCallback(new PartWriteCallback()
 			{
 				@Override
 				public void writeData(final Attributes attributes)
 				{
-					attributes.getResponse().write(array);
+					attributes.getResponse().write(bytes);
+				}
+
+				@Override
+				public void writeData(final Attributes attributes, final long offset,
+					final long length)
+				{
+					attributes.getResponse().write(bytes, (int)offset, (int)length);
 				}
 			});
 
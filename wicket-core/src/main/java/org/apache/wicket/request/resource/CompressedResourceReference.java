@@ -18,17 +18,42 @@ package org.apache.wicket.request.resource;
 
 import java.util.Locale;
 
-// TODO NG
+/**
+ * Reference to a package resource that should be sent compressed to the client.
+ * <p>
+ * Compression is negotiated transparently for all {@link PackageResource}s with a compressible
+ * content type based on the client's <code>Accept-Encoding</code> header, so this class behaves
+ * exactly like {@link PackageResourceReference} and is kept for compatibility.
+ * 
+ * @see AbstractResource#acceptsGzip(org.apache.wicket.request.resource.IResource.Attributes,
+ *      String)
+ * @see org.apache.wicket.settings.IResourceSettings#setDisableGZipCompression(boolean)
+ */
 public class CompressedResourceReference extends PackageResourceReference
 {
 	private static final long serialVersionUID = 1L;
 
+	/**
+	 * Construct.
+	 * 
+	 * @param scope
+	 * @param name
+	 * @param locale
+	 * @param style
+	 * @param variation
+	 */
 	public CompressedResourceReference(Class<?> scope, String name, Locale locale, String style,
 		String variation)
 	{
 		super(scope, name, locale, style, variation);
 	}
 
+	/**
+	 * Construct.
+	 * 
+	 * @param scope
+	 * @param name
+	 */
 	public CompressedResourceReference(Class<?> scope, String name)
 	{
 		super(scope, name);
@@ -18,9 +18,14 @@ package org.apache.wicket.request.resource;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Date;
 
 import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.protocol.http.WebApplication;
 import org.apache.wicket.util.io.ByteArrayOutputStream;
+import org.apache.wicket.util.io.Connections;
 import org.apache.wicket.util.io.IOUtils;
 import org.apache.wicket.util.io.Streams;
 import org.apache.wicket.util.resource.ResourceStreamNotFoundException;
@@ -66,13 +71,44 @@ public class ContextRelativeResource extends AbstractResource
 	{
 		final ResourceResponse resourceResponse = new ResourceResponse();
 
-		if (resourceResponse.dataNeedsToBeWritten(attributes))
+		final WebExternalResourceStream webExternalResourceStream = new WebExternalResourceStream(
+			path);
+
+		// the entity tag is derived from the file's length and modification time, the content is
+		// only read if it has to be sent
+		URLConnection connection = null;
+		try
+		{
+			URL url = WebApplication.get().getServletContext().getResource(path);
+			if (url != null)
+			{
+				connection = url.openConnection();
+				long length = connection.getContentLength();
+				long lastModified = connection.getLastModified();
+				if (length >= 0 && lastModified > 0)
+				{
+					resourceResponse.setLastModified(new Date(lastModified));
+					resourceResponse.setETag(newWeakETag(length, lastModified));
+				}
+			}
+		}
+		catch (IOException iox)
 		{
-			final WebExternalResourceStream webExternalResourceStream = new WebExternalResourceStream(
-				path);
+			log.debug("Cannot determine the version of " + path, iox);
+		}
+		finally
+		{
+			Connections.closeQuietly(connection);
+		}
 
+		if (resourceResponse.dataNeedsToBeWritten(attributes))
+		{
 			resourceResponse.setContentType(webExternalResourceStream.getContentType());
-			resourceResponse.setLastModified(webExternalResourceStream.lastModifiedTime().toDate());
+			if (resourceResponse.getLastModified() == null)
+			{
+				resourceResponse.setLastModified(webExternalResourceStream.lastModifiedTime()
+					.toDate());
+			}
 			resourceResponse.setFileName(path);
 			resourceResponse.setWriteCallback(new WriteCallback()
 			{
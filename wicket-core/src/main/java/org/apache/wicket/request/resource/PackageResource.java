@@ -17,6 +17,7 @@
 package org.apache.wicket.request.resource;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Locale;
 
 import javax.servlet.http.HttpServletResponse;
@@ -28,6 +29,7 @@ import org.apache.wicket.markup.html.IPackageResourceGuard;
 import org.apache.wicket.request.http.WebResponse;
 import org.apache.wicket.settings.IResourceSettings;
 import org.apache.wicket.util.io.IOUtils;
+import org.apache.wicket.util.lang.Bytes;
 import org.apache.wicket.util.lang.Packages;
 import org.apache.wicket.util.lang.WicketObjects;
 import org.apache.wicket.util.resource.IResourceStream;
@@ -214,29 +216,55 @@ public class PackageResource extends AbstractResource
 
 			try
 			{
-				// read resource data
-				final byte[] bytes;
-
-				try
+				// large resources are streamed instead of being held in memory
+				final Bytes length = resourceStream.length();
+				if (isCacheable(length) == false)
 				{
-					bytes = IOUtils.toByteArray(resourceStream.getInputStream());
+					streamResourceData(resourceResponse, resourceStream, length, lastModified);
+					return resourceResponse;
 				}
-				finally
+
+				// read resource data
+				byte[] data = getResourceData(resourceStream, lastModified);
+				resourceResponse.setETag(getETag(data, lastModified));
+
+				// negotiate compression
+				final String contentType = resourceStream.getContentType();
+				if (isCompressionEnabled(contentType))
 				{
-					resourceStream.close();
+					resourceResponse.setVaryAcceptEncoding(true);
+
+					if (acceptsGzip(attributes, contentType))
+					{
+						byte[] compressed = getCompressedResourceData(lastModified);
+						if (compressed != null)
+						{
+							data = compressed;
+							resourceResponse.setContentEncoding(GZIP_ENCODING);
+							resourceResponse.setETag(encodedETag(resourceResponse.getETag(),
+								GZIP_ENCODING));
+						}
+					}
 				}
+				final byte[] bytes = data;
 
 				// send Content-Length header
 				resourceResponse.setContentLength(bytes.length);
 
 				// send response body with resource data
-				resourceResponse.setWriteCallback(new WriteCallback()
+				resourceResponse.setWriteCallback(new PartWriteCallback()
 				{
 					@Override
 					public void writeData(Attributes attributes)
 					{
 						attributes.getResponse().write(bytes);
 					}
+
+					@Override
+					public void writeData(Attributes attributes, long offset, long length)
+					{
+						attributes.getResponse().write(bytes, (int)offset, (int)length);
+					}
 				});
 			}
 			catch (IOException e)
@@ -261,6 +289,203 @@ public class PackageResource extends AbstractResource
 		return resourceResponse;
 	}
 
+	/**
+	 * Checks whether a resource of the given length is small enough to be read into memory and
+	 * kept in the application's {@link PackageResourceCache}.
+	 * 
+	 * @param length
+	 *            length of the resource stream (may be null)
+	 * @return <code>true</code> if the resource data should be read into memory
+	 */
+	private boolean isCacheable(final Bytes length)
+	{
+		final PackageResourceCache cache = Application.get()
+			.getResourceSettings()
+			.getPackageResourceCache();
+
+		return cache != null && length != null && length.bytes() >= 0 &&
+			length.bytes() <= cache.getMaxEntrySize().bytes();
+	}
+
+	/**
+	 * Configures the resource response to copy the resource stream straight to the response,
+	 * without reading it into memory first. The input stream is opened only when the response
+	 * body is actually written, so nothing is left open for not modified responses.
+	 * 
+	 * @param resourceResponse
+	 *            resource response
+	 * @param resourceStream
+	 *            the located resource stream, will be closed after writing
+	 * @param length
+	 *            length of the resource stream (may be null)
+	 * @param lastModified
+	 *            last modification time of the resource stream (may be null)
+	 */
+	private void streamResourceData(final ResourceResponse resourceResponse,
+		final IResourceStream resourceStream, final Bytes length, final Time lastModified)
+	{
+		final long contentLength = length != null ? length.bytes() : -1;
+		if (contentLength < 0)
+		{
+			resourceResponse.setWriteCallback(new WriteCallback()
+			{
+				@Override
+				public void writeData(Attributes attributes)
+				{
+					try
+					{
+						writeStream(attributes, openStream(resourceStream));
+					}
+					finally
+					{
+						IOUtils.closeQuietly(resourceStream);
+					}
+				}
+			});
+			return;
+		}
+
+		resourceResponse.setContentLength(contentLength);
+		if (lastModified != null)
+		{
+			resourceResponse.setETag(newWeakETag(contentLength, lastModified.getMilliseconds()));
+		}
+		resourceResponse.setWriteCallback(new PartWriteCallback()
+		{
+			@Override
+			public void writeData(Attributes attributes)
+			{
+				writeData(attributes, 0, contentLength);
+			}
+
+			@Override
+			public void writeData(Attributes attributes, long offset, long length)
+			{
+				try
+				{
+					writeStream(attributes, openStream(resourceStream), offset, length);
+				}
+				finally
+				{
+					IOUtils.closeQuietly(resourceStream);
+				}
+			}
+		});
+	}
+
+	/**
+	 * @param resourceStream
+	 * @return input stream of the resource stream
+	 */
+	private static InputStream openStream(final IResourceStream resourceStream)
+	{
+		try
+		{
+			return resourceStream.getInputStream();
+		}
+		catch (ResourceStreamNotFoundException e)
+		{
+			throw new WicketRuntimeException("Unable to open resource stream", e);
+		}
+	}
+
+	/**
+	 * Reads the content of the resource stream, using the application's
+	 * {@link PackageResourceCache} when it is enabled.
+	 * 
+	 * @param resourceStream
+	 *            the located resource stream, will be closed
+	 * @param lastModified
+	 *            last modification time of the resource stream (may be null)
+	 * @return resource data
+	 * @throws IOException
+	 * @throws ResourceStreamNotFoundException
+	 */
+	private byte[] getResourceData(final IResourceStream resourceStream, final Time lastModified)
+		throws IOException, ResourceStreamNotFoundException
+	{
+		final PackageResourceCache cache = Application.get()
+			.getResourceSettings()
+			.getPackageResourceCache();
+
+		PackageResourceCache.Key key = null;
+		if (cache != null)
+		{
+			key = new PackageResourceCache.Key(scopeName, absolutePath, locale, style, variation);
+			byte[] cached = cache.get(key, lastModified);
+			if (cached != null)
+			{
+				resourceStream.close();
+				return cached;
+			}
+		}
+
+		final byte[] bytes;
+		try
+		{
+			bytes = IOUtils.toByteArray(resourceStream.getInputStream());
+		}
+		finally
+		{
+			resourceStream.close();
+		}
+
+		if (cache != null)
+		{
+			cache.put(key, lastModified, bytes);
+		}
+		return bytes;
+	}
+
+	/**
+	 * Gets the entity tag for the content of the resource. The entity tag is taken from the
+	 * application's {@link PackageResourceCache} when possible, so it is computed only once per
+	 * resource version.
+	 * 
+	 * @param data
+	 *            resource data
+	 * @param lastModified
+	 *            last modification time of the resource stream (may be null)
+	 * @return quoted entity tag
+	 */
+	private String getETag(final byte[] data, final Time lastModified)
+	{
+		final PackageResourceCache cache = Application.get()
+			.getResourceSettings()
+			.getPackageResourceCache();
+
+		String eTag = null;
+		if (cache != null)
+		{
+			eTag = cache.getETag(new PackageResourceCache.Key(scopeName, absolutePath, locale,
+				style, variation), lastModified);
+		}
+		return eTag != null ? eTag : newContentETag(data);
+	}
+
+	/**
+	 * Gets the gzip compressed content of the resource. Compressed content is only available for
+	 * resources held by the application's {@link PackageResourceCache}, so it is computed only
+	 * once per resource version.
+	 * 
+	 * @param lastModified
+	 *            last modification time of the resource stream (may be null)
+	 * @return compressed resource data or <code>null</code> if not available
+	 */
+	private byte[] getCompressedResourceData(final Time lastModified)
+	{
+		final PackageResourceCache cache = Application.get()
+			.getResourceSettings()
+			.getPackageResourceCache();
+
+		if (cache == null)
+		{
+			return null;
+		}
+		return cache.getCompressed(new PackageResourceCache.Key(scopeName, absolutePath, locale,
+			style, variation), lastModified);
+	}
+
 	/**
 	 * send resource specific error message and write log entry
 	 * 
@@ -0,0 +1,450 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.resource;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
+import org.apache.wicket.util.lang.Objects;
+import org.apache.wicket.util.time.Time;
+
+/**
+ * Application wide cache for the content of {@link PackageResource}s. Package resources are
+ * usually read from jar files on every request, which is wasteful for the small and frequently
+ * requested CSS, JavaScript and image files.
+ * <p>
+ * Entries are validated against the last modification time of the resource stream so changed
+ * resources are picked up, and the least recently used entries are evicted once the total number
+ * of cached bytes exceeds the configured maximum. Resources larger than the maximum entry size are
+ * never cached.
+ *
+ * @see org.apache.wicket.settings.IResourceSettings#setPackageResourceCache(PackageResourceCache)
+ */
+public class PackageResourceCache
+{
+	/** default maximum size of all cached data */
+	public static final Bytes DEFAULT_MAX_SIZE = Bytes.megabytes(4);
+
+	/** default maximum size of a single cached resource */
+	public static final Bytes DEFAULT_MAX_ENTRY_SIZE = Bytes.kilobytes(256);
+
+	/** marks entries whose content does not get smaller by compression */
+	private static final byte[] NOT_COMPRESSIBLE = new byte[0];
+
+	/** the cached entries in least recently used order, guarded by itself */
+	private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f,
+		true);
+
+	private final long maxSize;
+
+	private final long maxEntrySize;
+
+	/** total number of cached bytes, guarded by {@link #entries} */
+	private long size = 0;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * Construct with default limits.
+	 */
+	public PackageResourceCache()
+	{
+		this(DEFAULT_MAX_SIZE, DEFAULT_MAX_ENTRY_SIZE);
+	}
+
+	/**
+	 * Construct.
+	 *
+	 * @param maxSize
+	 *            maximum number of bytes held by the cache
+	 * @param maxEntrySize
+	 *            maximum size of a single resource to be cached
+	 */
+	public PackageResourceCache(final Bytes maxSize, final Bytes maxEntrySize)
+	{
+		Args.notNull(maxSize, "maxSize");
+		Args.notNull(maxEntrySize, "maxEntrySize");
+
+		this.maxSize = maxSize.bytes();
+		this.maxEntrySize = Math.min(maxEntrySize.bytes(), this.maxSize);
+	}
+
+	/**
+	 * Looks up the content of a resource.
+	 *
+	 * @param key
+	 *            the resource key
+	 * @param lastModified
+	 *            the current modification time of the resource
+	 * @return the cached content or <code>null</code> if the resource is not cached or the cached
+	 *         content is outdated
+	 */
+	public byte[] get(final Key key, final Time lastModified)
+	{
+		Args.notNull(key, "key");
+
+		if (lastModified != null)
+		{
+			synchronized (entries)
+			{
+				Entry entry = entries.get(key);
+				if (entry != null)
+				{
+					if (entry.lastModified == lastModified.getMilliseconds())
+					{
+						hits.incrementAndGet();
+						return entry.data;
+					}
+
+					// stale
+					entries.remove(key);
+					size -= entry.getSize();
+				}
+			}
+		}
+
+		misses.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * Looks up the gzip compressed content of a resource. The compressed variant is computed once
+	 * per cached resource version and accounted for in the size of the cache.
+	 *
+	 * @param key
+	 *            the resource key
+	 * @param lastModified
+	 *            the current modification time of the resource
+	 * @return the compressed content or <code>null</code> if the resource is not cached, outdated
+	 *         or does not get smaller by compression
+	 */
+	public byte[] getCompressed(final Key key, final Time lastModified)
+	{
+		Args.notNull(key, "key");
+
+		if (lastModified == null)
+		{
+			return null;
+		}
+
+		final Entry entry;
+		synchronized (entries)
+		{
+			entry = entries.get(key);
+		}
+		if (entry == null || entry.lastModified != lastModified.getMilliseconds())
+		{
+			return null;
+		}
+
+		byte[] compressed = entry.compressed;
+		if (compressed == null)
+		{
+			// compress outside of the lock, concurrent requests may compress twice at worst
+			compressed = AbstractResource.gzip(entry.data);
+			if (compressed.length >= entry.data.length)
+			{
+				compressed = NOT_COMPRESSIBLE;
+			}
+
+			synchronized (entries)
+			{
+				if (entry.compressed == null && entries.get(key) == entry)
+				{
+					entry.compressed = compressed;
+					size += compressed.length;
+					evict();
+				}
+			}
+		}
+		return compressed == NOT_COMPRESSIBLE ? null : compressed;
+	}
+
+	/**
+	 * Looks up the entity tag of a resource. The entity tag is computed from the content once per
+	 * cached resource version.
+	 *
+	 * @see AbstractResource#newContentETag(byte[])
+	 *
+	 * @param key
+	 *            the resource key
+	 * @param lastModified
+	 *            the current modification time of the resource
+	 * @return the quoted entity tag or <code>null</code> if the resource is not cached or outdated
+	 */
+	public String getETag(final Key key, final Time lastModified)
+	{
+		Args.notNull(key, "key");
+
+		if (lastModified == null)
+		{
+			return null;
+		}
+
+		final Entry entry;
+		synchronized (entries)
+		{
+			entry = entries.get(key);
+		}
+		if (entry == null || entry.lastModified != lastModified.getMilliseconds())
+		{
+			return null;
+		}
+
+		String eTag = entry.eTag;
+		if (eTag == null)
+		{
+			eTag = AbstractResource.newContentETag(entry.data);
+			entry.eTag = eTag;
+		}
+		return eTag;
+	}
+
+	/**
+	 * Stores the content of a resource. Resources without modification time or larger than the
+	 * maximum entry size are not cached.
+	 *
+	 * @param key
+	 *            the resource key
+	 * @param lastModified
+	 *            the modification time of the resource the data was read from
+	 * @param data
+	 *            the content of the resource
+	 */
+	public void put(final Key key, final Time lastModified, final byte[] data)
+	{
+		Args.notNull(key, "key");
+		Args.notNull(data, "data");
+
+		if (lastModified == null || data.length > maxEntrySize)
+		{
+			return;
+		}
+
+		synchronized (entries)
+		{
+			Entry old = entries.put(key, new Entry(lastModified.getMilliseconds(), data));
+			if (old != null)
+			{
+				size -= old.getSize();
+			}
+			size += data.length;
+
+			evict();
+		}
+	}
+
+	/**
+	 * Evicts the least recently used entries until the cache fits into its maximum size. Must be
+	 * called while holding the lock on {@link #entries}.
+	 */
+	private void evict()
+	{
+		Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+		while (size > maxSize && iterator.hasNext())
+		{
+			Entry eldest = iterator.next().getValue();
+			iterator.remove();
+			size -= eldest.getSize();
+			evictions.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Removes all cached entries.
+	 */
+	public void clear()
+	{
+		synchronized (entries)
+		{
+			entries.clear();
+			size = 0;
+		}
+	}
+
+	/**
+	 * @return number of cached resources
+	 */
+	public int getEntryCount()
+	{
+		synchronized (entries)
+		{
+			return entries.size();
+		}
+	}
+
+	/**
+	 * @return total size of the cached resources
+	 */
+	public Bytes getSize()
+	{
+		synchronized (entries)
+		{
+			return Bytes.bytes(size);
+		}
+	}
+
+	/**
+	 * @return maximum size of the cache
+	 */
+	public Bytes getMaxSize()
+	{
+		return Bytes.bytes(maxSize);
+	}
+
+	/**
+	 * @return maximum size of a single cached resource
+	 */
+	public Bytes getMaxEntrySize()
+	{
+		return Bytes.bytes(maxEntrySize);
+	}
+
+	/**
+	 * @return number of lookups that were served from the cache
+	 */
+	public long getHits()
+	{
+		return hits.get();
+	}
+
+	/**
+	 * @return number of lookups that were not served from the cache
+	 */
+	public long getMisses()
+	{
+		return misses.get();
+	}
+
+	/**
+	 * @return number of entries that were evicted to make room for others
+	 */
+	public long getEvictions()
+	{
+		return evictions.get();
+	}
+
+	@Override
+	public String toString()
+	{
+		return "[PackageResourceCache entries=" + getEntryCount() + ", size=" + getSize() +
+			", hits=" + getHits() + ", misses=" + getMisses() + ", evictions=" + getEvictions() +
+			"]";
+	}
+
+	/**
+	 * Identifies a package resource in the cache.
+	 */
+	public static final class Key
+	{
+		private final String scopeName;
+		private final String path;
+		private final Locale locale;
+		private final String style;
+		private final String variation;
+
+		/**
+		 * Construct.
+		 *
+		 * @param scopeName
+		 *            name of the scope class
+		 * @param path
+		 *            absolute path of the resource
+		 * @param locale
+		 *            locale of the resource
+		 * @param style
+		 *            style of the resource
+		 * @param variation
+		 *            variation of the resource
+		 */
+		public Key(final String scopeName, final String path, final Locale locale,
+			final String style, final String variation)
+		{
+			this.scopeName = scopeName;
+			this.path = path;
+			this.locale = locale;
+			this.style = style;
+			this.variation = variation;
+		}
+
+		@Override
+		public boolean equals(final Object obj)
+		{
+			if (this == obj)
+			{
+				return true;
+			}
+			if (obj instanceof Key == false)
+			{
+				return false;
+			}
+			Key that = (Key)obj;
+			return Objects.equal(scopeName, that.scopeName) && Objects.equal(path, that.path) &&
+				Objects.equal(locale, that.locale) && Objects.equal(style, that.style) &&
+				Objects.equal(variation, that.variation);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return Objects.hashCode(scopeName, path, locale, style, variation);
+		}
+
+		@Override
+		public String toString()
+		{
+			return "[Key scope=" + scopeName + ", path=" + path + ", locale=" + locale +
+				", style=" + style + ", variation=" + variation + "]";
+		}
+	}
+
+	/**
+	 * Cached content of a single resource.
+	 */
+	private static final class Entry
+	{
+		private final long lastModified;
+		private final byte[] data;
+
+		/** lazily computed gzip variant of the data, guarded by the cache's lock for writes */
+		private volatile byte[] compressed;
+
+		/** lazily computed entity tag of the data */
+		private volatile String eTag;
+
+		private Entry(final long lastModified, final byte[] data)
+		{
+			this.lastModified = lastModified;
+			this.data = data;
+		}
+
+		private long getSize()
+		{
+			byte[] c = compressed;
+			return data.length + (c != null ? c.length : 0);
+		}
+	}
+}
@@ -16,16 +16,20 @@
  */
 package org.apache.wicket.request.resource;
 
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.wicket.util.io.IOUtils;
 import org.apache.wicket.util.lang.Args;
 import org.apache.wicket.util.lang.Bytes;
+import org.apache.wicket.util.resource.FileResourceStream;
 import org.apache.wicket.util.resource.IResourceStream;
 import org.apache.wicket.util.resource.IResourceStreamWriter;
 import org.apache.wicket.util.resource.ResourceStreamNotFoundException;
+import org.apache.wicket.util.time.Time;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,6 +46,10 @@ public class ResourceStreamResource extends AbstractResource
 	private String textEncoding;
 	private String mimeType;
 
+	/** entity tag of the stream's content and the modification time it was computed for */
+	private transient String eTag;
+	private transient long eTagVersion;
+
 	public ResourceStreamResource(IResourceStream stream)
 	{
 		Args.notNull(stream, "stream");
@@ -71,6 +79,7 @@ public class ResourceStreamResource extends AbstractResource
 	{
 		ResourceResponse data = new ResourceResponse();
 		data.setLastModified(stream.lastModifiedTime().toDate());
+		data.setETag(getETag());
 
 		// performance check; don't bother to do anything if the resource is still cached by client
 		if (data.dataNeedsToBeWritten(attributes))
@@ -114,11 +123,18 @@ public class ResourceStreamResource extends AbstractResource
 			else
 			{
 				final InputStream s = inputStream;
-				data.setWriteCallback(new WriteCallback()
+				data.setWriteCallback(new PartWriteCallback()
 				{
 					@Override
 					public void writeData(Attributes attributes)
 					{
+						Bytes length = stream.length();
+						if (stream instanceof FileResourceStream && length != null)
+						{
+							writeData(attributes, 0, length.bytes());
+							return;
+						}
+
 						try
 						{
 							writeStream(attributes, s);
@@ -128,6 +144,27 @@ public class ResourceStreamResource extends AbstractResource
 							close();
 						}
 					}
+
+					@Override
+					public void writeData(Attributes attributes, long offset, long length)
+					{
+						try
+						{
+							if (stream instanceof FileResourceStream)
+							{
+								writeFile(attributes, ((FileResourceStream)stream).getFile(),
+									offset, length);
+							}
+							else
+							{
+								writeStream(attributes, s, offset, length);
+							}
+						}
+						finally
+						{
+							close();
+						}
+					}
 				});
 			}
 		}
@@ -135,6 +172,61 @@ public class ResourceStreamResource extends AbstractResource
 		return data;
 	}
 
+	/**
+	 * Gets the entity tag of the stream, a weak one built from its length and modification time.
+	 * Only the content of {@link FileResourceStream}s with a length of at most
+	 * {@link #MAX_CONTENT_ETAG_SIZE} is digested, as these can be read again for the response;
+	 * that tag is kept for the modification time it was computed for.
+	 * 
+	 * @return quoted entity tag or <code>null</code> if the stream can't be identified
+	 */
+	private String getETag()
+	{
+		Time lastModified = stream.lastModifiedTime();
+		if (lastModified == null)
+		{
+			return null;
+		}
+		if (eTag != null && eTagVersion == lastModified.getMilliseconds())
+		{
+			return eTag;
+		}
+
+		Bytes length = stream.length();
+		if (length == null)
+		{
+			return null;
+		}
+
+		String tag;
+		if (stream instanceof FileResourceStream && !length.greaterThan(MAX_CONTENT_ETAG_SIZE))
+		{
+			InputStream inputStream = null;
+			try
+			{
+				inputStream = new FileInputStream(((FileResourceStream)stream).getFile());
+				tag = newContentETag(inputStream);
+			}
+			catch (IOException e)
+			{
+				logger.debug("Couldn't compute entity tag of ResourceStream", e);
+				return null;
+			}
+			finally
+			{
+				IOUtils.closeQuietly(inputStream);
+			}
+		}
+		else
+		{
+			tag = newWeakETag(length.bytes(), lastModified.getMilliseconds());
+		}
+
+		eTag = tag;
+		eTagVersion = lastModified.getMilliseconds();
+		return tag;
+	}
+
 	private void close()
 	{
 		try
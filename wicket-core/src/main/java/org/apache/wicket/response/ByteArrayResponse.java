@@ -103,6 +103,12 @@ public class ByteArrayResponse extends Response
 		}
 	}
 
+	@Override
+	public void write(byte[] array, int offset, int length)
+	{
+		bytes.write(array, offset, length);
+	}
+
 	@Override
 	public String encodeURL(CharSequence url)
 	{
@@ -0,0 +1,298 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.serialize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.ThreadContext;
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.util.io.SerializableChecker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A faster variant of {@link JavaSerializer} for the page store.
+ * <p>
+ * It keeps the semantics of Java serialization (<code>writeObject</code>,
+ * <code>readResolve</code>, <code>Externalizable</code> etc.) but writes only the name and
+ * serial version UID of a class instead of its full descriptor with all field names and types. When
+ * reading, the descriptor of the local class is used, which the JDK caches together with the
+ * reflective field accessors, and resolved classes are cached by name. The output buffers are
+ * reused per thread.
+ * <p>
+ * Because the class descriptors are not written, the data can only be read by an application with
+ * compatible classes, which is always the case for pages stored by the running application.
+ */
+public class CompactJavaSerializer implements ISerializer
+{
+	private static final Logger log = LoggerFactory.getLogger(CompactJavaSerializer.class);
+
+	/** buffers that grew larger than this are not kept for the next serialization */
+	private static final int MAX_REUSED_BUFFER_SIZE = 1024 * 1024;
+
+	private final String applicationKey;
+
+	private final ThreadLocal<ByteArrayOutputStream> buffers = new ThreadLocal<ByteArrayOutputStream>();
+
+	private final ConcurrentMap<String, Class<?>> classes = new ConcurrentHashMap<String, Class<?>>();
+
+	/**
+	 * Construct.
+	 *
+	 * @param applicationKey
+	 *            key of the application the serialized objects belong to
+	 */
+	public CompactJavaSerializer(final String applicationKey)
+	{
+		this.applicationKey = applicationKey;
+	}
+
+	/**
+	 * @see org.apache.wicket.serialize.ISerializer#serialize(java.lang.Object)
+	 */
+	public byte[] serialize(final Object object)
+	{
+		// taken from the thread while in use, nested serializations get their own buffer
+		ByteArrayOutputStream buffer = buffers.get();
+		buffers.set(null);
+		if (buffer == null)
+		{
+			buffer = new ByteArrayOutputStream(8192);
+		}
+		else
+		{
+			buffer.reset();
+		}
+
+		try
+		{
+			ObjectOutputStream out = new CompactObjectOutputStream(buffer);
+			try
+			{
+				out.writeObject(applicationKey);
+				out.writeObject(object);
+			}
+			finally
+			{
+				out.close();
+			}
+			return buffer.toByteArray();
+		}
+		catch (NotSerializableException e)
+		{
+			if (SerializableChecker.isAvailable())
+			{
+				try
+				{
+					// serialize again to gather more information
+					new SerializableChecker(e).writeObject(object);
+				}
+				catch (RuntimeException checked)
+				{
+					log.error("Error serializing object " + object.getClass() + " [object=" +
+						object + "]", checked);
+					return null;
+				}
+				catch (IOException ignore)
+				{
+					// fall through to log the original exception
+				}
+			}
+			log.error("Error serializing object " + object.getClass() + " [object=" + object +
+				"]", e);
+		}
+		catch (Exception e)
+		{
+			log.error("Error serializing object " + object.getClass() + " [object=" + object +
+				"]", e);
+		}
+		finally
+		{
+			buffers.set(buffer.size() <= MAX_REUSED_BUFFER_SIZE ? buffer : null);
+		}
+		return null;
+	}
+
+	/**
+	 * @see org.apache.wicket.serialize.ISerializer#deserialize(byte[])
+	 */
+	public Object deserialize(final byte[] data)
+	{
+		ThreadContext old = ThreadContext.get(false);
+		try
+		{
+			ObjectInputStream in = new CompactObjectInputStream(new ByteArrayInputStream(data));
+			try
+			{
+				String key = (String)in.readObject();
+				if (key != null && !Application.exists())
+				{
+					Application application = Application.get(key);
+					if (application != null)
+					{
+						ThreadContext.setApplication(application);
+					}
+				}
+				return in.readObject();
+			}
+			finally
+			{
+				in.close();
+			}
+		}
+		catch (ClassNotFoundException e)
+		{
+			throw new WicketRuntimeException("Could not deserialize object", e);
+		}
+		catch (IOException e)
+		{
+			throw new WicketRuntimeException("Could not deserialize object", e);
+		}
+		finally
+		{
+			ThreadContext.restore(old);
+		}
+	}
+
+	/**
+	 * Resolves a class by name, using the application's class resolver as fallback.
+	 *
+	 * @param name
+	 * @return class
+	 * @throws ClassNotFoundException
+	 */
+	private Class<?> resolveClass(final String name) throws ClassNotFoundException
+	{
+		Class<?> clazz = classes.get(name);
+		if (clazz != null)
+		{
+			return clazz;
+		}
+
+		try
+		{
+			ClassLoader loader = Thread.currentThread().getContextClassLoader();
+			clazz = Class.forName(name, false, loader != null ? loader
+				: CompactJavaSerializer.class.getClassLoader());
+		}
+		catch (ClassNotFoundException e)
+		{
+			if (Application.exists() == false)
+			{
+				throw e;
+			}
+			clazz = Application.get().getApplicationSettings().getClassResolver().resolveClass(
+				name);
+			if (clazz == null)
+			{
+				throw e;
+			}
+		}
+
+		classes.putIfAbsent(name, clazz);
+		return clazz;
+	}
+
+	/**
+	 * Writes class descriptors as name and serial version UID. Descriptors of classes that aren't
+	 * serializable, written for <code>Class</code> objects, can't be looked up again by name and
+	 * are written in full.
+	 */
+	private static class CompactObjectOutputStream extends ObjectOutputStream
+	{
+		private CompactObjectOutputStream(final OutputStream out) throws IOException
+		{
+			super(out);
+		}
+
+		@Override
+		protected void writeClassDescriptor(final ObjectStreamClass desc) throws IOException
+		{
+			Class<?> clazz = desc.forClass();
+			if (clazz != null && ObjectStreamClass.lookup(clazz) != null)
+			{
+				writeBoolean(true);
+				writeUTF(desc.getName());
+				writeLong(desc.getSerialVersionUID());
+			}
+			else
+			{
+				writeBoolean(false);
+				super.writeClassDescriptor(desc);
+			}
+		}
+	}
+
+	/**
+	 * Reads class descriptors written by {@link CompactObjectOutputStream}.
+	 */
+	private class CompactObjectInputStream extends ObjectInputStream
+	{
+		private CompactObjectInputStream(final InputStream in) throws IOException
+		{
+			super(in);
+		}
+
+		@Override
+		protected ObjectStreamClass readClassDescriptor() throws IOException,
+			ClassNotFoundException
+		{
+			if (readBoolean() == false)
+			{
+				return super.readClassDescriptor();
+			}
+
+			String name = readUTF();
+			long serialVersionUID = readLong();
+
+			Class<?> clazz = CompactJavaSerializer.this.resolveClass(name);
+			ObjectStreamClass desc = ObjectStreamClass.lookup(clazz);
+			if (desc == null)
+			{
+				throw new InvalidClassException(name, "class is not serializable");
+			}
+			if (desc.getSerialVersionUID() != serialVersionUID)
+			{
+				throw new InvalidClassException(name,
+					"local class incompatible: stream classdesc serialVersionUID = " +
+						serialVersionUID + ", local class serialVersionUID = " +
+						desc.getSerialVersionUID());
+			}
+			return desc;
+		}
+
+		@Override
+		protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException,
+			ClassNotFoundException
+		{
+			Class<?> clazz = desc.forClass();
+			return clazz != null ? clazz : super.resolveClass(desc);
+		}
+	}
+}
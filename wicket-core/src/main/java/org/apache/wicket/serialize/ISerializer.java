@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.serialize;
+
+/**
+ * A serializer converts objects, most notably pages, to byte arrays and back. It is used by the
+ * page store to persist pages.
+ *
+ * @see org.apache.wicket.settings.IFrameworkSettings#setSerializer(ISerializer)
+ * @see org.apache.wicket.pageStore.DefaultPageStore
+ */
+public interface ISerializer
+{
+	/**
+	 * Converts the object to a byte array.
+	 *
+	 * @param object
+	 *            the object to serialize
+	 * @return the serialized object or <code>null</code> if the object could not be serialized
+	 */
+	byte[] serialize(Object object);
+
+	/**
+	 * Reconstructs an object from a byte array created by {@link #serialize(Object)}.
+	 *
+	 * @param data
+	 *            the serialized object
+	 * @return the object
+	 */
+	Object deserialize(byte[] data);
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.serialize;
+
+import org.apache.wicket.util.io.IObjectStreamFactory;
+import org.apache.wicket.util.lang.WicketObjects;
+
+/**
+ * Serializer using the object streams of the {@link IObjectStreamFactory} configured in
+ * {@link WicketObjects}.
+ */
+public class JavaSerializer implements ISerializer
+{
+	private final String applicationKey;
+
+	/**
+	 * Construct.
+	 *
+	 * @param applicationKey
+	 *            key of the application the serialized objects belong to, may be
+	 *            <code>null</code> to use the application of the current thread
+	 */
+	public JavaSerializer(final String applicationKey)
+	{
+		this.applicationKey = applicationKey;
+	}
+
+	/**
+	 * @see org.apache.wicket.serialize.ISerializer#serialize(java.lang.Object)
+	 */
+	public byte[] serialize(final Object object)
+	{
+		if (applicationKey == null)
+		{
+			return WicketObjects.objectToByteArray(object);
+		}
+		return WicketObjects.objectToByteArray(object, applicationKey);
+	}
+
+	/**
+	 * @see org.apache.wicket.serialize.ISerializer#deserialize(byte[])
+	 */
+	public Object deserialize(final byte[] data)
+	{
+		return WicketObjects.byteArrayToObject(data);
+	}
+}
@@ -18,6 +18,8 @@ package org.apache.wicket.settings;
 
 import org.apache.wicket.IDetachListener;
 import org.apache.wicket.IEventDispatcher;
+import org.apache.wicket.serialize.ISerializer;
+import org.apache.wicket.serialize.JavaSerializer;
 
 /**
  * Framework settings for retrieving and configuring framework settings.
@@ -61,4 +63,17 @@ public interface IFrameworkSettings extends IEventDispatcher
 	 */
 	public void add(IEventDispatcher dispatcher);
 
+	/**
+	 * Sets the serializer used to persist pages.
+	 * 
+	 * @param serializer
+	 *            the serializer, <code>null</code> to use the default {@link JavaSerializer}
+	 */
+	public void setSerializer(ISerializer serializer);
+
+	/**
+	 * @return the serializer used to persist pages
+	 */
+	public ISerializer getSerializer();
+
 }
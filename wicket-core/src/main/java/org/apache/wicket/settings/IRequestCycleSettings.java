@@ -31,7 +31,9 @@ import org.apache.wicket.util.time.Duration;
  * <i>bufferResponse </i> (defaults to true) - True if the application should buffer responses. This
  * does require some additional memory, but helps keep exception displays accurate because the whole
  * rendering process completes before the page is sent to the user, thus avoiding the possibility of
- * a partially rendered page.
+ * a partially rendered page. If false, pages that are rendered directly to the client are streamed:
+ * the header section is sent as soon as it has been rendered and the body follows while the
+ * components render.
  * <p>
  * <i>renderStrategy </i>- Sets in what way the render part of a request is handled. Basically,
  * there are two different options:
@@ -188,6 +190,12 @@ public interface IRequestCycleSettings
 	 */
 	String getResponseRequestEncoding();
 
+	/**
+	 * @return whether page responses get a <code>Server-Timing</code> header
+	 * @see #setServerTimingHeader(boolean)
+	 */
+	boolean getServerTimingHeader();
+
 	/**
 	 * Gets the time that a request will by default be waiting for the previous request to be
 	 * handled before giving up.
@@ -204,11 +212,33 @@ public interface IRequestCycleSettings
 	UnexpectedExceptionDisplay getUnexpectedExceptionDisplay();
 
 	/**
+	 * Sets whether pages are completely rendered before they are sent to the client.
+	 * <p>
+	 * If false, pages that are rendered directly to the client, i.e. not buffered for a redirect,
+	 * are streamed with a {@link org.apache.wicket.protocol.http.StreamingWebResponse}. The header
+	 * section is sent as soon as it has been rendered, so the browser can start loading the
+	 * referenced style sheets and scripts, and the body follows in chunks while the components
+	 * render. An exception during the rendering of the body can't be answered with an error page
+	 * anymore and results in an incomplete page, it is only logged.
+	 * 
 	 * @param bufferResponse
 	 *            True if this application should buffer responses.
 	 */
 	void setBufferResponse(boolean bufferResponse);
 
+	/**
+	 * Sets whether page responses and the redirects to pages get a <code>Server-Timing</code>
+	 * header, which lets the browser's developer tools show the time the request spent in each
+	 * phase on the server, as recorded in {@link org.apache.wicket.request.cycle.RequestTimings}.
+	 * The header can only contain the phases that finished before it is written, i.e. not the
+	 * detach and commit phases, and for streamed pages not the rendering either. False by default,
+	 * as it discloses the server's timings to the clients.
+	 * 
+	 * @param serverTimingHeader
+	 *            whether to add the header
+	 */
+	void setServerTimingHeader(boolean serverTimingHeader);
+
 	/**
 	 * Sets whether Wicket should try to get extensive client info by redirecting to
 	 * {@link BrowserInfoPage a page that polls for client capabilities}. This method is used by the
@@ -24,6 +24,7 @@ import org.apache.wicket.javascript.IJavaScriptCompressor;
 import org.apache.wicket.markup.html.IPackageResourceGuard;
 import org.apache.wicket.markup.html.PackageResourceGuard;
 import org.apache.wicket.model.IModel;
+import org.apache.wicket.request.resource.PackageResourceCache;
 import org.apache.wicket.resource.IPropertiesFactory;
 import org.apache.wicket.resource.loader.IStringResourceLoader;
 import org.apache.wicket.util.file.IFileUploadCleaner;
@@ -397,4 +398,21 @@ public interface IResourceSettings
 	 *            <code>true</code> for using timestamps on resource names
 	 */
 	void setUseTimestampOnResources(boolean enable);
+
+	/**
+	 * Gets the cache used to keep the content of package resources in memory, so they don't have to
+	 * be read from the classpath on every request.
+	 * 
+	 * @return the package resource cache or <code>null</code> if caching is disabled
+	 */
+	PackageResourceCache getPackageResourceCache();
+
+	/**
+	 * Sets the cache used to keep the content of package resources in memory. Use this to change
+	 * the size limits of the cache or pass <code>null</code> to disable caching.
+	 * 
+	 * @param packageResourceCache
+	 *            the package resource cache or <code>null</code> to disable caching
+	 */
+	void setPackageResourceCache(PackageResourceCache packageResourceCache);
 }
@@ -19,10 +19,13 @@ package org.apache.wicket.settings.def;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.wicket.Application;
 import org.apache.wicket.IDetachListener;
 import org.apache.wicket.IEventDispatcher;
 import org.apache.wicket.event.IEvent;
 import org.apache.wicket.event.IEventSink;
+import org.apache.wicket.serialize.ISerializer;
+import org.apache.wicket.serialize.JavaSerializer;
 import org.apache.wicket.settings.IFrameworkSettings;
 import org.apache.wicket.util.lang.Args;
 import org.apache.wicket.util.string.Strings;
@@ -39,8 +42,29 @@ import org.apache.wicket.util.string.Strings;
  */
 public class FrameworkSettings implements IFrameworkSettings
 {
+	private final Application application;
 	private IDetachListener detachListener;
 	private List<IEventDispatcher> eventDispatchers = null;
+	private ISerializer serializer;
+
+	/**
+	 * Construct without application, the default serializer uses the application of the current
+	 * thread.
+	 */
+	public FrameworkSettings()
+	{
+		this(null);
+	}
+
+	/**
+	 * Construct.
+	 * 
+	 * @param application
+	 */
+	public FrameworkSettings(final Application application)
+	{
+		this.application = application;
+	}
 
 	/**
 	 * @see org.apache.wicket.settings.IFrameworkSettings#getVersion()
@@ -85,6 +109,27 @@ public class FrameworkSettings implements IFrameworkSettings
 		}
 	}
 
+	/**
+	 * @see org.apache.wicket.settings.IFrameworkSettings#setSerializer(org.apache.wicket.serialize.ISerializer)
+	 */
+	public void setSerializer(ISerializer serializer)
+	{
+		this.serializer = serializer;
+	}
+
+	/**
+	 * @see org.apache.wicket.settings.IFrameworkSettings#getSerializer()
+	 */
+	public ISerializer getSerializer()
+	{
+		if (serializer == null)
+		{
+			// created lazily, the application name is not known before initialization
+			serializer = new JavaSerializer(application != null ? application.getName() : null);
+		}
+		return serializer;
+	}
+
 	/**
 	 * Dispatches event to registered dispatchers
 	 */
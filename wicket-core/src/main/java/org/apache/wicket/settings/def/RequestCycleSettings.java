@@ -41,6 +41,9 @@ public class RequestCycleSettings implements IRequestCycleSettings
 	/** True if the response should be buffered */
 	private boolean bufferResponse = true;
 
+	/** True if page responses should get a Server-Timing header */
+	private boolean serverTimingHeader = false;
+
 	/**
 	 * Whether Wicket should try to get extensive client info by redirecting to
 	 * {@link org.apache.wicket.markup.html.pages.BrowserInfoPage a page that polls for client
@@ -161,6 +164,22 @@ public class RequestCycleSettings implements IRequestCycleSettings
 		this.bufferResponse = bufferResponse;
 	}
 
+	/**
+	 * @see org.apache.wicket.settings.IRequestCycleSettings#getServerTimingHeader()
+	 */
+	public boolean getServerTimingHeader()
+	{
+		return serverTimingHeader;
+	}
+
+	/**
+	 * @see org.apache.wicket.settings.IRequestCycleSettings#setServerTimingHeader(boolean)
+	 */
+	public void setServerTimingHeader(boolean serverTimingHeader)
+	{
+		this.serverTimingHeader = serverTimingHeader;
+	}
+
 	/**
 	 * @see org.apache.wicket.settings.IRequestCycleSettings#setGatherExtendedBrowserInfo(boolean)
 	 */
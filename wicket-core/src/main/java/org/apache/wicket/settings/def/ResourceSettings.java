@@ -25,6 +25,7 @@ import org.apache.wicket.Localizer;
 import org.apache.wicket.javascript.IJavaScriptCompressor;
 import org.apache.wicket.markup.html.IPackageResourceGuard;
 import org.apache.wicket.markup.html.PackageResourceGuard;
+import org.apache.wicket.request.resource.PackageResourceCache;
 import org.apache.wicket.resource.PropertiesFactory;
 import org.apache.wicket.resource.loader.ClassStringResourceLoader;
 import org.apache.wicket.resource.loader.ComponentStringResourceLoader;
@@ -109,6 +110,9 @@ public class ResourceSettings implements IResourceSettings
 	// use timestamps on resource file names
 	private boolean useTimestampOnResourcesName = true;
 
+	/** cache for the content of package resources */
+	private PackageResourceCache packageResourceCache = new PackageResourceCache();
+
 	/**
 	 * Construct
 	 * 
@@ -432,4 +436,20 @@ public class ResourceSettings implements IResourceSettings
 	{
 		this.useTimestampOnResourcesName = useTimestampOnResourcesName;
 	}
+
+	/**
+	 * @see org.apache.wicket.settings.IResourceSettings#getPackageResourceCache()
+	 */
+	public PackageResourceCache getPackageResourceCache()
+	{
+		return packageResourceCache;
+	}
+
+	/**
+	 * @see org.apache.wicket.settings.IResourceSettings#setPackageResourceCache(org.apache.wicket.request.resource.PackageResourceCache)
+	 */
+	public void setPackageResourceCache(PackageResourceCache packageResourceCache)
+	{
+		this.packageResourceCache = packageResourceCache;
+	}
 }
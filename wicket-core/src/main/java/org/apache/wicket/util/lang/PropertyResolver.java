@@ -20,6 +20,7 @@ import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -72,6 +73,15 @@ public final class PropertyResolver
 
 	private final static Map<Object, IClassCache> applicationToClassesToGetAndSetters = Generics.newConcurrentHashMap(2);
 
+	/** the maximum number of expressions kept per application */
+	private final static int MAX_EXPRESSIONS = 1000;
+
+	/** the maximum number of root classes an expression keeps its resolved chain for */
+	private final static int MAX_CHAINS = 16;
+
+	/** expressions that have been split into their segments already, per application */
+	private final static Map<Object, ConcurrentHashMap<String, Expression>> applicationToExpressions = Generics.newConcurrentHashMap(2);
+
 	/**
 	 * Looks up the value from the object with the given expression. If the expression, the object
 	 * itself or one property evaluates to null then a null will be returned.
@@ -252,43 +262,49 @@ public final class PropertyResolver
 	private static ObjectAndGetSetter getObjectAndGetSetter(final String expression,
 		final Object object, int tryToCreateNull, Class<?> clz)
 	{
-		final String expressionBracketsSeperated = Strings.replaceAll(expression, "[", ".[")
-			.toString();
-		int index = getNextDotIndex(expressionBracketsSeperated, 0);
-		int lastIndex = 0;
+		final Object key = getApplicationKey();
+		final IClassCache classCache = getClassesToGetAndSetters(key);
+		final Expression compiled = getExpression(key, expression);
+
+		// the steps resolved for the root class before, only classes that don't match them are
+		// looked up again; a custom class cache may not want to keep classes, so it is asked
+		// every time
+		final Class<?> rootClass = clz;
+		final Step[] cached = classCache instanceof DefaultClassCache ? compiled.chains.get(rootClass)
+			: null;
+		Step[] steps = cached;
+		int segment = 0;
 		Object value = object;
-		String exp = expressionBracketsSeperated;
-		while (index != -1)
+		for (int i = 0;; i++)
 		{
-			exp = expressionBracketsSeperated.substring(lastIndex, index);
-			if (exp.length() == 0)
+			Step step = steps != null ? steps[i] : null;
+			if (step == null || step.clz != clz || step.segment != segment)
 			{
-				exp = expressionBracketsSeperated.substring(index + 1);
-				break;
+				step = resolveStep(compiled, segment, clz, classCache);
+				if (steps == null || steps == cached)
+				{
+					// copy on change, the cached steps may be in use by other threads
+					Step[] changed = new Step[compiled.dots + 1];
+					if (cached != null)
+					{
+						System.arraycopy(cached, 0, changed, 0, i);
+					}
+					steps = changed;
+				}
+				steps[i] = step;
 			}
 
-			IGetAndSet getAndSetter = null;
-			try
-			{
-				getAndSetter = getGetAndSetter(exp, clz);
-			}
-			catch (WicketRuntimeException ex)
+			if (step.next == -1)
 			{
-
-				// expression by it self can't be found. try to find a
-				// setPropertyByIndex(int,value) method
-				index = getNextDotIndex(expressionBracketsSeperated, index + 1);
-				if (index != -1)
+				if (steps != cached && classCache instanceof DefaultClassCache &&
+					compiled.chains.size() < MAX_CHAINS)
 				{
-					String indexExpression = expressionBracketsSeperated.substring(lastIndex, index);
-					getAndSetter = getGetAndSetter(indexExpression, clz);
-				}
-				else
-				{
-					exp = expressionBracketsSeperated.substring(lastIndex);
-					break;
+					compiled.chains.put(rootClass, steps);
 				}
+				return new ObjectAndGetSetter(step.getAndSetter, value);
 			}
+
+			IGetAndSet getAndSetter = step.getAndSetter;
 			Object newValue = null;
 			if (value != null)
 			{
@@ -320,18 +336,89 @@ public final class PropertyResolver
 				clz = value.getClass();
 			}
 
-			lastIndex = index + 1;
-			index = getNextDotIndex(expressionBracketsSeperated, lastIndex);
-			if (index == -1)
+			segment = step.next;
+		}
+	}
+
+	/**
+	 * Resolves the segment of the expression for a class. Segments that can't be resolved by
+	 * themselves are looked up together with the next one for a
+	 * <code>getProperty(int)</code> method.
+	 * 
+	 * @param compiled
+	 *            the expression
+	 * @param segment
+	 *            index of the segment
+	 * @param clz
+	 *            class of the object the segment is evaluated on
+	 * @param classCache
+	 * @return the resolved step
+	 */
+	private static Step resolveStep(final Expression compiled, final int segment,
+		final Class<?> clz, final IClassCache classCache)
+	{
+		final int dots = compiled.dots;
+		if (segment == dots)
+		{
+			return new Step(clz, segment, getGetAndSetter(compiled.segments[dots], clz, classCache),
+				-1);
+		}
+
+		String exp = compiled.segments[segment];
+		if (exp.length() == 0)
+		{
+			return new Step(clz, segment, getGetAndSetter(compiled.tails[segment + 1], clz,
+				classCache), -1);
+		}
+
+		try
+		{
+			return new Step(clz, segment, getGetAndSetter(exp, clz, classCache), segment + 1);
+		}
+		catch (WicketRuntimeException ex)
+		{
+			// expression by it self can't be found. try to find a
+			// setPropertyByIndex(int,value) method
+			if (segment + 1 < dots)
 			{
-				exp = expressionBracketsSeperated.substring(lastIndex);
-				break;
+				return new Step(clz, segment, getGetAndSetter(compiled.pairs[segment], clz,
+					classCache), segment + 2);
 			}
+			return new Step(clz, segment, getGetAndSetter(compiled.tails[segment], clz,
+				classCache), -1);
 		}
-		IGetAndSet getAndSetter = getGetAndSetter(exp, clz);
-		return new ObjectAndGetSetter(getAndSetter, value);
 	}
 
+	/**
+	 * Gets the expression split into its segments, splitting it only if it hasn't been done
+	 * before.
+	 * 
+	 * @param key
+	 *            the application key
+	 * @param expression
+	 * @return the split expression
+	 */
+	private static Expression getExpression(final Object key, final String expression)
+	{
+		ConcurrentHashMap<String, Expression> expressions = applicationToExpressions.get(key);
+		if (expressions == null)
+		{
+			expressions = Generics.newConcurrentHashMap(64);
+			applicationToExpressions.put(key, expressions);
+		}
+
+		Expression compiled = expressions.get(expression);
+		if (compiled == null)
+		{
+			compiled = new Expression(expression);
+			// don't let expressions built at runtime fill the memory
+			if (expressions.size() < MAX_EXPRESSIONS)
+			{
+				expressions.put(expression, compiled);
+			}
+		}
+		return compiled;
+	}
 
 	private static int getNextDotIndex(String expression, int start)
 	{
@@ -355,9 +442,9 @@ public final class PropertyResolver
 		return -1;
 	}
 
-	private final static IGetAndSet getGetAndSetter(String exp, Class<?> clz)
+	private final static IGetAndSet getGetAndSetter(String exp, Class<?> clz,
+		IClassCache classesToGetAndSetters)
 	{
-		IClassCache classesToGetAndSetters = getClassesToGetAndSetters();
 		Map<String, IGetAndSet> getAndSetters = classesToGetAndSetters.get(clz);
 		if (getAndSetters == null)
 		{
@@ -601,6 +688,97 @@ public final class PropertyResolver
 	{
 	}
 
+	/**
+	 * An expression split at its dots, which are the ones outside of brackets after a dot has been
+	 * put in front of each bracket. Which segments are looked up together depends on the classes
+	 * of the objects the expression is evaluated on, so all combinations needed are kept.
+	 */
+	private final static class Expression
+	{
+		/** the steps resolved for each root class, arrays aren't changed once they are put */
+		private final ConcurrentHashMap<Class<?>, Step[]> chains = Generics.newConcurrentHashMap(2);
+
+		/** number of dots, there is one segment more */
+		private final int dots;
+
+		/** the segments between the dots, the last one runs to the end */
+		private final String[] segments;
+
+		/** the segments with the next one, for <code>getProperty(int)</code> lookups */
+		private final String[] pairs;
+
+		/** the expression from the start of each segment to its end */
+		private final String[] tails;
+
+		/**
+		 * Construct.
+		 * 
+		 * @param expression
+		 */
+		private Expression(String expression)
+		{
+			String separated = Strings.replaceAll(expression, "[", ".[").toString();
+
+			List<Integer> indices = new ArrayList<Integer>();
+			int index = getNextDotIndex(separated, 0);
+			while (index != -1)
+			{
+				indices.add(index);
+				index = getNextDotIndex(separated, index + 1);
+			}
+
+			dots = indices.size();
+			segments = new String[dots + 1];
+			pairs = new String[dots];
+			tails = new String[dots + 1];
+			int start = 0;
+			for (int i = 0; i <= dots; i++)
+			{
+				int end = i < dots ? indices.get(i) : separated.length();
+				segments[i] = separated.substring(start, end);
+				tails[i] = separated.substring(start);
+				if (i + 1 < dots)
+				{
+					pairs[i] = separated.substring(start, indices.get(i + 1));
+				}
+				start = end + 1;
+			}
+		}
+	}
+
+	/**
+	 * A segment of an expression resolved for the class of the object it is evaluated on.
+	 */
+	private final static class Step
+	{
+		/** the class the segment was resolved for */
+		private final Class<?> clz;
+
+		/** index of the segment */
+		private final int segment;
+
+		private final IGetAndSet getAndSetter;
+
+		/** index of the segment after this one or -1 if this is the last one */
+		private final int next;
+
+		/**
+		 * Construct.
+		 * 
+		 * @param clz
+		 * @param segment
+		 * @param getAndSetter
+		 * @param next
+		 */
+		private Step(Class<?> clz, int segment, IGetAndSet getAndSetter, int next)
+		{
+			this.clz = clz;
+			this.segment = segment;
+			this.getAndSetter = getAndSetter;
+			this.next = next;
+		}
+	}
+
 	/**
 	 * @author jcompagner
 	 * 
@@ -1401,17 +1579,17 @@ public final class PropertyResolver
 		}
 	}
 
-	private static IClassCache getClassesToGetAndSetters()
+	private static Object getApplicationKey()
 	{
-		Object key = null;
 		if (Application.exists())
 		{
-			key = Application.get();
-		}
-		else
-		{
-			key = PropertyResolver.class;
+			return Application.get();
 		}
+		return PropertyResolver.class;
+	}
+
+	private static IClassCache getClassesToGetAndSetters(Object key)
+	{
 		IClassCache result = applicationToClassesToGetAndSetters.get(key);
 		if (result == null)
 		{
@@ -1428,6 +1606,7 @@ public final class PropertyResolver
 	public static void destroy(Application application)
 	{
 		applicationToClassesToGetAndSetters.remove(application);
+		applicationToExpressions.remove(application);
 	}
 
 
@@ -1445,14 +1624,10 @@ public final class PropertyResolver
 	 */
 	public static void setClassCache(Application application, IClassCache classCache)
 	{
-		if (application != null)
-		{
-			applicationToClassesToGetAndSetters.put(application, classCache);
-		}
-		else
-		{
-			applicationToClassesToGetAndSetters.put(PropertyResolver.class, classCache);
-		}
+		Object key = application != null ? application : PropertyResolver.class;
+		applicationToClassesToGetAndSetters.put(key, classCache);
+		// the resolved chains hold accessors of the previous class cache
+		applicationToExpressions.remove(key);
 	}
 
 
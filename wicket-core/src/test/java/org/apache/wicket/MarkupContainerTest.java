@@ -18,6 +18,7 @@ package org.apache.wicket;
 
 import org.apache.wicket.markup.html.WebComponent;
 import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.util.lang.WicketObjects;
 
 
 /**
@@ -53,6 +54,51 @@ public class MarkupContainerTest extends WicketTestCase
 		}
 	}
 
+	/**
+	 * Children of large containers are found by id after adding, removing, replacing and swapping
+	 * them.
+	 */
+	public void testLargeContainer()
+	{
+		MarkupContainer container = new WebMarkupContainer("component");
+		for (int i = 0; i < 1000; i++)
+		{
+			container.add(new WebComponent(Integer.toString(i)));
+		}
+		assertEquals(1000, container.size());
+		assertEquals("500", container.get("500").getId());
+		assertSame(container.get(500), container.get("500"));
+		assertNull(container.get("1000"));
+
+		container.remove("10");
+		assertNull(container.get("10"));
+		assertSame(container.get(10), container.get("11"));
+
+		container.swap(0, 998);
+		assertSame(container.get(0), container.get("999"));
+		assertSame(container.get(998), container.get("0"));
+
+		WebComponent replacement = new WebComponent("500");
+		container.replace(replacement);
+		assertSame(replacement, container.get("500"));
+
+		container.add(new WebComponent("1000"));
+		assertSame(container.get(999), container.get("1000"));
+
+		container.detach();
+		MarkupContainer clone = (MarkupContainer)WicketObjects.cloneObject(container);
+		assertEquals(1000, clone.size());
+		assertEquals(clone.get(998), clone.get("0"));
+		assertEquals("1000", clone.get("1000").getId());
+
+		for (int i = 0; i < 999; i++)
+		{
+			container.remove(container.get(0));
+		}
+		assertEquals(1, container.size());
+		assertEquals("1000", container.get("1000").getId());
+	}
+
 	public void testMarkupId() throws Exception
 	{
 		executeTest(MarkupIdTestPage.class, "MarkupIdTestPageExpectedResult.html");
@@ -19,7 +19,10 @@ package org.apache.wicket.markup.html.form.encryption;
 import org.apache.wicket.WicketTestCase;
 import org.apache.wicket.util.crypt.ICrypt;
 import org.apache.wicket.util.crypt.NoCrypt;
+import org.apache.wicket.util.crypt.PooledSunJceCrypt;
 import org.apache.wicket.util.crypt.SunJceCrypt;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 
 /**
@@ -27,6 +30,8 @@ import org.apache.wicket.util.crypt.SunJceCrypt;
  */
 public class CryptTest extends WicketTestCase
 {
+	private static final Logger log = LoggerFactory.getLogger(CryptTest.class);
+
 	/**
 	 * Construct.
 	 * 
@@ -64,6 +69,54 @@ public class CryptTest extends WicketTestCase
 		}
 	}
 
+	/**
+	 * {@link PooledSunJceCrypt} produces the same results as {@link SunJceCrypt}.
+	 */
+	public void testPooledCrypt()
+	{
+		final ICrypt crypt = new PooledSunJceCrypt();
+		final ICrypt reference = new SunJceCrypt();
+
+		final String text = "abcdefghijkABC: A test which creates a '/' and/or a '+'";
+		for (int i = 0; i < 3; i++)
+		{
+			String encrypted = crypt.encryptUrlSafe(text + i);
+			assertEquals(reference.encryptUrlSafe(text + i), encrypted);
+			assertEquals(text + i, crypt.decryptUrlSafe(encrypted));
+		}
+
+		// ciphers initialized with the old key must not be used anymore
+		crypt.setKey("other key");
+		reference.setKey("other key");
+		assertEquals(reference.encryptUrlSafe(text), crypt.encryptUrlSafe(text));
+		assertEquals(text, crypt.decryptUrlSafe(reference.encryptUrlSafe(text)));
+	}
+
+	/**
+	 * Compares the time needed to encrypt a URL with {@link SunJceCrypt} and
+	 * {@link PooledSunJceCrypt}. This is a manual benchmark, it isn't run with the tests.
+	 * 
+	 * @param args
+	 */
+	public static void main(String[] args)
+	{
+		final String url = "wicket/bookmarkable/org.apache.wicket.examples.SomePage?2-1.ILinkListener-list-12-link";
+		ICrypt[] crypts = { new SunJceCrypt(), new PooledSunJceCrypt(), new SunJceCrypt(),
+				new PooledSunJceCrypt() };
+		for (ICrypt crypt : crypts)
+		{
+			long start = System.nanoTime();
+			for (int i = 0; i < 1000; i++)
+			{
+				crypt.encryptUrlSafe(url);
+			}
+			long time = System.nanoTime() - start;
+
+			log.info(crypt.getClass().getSimpleName() + ": " + time / 1000 / 1000 +
+				" microseconds per URL");
+		}
+	}
+
 	/**
 	 * 
 	 */
@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.wicket.pageStore.AsynchronousDataStore.OverflowPolicy;
+import org.apache.wicket.util.time.Duration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.MethodRule;
+import org.junit.rules.Timeout;
+
+/**
+ * Tests for {@link AsynchronousDataStore}
+ */
+public class AsynchronousDataStoreTest
+{
+	/** */
+	@Rule
+	public MethodRule globalTimeout = new Timeout((int)Duration.seconds(30).getMilliseconds());
+
+	/**
+	 * Writes of a session are done in the order they were stored.
+	 */
+	@Test
+	public void keepsOrderPerSession()
+	{
+		GatedDataStore store = new GatedDataStore();
+		store.open();
+		AsynchronousDataStore async = new AsynchronousDataStore(store, 4,
+			OverflowPolicy.BLOCK);
+
+		for (int i = 0; i < 50; i++)
+		{
+			async.storeData("session" + (i % 5), i, new byte[] { (byte)i });
+		}
+		async.destroy();
+
+		assertEquals(50, async.getWriteCount());
+		for (int s = 0; s < 5; s++)
+		{
+			int last = -1;
+			for (String write : store.writes)
+			{
+				if (write.startsWith("session" + s + ":"))
+				{
+					int id = Integer.parseInt(write.substring(write.indexOf(':') + 1));
+					assertEquals(true, id > last);
+					last = id;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Queued data is visible and can be removed before it has been written.
+	 */
+	@Test
+	public void queuedData()
+	{
+		GatedDataStore store = new GatedDataStore();
+		AsynchronousDataStore async = new AsynchronousDataStore(store, 1,
+			OverflowPolicy.WRITE_THROUGH);
+
+		async.storeData("s", 1, new byte[] { 1 });
+		async.storeData("s", 2, new byte[] { 2 });
+		assertArrayEquals(new byte[] { 2 }, async.getData("s", 2));
+
+		// replaced while queued
+		async.storeData("s", 2, new byte[] { 3 });
+		assertArrayEquals(new byte[] { 3 }, async.getData("s", 2));
+
+		store.open();
+		async.removeData("s", 2);
+		async.destroy();
+
+		assertArrayEquals(new byte[] { 1 }, store.getData("s", 1));
+		assertNull(store.getData("s", 2));
+	}
+
+	/**
+	 * Entries are written on the calling thread once the queue is full.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void writeThrough() throws Exception
+	{
+		GatedDataStore store = new GatedDataStore();
+		final AsynchronousDataStore async = new AsynchronousDataStore(store, 1,
+			OverflowPolicy.WRITE_THROUGH)
+		{
+			@Override
+			protected int getMaxQueuedEntries()
+			{
+				return 2;
+			}
+		};
+
+		fillQueue(async, store);
+
+		// waits for the writer currently storing page 1
+		Thread storing = new Thread()
+		{
+			@Override
+			public void run()
+			{
+				async.storeData("s", 4, new byte[] { 4 });
+			}
+		};
+		storing.start();
+		while (async.getWriteThroughCount() == 0)
+		{
+			Thread.sleep(10);
+		}
+		store.open();
+		storing.join();
+		async.destroy();
+
+		assertEquals(4, async.getWriteCount());
+		assertEquals(1, async.getWriteThroughCount());
+		assertArrayEquals(new byte[] { 4 }, store.getData("s", 4));
+	}
+
+	/**
+	 * The oldest queued entry is discarded once the queue is full.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void dropOldest() throws Exception
+	{
+		GatedDataStore store = new GatedDataStore();
+		AsynchronousDataStore async = new AsynchronousDataStore(store, 1,
+			OverflowPolicy.DROP_OLDEST)
+		{
+			@Override
+			protected int getMaxQueuedEntries()
+			{
+				return 2;
+			}
+		};
+
+		fillQueue(async, store);
+		async.storeData("s", 4, new byte[] { 4 });
+		store.open();
+		async.destroy();
+
+		assertEquals(1, async.getDropCount());
+		assertEquals(3, async.getWriteCount());
+		assertNull(store.getData("s", 2));
+		assertArrayEquals(new byte[] { 4 }, store.getData("s", 4));
+	}
+
+	/**
+	 * Lets the writer block on page 1 and queues pages 2 and 3.
+	 */
+	private static void fillQueue(AsynchronousDataStore async, GatedDataStore store)
+		throws InterruptedException
+	{
+		async.storeData("s", 1, new byte[] { 1 });
+		store.entered.await();
+		async.storeData("s", 2, new byte[] { 2 });
+		async.storeData("s", 3, new byte[] { 3 });
+		assertEquals(3, async.getQueuedEntryCount());
+	}
+
+	/**
+	 * In memory data store whose writes wait until it is opened.
+	 */
+	private static class GatedDataStore implements IDataStore
+	{
+		private final CountDownLatch gate = new CountDownLatch(1);
+
+		private final CountDownLatch entered = new CountDownLatch(1);
+
+		private final Map<String, byte[]> data = new ConcurrentHashMap<String, byte[]>();
+
+		private final List<String> writes = Collections.synchronizedList(new ArrayList<String>());
+
+		private void open()
+		{
+			gate.countDown();
+		}
+
+		public byte[] getData(String sessionId, int id)
+		{
+			return data.get(sessionId + ":" + id);
+		}
+
+		public void removeData(String sessionId, int id)
+		{
+			data.remove(sessionId + ":" + id);
+		}
+
+		public void removeData(String sessionId)
+		{
+		}
+
+		public void storeData(String sessionId, int id, byte[] data)
+		{
+			entered.countDown();
+			try
+			{
+				gate.await();
+			}
+			catch (InterruptedException e)
+			{
+				throw new RuntimeException(e);
+			}
+			this.data.put(sessionId + ":" + id, data);
+			writes.add(sessionId + ":" + id);
+		}
+
+		public void destroy()
+		{
+		}
+
+		public boolean isReplicated()
+		{
+			return false;
+		}
+	}
+}
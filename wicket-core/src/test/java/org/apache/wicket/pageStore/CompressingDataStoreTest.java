@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link CompressingDataStore}
+ */
+public class CompressingDataStoreTest
+{
+	private final MapDataStore store = new MapDataStore();
+
+	private final CompressingDataStore compressing = new CompressingDataStore(store,
+		new DeflaterCompressionCodec());
+
+	/**
+	 * Compressible pages are stored compressed and restored.
+	 */
+	@Test
+	public void compress()
+	{
+		byte[] data = compressible(100000);
+		compressing.storeData("session", 1, data);
+
+		assertTrue(store.getData("session", 1).length < data.length / 5);
+		assertArrayEquals(data, compressing.getData("session", 1));
+		assertEquals(1, compressing.getCompressedCount());
+		assertEquals(data.length, compressing.getPageBytes());
+		assertTrue(compressing.getCompressionRatio() < 0.2);
+		assertNull(compressing.getData("session", 2));
+	}
+
+	/**
+	 * Small pages and pages that don't compress are stored as they are.
+	 */
+	@Test
+	public void uncompressed()
+	{
+		byte[] small = compressible(100);
+		compressing.storeData("session", 1, small);
+		assertSame(small, store.getData("session", 1));
+		assertSame(small, compressing.getData("session", 1));
+
+		byte[] random = new byte[10000];
+		new Random(42).nextBytes(random);
+		compressing.storeData("session", 2, random);
+		assertSame(random, store.getData("session", 2));
+		assertSame(random, compressing.getData("session", 2));
+
+		assertEquals(0, compressing.getCompressedCount());
+		assertEquals(2, compressing.getUncompressedCount());
+	}
+
+	/**
+	 * After several pages failed to compress only some are tried, until one compresses again.
+	 */
+	@Test
+	public void skipsIncompressible()
+	{
+		CountingCodec codec = new CountingCodec();
+		CompressingDataStore counting = new CompressingDataStore(store, codec);
+
+		byte[] random = new byte[10000];
+		new Random(42).nextBytes(random);
+		for (int i = 0; i < CompressingDataStore.RETRY_INTERVAL * 3; i++)
+		{
+			counting.storeData("session", i, random);
+		}
+		assertTrue(codec.count < CompressingDataStore.RETRY_INTERVAL * 2);
+
+		byte[] data = compressible(10000);
+		for (int i = 0; i < CompressingDataStore.RETRY_INTERVAL; i++)
+		{
+			counting.storeData("session", i, data);
+		}
+		assertTrue(counting.getCompressedCount() > 0);
+		int before = codec.count;
+		counting.storeData("session", 0, data);
+		assertEquals(before + 1, codec.count);
+		assertArrayEquals(data, counting.getData("session", 0));
+	}
+
+	/**
+	 * Destroying the store ends the pooled deflaters and inflaters, which aren't reused after.
+	 */
+	@Test
+	public void destroy()
+	{
+		CountingCodec codec = new CountingCodec();
+		CompressingDataStore counting = new CompressingDataStore(store, codec);
+		byte[] data = compressible(10000);
+		counting.storeData("session", 1, data);
+		assertArrayEquals(data, counting.getData("session", 1));
+
+		counting.destroy();
+		assertTrue(codec.destroyed);
+
+		// a pooled instance that has been ended would fail here
+		counting.storeData("session", 2, data);
+		assertArrayEquals(data, counting.getData("session", 2));
+		assertArrayEquals(data, counting.getData("session", 1));
+	}
+
+	private static byte[] compressible(int length)
+	{
+		byte[] data = new byte[length];
+		for (int i = 0; i < length; i++)
+		{
+			data[i] = (byte)("org.apache.wicket.markup.html.basic.Label".charAt(i % 41) + i / 1000);
+		}
+		return data;
+	}
+
+	private static class CountingCodec extends DeflaterCompressionCodec
+	{
+		private int count;
+
+		private boolean destroyed;
+
+		@Override
+		public byte[] compress(byte[] data)
+		{
+			count++;
+			return super.compress(data);
+		}
+
+		@Override
+		public void destroy()
+		{
+			destroyed = true;
+			super.destroy();
+		}
+	}
+
+	/**
+	 * Data store keeping the data in a map.
+	 */
+	private static class MapDataStore implements IDataStore
+	{
+		private final Map<String, byte[]> data = new ConcurrentHashMap<String, byte[]>();
+
+		public byte[] getData(String sessionId, int id)
+		{
+			return data.get(sessionId + ":" + id);
+		}
+
+		public void removeData(String sessionId, int id)
+		{
+			data.remove(sessionId + ":" + id);
+		}
+
+		public void removeData(String sessionId)
+		{
+			for (String key : data.keySet())
+			{
+				if (key.startsWith(sessionId + ":"))
+				{
+					data.remove(key);
+				}
+			}
+		}
+
+		public void storeData(String sessionId, int id, byte[] data)
+		{
+			this.data.put(sessionId + ":" + id, data);
+		}
+
+		public void destroy()
+		{
+		}
+
+		public boolean isReplicated()
+		{
+			return false;
+		}
+	}
+}
@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link DeltaDataStore}
+ */
+public class DeltaDataStoreTest
+{
+	private final Random random = new Random(42);
+
+	private final MapDataStore store = new MapDataStore();
+
+	/**
+	 * A delta restores the data with changed, inserted and removed bytes.
+	 */
+	@Test
+	public void delta()
+	{
+		byte[] base = randomBytes(100000);
+		byte[] data = modify(base);
+
+		byte[] delta = DeltaDataStore.createDelta(1, 2, base, data);
+		assertTrue(delta.length < 1000);
+		assertArrayEquals(data, DeltaDataStore.applyDelta(base, delta, 12));
+
+		byte[] unrelated = randomBytes(1000);
+		delta = DeltaDataStore.createDelta(1, 2, base, unrelated);
+		assertArrayEquals(unrelated, DeltaDataStore.applyDelta(base, delta, 12));
+
+		delta = DeltaDataStore.createDelta(1, 2, base, new byte[0]);
+		assertArrayEquals(new byte[0], DeltaDataStore.applyDelta(base, delta, 12));
+	}
+
+	/**
+	 * Versions of a page are stored as small deltas and restored.
+	 */
+	@Test
+	public void versions()
+	{
+		DeltaDataStore deltas = new DeltaDataStore(store, 100);
+
+		byte[][] versions = new byte[20][];
+		versions[0] = randomBytes(200000);
+		for (int i = 1; i < versions.length; i++)
+		{
+			versions[i] = modify(versions[i - 1]);
+		}
+		for (int i = 0; i < versions.length; i++)
+		{
+			deltas.storeData("session", i, versions[i]);
+		}
+
+		for (int i = 0; i < versions.length; i++)
+		{
+			assertArrayEquals(versions[i], deltas.getData("session", i));
+		}
+		assertEquals(1, store.countBases());
+		assertTrue(deltas.getStoredBytes() * 10 < deltas.getPageBytes());
+
+		// without the base in memory
+		DeltaDataStore restarted = new DeltaDataStore(store, 100);
+		assertArrayEquals(versions[7], restarted.getData("session", 7));
+	}
+
+	/**
+	 * A new base is taken after the configured number of deltas, the old one is removed with the
+	 * last page depending on it.
+	 */
+	@Test
+	public void rebase()
+	{
+		DeltaDataStore deltas = new DeltaDataStore(store, 3);
+
+		byte[] data = randomBytes(10000);
+		for (int i = 0; i < 8; i++)
+		{
+			data = modify(data);
+			deltas.storeData("session", i, data);
+		}
+		assertEquals(2, store.countBases());
+		assertArrayEquals(data, deltas.getData("session", 7));
+
+		for (int i = 0; i < 4; i++)
+		{
+			deltas.removeData("session", i);
+		}
+		assertEquals(1, store.countBases());
+		assertArrayEquals(data, deltas.getData("session", 7));
+
+		deltas.removeData("session");
+		assertEquals(0, store.data.size());
+	}
+
+	/**
+	 * Storing a page again doesn't affect the pages stored against the same base.
+	 */
+	@Test
+	public void overwrite()
+	{
+		DeltaDataStore deltas = new DeltaDataStore(store, 10);
+
+		byte[] first = randomBytes(10000);
+		byte[] second = modify(first);
+		deltas.storeData("session", 1, first);
+		deltas.storeData("session", 2, second);
+
+		byte[] changed = modify(second);
+		deltas.storeData("session", 1, changed);
+
+		assertArrayEquals(changed, deltas.getData("session", 1));
+		assertArrayEquals(second, deltas.getData("session", 2));
+
+		// a page that has nothing in common with the base starts a new one
+		byte[] other = randomBytes(10000);
+		deltas.storeData("session", 2, other);
+		assertArrayEquals(other, deltas.getData("session", 2));
+		assertArrayEquals(changed, deltas.getData("session", 1));
+		assertEquals(2, store.countBases());
+	}
+
+	/**
+	 * Data not stored as delta is returned as it is.
+	 */
+	@Test
+	public void plainData()
+	{
+		DeltaDataStore deltas = new DeltaDataStore(store);
+
+		byte[] data = randomBytes(100);
+		store.storeData("session", 1, data);
+		assertArrayEquals(data, deltas.getData("session", 1));
+		assertNull(deltas.getData("session", 2));
+	}
+
+	private byte[] randomBytes(int length)
+	{
+		byte[] data = new byte[length];
+		random.nextBytes(data);
+		return data;
+	}
+
+	/**
+	 * @return copy of the data with a changed, an inserted and a removed range
+	 */
+	private byte[] modify(byte[] data)
+	{
+		int change = random.nextInt(data.length - 10);
+		int insert = random.nextInt(data.length);
+		int remove = random.nextInt(data.length - 20);
+
+		byte[] changed = data.clone();
+		for (int i = change; i < change + 10; i++)
+		{
+			changed[i]++;
+		}
+
+		byte[] inserted = new byte[changed.length + 5];
+		System.arraycopy(changed, 0, inserted, 0, insert);
+		System.arraycopy(randomBytes(5), 0, inserted, insert, 5);
+		System.arraycopy(changed, insert, inserted, insert + 5, changed.length - insert);
+
+		byte[] removed = new byte[inserted.length - 20];
+		System.arraycopy(inserted, 0, removed, 0, remove);
+		System.arraycopy(inserted, remove + 20, removed, remove, inserted.length - remove - 20);
+		return removed;
+	}
+
+	/**
+	 * Data store keeping the data in a map.
+	 */
+	private static class MapDataStore implements IDataStore
+	{
+		private final Map<String, byte[]> data = new ConcurrentHashMap<String, byte[]>();
+
+		public byte[] getData(String sessionId, int id)
+		{
+			return data.get(sessionId + ":" + id);
+		}
+
+		public void removeData(String sessionId, int id)
+		{
+			data.remove(sessionId + ":" + id);
+		}
+
+		public void removeData(String sessionId)
+		{
+			for (String key : data.keySet())
+			{
+				if (key.startsWith(sessionId + ":"))
+				{
+					data.remove(key);
+				}
+			}
+		}
+
+		public void storeData(String sessionId, int id, byte[] data)
+		{
+			this.data.put(sessionId + ":" + id, data);
+		}
+
+		public void destroy()
+		{
+		}
+
+		public boolean isReplicated()
+		{
+			return false;
+		}
+
+		private int countBases()
+		{
+			int count = 0;
+			for (String key : data.keySet())
+			{
+				if (key.contains(":-"))
+				{
+					count++;
+				}
+			}
+			return count;
+		}
+	}
+}
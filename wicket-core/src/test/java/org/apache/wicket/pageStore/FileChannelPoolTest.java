@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+
+import org.apache.wicket.util.time.Duration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.MethodRule;
+import org.junit.rules.Timeout;
+
+/**
+ * Tests for {@link FileChannelPool}
+ */
+public class FileChannelPoolTest
+{
+	/** */
+	@Rule
+	public MethodRule globalTimeout = new Timeout((int)Duration.seconds(30).getMilliseconds());
+
+	private File folder;
+
+	private FileChannelPool pool;
+
+	/**
+	 * @throws Exception
+	 */
+	@Before
+	public void before() throws Exception
+	{
+		folder = File.createTempFile("wicket-channels", null);
+		folder.delete();
+		folder.mkdirs();
+		pool = new FileChannelPool(2);
+	}
+
+	/**
+	 */
+	@After
+	public void after()
+	{
+		pool.destroy();
+		for (File file : folder.listFiles())
+		{
+			file.delete();
+		}
+		folder.delete();
+	}
+
+	/**
+	 * Open channels are shared until they are closed.
+	 */
+	@Test
+	public void sharedChannel()
+	{
+		assertNull(pool.getFileChannel(name("a"), false));
+
+		FileChannel channel = pool.getFileChannel(name("a"), true);
+		assertSame(channel, pool.getFileChannel(name("a"), false));
+		pool.returnFileChannel(channel);
+		pool.returnFileChannel(channel);
+
+		assertSame(channel, pool.getFileChannel(name("a"), false));
+		pool.returnFileChannel(channel);
+
+		assertEquals(1, pool.getOpenChannelCount());
+		assertEquals(1, pool.getOpenedChannelCount());
+		assertEquals(4, pool.getAcquireCount());
+	}
+
+	/**
+	 * Returning a channel which is not in use fails.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void returnUnused()
+	{
+		FileChannel channel = pool.getFileChannel(name("a"), true);
+		pool.returnFileChannel(channel);
+		pool.returnFileChannel(channel);
+	}
+
+	/**
+	 * Idle channels exceeding the capacity are closed in the background.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void reduce() throws Exception
+	{
+		FileChannel a = pool.getFileChannel(name("a"), true);
+		FileChannel b = pool.getFileChannel(name("b"), true);
+		pool.returnFileChannel(a);
+		pool.returnFileChannel(b);
+		FileChannel c = pool.getFileChannel(name("c"), true);
+
+		while (pool.getOpenChannelCount() > 2)
+		{
+			Thread.sleep(10);
+		}
+		assertFalse(a.isOpen());
+		assertTrue(b.isOpen());
+		assertTrue(c.isOpen());
+
+		// reopened
+		FileChannel reopened = pool.getFileChannel(name("a"), false);
+		assertTrue(reopened.isOpen());
+		pool.returnFileChannel(reopened);
+		pool.returnFileChannel(c);
+	}
+
+	/**
+	 * A channel in use is closed and deleted once it is returned.
+	 */
+	@Test
+	public void closeAndDeleteInUse()
+	{
+		FileChannel channel = pool.getFileChannel(name("a"), true);
+		pool.closeAndDeleteFileChannel(name("a"));
+		assertTrue(channel.isOpen());
+		assertTrue(new File(name("a")).exists());
+
+		pool.returnFileChannel(channel);
+		assertFalse(channel.isOpen());
+		assertFalse(new File(name("a")).exists());
+		assertEquals(0, pool.getOpenChannelCount());
+	}
+
+	/**
+	 * A file opened again after it has been marked for deletion is kept when the old channel is
+	 * returned.
+	 */
+	@Test
+	public void closeAndDeleteReopened()
+	{
+		FileChannel channel = pool.getFileChannel(name("a"), true);
+		pool.closeAndDeleteFileChannel(name("a"));
+
+		FileChannel reopened = pool.getFileChannel(name("a"), true);
+		pool.returnFileChannel(channel);
+		assertFalse(channel.isOpen());
+		assertTrue(reopened.isOpen());
+		assertTrue(new File(name("a")).exists());
+
+		pool.returnFileChannel(reopened);
+		pool.closeAndDeleteFileChannel(name("a"));
+		assertFalse(new File(name("a")).exists());
+	}
+
+	private String name(String file)
+	{
+		return new File(folder, file).getAbsolutePath();
+	}
+}
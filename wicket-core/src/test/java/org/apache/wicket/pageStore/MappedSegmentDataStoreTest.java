@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.apache.wicket.util.lang.Bytes;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link MappedSegmentDataStore}
+ */
+public class MappedSegmentDataStoreTest
+{
+	private MappedSegmentDataStore store;
+
+	/**
+	 * @throws Exception
+	 */
+	@Before
+	public void before() throws Exception
+	{
+		File folder = new File(System.getProperty("java.io.tmpdir"));
+		store = new MappedSegmentDataStore("test" + System.nanoTime(), folder, 1000,
+			Bytes.bytes(1024));
+	}
+
+	/**
+	 */
+	@After
+	public void after()
+	{
+		store.destroy();
+	}
+
+	/**
+	 * Pages are stored, replaced and removed.
+	 */
+	@Test
+	public void storeAndRemove()
+	{
+		store.storeData("s1", 1, page(1, 100));
+		store.storeData("s1", 2, page(2, 100));
+		store.storeData("s2", 1, page(3, 100));
+		assertArrayEquals(page(1, 100), store.getData("s1", 1));
+		assertArrayEquals(page(2, 100), store.getData("s1", 2));
+		assertArrayEquals(page(3, 100), store.getData("s2", 1));
+
+		store.storeData("s1", 1, page(4, 50));
+		assertArrayEquals(page(4, 50), store.getData("s1", 1));
+
+		store.removeData("s1", 2);
+		assertNull(store.getData("s1", 2));
+
+		store.removeData("s1");
+		assertNull(store.getData("s1", 1));
+		assertArrayEquals(page(3, 100), store.getData("s2", 1));
+	}
+
+	/**
+	 * The oldest pages of a session are discarded when it exceeds its maximum size.
+	 */
+	@Test
+	public void maxSizePerSession()
+	{
+		for (int i = 0; i < 5; i++)
+		{
+			store.storeData("s", i, page(i, 300));
+		}
+		assertNull(store.getData("s", 0));
+		assertNull(store.getData("s", 1));
+		assertArrayEquals(page(2, 300), store.getData("s", 2));
+		assertArrayEquals(page(4, 300), store.getData("s", 4));
+	}
+
+	/**
+	 * Segments of removed sessions are compacted and reused.
+	 */
+	@Test
+	public void compaction()
+	{
+		for (int i = 0; i < 200; i++)
+		{
+			store.storeData("s" + i, 1, page(i, 200));
+			store.storeData("keep", i % 3, page(i, 100));
+			if (i > 0)
+			{
+				store.removeData("s" + (i - 1));
+			}
+			store.compact();
+		}
+
+		assertTrue(store.getSegmentCount() < 10);
+		assertArrayEquals(page(199, 200), store.getData("s199", 1));
+		assertArrayEquals(page(198, 100), store.getData("keep", 0));
+		assertArrayEquals(page(199, 100), store.getData("keep", 1));
+		assertArrayEquals(page(197, 100), store.getData("keep", 2));
+	}
+
+	private static byte[] page(int value, int size)
+	{
+		byte[] data = new byte[size];
+		Arrays.fill(data, (byte)value);
+		return data;
+	}
+}
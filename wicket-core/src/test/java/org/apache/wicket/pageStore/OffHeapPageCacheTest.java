@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+
+import org.apache.wicket.serialize.JavaSerializer;
+import org.apache.wicket.util.lang.Bytes;
+import org.junit.Test;
+
+/**
+ * Tests for {@link OffHeapPageCache}
+ */
+public class OffHeapPageCacheTest
+{
+	/**
+	 * Pages spanning several blocks are stored, replaced and removed.
+	 */
+	@Test
+	public void storeAndRemove()
+	{
+		OffHeapPageCache cache = new OffHeapPageCache(Bytes.kilobytes(64), 2);
+
+		cache.storeData("s1", 1, page(1, 10000));
+		cache.storeData("s1", 2, page(2, 10));
+		cache.storeData("s2", 1, page(3, 4096));
+		assertArrayEquals(page(1, 10000), cache.getData("s1", 1));
+		assertArrayEquals(page(2, 10), cache.getData("s1", 2));
+		assertArrayEquals(page(3, 4096), cache.getData("s2", 1));
+		assertEquals(Bytes.kilobytes(20), cache.getSize());
+
+		cache.storeData("s1", 1, page(4, 100));
+		assertArrayEquals(page(4, 100), cache.getData("s1", 1));
+
+		cache.removeData("s1", 2);
+		assertNull(cache.getData("s1", 2));
+
+		cache.removeData("s1");
+		assertNull(cache.getData("s1", 1));
+		assertArrayEquals(page(3, 4096), cache.getData("s2", 1));
+		assertEquals(1, cache.getPageCount());
+		assertEquals(Bytes.kilobytes(4), cache.getSize());
+	}
+
+	/**
+	 * The least recently used pages are evicted, pages larger than a segment are not cached.
+	 */
+	@Test
+	public void eviction()
+	{
+		OffHeapPageCache cache = new OffHeapPageCache(Bytes.kilobytes(16), 1);
+
+		cache.storeData("s", 1, page(1, 8000));
+		cache.storeData("s", 2, page(2, 8000));
+		cache.getData("s", 1);
+		cache.storeData("s", 3, page(3, 8000));
+
+		assertArrayEquals(page(1, 8000), cache.getData("s", 1));
+		assertNull(cache.getData("s", 2));
+		assertArrayEquals(page(3, 8000), cache.getData("s", 3));
+		assertEquals(1, cache.getEvictions());
+
+		cache.storeData("s", 4, page(4, 20000));
+		assertNull(cache.getData("s", 4));
+	}
+
+	/**
+	 * {@link DefaultPageStore} reads pages from the off-heap cache instead of the data store.
+	 */
+	@Test
+	public void pageStore()
+	{
+		OffHeapPageCache cache = new OffHeapPageCache(Bytes.kilobytes(64));
+		DefaultPageStore store = new DefaultPageStore("app", new JavaSerializer("app"),
+			new NoDataStore(), 0, cache);
+
+		store.storePageData("s", 1, page(1, 100));
+		assertArrayEquals(page(1, 100), store.getPageData("s", 1));
+
+		store.unbind("s");
+		assertNull(store.getPageData("s", 1));
+	}
+
+	private static byte[] page(int value, int size)
+	{
+		byte[] data = new byte[size];
+		Arrays.fill(data, (byte)value);
+		return data;
+	}
+
+	/**
+	 * Data store that forgets everything.
+	 */
+	private static class NoDataStore implements IDataStore
+	{
+		public byte[] getData(String sessionId, int id)
+		{
+			return null;
+		}
+
+		public void removeData(String sessionId, int id)
+		{
+		}
+
+		public void removeData(String sessionId)
+		{
+		}
+
+		public void storeData(String sessionId, int id, byte[] data)
+		{
+		}
+
+		public void destroy()
+		{
+		}
+
+		public boolean isReplicated()
+		{
+			return false;
+		}
+	}
+}
@@ -16,9 +16,15 @@
  */
 package org.apache.wicket.pageStore;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -94,6 +100,94 @@ public class PageAccessSynchronizerTest
 		assertTrue(!t2locks[0].before(t1locks[0].add(hold)));
 	}
 
+	/**
+	 * Waiting threads get the lock in the order they asked for it.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testFairness() throws Exception
+	{
+		final PageAccessSynchronizer sync = new PageAccessSynchronizer(Duration.seconds(5));
+		final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+		sync.lockPage(1);
+
+		Thread[] threads = new Thread[3];
+		for (int i = 0; i < threads.length; i++)
+		{
+			threads[i] = new Thread("t" + i)
+			{
+				@Override
+				public void run()
+				{
+					sync.lockPage(1);
+					order.add(getName());
+					sync.unlockAllPages();
+				}
+			};
+			threads[i].start();
+			// let the thread queue up
+			Duration.milliseconds(100).sleep();
+		}
+
+		sync.unlockAllPages();
+		for (Thread thread : threads)
+		{
+			thread.join();
+		}
+
+		assertEquals(Arrays.asList("t0", "t1", "t2"), order);
+		assertEquals(3, sync.getLockWaitCount());
+		assertEquals(0, sync.getLockTimeoutCount());
+
+		// all locks have been released
+		sync.lockPage(1);
+		sync.unlockAllPages();
+		assertEquals(3, sync.getLockWaitCount());
+	}
+
+	/**
+	 * Failing to get a lock in time is counted.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testTimeout() throws Exception
+	{
+		final PageAccessSynchronizer sync = new PageAccessSynchronizer(
+			Duration.milliseconds(200));
+
+		Thread holder = new Thread("holder")
+		{
+			@Override
+			public void run()
+			{
+				sync.lockPage(1);
+				Duration.seconds(1).sleep();
+				sync.unlockAllPages();
+			}
+		};
+		holder.start();
+		Duration.milliseconds(100).sleep();
+
+		try
+		{
+			sync.lockPage(1);
+			fail();
+		}
+		catch (CouldNotLockPageException e)
+		{
+			assertEquals(1, e.getPage());
+		}
+		assertEquals(1, sync.getLockTimeoutCount());
+		assertTrue(sync.getMaxLockWaitTime().getMilliseconds() >= 190);
+
+		holder.join();
+		sync.lockPage(1);
+		sync.unlockAllPages();
+	}
+
 	public void runContentionTest(final int pages, final int workers, final Duration duration)
 		throws Exception
 	{
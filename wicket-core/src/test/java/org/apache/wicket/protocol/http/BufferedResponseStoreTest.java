@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.http;
+
+import java.io.File;
+
+import javax.servlet.http.Cookie;
+
+import org.apache.wicket.WicketTestCase;
+import org.apache.wicket.mock.MockWebResponse;
+import org.apache.wicket.request.Url;
+import org.apache.wicket.serialize.JavaSerializer;
+import org.apache.wicket.util.file.Files;
+import org.apache.wicket.util.lang.Bytes;
+import org.apache.wicket.util.time.Duration;
+
+/**
+ * Tests for the {@link IBufferedResponseStore} implementations
+ */
+public class BufferedResponseStoreTest extends WicketTestCase
+{
+	private static final Url URL = Url.parse("page?1");
+
+	/**
+	 * The least recently stored responses are dropped when the total size is exceeded.
+	 */
+	public void testInMemorySize()
+	{
+		InMemoryBufferedResponseStore store = new InMemoryBufferedResponseStore(
+			Bytes.bytes(1000), Duration.minutes(1));
+
+		// 600 bytes each
+		store.store("a", URL, newResponse(300));
+		store.store("b", URL, newResponse(300));
+		assertEquals(1, store.getEvictionCount());
+		assertEquals(600, store.getSize().bytes());
+		assertFalse(store.contains("a", URL));
+		assertTrue(store.contains("b", URL));
+
+		assertNull(store.remove("a", URL));
+		assertNotNull(store.remove("b", URL));
+		assertNull(store.remove("b", URL));
+		assertEquals(1, store.getHitCount());
+		// URLs without a stored response aren't misses, most requests don't have one
+		assertEquals(0, store.getMissCount());
+		assertEquals(0, store.getSize().bytes());
+	}
+
+	/**
+	 * Expired responses are not returned.
+	 * 
+	 * @throws Exception
+	 */
+	public void testInMemoryLifetime() throws Exception
+	{
+		InMemoryBufferedResponseStore store = new InMemoryBufferedResponseStore(
+			Bytes.megabytes(1), Duration.milliseconds(50));
+		store.store("a", URL, newResponse(10));
+		Thread.sleep(60);
+
+		assertFalse(store.contains("a", URL));
+		assertNull(store.remove("a", URL));
+		assertEquals(1, store.getEvictionCount());
+		assertEquals(1, store.getMissCount());
+	}
+
+	/**
+	 * Responses are written to files and can be read once by any store using the folder.
+	 * 
+	 * @throws Exception
+	 */
+	public void testFile() throws Exception
+	{
+		File folder = new File(System.getProperty("java.io.tmpdir"), "wicket-responses-test-" +
+			System.nanoTime());
+		try
+		{
+			JavaSerializer serializer = new JavaSerializer(tester.getApplication()
+				.getApplicationKey());
+			FileBufferedResponseStore store = new FileBufferedResponseStore(folder,
+				Duration.minutes(1), serializer);
+			FileBufferedResponseStore otherNode = new FileBufferedResponseStore(folder,
+				Duration.minutes(1), serializer);
+
+			BufferedWebResponse response = newResponse(10);
+			response.addCookie(new Cookie("name", "value"));
+			store.store("a", URL, response);
+
+			assertTrue(otherNode.contains("a", URL));
+			assertFalse(otherNode.contains("b", URL));
+			BufferedWebResponse read = otherNode.remove("a", URL);
+			assertNotNull(read);
+			assertNull(store.remove("a", URL));
+			assertEquals(1, otherNode.getHitCount());
+			assertEquals(0, store.getMissCount());
+
+			// an expired response is a miss
+			FileBufferedResponseStore expiring = new FileBufferedResponseStore(folder,
+				Duration.milliseconds(50), serializer);
+			expiring.store("a", URL, newResponse(10));
+			Thread.sleep(60);
+			assertFalse(expiring.contains("a", URL));
+			assertNull(expiring.remove("a", URL));
+			assertEquals(1, expiring.getMissCount());
+			assertEquals(1, expiring.getEvictionCount());
+
+			MockWebResponse target = new MockWebResponse();
+			read.writeTo(target);
+			assertEquals("text/html; charset=UTF-8", target.getContentType());
+			assertEquals("value", target.getCookies().get(0).getValue());
+			assertEquals(10, target.getTextResponse().length());
+		}
+		finally
+		{
+			File[] files = folder.listFiles();
+			if (files != null)
+			{
+				for (File file : files)
+				{
+					Files.remove(file);
+				}
+			}
+			Files.remove(folder);
+		}
+	}
+
+	private static BufferedWebResponse newResponse(int length)
+	{
+		BufferedWebResponse response = new BufferedWebResponse(null);
+		response.setContentType("text/html; charset=UTF-8");
+		StringBuilder text = new StringBuilder(length);
+		for (int i = 0; i < length; i++)
+		{
+			text.append('x');
+		}
+		response.write(text);
+		return response;
+	}
+}
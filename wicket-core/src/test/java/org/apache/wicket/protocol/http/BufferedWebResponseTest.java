@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.http;
+
+import java.nio.charset.Charset;
+
+import org.apache.wicket.WicketTestCase;
+import org.apache.wicket.protocol.http.mock.MockHttpServletResponse;
+import org.apache.wicket.protocol.http.servlet.ServletWebRequest;
+import org.apache.wicket.protocol.http.servlet.ServletWebResponse;
+import org.apache.wicket.request.cycle.AbstractRequestCycleListener;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.request.http.WebResponse;
+import org.apache.wicket.settings.IRequestCycleSettings.RenderStrategy;
+
+/**
+ * Tests for {@link BufferedWebResponse}
+ */
+public class BufferedWebResponseTest extends WicketTestCase
+{
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private MockHttpServletResponse servletResponse;
+
+	private ServletWebResponse response;
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+
+		servletResponse = new MockHttpServletResponse(tester.getRequest());
+		response = new ServletWebResponse(new ServletWebRequest(tester.getRequest(), ""),
+			servletResponse);
+	}
+
+	/**
+	 * Encoded text is written as bytes, the rest is encoded in the charset of the content type.
+	 * 
+	 * @throws Exception
+	 */
+	public void testWriteEncoded() throws Exception
+	{
+		BufferedWebResponse buffered = new BufferedWebResponse(null);
+		buffered.setContentType("text/html; charset=UTF-8");
+		assertEquals(UTF_8, buffered.getCharset());
+
+		buffered.write("<p>ä");
+		// the bytes are written as they are, not the text
+		buffered.write("static", "stätic".getBytes("UTF-8"));
+		buffered.write("ü</p>");
+		assertEquals("<p>ästaticü</p>", buffered.getText().toString());
+
+		buffered.writeTo(response);
+		assertEquals("<p>ästäticü</p>", servletResponse.getDocument());
+	}
+
+	/**
+	 * Encoded text is written as bytes through the response that buffers the headers.
+	 * 
+	 * @throws Exception
+	 */
+	public void testWriteEncodedWithBufferedHeaders() throws Exception
+	{
+		BufferedWebResponse buffered = new BufferedWebResponse(null);
+		buffered.setContentType("text/html; charset=UTF-8");
+		buffered.write("static", "stätic".getBytes("UTF-8"));
+
+		buffered.writeTo(new HeaderBufferingWebResponse(response));
+		assertEquals("stätic", servletResponse.getDocument());
+	}
+
+	/**
+	 * The <code>Server-Timing</code> header of a rendered page goes before the buffered body, so
+	 * the response that buffers the headers still accepts it.
+	 */
+	public void testServerTimingHeaderWithBufferedHeaders()
+	{
+		tester.getApplication()
+			.getRequestCycleSettings()
+			.setRenderStrategy(RenderStrategy.ONE_PASS_RENDER);
+		tester.getApplication().getRequestCycleSettings().setServerTimingHeader(true);
+		tester.getApplication().getRequestCycleListeners().add(new AbstractRequestCycleListener()
+		{
+			@Override
+			public void onBeginRequest(RequestCycle cycle)
+			{
+				cycle.setResponse(new HeaderBufferingWebResponse((WebResponse)cycle.getResponse()));
+			}
+		});
+
+		tester.startPage(MockPage.class);
+		tester.assertRenderedPage(MockPage.class);
+		String header = tester.getLastResponse().getHeader("Server-Timing");
+		assertTrue(header, header.contains("render;dur="));
+	}
+
+	/**
+	 * The text is written when the charset of the servlet response differs.
+	 * 
+	 * @throws Exception
+	 */
+	public void testCharsetMismatch() throws Exception
+	{
+		BufferedWebResponse buffered = new BufferedWebResponse(null);
+		buffered.setContentType("text/html; charset=ISO-8859-1");
+		buffered.write("static", "stätic".getBytes("ISO-8859-1"));
+
+		buffered.writeTo(response);
+		assertEquals("static", servletResponse.getDocument());
+	}
+
+	/**
+	 * The text is written when it has been replaced.
+	 * 
+	 * @throws Exception
+	 */
+	public void testSetText() throws Exception
+	{
+		BufferedWebResponse buffered = new BufferedWebResponse(null);
+		buffered.setContentType("text/html; charset=UTF-8");
+		buffered.write("static", "stätic".getBytes("UTF-8"));
+		buffered.setText("<p>" + buffered.getText() + "</p>");
+
+		buffered.writeTo(response);
+		assertEquals("<p>static</p>", servletResponse.getDocument());
+	}
+}
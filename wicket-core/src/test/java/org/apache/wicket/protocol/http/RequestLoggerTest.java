@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.http;
+
+import java.util.List;
+
+import org.apache.wicket.WicketTestCase;
+import org.apache.wicket.protocol.http.IRequestLogger.RequestData;
+import org.apache.wicket.protocol.http.RequestLogger.RequestTimes;
+import org.apache.wicket.settings.IRequestCycleSettings.RenderStrategy;
+
+/**
+ * Tests for {@link RequestLogger}
+ */
+public class RequestLoggerTest extends WicketTestCase
+{
+	private RequestLogger logger;
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		tester.getApplication()
+			.getRequestCycleSettings()
+			.setRenderStrategy(RenderStrategy.ONE_PASS_RENDER);
+		tester.getApplication().getRequestLoggerSettings().setRequestLoggerEnabled(true);
+		tester.getApplication().getRequestLoggerSettings().setRequestsWindowSize(3);
+		logger = (RequestLogger)tester.getApplication().getRequestLogger();
+	}
+
+	/**
+	 * The requests are counted in total, by handler and by page.
+	 */
+	public void testStatistics()
+	{
+		for (int i = 0; i < 5; i++)
+		{
+			tester.startPage(new MockPage());
+		}
+
+		RequestTimes times = logger.getRequestTimes();
+		assertEquals(5, times.getCount());
+		assertTrue(times.getMaxTime() >= times.getPercentile(50));
+		long buckets = 0;
+		for (long count : times.getBucketCounts())
+		{
+			buckets += count;
+		}
+		assertEquals(5, buckets);
+
+		assertEquals(5, logger.getRequestTimesByPage().get(MockPage.class.getName()).getCount());
+		long handled = 0;
+		for (RequestTimes handlerTimes : logger.getRequestTimesByHandler().values())
+		{
+			handled += handlerTimes.getCount();
+		}
+		assertEquals(5, handled);
+
+		assertEquals(0, logger.getCurrentActiveRequestCount());
+		assertEquals(1, logger.getPeakActiveRequestCount());
+		assertTrue(logger.getRequestsPerSecond() >= 0);
+	}
+
+	/**
+	 * Only the most recent requests are kept, the latest one first.
+	 */
+	public void testRecentRequests()
+	{
+		for (int i = 0; i < 5; i++)
+		{
+			tester.startPage(new MockPage());
+		}
+
+		List<RequestData> requests = logger.getRequests();
+		assertEquals(3, requests.size());
+		assertTrue(requests.get(0).getStartDate().getTime() >= requests.get(2)
+			.getStartDate()
+			.getTime());
+
+		tester.getApplication().getRequestLoggerSettings().setRequestsWindowSize(2);
+		tester.startPage(new MockPage());
+		assertEquals(2, logger.getRequests().size());
+	}
+}
@@ -66,6 +66,40 @@ public class StoredResponsesMapTest
 		assertNull(value);
 	}
 
+	/**
+	 * Verifies that {@link StoredResponsesMap} removes the least recently used entries when the
+	 * total size of the responses is exceeded
+	 */
+	@Test
+	public void maxSize()
+	{
+		StoredResponsesMap map = new StoredResponsesMap(1000, 100, Duration.days(1));
+		BufferedWebResponse response = new BufferedWebResponse(null);
+		response.write("0123456789");
+		map.put("1", response);
+		map.put("2", response);
+		assertEquals(40, map.getSize());
+
+		BufferedWebResponse large = new BufferedWebResponse(null);
+		large.write("0123456789012345678901234567890123456789");
+		map.put("3", large);
+		assertEquals(2, map.size());
+		assertEquals(100, map.getSize());
+		assertTrue(map.containsKey("3"));
+
+		// the most recent entry is kept even if it is too large
+		map.put("4", new BufferedWebResponse(null)
+		{
+			@Override
+			public long getSizeInBytes()
+			{
+				return 1000;
+			}
+		});
+		assertEquals(1, map.size());
+		assertTrue(map.containsKey("4"));
+	}
+
 	/**
 	 * Verifies that {@link StoredResponsesMap} can have only {@link BufferedWebResponse} values
 	 */
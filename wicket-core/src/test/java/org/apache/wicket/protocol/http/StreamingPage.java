@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.http;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.wicket.markup.ComponentTag;
+import org.apache.wicket.markup.MarkupStream;
+import org.apache.wicket.markup.html.IHeaderResponse;
+import org.apache.wicket.markup.html.WebComponent;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.ListView;
+
+/**
+ * Page with a header contribution and enough body markup to be sent in several chunks.
+ */
+public class StreamingPage extends WebPage
+{
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param failure
+	 *            exception thrown while rendering the body or <code>null</code>
+	 */
+	public StreamingPage(final RuntimeException failure)
+	{
+		List<Integer> rows = new ArrayList<Integer>();
+		for (int i = 0; i < 500; i++)
+		{
+			rows.add(i);
+		}
+		add(new ListView<Integer>("rows", rows)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void populateItem(ListItem<Integer> item)
+			{
+				item.add(new Label("label", "Row " + item.getModelObject()));
+			}
+		});
+		add(new WebComponent("failing")
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void onComponentTagBody(MarkupStream markupStream, ComponentTag openTag)
+			{
+				if (failure != null)
+				{
+					throw failure;
+				}
+				super.onComponentTagBody(markupStream, openTag);
+			}
+		});
+	}
+
+	@Override
+	public void renderHead(IHeaderResponse response)
+	{
+		response.renderCSSReference("streaming.css");
+	}
+}
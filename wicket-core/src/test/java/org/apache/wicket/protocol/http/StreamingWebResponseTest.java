@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.http;
+
+import org.apache.wicket.RestartResponseException;
+import org.apache.wicket.WicketTestCase;
+import org.apache.wicket.settings.IRequestCycleSettings.RenderStrategy;
+
+/**
+ * Tests for {@link StreamingWebResponse}
+ */
+public class StreamingWebResponseTest extends WicketTestCase
+{
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		tester.getApplication()
+			.getRequestCycleSettings()
+			.setRenderStrategy(RenderStrategy.ONE_PASS_RENDER);
+	}
+
+	/**
+	 * A streamed page is the same as a buffered one.
+	 */
+	public void testStreamedPage()
+	{
+		tester.startPage(new StreamingPage(null));
+		String buffered = tester.getLastResponseAsString();
+
+		tester.getApplication().getRequestCycleSettings().setBufferResponse(false);
+		tester.startPage(new StreamingPage(null));
+		String streamed = tester.getLastResponseAsString();
+
+		assertTrue(streamed.contains("streaming.css"));
+		assertTrue(streamed.contains("Row 499"));
+		assertEquals(buffered, streamed);
+	}
+
+	/**
+	 * An error in the body of a streamed page results in an incomplete page.
+	 */
+	public void testErrorAfterHead()
+	{
+		tester.getApplication().getRequestCycleSettings().setBufferResponse(false);
+		tester.startPage(new StreamingPage(new IllegalStateException("failed")));
+		String streamed = tester.getLastResponseAsString();
+
+		assertTrue(streamed.contains("streaming.css"));
+		assertTrue(streamed.contains("Row 499"));
+		assertFalse(streamed.contains("end of page"));
+	}
+
+	/**
+	 * A restart requested in the body of a streamed page can't be honored, the page ends there.
+	 */
+	public void testRestartAfterHead()
+	{
+		tester.getApplication().getRequestCycleSettings().setBufferResponse(false);
+		tester.startPage(new StreamingPage(new RestartResponseException(MockPage.class)));
+		String streamed = tester.getLastResponseAsString();
+
+		tester.assertRenderedPage(StreamingPage.class);
+		assertTrue(streamed.contains("Row 499"));
+		assertFalse(streamed.contains("end of page"));
+		assertFalse(streamed.contains("actionLink"));
+	}
+
+	/**
+	 * A restart requested before anything has been sent is honored as usual.
+	 */
+	public void testRestartBeforeCommit()
+	{
+		tester.getApplication().getRequestCycleSettings().setBufferResponse(false);
+		tester.startPage(new StreamingPage(null)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void onBeforeRender()
+			{
+				throw new RestartResponseException(MockPage.class);
+			}
+		});
+		tester.assertRenderedPage(MockPage.class);
+	}
+}
@@ -21,8 +21,14 @@ import junit.framework.TestCase;
 import org.apache.wicket.markup.html.WebPage;
 import org.apache.wicket.markup.html.basic.SimplePage;
 import org.apache.wicket.mock.MockApplication;
+import org.apache.wicket.request.IRequestHandler;
+import org.apache.wicket.request.IRequestMapper;
+import org.apache.wicket.request.Request;
+import org.apache.wicket.request.Url;
+import org.apache.wicket.request.handler.EmptyRequestHandler;
 import org.apache.wicket.request.mapper.CompoundRequestMapper;
 import org.apache.wicket.request.mapper.CryptoMapper;
+import org.apache.wicket.util.IProvider;
 import org.apache.wicket.util.crypt.Base64;
 import org.apache.wicket.util.crypt.ICrypt;
 import org.apache.wicket.util.crypt.ICryptFactory;
@@ -86,6 +92,51 @@ public class CryptedUrlWebRequestCodingStrategyTest extends TestCase
 		tester.assertRenderedPage(HomePage.class);
 	}
 
+	/**
+	 * Repeatedly rendered URLs are encrypted once per session.
+	 */
+	public void testEncryptedUrlCache()
+	{
+		final ICrypt crypt = new TestCryptFactory().newCrypt();
+		final int[] count = new int[1];
+		CryptoMapper mapper = new CryptoMapper(new IRequestMapper()
+		{
+			public IRequestHandler mapRequest(Request request)
+			{
+				return null;
+			}
+
+			public int getCompatibilityScore(Request request)
+			{
+				return 0;
+			}
+
+			public Url mapHandler(IRequestHandler requestHandler)
+			{
+				return Url.parse("some/page?1");
+			}
+		}, new IProvider<ICrypt>()
+		{
+			public ICrypt get()
+			{
+				count[0]++;
+				return crypt;
+			}
+		});
+
+		tester.getSession().bind();
+		IRequestHandler handler = new EmptyRequestHandler();
+
+		Url first = mapper.mapHandler(handler);
+		mapper.mapHandler(handler);
+		assertEquals(2, count[0]);
+
+		mapper.setEncryptedUrlCacheSize(10);
+		assertEquals(first, mapper.mapHandler(handler));
+		assertEquals(first, mapper.mapHandler(handler));
+		assertEquals(3, count[0]);
+	}
+
 	/**
 	 * Simple obfuscation crypt for test purposes
 	 * 
@@ -117,4 +168,4 @@ public class CryptedUrlWebRequestCodingStrategyTest extends TestCase
 		}
 	}
 
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.http.servlet;
+
+import org.apache.wicket.WicketTestCase;
+import org.apache.wicket.protocol.http.mock.MockHttpServletResponse;
+
+/**
+ * Tests for {@link ServletWebResponse}
+ */
+public class ServletWebResponseTest extends WicketTestCase
+{
+	/**
+	 * Text written after bytes goes to the output stream too, the writer of the servlet response
+	 * can't be used anymore.
+	 * 
+	 * @throws Exception
+	 */
+	public void testWriteTextAfterBytes() throws Exception
+	{
+		MockHttpServletResponse servletResponse = new MockHttpServletResponse(tester.getRequest());
+		servletResponse.setCharacterEncoding("UTF-8");
+		ServletWebResponse response = new ServletWebResponse(new ServletWebRequest(
+			tester.getRequest(), ""), servletResponse);
+
+		response.write("<p>ä".getBytes("UTF-8"));
+		response.write("ü</p>");
+		assertEquals("<p>äü</p>", servletResponse.getDocument());
+	}
+
+	/**
+	 * The redirect of an Ajax request can be written after bytes.
+	 * 
+	 * @throws Exception
+	 */
+	public void testAjaxRedirectAfterBytes() throws Exception
+	{
+		tester.getRequest().addHeader("Wicket-Ajax", "true");
+		MockHttpServletResponse servletResponse = new MockHttpServletResponse(tester.getRequest());
+		ServletWebResponse response = new ServletWebResponse(new ServletWebRequest(
+			tester.getRequest(), ""), servletResponse);
+
+		response.write(new byte[0]);
+		response.sendRedirect("http://example.com/page");
+		assertTrue(response.isRedirect());
+		assertEquals("<ajax-response><redirect><![CDATA[http://example.com/page]]></redirect>" +
+			"</ajax-response>", servletResponse.getDocument());
+	}
+}
@@ -280,6 +280,21 @@ public class RequestCycleListenerTest extends BaseRequestHandlerStackTest
 		{
 			detachesnotified++;
 		}
+
+		public void onRequestHandlerResolved(final RequestCycle cycle,
+			final IRequestHandler handler)
+		{
+		}
+
+		public void onRequestHandlerScheduled(final RequestCycle cycle,
+			final IRequestHandler handler)
+		{
+		}
+
+		public void onEndPhase(final RequestCycle cycle, final RequestTimings.Phase phase,
+			final long duration)
+		{
+		}
 	}
 
 
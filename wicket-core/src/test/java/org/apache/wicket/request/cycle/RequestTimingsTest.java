@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.cycle;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.wicket.WicketTestCase;
+import org.apache.wicket.protocol.http.MockPage;
+import org.apache.wicket.request.cycle.RequestTimings.Phase;
+import org.apache.wicket.settings.IRequestCycleSettings.RenderStrategy;
+
+/**
+ * Tests for {@link RequestTimings}
+ */
+public class RequestTimingsTest extends WicketTestCase
+{
+	private final List<Phase> phases = new ArrayList<Phase>();
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		tester.getApplication()
+			.getRequestCycleSettings()
+			.setRenderStrategy(RenderStrategy.ONE_PASS_RENDER);
+		tester.getApplication().getRequestCycleListeners().add(new AbstractRequestCycleListener()
+		{
+			@Override
+			public void onEndPhase(RequestCycle cycle, Phase phase, long duration)
+			{
+				assertTrue(duration >= 0);
+				assertTrue(cycle.getTimings().getCount(phase) > 0);
+				phases.add(phase);
+			}
+		});
+	}
+
+	/**
+	 * The listeners are notified of the phases a request goes through.
+	 */
+	public void testPhases()
+	{
+		tester.startPage(MockPage.class);
+		assertTrue(phases.contains(Phase.MAP));
+		assertTrue(phases.contains(Phase.RENDER));
+		assertTrue(phases.contains(Phase.DETACH));
+		assertTrue(phases.contains(Phase.COMMIT));
+		assertFalse(phases.contains(Phase.INVOKE));
+		assertTrue(phases.indexOf(Phase.DETACH) < phases.indexOf(Phase.COMMIT));
+
+		phases.clear();
+		tester.clickLink("actionLink");
+		assertTrue(phases.contains(Phase.RESTORE));
+		assertTrue(phases.indexOf(Phase.INVOKE) < phases.indexOf(Phase.RENDER));
+	}
+
+	/**
+	 * The header contains the phases before the page was written.
+	 */
+	public void testServerTimingHeader()
+	{
+		tester.startPage(MockPage.class);
+		assertNull(tester.getLastResponse().getHeader("Server-Timing"));
+
+		tester.getApplication().getRequestCycleSettings().setServerTimingHeader(true);
+		tester.startPage(MockPage.class);
+		String header = tester.getLastResponse().getHeader("Server-Timing");
+		assertTrue(header, header.startsWith("map;dur="));
+		assertTrue(header, header.contains(", render;dur="));
+		assertFalse(header, header.contains("commit"));
+	}
+
+	/**
+	 * The times are formatted as milliseconds with two decimals.
+	 */
+	public void testToServerTiming()
+	{
+		RequestTimings timings = new RequestTimings();
+		assertEquals("", timings.toServerTiming());
+
+		timings.add(Phase.RENDER, 12345678);
+		timings.add(Phase.MAP, 50000);
+		timings.add(Phase.RENDER, 1000000);
+		assertEquals("map;dur=0.05, render;dur=13.35", timings.toServerTiming());
+		assertEquals(2, timings.getCount(Phase.RENDER));
+		assertEquals(13345678, timings.getTime(Phase.RENDER));
+	}
+}
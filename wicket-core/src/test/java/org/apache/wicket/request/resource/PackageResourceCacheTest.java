@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.resource;
+
+import org.apache.wicket.WicketTestCase;
+import org.apache.wicket.markup.html.PackageResourceTest;
+import org.apache.wicket.request.handler.resource.ResourceReferenceRequestHandler;
+import org.apache.wicket.util.lang.Bytes;
+import org.apache.wicket.util.time.Time;
+
+/**
+ * Tests for {@link PackageResourceCache}
+ */
+public class PackageResourceCacheTest extends WicketTestCase
+{
+	private static PackageResourceCache.Key key(String name)
+	{
+		return new PackageResourceCache.Key("scope", name, null, null, null);
+	}
+
+	/**
+	 * Entries are only returned as long as the modification time matches.
+	 */
+	public void testLastModified()
+	{
+		PackageResourceCache cache = new PackageResourceCache();
+		byte[] data = new byte[] { 1, 2, 3 };
+
+		cache.put(key("a"), Time.milliseconds(1000), data);
+		assertSame(data, cache.get(key("a"), Time.milliseconds(1000)));
+		assertNull(cache.get(key("a"), Time.milliseconds(2000)));
+		assertEquals(0, cache.getEntryCount());
+
+		cache.put(key("b"), null, data);
+		assertEquals(0, cache.getEntryCount());
+		assertNull(cache.get(key("b"), null));
+
+		assertEquals(1, cache.getHits());
+		assertEquals(2, cache.getMisses());
+	}
+
+	/**
+	 * The least recently used entries are evicted once the maximum size is exceeded.
+	 */
+	public void testEviction()
+	{
+		PackageResourceCache cache = new PackageResourceCache(Bytes.bytes(30), Bytes.bytes(20));
+		Time time = Time.milliseconds(1000);
+
+		cache.put(key("a"), time, new byte[10]);
+		cache.put(key("b"), time, new byte[10]);
+		cache.put(key("c"), time, new byte[10]);
+
+		// touch "a" so "b" becomes the eldest entry
+		assertNotNull(cache.get(key("a"), time));
+
+		cache.put(key("d"), time, new byte[10]);
+		assertEquals(Bytes.bytes(30), cache.getSize());
+		assertEquals(1, cache.getEvictions());
+		assertNull(cache.get(key("b"), time));
+		assertNotNull(cache.get(key("a"), time));
+
+		// too large for a single entry
+		cache.put(key("e"), time, new byte[21]);
+		assertNull(cache.get(key("e"), time));
+		assertEquals(3, cache.getEntryCount());
+	}
+
+	/**
+	 * Package resources are read from the cache on subsequent requests.
+	 */
+	public void testPackageResource()
+	{
+		PackageResourceCache cache = new PackageResourceCache();
+		tester.getApplication().getResourceSettings().setPackageResourceCache(cache);
+
+		ResourceReference reference = new PackageResourceReference(PackageResourceTest.class,
+			"packaged1.txt");
+
+		tester.processRequest(new ResourceReferenceRequestHandler(reference));
+		String first = tester.getLastResponseAsString();
+		assertEquals(1, cache.getEntryCount());
+		assertEquals(0, cache.getHits());
+
+		tester.processRequest(new ResourceReferenceRequestHandler(reference));
+		assertEquals(first, tester.getLastResponseAsString());
+		assertEquals(1, cache.getHits());
+	}
+}
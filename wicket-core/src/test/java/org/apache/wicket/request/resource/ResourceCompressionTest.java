@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.resource;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.wicket.WicketTestCase;
+import org.apache.wicket.ajax.WicketAjaxReference;
+import org.apache.wicket.request.handler.resource.ResourceReferenceRequestHandler;
+import org.apache.wicket.request.handler.resource.ResourceRequestHandler;
+import org.apache.wicket.util.io.IOUtils;
+
+/**
+ * Tests gzip negotiation of resources.
+ */
+public class ResourceCompressionTest extends WicketTestCase
+{
+	/**
+	 * Tests parsing of the <code>Accept-Encoding</code> header.
+	 */
+	public void testAcceptsEncoding()
+	{
+		assertFalse(AbstractResource.acceptsEncoding(null, "gzip"));
+		assertFalse(AbstractResource.acceptsEncoding("", "gzip"));
+		assertTrue(AbstractResource.acceptsEncoding("gzip", "gzip"));
+		assertTrue(AbstractResource.acceptsEncoding("deflate, gzip", "gzip"));
+		assertTrue(AbstractResource.acceptsEncoding("x-gzip", "gzip"));
+		assertTrue(AbstractResource.acceptsEncoding("gzip;q=0.5", "gzip"));
+		assertFalse(AbstractResource.acceptsEncoding("gzip;q=0", "gzip"));
+		assertFalse(AbstractResource.acceptsEncoding("deflate", "gzip"));
+		assertTrue(AbstractResource.acceptsEncoding("*", "gzip"));
+		assertFalse(AbstractResource.acceptsEncoding("*, gzip;q=0", "gzip"));
+	}
+
+	/**
+	 * Package resources are sent compressed to clients accepting gzip.
+	 *
+	 * @throws Exception
+	 */
+	public void testPackageResource() throws Exception
+	{
+		IResource resource = WicketAjaxReference.INSTANCE.getResource();
+
+		tester.processRequest(new ResourceReferenceRequestHandler(WicketAjaxReference.INSTANCE));
+		byte[] plain = tester.getLastResponse().getBinaryContent();
+		assertNull(tester.getLastResponse().getHeader("Content-Encoding"));
+		assertEquals("Accept-Encoding", tester.getLastResponse().getHeader("Vary"));
+
+		tester.getRequest().addHeader("Accept-Encoding", "gzip, deflate");
+		tester.processRequest(new ResourceRequestHandler(resource, null));
+		assertEquals("gzip", tester.getLastResponse().getHeader("Content-Encoding"));
+		byte[] compressed = tester.getLastResponse().getBinaryContent();
+		assertTrue(compressed.length < plain.length);
+		assertTrue(Arrays.equals(plain, gunzip(compressed)));
+
+		tester.getApplication().getResourceSettings().setDisableGZipCompression(true);
+		tester.getRequest().addHeader("Accept-Encoding", "gzip");
+		tester.processRequest(new ResourceRequestHandler(resource, null));
+		assertNull(tester.getLastResponse().getHeader("Content-Encoding"));
+		assertNull(tester.getLastResponse().getHeader("Vary"));
+	}
+
+	/**
+	 * Byte array resources with textual content are compressed, binary content is not.
+	 *
+	 * @throws Exception
+	 */
+	public void testByteArrayResource() throws Exception
+	{
+		byte[] data = new byte[4096];
+		Arrays.fill(data, (byte)'a');
+
+		tester.getRequest().addHeader("Accept-Encoding", "gzip");
+		tester.processRequest(new ResourceRequestHandler(new ByteArrayResource("text/plain",
+			data), null));
+		assertEquals("gzip", tester.getLastResponse().getHeader("Content-Encoding"));
+		assertTrue(Arrays.equals(data, gunzip(tester.getLastResponse().getBinaryContent())));
+
+		tester.getRequest().addHeader("Accept-Encoding", "gzip");
+		tester.processRequest(new ResourceRequestHandler(new ByteArrayResource("image/png", data),
+			null));
+		assertNull(tester.getLastResponse().getHeader("Content-Encoding"));
+		assertTrue(Arrays.equals(data, tester.getLastResponse().getBinaryContent()));
+	}
+
+	private static byte[] gunzip(byte[] data) throws Exception
+	{
+		return IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(data)));
+	}
+}
@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.wicket.WicketTestCase;
+import org.apache.wicket.ajax.WicketAjaxReference;
+import org.apache.wicket.mock.MockApplication;
+import org.apache.wicket.request.handler.resource.ResourceRequestHandler;
+import org.apache.wicket.util.lang.Bytes;
+import org.apache.wicket.util.resource.AbstractResourceStream;
+import org.apache.wicket.util.resource.ResourceStreamNotFoundException;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.apache.wicket.util.tester.WicketTester;
+import org.apache.wicket.util.time.Time;
+
+/**
+ * Tests entity tag support of resources.
+ */
+public class ResourceETagTest extends WicketTestCase
+{
+	/**
+	 * Tests matching of the <code>If-None-Match</code> header.
+	 */
+	public void testMatchesETag()
+	{
+		assertTrue(AbstractResource.matchesETag("\"abc\"", "\"abc\""));
+		assertTrue(AbstractResource.matchesETag("\"xyz\", \"abc\"", "\"abc\""));
+		assertTrue(AbstractResource.matchesETag("W/\"abc\"", "\"abc\""));
+		assertTrue(AbstractResource.matchesETag("\"abc\"", "W/\"abc\""));
+		assertTrue(AbstractResource.matchesETag("*", "\"abc\""));
+		assertFalse(AbstractResource.matchesETag("\"abcd\"", "\"abc\""));
+		assertEquals("\"abc-gzip\"", AbstractResource.encodedETag("\"abc\"", "gzip"));
+	}
+
+	/**
+	 * Package resources are not sent again if the entity tag matches, regardless of
+	 * <code>If-Modified-Since</code>.
+	 */
+	public void testPackageResource()
+	{
+		IResource resource = WicketAjaxReference.INSTANCE.getResource();
+
+		tester.processRequest(new ResourceRequestHandler(resource, null));
+		String eTag = tester.getLastResponse().getHeader("ETag");
+		assertNotNull(eTag);
+		assertTrue(tester.getLastResponse().getBinaryContent().length > 0);
+
+		tester.getRequest().addHeader("If-None-Match", eTag);
+		tester.getRequest().addDateHeader("If-Modified-Since", 0);
+		tester.processRequest(new ResourceRequestHandler(resource, null));
+		assertEquals(HttpServletResponse.SC_NOT_MODIFIED, tester.getLastResponse().getStatus());
+		assertEquals(0, tester.getLastResponse().getBinaryContent().length);
+
+		// the compressed representation has its own entity tag
+		tester.getRequest().addHeader("If-None-Match", eTag);
+		tester.getRequest().addHeader("Accept-Encoding", "gzip");
+		tester.processRequest(new ResourceRequestHandler(resource, null));
+		assertEquals(HttpServletResponse.SC_OK, tester.getLastResponse().getStatus());
+		assertEquals(AbstractResource.encodedETag(eTag, "gzip"), tester.getLastResponse()
+			.getHeader("ETag"));
+	}
+
+	/**
+	 * Byte array resources with equal content have equal entity tags.
+	 */
+	public void testByteArrayResource()
+	{
+		tester.processRequest(new ResourceRequestHandler(new ByteArrayResource("image/png",
+			new byte[] { 1, 2, 3 }), null));
+		String eTag = tester.getLastResponse().getHeader("ETag");
+		assertNotNull(eTag);
+
+		tester.getRequest().addHeader("If-None-Match", eTag);
+		tester.processRequest(new ResourceRequestHandler(new ByteArrayResource("image/png",
+			new byte[] { 1, 2, 3 }), null));
+		assertEquals(HttpServletResponse.SC_NOT_MODIFIED, tester.getLastResponse().getStatus());
+
+		tester.getRequest().addHeader("If-None-Match", eTag);
+		tester.processRequest(new ResourceRequestHandler(new ByteArrayResource("image/png",
+			new byte[] { 1, 2, 4 }), null));
+		assertEquals(HttpServletResponse.SC_OK, tester.getLastResponse().getStatus());
+	}
+
+	/**
+	 * Resource stream resources get an entity tag from their length and modification time.
+	 */
+	public void testResourceStreamResource()
+	{
+		ResourceStreamResource resource = new ResourceStreamResource(new StringResourceStream(
+			"content"));
+
+		tester.processRequest(new ResourceRequestHandler(resource, null));
+		String eTag = tester.getLastResponse().getHeader("ETag");
+		assertNotNull(eTag);
+		assertEquals("content", tester.getLastResponseAsString());
+
+		tester.getRequest().addHeader("If-None-Match", eTag);
+		tester.processRequest(new ResourceRequestHandler(resource, null));
+		assertEquals(HttpServletResponse.SC_NOT_MODIFIED, tester.getLastResponse().getStatus());
+	}
+
+	/**
+	 * The stream is only read once, for the response.
+	 */
+	public void testResourceStreamReadOnce()
+	{
+		final InputStream content = new ByteArrayInputStream("once".getBytes());
+		final Time lastModified = Time.now();
+		ResourceStreamResource resource = new ResourceStreamResource(new AbstractResourceStream()
+		{
+			private static final long serialVersionUID = 1L;
+
+			private boolean read;
+
+			public InputStream getInputStream() throws ResourceStreamNotFoundException
+			{
+				assertFalse("stream read twice", read);
+				read = true;
+				return content;
+			}
+
+			public void close() throws IOException
+			{
+				content.close();
+			}
+
+			@Override
+			public Bytes length()
+			{
+				return Bytes.bytes(4);
+			}
+
+			@Override
+			public Time lastModifiedTime()
+			{
+				return lastModified;
+			}
+		});
+
+		tester.processRequest(new ResourceRequestHandler(resource, null));
+		assertEquals("once", tester.getLastResponseAsString());
+		String eTag = tester.getLastResponse().getHeader("ETag");
+		assertTrue(eTag, eTag.startsWith("W/"));
+	}
+
+	/**
+	 * Context relative resources get a weak entity tag from the file's length and modification
+	 * time, a matching request isn't answered with the content.
+	 * 
+	 * @throws Exception
+	 */
+	public void testContextRelativeResource() throws Exception
+	{
+		File root = new File(System.getProperty("java.io.tmpdir"), "ResourceETagTest" +
+			System.nanoTime());
+		assertTrue(root.mkdir());
+		File file = new File(root, "style.css");
+		FileOutputStream out = new FileOutputStream(file);
+		out.write("body {}".getBytes("UTF-8"));
+		out.close();
+		WicketTester contextTester = new WicketTester(new MockApplication(), root.getPath());
+		try
+		{
+			ContextRelativeResource resource = new ContextRelativeResource("style.css");
+			contextTester.processRequest(new ResourceRequestHandler(resource, null));
+			String eTag = contextTester.getLastResponse().getHeader("ETag");
+			assertTrue(eTag, eTag.startsWith("W/"));
+			assertEquals("body {}", contextTester.getLastResponseAsString());
+
+			contextTester.getRequest().addHeader("If-None-Match", eTag);
+			contextTester.processRequest(new ResourceRequestHandler(resource, null));
+			assertEquals(HttpServletResponse.SC_NOT_MODIFIED, contextTester.getLastResponse()
+				.getStatus());
+			assertEquals("", contextTester.getLastResponseAsString());
+		}
+		finally
+		{
+			contextTester.destroy();
+			file.delete();
+			root.delete();
+		}
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.resource;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.wicket.WicketTestCase;
+import org.apache.wicket.ajax.WicketAjaxReference;
+import org.apache.wicket.request.handler.resource.ResourceRequestHandler;
+import org.apache.wicket.request.handler.resource.ResourceStreamRequestHandler;
+import org.apache.wicket.util.resource.FileResourceStream;
+import org.apache.wicket.util.resource.StringResourceStream;
+
+/**
+ * Tests <code>Range</code> requests for resources.
+ */
+public class ResourceRangeTest extends WicketTestCase
+{
+	private static final byte[] DATA = "0123456789".getBytes();
+
+	/**
+	 * Tests parsing of the <code>Range</code> header.
+	 */
+	public void testParseRange()
+	{
+		assertTrue(Arrays.equals(new long[] { 0, 4 }, AbstractResource.parseRange("bytes=0-4", 10)));
+		assertTrue(Arrays.equals(new long[] { 5, 9 }, AbstractResource.parseRange("bytes=5-", 10)));
+		assertTrue(Arrays.equals(new long[] { 7, 9 }, AbstractResource.parseRange("bytes=-3", 10)));
+		assertTrue(Arrays.equals(new long[] { 0, 9 }, AbstractResource.parseRange("bytes=-30", 10)));
+		assertTrue(Arrays.equals(new long[] { 2, 9 }, AbstractResource.parseRange("bytes=2-30", 10)));
+		assertEquals(0, AbstractResource.parseRange("bytes=10-", 10).length);
+		assertNull(AbstractResource.parseRange("bytes=5-4", 10));
+		assertNull(AbstractResource.parseRange("bytes=0-1,3-4", 10));
+		assertNull(AbstractResource.parseRange("items=0-4", 10));
+		assertNull(AbstractResource.parseRange("bytes=a-b", 10));
+	}
+
+	/**
+	 * Byte array resources answer range requests with partial content.
+	 */
+	public void testByteArrayResource()
+	{
+		IResource resource = new ByteArrayResource("application/octet-stream", DATA);
+
+		tester.processRequest(new ResourceRequestHandler(resource, null));
+		assertEquals("bytes", tester.getLastResponse().getHeader("Accept-Ranges"));
+		String eTag = tester.getLastResponse().getHeader("ETag");
+
+		tester.getRequest().addHeader("Range", "bytes=2-5");
+		tester.processRequest(new ResourceRequestHandler(resource, null));
+		assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, tester.getLastResponse().getStatus());
+		assertEquals("bytes 2-5/10", tester.getLastResponse().getHeader("Content-Range"));
+		assertEquals("2345", tester.getLastResponseAsString());
+
+		// outdated partial copy
+		tester.getRequest().addHeader("Range", "bytes=2-5");
+		tester.getRequest().addHeader("If-Range", "\"outdated\"");
+		tester.processRequest(new ResourceRequestHandler(resource, null));
+		assertEquals(HttpServletResponse.SC_OK, tester.getLastResponse().getStatus());
+		assertEquals("0123456789", tester.getLastResponseAsString());
+
+		// current partial copy
+		tester.getRequest().addHeader("Range", "bytes=-2");
+		tester.getRequest().addHeader("If-Range", eTag);
+		tester.processRequest(new ResourceRequestHandler(resource, null));
+		assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, tester.getLastResponse().getStatus());
+		assertEquals("89", tester.getLastResponseAsString());
+
+		tester.getRequest().addHeader("Range", "bytes=20-");
+		tester.processRequest(new ResourceRequestHandler(resource, null));
+		assertEquals(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE,
+			tester.getLastResponse().getStatus());
+		assertEquals("bytes */10", tester.getLastResponse().getHeader("Content-Range"));
+	}
+
+	/**
+	 * File streams are transferred through their channel.
+	 *
+	 * @throws Exception
+	 */
+	public void testFileResourceStream() throws Exception
+	{
+		File file = File.createTempFile("wicket-range", ".bin");
+		try
+		{
+			FileOutputStream out = new FileOutputStream(file);
+			out.write(DATA);
+			out.close();
+
+			tester.processRequest(new ResourceStreamRequestHandler(new FileResourceStream(file)));
+			assertEquals("0123456789", tester.getLastResponseAsString());
+
+			tester.getRequest().addHeader("Range", "bytes=3-");
+			tester.processRequest(new ResourceStreamRequestHandler(new FileResourceStream(file)));
+			assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT,
+				tester.getLastResponse().getStatus());
+			assertEquals("3456789", tester.getLastResponseAsString());
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+	/**
+	 * Other streams skip to the requested range.
+	 */
+	public void testResourceStream()
+	{
+		tester.getRequest().addHeader("Range", "bytes=1-3");
+		tester.processRequest(new ResourceStreamRequestHandler(new StringResourceStream(
+			"0123456789")));
+		assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, tester.getLastResponse().getStatus());
+		assertEquals("123", tester.getLastResponseAsString());
+	}
+
+	/**
+	 * Package resources which are not cached are streamed, including ranges.
+	 */
+	public void testStreamedPackageResource()
+	{
+		IResource resource = WicketAjaxReference.INSTANCE.getResource();
+
+		tester.processRequest(new ResourceRequestHandler(resource, null));
+		byte[] cached = tester.getLastResponse().getBinaryContent();
+
+		tester.getApplication().getResourceSettings().setPackageResourceCache(null);
+		tester.processRequest(new ResourceRequestHandler(resource, null));
+		assertTrue(Arrays.equals(cached, tester.getLastResponse().getBinaryContent()));
+		assertNull(tester.getLastResponse().getHeader("Content-Encoding"));
+		String eTag = tester.getLastResponse().getHeader("ETag");
+		assertTrue(eTag.startsWith("W/"));
+
+		tester.getRequest().addHeader("If-None-Match", eTag);
+		tester.processRequest(new ResourceRequestHandler(resource, null));
+		assertEquals(HttpServletResponse.SC_NOT_MODIFIED, tester.getLastResponse().getStatus());
+
+		tester.getRequest().addHeader("Range", "bytes=10-19");
+		tester.processRequest(new ResourceRequestHandler(resource, null));
+		assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, tester.getLastResponse().getStatus());
+		byte[] part = new byte[10];
+		System.arraycopy(cached, 10, part, 0, 10);
+		assertTrue(Arrays.equals(part, tester.getLastResponse().getBinaryContent()));
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.serialize;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.WicketTestCase;
+import org.apache.wicket.util.tester.WicketTester;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for {@link CompactJavaSerializer}
+ */
+public class CompactJavaSerializerTest extends WicketTestCase
+{
+	private static final Logger log = LoggerFactory.getLogger(CompactJavaSerializerTest.class);
+
+	/**
+	 * Object graphs survive a round trip.
+	 */
+	public void testRoundTrip()
+	{
+		ISerializer serializer = new CompactJavaSerializer(tester.getApplication().getName());
+
+		Map<String, Object> map = new HashMap<String, Object>();
+		map.put("list", new ArrayList<String>(Arrays.asList("a", "b")));
+		map.put("array", new int[] { 1, 2, 3 });
+		map.put("enum", TimeUnit.SECONDS);
+		map.put("self", map);
+		map.put("class", new ClassHolder());
+
+		@SuppressWarnings("unchecked")
+		Map<String, Object> copy = (Map<String, Object>)serializer.deserialize(serializer.serialize(map));
+		assertEquals(map.get("list"), copy.get("list"));
+		assertTrue(Arrays.equals((int[])map.get("array"), (int[])copy.get("array")));
+		assertSame(TimeUnit.SECONDS, copy.get("enum"));
+		assertSame(copy, copy.get("self"));
+		assertSame(Runnable.class, ((ClassHolder)copy.get("class")).type);
+		assertSame(int.class, ((ClassHolder)copy.get("class")).primitive);
+	}
+
+	/**
+	 * Pages survive a round trip and are smaller than with plain Java serialization.
+	 */
+	public void testPage()
+	{
+		ISerializer compact = new CompactJavaSerializer(tester.getApplication().getName());
+		ISerializer java = new JavaSerializer(tester.getApplication().getName());
+
+		SerializerTestPage page = (SerializerTestPage)tester.startPage(SerializerTestPage.class);
+
+		byte[] data = compact.serialize(page);
+		SerializerTestPage copy = (SerializerTestPage)compact.deserialize(data);
+		assertEquals(page.rows.size(), copy.rows.size());
+		assertEquals("row 49", copy.get("rows:49:name").getDefaultModelObject());
+
+		assertTrue(data.length < java.serialize(page).length);
+	}
+
+	/**
+	 * Compares the time needed to serialize and deserialize a page. This is a manual benchmark, it
+	 * isn't run with the tests.
+	 * 
+	 * @param args
+	 */
+	public static void main(String[] args)
+	{
+		WicketTester tester = new WicketTester();
+		try
+		{
+			ISerializer compact = new CompactJavaSerializer(tester.getApplication().getName());
+			ISerializer java = new JavaSerializer(tester.getApplication().getName());
+
+			SerializerTestPage page = (SerializerTestPage)tester.startPage(SerializerTestPage.class);
+
+			// the first run of each is the warm up
+			List<ISerializer> serializers = Arrays.asList(java, compact, java, compact);
+			for (ISerializer serializer : serializers)
+			{
+				int length = 0;
+				long start = System.nanoTime();
+				for (int i = 0; i < 100; i++)
+				{
+					byte[] data = serializer.serialize(page);
+					serializer.deserialize(data);
+					length = data.length;
+				}
+				long time = System.nanoTime() - start;
+
+				log.info(serializer.getClass().getSimpleName() + ": " + length + " bytes, " +
+					time / 100 / 1000 + " microseconds per round trip");
+			}
+		}
+		finally
+		{
+			tester.destroy();
+		}
+	}
+
+	/**
+	 * Holds classes that aren't serializable themselves.
+	 */
+	private static class ClassHolder implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final Class<?> type = Runnable.class;
+
+		private final Class<?> primitive = int.class;
+	}
+}
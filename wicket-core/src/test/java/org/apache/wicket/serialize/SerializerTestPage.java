@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.serialize;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.form.Form;
+import org.apache.wicket.markup.html.form.TextField;
+import org.apache.wicket.markup.html.link.Link;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.ListView;
+import org.apache.wicket.model.Model;
+import org.apache.wicket.model.PropertyModel;
+
+/**
+ * A page with a list of rows, each having labels, a link and a form.
+ */
+public class SerializerTestPage extends WebPage
+{
+	private static final long serialVersionUID = 1L;
+
+	/** */
+	public final List<Row> rows = new ArrayList<Row>();
+
+	/**
+	 * Construct.
+	 */
+	public SerializerTestPage()
+	{
+		for (int i = 0; i < 50; i++)
+		{
+			rows.add(new Row("row " + i, i));
+		}
+
+		add(new ListView<Row>("rows", rows)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void populateItem(ListItem<Row> item)
+			{
+				item.add(new Label("name", new PropertyModel<String>(item.getModel(), "name")));
+				item.add(new Label("value", Model.of(item.getModelObject().value)));
+				item.add(new Link<Void>("link")
+				{
+					private static final long serialVersionUID = 1L;
+
+					@Override
+					public void onClick()
+					{
+					}
+				});
+				Form<Row> form = new Form<Row>("form");
+				form.add(new TextField<String>("text", new PropertyModel<String>(
+					item.getModel(), "name")));
+				item.add(form);
+			}
+		});
+	}
+
+	/** */
+	public static class Row implements java.io.Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		/** */
+		public String name;
+
+		/** */
+		public int value;
+
+		Row(String name, int value)
+		{
+			this.name = name;
+			this.value = value;
+		}
+	}
+}
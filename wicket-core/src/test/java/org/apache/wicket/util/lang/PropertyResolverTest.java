@@ -24,11 +24,16 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.wicket.ConverterLocator;
 import org.apache.wicket.WicketRuntimeException;
 import org.apache.wicket.WicketTestCase;
 import org.apache.wicket.util.convert.ConversionException;
+import org.apache.wicket.util.lang.PropertyResolver.IClassCache;
+import org.apache.wicket.util.lang.PropertyResolver.IGetAndSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * @author jcompagner
@@ -39,6 +44,8 @@ public class PropertyResolverTest extends WicketTestCase
 	private static final PropertyResolverConverter CONVERTER = new PropertyResolverConverter(
 		new ConverterLocator(), Locale.US);
 
+	private static final Logger log = LoggerFactory.getLogger(PropertyResolverTest.class);
+
 	private Person person;
 
 	/**
@@ -58,6 +65,81 @@ public class PropertyResolverTest extends WicketTestCase
 		super.tearDown();
 	}
 
+	/**
+	 * Compares evaluations with the resolved chains to evaluations looking up each segment in the
+	 * class cache, as done for a custom {@link IClassCache}. This is a manual benchmark, it isn't
+	 * run with the tests.
+	 * 
+	 * @param args
+	 */
+	public static void main(String[] args)
+	{
+		Person person = new Person();
+		Address address = new Address();
+		address.setStreet("wicket-street");
+		person.setAddress(address);
+
+		// the first run of each is the warm up
+		for (int run = 0; run < 4; run++)
+		{
+			if (run == 2)
+			{
+				PropertyResolver.setClassCache(null, new CountingClassCache());
+			}
+
+			long start = System.nanoTime();
+			for (int i = 0; i < 1000000; i++)
+			{
+				PropertyResolver.getValue("address.street", person);
+			}
+			long time = System.nanoTime() - start;
+
+			log.info((run < 2 ? "resolved chains" : "class cache lookups") + ": " + time /
+				1000000 + " nanoseconds per evaluation");
+		}
+	}
+
+	/**
+	 * A segment is resolved again when the class of the object it is evaluated on changes.
+	 */
+	public void testIntermediateClassChanges()
+	{
+		person.setName("wicket");
+		Map<String, Object> map = new HashMap<String, Object>();
+		Map<String, Object> other = new HashMap<String, Object>();
+		other.put("name", "map");
+
+		for (int i = 0; i < 2; i++)
+		{
+			map.put("value", person);
+			assertEquals("wicket", PropertyResolver.getValue("value.name", map));
+			map.put("value", other);
+			assertEquals("map", PropertyResolver.getValue("value.name", map));
+		}
+
+		PropertyResolver.setValue("value.name", map, "changed", CONVERTER);
+		assertEquals("changed", other.get("name"));
+		map.put("value", person);
+		PropertyResolver.setValue("value.name", map, "changed", CONVERTER);
+		assertEquals("changed", person.getName());
+	}
+
+	/**
+	 * A custom class cache is asked on each evaluation, it may not want to keep the classes.
+	 */
+	public void testCustomClassCache()
+	{
+		CountingClassCache cache = new CountingClassCache();
+		PropertyResolver.setClassCache(tester.getApplication(), cache);
+		person.setAddress(new Address());
+
+		PropertyResolver.getValue("address.street", person);
+		int lookups = cache.lookups;
+		assertTrue(lookups > 0);
+		PropertyResolver.getValue("address.street", person);
+		assertEquals(lookups * 2, cache.lookups);
+	}
+
 	/**
 	 * @throws Exception
 	 */
@@ -298,6 +380,39 @@ public class PropertyResolverTest extends WicketTestCase
 		assertSame(address, address2);
 	}
 
+	/**
+	 * An expression is split only once, but its segments are still resolved for the classes of
+	 * the objects it is evaluated on.
+	 * 
+	 * @throws Exception
+	 */
+	public void testSameExpressionOnDifferentClasses() throws Exception
+	{
+		Address address = new Address();
+		address.setStreet("wicket-street");
+		person.setAddress(address);
+
+		Map<String, Object> map = new HashMap<String, Object>();
+		Address mapAddress = new Address();
+		mapAddress.setStreet("map-street");
+		map.put("address", mapAddress);
+
+		for (int i = 0; i < 2; i++)
+		{
+			assertEquals("wicket-street", PropertyResolver.getValue("address.street", person));
+			assertEquals("map-street", PropertyResolver.getValue("address.street", map));
+		}
+
+		List<Address> list = new ArrayList<Address>();
+		list.add(address);
+		map.put("0", mapAddress);
+		for (int i = 0; i < 2; i++)
+		{
+			assertEquals("wicket-street", PropertyResolver.getValue("0.street", list));
+			assertEquals("map-street", PropertyResolver.getValue("0.street", map));
+		}
+	}
+
 	/**
 	 * @throws Exception
 	 */
@@ -597,4 +712,25 @@ public class PropertyResolverTest extends WicketTestCase
 			return String.valueOf(value);
 		}
 	}
+
+	/**
+	 * Class cache counting the lookups.
+	 */
+	private static class CountingClassCache implements IClassCache
+	{
+		private final Map<Class<?>, Map<String, IGetAndSet>> map = new ConcurrentHashMap<Class<?>, Map<String, IGetAndSet>>();
+
+		private int lookups;
+
+		public Map<String, IGetAndSet> get(Class<?> clz)
+		{
+			lookups++;
+			return map.get(clz);
+		}
+
+		public void put(Class<?> clz, Map<String, IGetAndSet> values)
+		{
+			map.put(clz, values);
+		}
+	}
 }
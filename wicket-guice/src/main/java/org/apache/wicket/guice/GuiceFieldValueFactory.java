@@ -20,7 +20,6 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 
-import org.apache.wicket.WicketRuntimeException;
 import org.apache.wicket.injection.IFieldValueFactory;
 import org.apache.wicket.proxy.IProxyTargetLocator;
 import org.apache.wicket.proxy.LazyInitProxyFactory;
@@ -61,18 +60,7 @@ public class GuiceFieldValueFactory implements IFieldValueFactory
 						target = locator.locateProxyTarget();
 					}
 
-					if (!field.isAccessible())
-					{
-						field.setAccessible(true);
-					}
-
-					field.set(fieldOwner, target);
-
-				}
-				catch (IllegalAccessException e)
-				{
-					throw new WicketRuntimeException("Error Guice-injecting field " +
-							field.getName() + " in " + fieldOwner, e);
+					// the Injector sets the returned value on the field
 				}
 				catch (MoreThanOneBindingException e)
 				{
@@ -98,10 +98,6 @@ public abstract class Injector
 
 		for (final Field field : fields)
 		{
-			if (!field.isAccessible())
-			{
-				field.setAccessible(true);
-			}
 			try
 			{
 
@@ -130,7 +126,8 @@ public abstract class Injector
 	}
 
 	/**
-	 * Returns an array of fields that can be injected using the given field value factory
+	 * Returns an array of fields that can be injected using the given field value factory. The
+	 * fields are made accessible here already, so this isn't repeated for every injected object.
 	 * 
 	 * @param clazz
 	 * @param factory
@@ -147,6 +144,10 @@ public abstract class Injector
 			{
 				if (factory.supportsField(field))
 				{
+					if (!field.isAccessible())
+					{
+						field.setAccessible(true);
+					}
 					matched.add(field);
 				}
 			}
@@ -19,6 +19,7 @@ package org.apache.wicket.proxy;
 import java.io.InvalidClassException;
 import java.io.ObjectStreamException;
 import java.io.Serializable;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -28,12 +29,16 @@ import java.util.List;
 
 import net.sf.cglib.core.DefaultNamingPolicy;
 import net.sf.cglib.core.Predicate;
+import net.sf.cglib.core.ReflectUtils;
+import net.sf.cglib.proxy.Callback;
 import net.sf.cglib.proxy.Enhancer;
 import net.sf.cglib.proxy.MethodInterceptor;
 import net.sf.cglib.proxy.MethodProxy;
 
 import org.apache.wicket.IClusterable;
+import org.apache.wicket.WicketRuntimeException;
 import org.apache.wicket.model.IModel;
+import org.apache.wicket.util.collections.ClassMetaCache;
 
 /**
  * A factory class that creates lazy init proxies given a type and a {@link IProxyTargetLocator}
@@ -44,7 +49,8 @@ import org.apache.wicket.model.IModel;
  * forwarded.
  * <p>
  * This factory creates two kinds of proxies: A standard dynamic proxy when the specified type is an
- * interface, and a CGLib proxy when the specified type is a concrete class.
+ * interface, and a CGLib proxy when the specified type is a concrete class. The proxy classes are
+ * generated once per type, so creating further proxies for a type just instantiates its class.
  * <p>
  * The general use case for such a proxy is to represent a dependency that should not be serialized
  * with a wicket page or {@link IModel}. The solution is to serialize the proxy and the
@@ -108,6 +114,16 @@ public class LazyInitProxyFactory
 			float.class, Float.class, double.class, Double.class, char.class, Character.class,
 			boolean.class, Boolean.class);
 
+	/**
+	 * Constructors of the dynamic proxy classes generated for interfaces
+	 */
+	private static final ClassMetaCache<Constructor<?>> JDK_PROXY_CONSTRUCTORS = new ClassMetaCache<Constructor<?>>();
+
+	/**
+	 * CGLib proxy classes generated for concrete classes
+	 */
+	private static final ClassMetaCache<Class<?>> CGLIB_PROXY_CLASSES = new ClassMetaCache<Class<?>>();
+
 	/**
 	 * Create a lazy init proxy for the specified type. The target object will be located using the
 	 * provided locator upon first method invocation.
@@ -132,47 +148,108 @@ public class LazyInitProxyFactory
 		{
 			JdkHandler handler = new JdkHandler(type, locator);
 
+			Constructor<?> constructor = JDK_PROXY_CONSTRUCTORS.get(type);
+			if (constructor == null)
+			{
+				constructor = createJdkProxyConstructor(type);
+				JDK_PROXY_CONSTRUCTORS.put(type, constructor);
+			}
 			try
 			{
-				return Proxy.newProxyInstance(Thread.currentThread().getContextClassLoader(),
-					new Class[] { type, Serializable.class, ILazyInitProxy.class,
-							IWriteReplace.class }, handler);
+				return constructor.newInstance(handler);
 			}
-			catch (IllegalArgumentException e)
+			catch (Exception e)
 			{
-				/*
-				 * STW: In some clustering environments it appears the context classloader fails to
-				 * load the proxied interface (currently seen in BEA WLS 9.x clusters). If this
-				 * happens, we can try and fall back to the classloader (current) that actually
-				 * loaded this class.
-				 */
-				return Proxy.newProxyInstance(LazyInitProxyFactory.class.getClassLoader(),
-					new Class[] { type, Serializable.class, ILazyInitProxy.class,
-							IWriteReplace.class }, handler);
+				throw new WicketRuntimeException("Error creating proxy for " + type, e);
 			}
-
 		}
 		else
 		{
 			CGLibInterceptor handler = new CGLibInterceptor(type, locator);
 
-			Enhancer e = new Enhancer();
-			e.setInterfaces(new Class[] { Serializable.class, ILazyInitProxy.class,
-					IWriteReplace.class });
-			e.setSuperclass(type);
-			e.setCallback(handler);
-			e.setNamingPolicy(new DefaultNamingPolicy()
+			Class<?> proxyClass = CGLIB_PROXY_CLASSES.get(type);
+			if (proxyClass == null)
 			{
-				@Override
-				public String getClassName(final String prefix, final String source,
-					final Object key, final Predicate names)
-				{
-					return super.getClassName("WICKET_" + prefix, source, key, names);
-				}
-			});
-
-			return e.create();
+				proxyClass = createCGLibProxyClass(type);
+				CGLIB_PROXY_CLASSES.put(type, proxyClass);
+			}
+
+			// the callback is passed to the constructor of the proxy through a thread local
+			Enhancer.registerCallbacks(proxyClass, new Callback[] { handler });
+			try
+			{
+				return ReflectUtils.newInstance(proxyClass);
+			}
+			finally
+			{
+				Enhancer.registerCallbacks(proxyClass, null);
+			}
+		}
+	}
+
+	/**
+	 * Generates the dynamic proxy class for an interface.
+	 * 
+	 * @param type
+	 *            interface the proxy will implement
+	 * @return constructor of the proxy class taking the invocation handler
+	 */
+	private static Constructor<?> createJdkProxyConstructor(final Class<?> type)
+	{
+		Class<?>[] interfaces = new Class[] { type, Serializable.class, ILazyInitProxy.class,
+				IWriteReplace.class };
+		Class<?> proxyClass;
+		try
+		{
+			proxyClass = Proxy.getProxyClass(Thread.currentThread().getContextClassLoader(),
+				interfaces);
+		}
+		catch (IllegalArgumentException e)
+		{
+			/*
+			 * STW: In some clustering environments it appears the context classloader fails to
+			 * load the proxied interface (currently seen in BEA WLS 9.x clusters). If this
+			 * happens, we can try and fall back to the classloader (current) that actually loaded
+			 * this class.
+			 */
+			proxyClass = Proxy.getProxyClass(LazyInitProxyFactory.class.getClassLoader(),
+				interfaces);
 		}
+		try
+		{
+			return proxyClass.getConstructor(InvocationHandler.class);
+		}
+		catch (NoSuchMethodException e)
+		{
+			throw new WicketRuntimeException("Error creating proxy for " + type, e);
+		}
+	}
+
+	/**
+	 * Generates the CGLib proxy class for a concrete class.
+	 * 
+	 * @param type
+	 *            class the proxy will extend
+	 * @return proxy class
+	 */
+	private static Class<?> createCGLibProxyClass(final Class<?> type)
+	{
+		Enhancer e = new Enhancer();
+		e.setInterfaces(new Class[] { Serializable.class, ILazyInitProxy.class,
+				IWriteReplace.class });
+		e.setSuperclass(type);
+		e.setCallbackType(MethodInterceptor.class);
+		e.setNamingPolicy(new DefaultNamingPolicy()
+		{
+			@Override
+			public String getClassName(final String prefix, final String source,
+				final Object key, final Predicate names)
+			{
+				return super.getClassName("WICKET_" + prefix, source, key, names);
+			}
+		});
+
+		return e.createClass();
 	}
 
 	/**
@@ -74,5 +74,23 @@ public class InjectorTest extends TestCase
 		assertEquals(testObject.getDependency4().getMessage(), "inject");
 	}
 
+	/**
+	 * Test that the fields found for the first object are injected into further objects of the
+	 * same class
+	 */
+	public void testRepeatedInjection()
+	{
+		TestInjector injector = new TestInjector();
+		for (int i = 0; i < 3; i++)
+		{
+			TestObject testObject = new TestObject();
+			injector.inject(testObject);
+
+			assertEquals(testObject.getDependency1().getMessage(), "inject");
+			assertEquals(testObject.getDependency3().getMessage(), "dont-inject");
+			assertEquals(testObject.getDependency4().getMessage(), "inject");
+		}
+	}
+
 
 }
@@ -161,6 +161,39 @@ public class LazyInitProxyFactoryTest extends TestCase
 		assertTrue(tester.isValid());
 	}
 
+	/**
+	 * Tests that proxies for the same type share their class but keep their own locators
+	 */
+	public void testProxyClassReuse()
+	{
+		IProxyTargetLocator otherLocator = new IProxyTargetLocator()
+		{
+			private static final long serialVersionUID = 1L;
+
+			public Object locateProxyTarget()
+			{
+				return new ConcreteObject("other");
+			}
+		};
+
+		ConcreteObject proxy = (ConcreteObject)LazyInitProxyFactory.createProxy(
+			ConcreteObject.class, concreteObjectLocator);
+		ConcreteObject other = (ConcreteObject)LazyInitProxyFactory.createProxy(
+			ConcreteObject.class, otherLocator);
+		assertSame(proxy.getClass(), other.getClass());
+		assertSame(otherLocator, ((ILazyInitProxy)other).getObjectLocator());
+		assertEquals("concrete", proxy.getMessage());
+		assertEquals("other", other.getMessage());
+
+		IInterface interfaceProxy = (IInterface)LazyInitProxyFactory.createProxy(
+			IInterface.class, interfaceObjectLocator);
+		IInterface interfaceOther = (IInterface)LazyInitProxyFactory.createProxy(
+			IInterface.class, interfaceObjectLocator);
+		assertSame(interfaceProxy.getClass(), interfaceOther.getClass());
+		assertNotSame(interfaceProxy, interfaceOther);
+		assertEquals("interface", interfaceOther.getMessage());
+	}
+
 	/**
 	 * Tests lazy init concrete replacement replacement
 	 */
@@ -17,7 +17,12 @@
 package org.apache.wicket.jmx;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
+import org.apache.wicket.protocol.http.RequestLogger.RequestTimes;
 import org.apache.wicket.protocol.http.WebApplication;
 
 
@@ -92,6 +97,134 @@ public class RequestLogger implements RequestLoggerMBean
 		return null;
 	}
 
+	/**
+	 * @see org.apache.wicket.jmx.RequestLoggerMBean#getNumberOfActiveRequests()
+	 */
+	public Integer getNumberOfActiveRequests() throws IOException
+	{
+		org.apache.wicket.protocol.http.IRequestLogger logger = getRequestLogger();
+		if (logger != null)
+		{
+			return logger.getCurrentActiveRequestCount();
+		}
+		return null;
+	}
+
+	/**
+	 * @see org.apache.wicket.jmx.RequestLoggerMBean#getPeakNumberOfActiveRequests()
+	 */
+	public Integer getPeakNumberOfActiveRequests() throws IOException
+	{
+		org.apache.wicket.protocol.http.RequestLogger logger = getStatisticsLogger();
+		if (logger != null)
+		{
+			return logger.getPeakActiveRequestCount();
+		}
+		return null;
+	}
+
+	/**
+	 * @see org.apache.wicket.jmx.RequestLoggerMBean#getNumberOfRequests()
+	 */
+	public Long getNumberOfRequests() throws IOException
+	{
+		org.apache.wicket.protocol.http.RequestLogger logger = getStatisticsLogger();
+		if (logger != null)
+		{
+			return logger.getRequestTimes().getCount();
+		}
+		return null;
+	}
+
+	/**
+	 * @see org.apache.wicket.jmx.RequestLoggerMBean#getRequestsPerSecond()
+	 */
+	public Double getRequestsPerSecond() throws IOException
+	{
+		org.apache.wicket.protocol.http.RequestLogger logger = getStatisticsLogger();
+		if (logger != null)
+		{
+			return logger.getRequestsPerSecond();
+		}
+		return null;
+	}
+
+	/**
+	 * @see org.apache.wicket.jmx.RequestLoggerMBean#getAverageRequestTime()
+	 */
+	public Double getAverageRequestTime() throws IOException
+	{
+		org.apache.wicket.protocol.http.RequestLogger logger = getStatisticsLogger();
+		if (logger != null)
+		{
+			return logger.getRequestTimes().getAverageTime();
+		}
+		return null;
+	}
+
+	/**
+	 * @see org.apache.wicket.jmx.RequestLoggerMBean#getMaxRequestTime()
+	 */
+	public Long getMaxRequestTime() throws IOException
+	{
+		org.apache.wicket.protocol.http.RequestLogger logger = getStatisticsLogger();
+		if (logger != null)
+		{
+			return logger.getRequestTimes().getMaxTime();
+		}
+		return null;
+	}
+
+	/**
+	 * @see org.apache.wicket.jmx.RequestLoggerMBean#getRequestTimes()
+	 */
+	public String getRequestTimes() throws IOException
+	{
+		org.apache.wicket.protocol.http.RequestLogger logger = getStatisticsLogger();
+		if (logger != null)
+		{
+			return logger.getRequestTimes().toString();
+		}
+		return null;
+	}
+
+	/**
+	 * @see org.apache.wicket.jmx.RequestLoggerMBean#getRequestTimesByHandler()
+	 */
+	public String[] getRequestTimesByHandler() throws IOException
+	{
+		org.apache.wicket.protocol.http.RequestLogger logger = getStatisticsLogger();
+		if (logger != null)
+		{
+			return toStrings(logger.getRequestTimesByHandler());
+		}
+		return null;
+	}
+
+	/**
+	 * @see org.apache.wicket.jmx.RequestLoggerMBean#getRequestTimesByPage()
+	 */
+	public String[] getRequestTimesByPage() throws IOException
+	{
+		org.apache.wicket.protocol.http.RequestLogger logger = getStatisticsLogger();
+		if (logger != null)
+		{
+			return toStrings(logger.getRequestTimesByPage());
+		}
+		return null;
+	}
+
+	private static String[] toStrings(Map<String, RequestTimes> times)
+	{
+		List<String> strings = new ArrayList<String>(times.size());
+		for (Map.Entry<String, RequestTimes> entry : times.entrySet())
+		{
+			strings.add(entry.getKey() + ": " + entry.getValue());
+		}
+		Collections.sort(strings);
+		return strings.toArray(new String[strings.size()]);
+	}
+
 	/**
 	 * @see org.apache.wicket.jmx.RequestLoggerMBean#restart()
 	 */
@@ -130,4 +263,19 @@ public class RequestLogger implements RequestLoggerMBean
 		}
 		return null;
 	}
+
+	/**
+	 * Gets the request logger for this application if it keeps statistics.
+	 * 
+	 * @return The request logger or null if it doesn't keep statistics
+	 */
+	private org.apache.wicket.protocol.http.RequestLogger getStatisticsLogger()
+	{
+		org.apache.wicket.protocol.http.IRequestLogger logger = getRequestLogger();
+		if (logger instanceof org.apache.wicket.protocol.http.RequestLogger)
+		{
+			return (org.apache.wicket.protocol.http.RequestLogger)logger;
+		}
+		return null;
+	}
 }
@@ -61,6 +61,106 @@ public interface RequestLoggerMBean
 	 */
 	Integer getPeakNumberOfSessions() throws IOException;
 
+	/**
+	 * Gets the number of requests currently being processed.
+	 * <p>
+	 * Only available for {@link WebApplication web applications}.
+	 * </p>
+	 * 
+	 * @return the number of active requests
+	 * @throws IOException
+	 */
+	Integer getNumberOfActiveRequests() throws IOException;
+
+	/**
+	 * The largest number of concurrently processed requests since the request logger was started.
+	 * <p>
+	 * Only available for {@link WebApplication web applications} with the default request logger.
+	 * </p>
+	 * 
+	 * @return the largest number of active requests
+	 * @throws IOException
+	 */
+	Integer getPeakNumberOfActiveRequests() throws IOException;
+
+	/**
+	 * The number of requests since the request logger was started.
+	 * <p>
+	 * Only available for {@link WebApplication web applications} with the default request logger.
+	 * </p>
+	 * 
+	 * @return the number of requests
+	 * @throws IOException
+	 */
+	Long getNumberOfRequests() throws IOException;
+
+	/**
+	 * The average number of requests per second over the last minute.
+	 * <p>
+	 * Only available for {@link WebApplication web applications} with the default request logger.
+	 * </p>
+	 * 
+	 * @return the number of requests per second
+	 * @throws IOException
+	 */
+	Double getRequestsPerSecond() throws IOException;
+
+	/**
+	 * The average time of the requests in milliseconds.
+	 * <p>
+	 * Only available for {@link WebApplication web applications} with the default request logger.
+	 * </p>
+	 * 
+	 * @return the average request time
+	 * @throws IOException
+	 */
+	Double getAverageRequestTime() throws IOException;
+
+	/**
+	 * The time of the slowest request in milliseconds.
+	 * <p>
+	 * Only available for {@link WebApplication web applications} with the default request logger.
+	 * </p>
+	 * 
+	 * @return the maximum request time
+	 * @throws IOException
+	 */
+	Long getMaxRequestTime() throws IOException;
+
+	/**
+	 * A summary of the request times: their number, average, 50th, 90th and 99th percentile and
+	 * maximum.
+	 * <p>
+	 * Only available for {@link WebApplication web applications} with the default request logger.
+	 * </p>
+	 * 
+	 * @return the request times summary
+	 * @throws IOException
+	 */
+	String getRequestTimes() throws IOException;
+
+	/**
+	 * Summaries of the request times by the type of the request handler that responded.
+	 * <p>
+	 * Only available for {@link WebApplication web applications} with the default request logger.
+	 * </p>
+	 * 
+	 * @return the request times summaries, prefixed with the handler class name
+	 * @throws IOException
+	 */
+	String[] getRequestTimesByHandler() throws IOException;
+
+	/**
+	 * Summaries of the request times by the class of the requested page.
+	 * <p>
+	 * Only available for {@link WebApplication web applications} with the default request logger.
+	 * </p>
+	 * 
+	 * @return the request times summaries, prefixed with the page class name
+	 * @throws IOException
+	 */
+	String[] getRequestTimesByPage() throws IOException;
+
 	/**
 	 * Registers a new request logger at the application. You need a request logger for some
 	 * functions of the session bean. Be aware that sessions will be logged from this time on, so
@@ -45,6 +45,35 @@ public abstract class Response
 	 */
 	public abstract void write(byte[] array);
 
+	/**
+	 * Writes the buffer to output.
+	 * <p>
+	 * The default implementation copies the range into a new array and passes it to
+	 * {@link #write(byte[])}, subclasses should override it to avoid the copy.
+	 * 
+	 * @param array
+	 *            the data.
+	 * @param offset
+	 *            the start offset in the data.
+	 * @param length
+	 *            the number of bytes to write.
+	 * @throws IllegalStateException
+	 *             if {@link #write(CharSequence)} has already been called on this instance
+	 */
+	public void write(byte[] array, int offset, int length)
+	{
+		if (offset == 0 && length == array.length)
+		{
+			write(array);
+		}
+		else
+		{
+			byte[] copy = new byte[length];
+			System.arraycopy(array, offset, copy, 0, length);
+			write(copy);
+		}
+	}
+
 	/**
 	 * Closes the response
 	 */
@@ -69,4 +98,19 @@ public abstract class Response
 	public void reset()
 	{
 	}
+
+	/**
+	 * Provides access to the low-level container response object that implementation of this
+	 * {@link Response} delegate to. This allows users to access features provided by the
+	 * container response but not by generalized Wicket {@link Response} objects.
+	 * <p>
+	 * Data written to the container response bypasses any buffering done by this response, so
+	 * buffered responses must not expose their container response.
+	 * 
+	 * @return low-level container response object, or <code>null</code> if none
+	 */
+	public Object getContainerResponse()
+	{
+		return null;
+	}
 }
@@ -18,8 +18,10 @@ package org.apache.wicket.request.mapper;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.wicket.request.IRequestHandler;
@@ -32,6 +34,10 @@ import org.apache.wicket.request.Url;
  * Thread safe compound {@link IRequestMapper}. The mappers are searched depending on their
  * compatibility score and the orders they were registered. If two or more {@link IRequestMapper}s
  * have the same compatibility score, the last registered mapper has highest priority.
+ * <p>
+ * {@link IIndexableRequestMapper}s are kept in an index of their mount segments and handler keys,
+ * so that only the mappers which can possibly match are asked for a request or handler. All other
+ * mappers are always asked.
  * 
  * @author igor.vaynberg
  * @author Matej Knopp
@@ -45,16 +51,23 @@ public class CompoundRequestMapper implements ICompoundRequestMapper
 	{
 		private final IRequestMapper mapper;
 		private final int compatibilityScore;
+		private final int position;
 
-		public EncoderWithSegmentsCount(IRequestMapper encoder, int compatibilityScore)
+		public EncoderWithSegmentsCount(IRequestMapper encoder, int compatibilityScore,
+			int position)
 		{
 			mapper = encoder;
 			this.compatibilityScore = compatibilityScore;
+			this.position = position;
 		}
 
 		public int compareTo(EncoderWithSegmentsCount o)
 		{
-			return o.compatibilityScore - compatibilityScore;
+			if (o.compatibilityScore != compatibilityScore)
+			{
+				return o.compatibilityScore - compatibilityScore;
+			}
+			return position - o.position;
 		}
 
 		public IRequestMapper getMapper()
@@ -72,8 +85,221 @@ public class CompoundRequestMapper implements ICompoundRequestMapper
 		}
 	}
 
+	/**
+	 * A registered mapper with its position in the list of mappers.
+	 */
+	private static class Entry implements Comparable<Entry>
+	{
+		private final IRequestMapper mapper;
+		private final int position;
+
+		private Entry(IRequestMapper mapper, int position)
+		{
+			this.mapper = mapper;
+			this.position = position;
+		}
+
+		public int compareTo(Entry o)
+		{
+			return position - o.position;
+		}
+	}
+
+	/**
+	 * Node of the mount segment trie.
+	 */
+	private static class Node
+	{
+		private Map<String, Node> children;
+		private Node placeholder;
+		private List<Entry> entries;
+
+		private void add(String[] segments, Entry entry)
+		{
+			Node node = this;
+			for (String segment : segments)
+			{
+				if (AbstractMapper.getPlaceholder(segment) != null)
+				{
+					if (node.placeholder == null)
+					{
+						node.placeholder = new Node();
+					}
+					node = node.placeholder;
+				}
+				else
+				{
+					if (node.children == null)
+					{
+						node.children = new HashMap<String, Node>();
+					}
+					Node child = node.children.get(segment);
+					if (child == null)
+					{
+						child = new Node();
+						node.children.put(segment, child);
+					}
+					node = child;
+				}
+			}
+			if (node.entries == null)
+			{
+				node.entries = new ArrayList<Entry>();
+			}
+			node.entries.add(entry);
+		}
+
+		/**
+		 * Collects the entries of all mappers whose segments the given URL segments start with.
+		 */
+		private void collect(List<String> segments, int depth, List<Entry> result)
+		{
+			if (entries != null)
+			{
+				result.addAll(entries);
+			}
+			if (depth < segments.size())
+			{
+				if (children != null)
+				{
+					Node child = children.get(segments.get(depth));
+					if (child != null)
+					{
+						child.collect(segments, depth + 1, result);
+					}
+				}
+				if (placeholder != null)
+				{
+					placeholder.collect(segments, depth + 1, result);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Immutable index of the registered mappers.
+	 */
+	private static class Index
+	{
+		/** all mappers */
+		private final List<Entry> entries = new ArrayList<Entry>();
+
+		/** mappers that are asked for every request */
+		private final List<Entry> requestScan = new ArrayList<Entry>();
+
+		/** mappers indexed by their mount segments */
+		private final Node root = new Node();
+
+		/** mappers that are asked for every handler */
+		private final List<Entry> handlerScan = new ArrayList<Entry>();
+
+		/** mappers indexed by their handler keys */
+		private final Map<Object, List<Entry>> handlerIndex = new HashMap<Object, List<Entry>>();
+
+		private Index(List<IRequestMapper> mappers)
+		{
+			int position = 0;
+			for (IRequestMapper mapper : mappers)
+			{
+				Entry entry = new Entry(mapper, position++);
+				entries.add(entry);
+
+				String[] segments = null;
+				Object key = null;
+				if (mapper instanceof IIndexableRequestMapper)
+				{
+					segments = ((IIndexableRequestMapper)mapper).getIndexedSegments();
+					key = ((IIndexableRequestMapper)mapper).getHandlerKey();
+				}
+
+				if (segments != null)
+				{
+					root.add(segments, entry);
+				}
+				else
+				{
+					requestScan.add(entry);
+				}
+
+				if (key != null)
+				{
+					List<Entry> list = handlerIndex.get(key);
+					if (list == null)
+					{
+						list = new ArrayList<Entry>();
+						handlerIndex.put(key, list);
+					}
+					list.add(entry);
+				}
+				else
+				{
+					handlerScan.add(entry);
+				}
+			}
+		}
+
+		/**
+		 * @return the mappers that may map a request for the URL, in the order of registration
+		 */
+		private List<Entry> getRequestCandidates(Url url)
+		{
+			if (url == null || url.getSegments().isEmpty() ||
+				requestScan.size() == entries.size())
+			{
+				return entries;
+			}
+
+			List<Entry> result = new ArrayList<Entry>(requestScan);
+			int scanned = result.size();
+			root.collect(url.getSegments(), 0, result);
+			if (result.size() > scanned)
+			{
+				Collections.sort(result);
+			}
+			return result;
+		}
+
+		/**
+		 * @return the mappers that may map a handler with the key, in the order of registration
+		 */
+		private List<Entry> getHandlerCandidates(Object key)
+		{
+			if (key == null)
+			{
+				return entries;
+			}
+
+			List<Entry> indexed = handlerIndex.get(key);
+			if (indexed == null)
+			{
+				return handlerScan;
+			}
+
+			// merge both lists, which are ordered by position already
+			List<Entry> result = new ArrayList<Entry>(handlerScan.size() + indexed.size());
+			int i = 0, j = 0;
+			while (i < handlerScan.size() && j < indexed.size())
+			{
+				if (handlerScan.get(i).position < indexed.get(j).position)
+				{
+					result.add(handlerScan.get(i++));
+				}
+				else
+				{
+					result.add(indexed.get(j++));
+				}
+			}
+			result.addAll(handlerScan.subList(i, handlerScan.size()));
+			result.addAll(indexed.subList(j, indexed.size()));
+			return result;
+		}
+	}
+
 	private final List<IRequestMapper> mappers = new CopyOnWriteArrayList<IRequestMapper>();
 
+	/** index of {@link #mappers}, built lazily after modifications */
+	private volatile Index index;
+
 	/**
 	 * Construct.
 	 */
@@ -86,7 +312,11 @@ public class CompoundRequestMapper implements ICompoundRequestMapper
 	 */
 	public CompoundRequestMapper add(IRequestMapper encoder)
 	{
-		mappers.add(0, encoder);
+		synchronized (mappers)
+		{
+			mappers.add(0, encoder);
+			index = null;
+		}
 		return this;
 	}
 
@@ -95,14 +325,51 @@ public class CompoundRequestMapper implements ICompoundRequestMapper
 	 */
 	public CompoundRequestMapper remove(IRequestMapper encoder)
 	{
-		mappers.remove(encoder);
+		synchronized (mappers)
+		{
+			mappers.remove(encoder);
+			index = null;
+		}
 		return this;
 	}
 
+	private Index getIndex()
+	{
+		Index current = index;
+		if (current == null)
+		{
+			synchronized (mappers)
+			{
+				current = index;
+				if (current == null)
+				{
+					current = new Index(mappers);
+					index = current;
+				}
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * Returns the key of the handler used to look up {@link IIndexableRequestMapper}s by their
+	 * {@link IIndexableRequestMapper#getHandlerKey() handler key}. Only the indexed mappers with
+	 * the same key are asked to map the handler.
+	 * <p>
+	 * The default implementation returns <code>null</code>, so all mappers are asked.
+	 * 
+	 * @param handler
+	 * @return key of the handler or <code>null</code> if any mapper may map it
+	 */
+	protected Object getHandlerKey(IRequestHandler handler)
+	{
+		return null;
+	}
+
 	/**
 	 * Searches the registered {@link IRequestMapper}s to find one that can decode the
-	 * {@link Request}. Each registered {@link IRequestMapper} is asked to provide the matching
-	 * segments count. Then the encoders are asked to decode the request in order depending on the
+	 * {@link Request}. Each registered {@link IRequestMapper} that may match the URL is asked to
+	 * provide the matching segments count. Then the encoders are asked to decode the request in order depending on the
 	 * provided segments count.
 	 * <p>
 	 * The encoder with highest matching segments count that can decode the request is returned.
@@ -113,13 +380,14 @@ public class CompoundRequestMapper implements ICompoundRequestMapper
 	 */
 	public IRequestHandler mapRequest(Request request)
 	{
+		List<Entry> candidates = getIndex().getRequestCandidates(request.getUrl());
 		List<EncoderWithSegmentsCount> list = new ArrayList<EncoderWithSegmentsCount>(
-			mappers.size());
+			candidates.size());
 
-		for (IRequestMapper encoder : mappers)
+		for (Entry entry : candidates)
 		{
-			int score = encoder.getCompatibilityScore(request);
-			list.add(new EncoderWithSegmentsCount(encoder, score));
+			int score = entry.mapper.getCompatibilityScore(request);
+			list.add(new EncoderWithSegmentsCount(entry.mapper, score, entry.position));
 		}
 
 		Collections.sort(list);
@@ -138,7 +406,8 @@ public class CompoundRequestMapper implements ICompoundRequestMapper
 
 	/**
 	 * Searches the registered {@link IRequestMapper}s to find one that can encode the
-	 * {@link IRequestHandler}. Each registered {@link IRequestMapper} is asked to encode the
+	 * {@link IRequestHandler}. Each registered {@link IRequestMapper} that may encode the handler
+	 * according to its {@link #getHandlerKey(IRequestHandler) key} is asked to encode the
 	 * {@link IRequestHandler} until an encoder that can encode the {@link IRequestHandler} is found
 	 * or no more encoders are left.
 	 * <p>
@@ -150,9 +419,12 @@ public class CompoundRequestMapper implements ICompoundRequestMapper
 	 */
 	public Url mapHandler(IRequestHandler handler)
 	{
-		for (IRequestMapper encoder : mappers)
+		Index index = getIndex();
+		Object key = index.handlerIndex.isEmpty() ? null : getHandlerKey(handler);
+
+		for (Entry entry : index.getHandlerCandidates(key))
 		{
-			Url url = encoder.mapHandler(handler);
+			Url url = entry.mapper.mapHandler(handler);
 			if (url != null)
 			{
 				return url;
@@ -168,10 +440,14 @@ public class CompoundRequestMapper implements ICompoundRequestMapper
 	 */
 	public int getCompatibilityScore(Request request)
 	{
-		int score = Integer.MIN_VALUE;
-		for (IRequestMapper mapper : mappers)
+		Index index = getIndex();
+		List<Entry> candidates = index.getRequestCandidates(request.getUrl());
+
+		// the mappers left out would have returned 0
+		int score = candidates.size() < index.entries.size() ? 0 : Integer.MIN_VALUE;
+		for (Entry entry : candidates)
 		{
-			score = Math.max(score, mapper.getCompatibilityScore(request));
+			score = Math.max(score, entry.mapper.getCompatibilityScore(request));
 		}
 		return score;
 	}
@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.mapper;
+
+import org.apache.wicket.request.IRequestHandler;
+import org.apache.wicket.request.IRequestMapper;
+import org.apache.wicket.request.Request;
+
+/**
+ * {@link IRequestMapper} that tells {@link CompoundRequestMapper} which requests and handlers it
+ * can map at all. The compound mapper keeps such mappers in an index and only asks them when a
+ * request or handler may match, instead of asking every registered mapper.
+ * <p>
+ * The returned values are read when the mapper is indexed and must not change afterwards.
+ *
+ * @see CompoundRequestMapper
+ */
+public interface IIndexableRequestMapper extends IRequestMapper
+{
+	/**
+	 * Returns the segments every URL mapped by this mapper starts with. A segment in the
+	 * <code>${name}</code> placeholder format matches any segment.
+	 * <p>
+	 * For a request whose URL has segments but does not start with the returned ones the mapper
+	 * must return <code>0</code> from {@link #getCompatibilityScore(Request)} and
+	 * <code>null</code> from {@link #mapRequest(Request)}. URLs without segments are always passed
+	 * to all mappers.
+	 *
+	 * @return the mount segments or <code>null</code> if the mapper may map any URL
+	 */
+	String[] getIndexedSegments();
+
+	/**
+	 * Returns the key of the handlers this mapper can map. The mapper must return
+	 * <code>null</code> from {@link #mapHandler(IRequestHandler)} for every handler the compound
+	 * mapper assigns another non-<code>null</code> key to.
+	 *
+	 * @see CompoundRequestMapper#getHandlerKey(IRequestHandler)
+	 *
+	 * @return the handler key or <code>null</code> if the mapper may map any handler
+	 */
+	Object getHandlerKey();
+}
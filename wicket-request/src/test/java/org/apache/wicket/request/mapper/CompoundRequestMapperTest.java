@@ -0,0 +1,272 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.mapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.wicket.request.IRequestCycle;
+import org.apache.wicket.request.IRequestHandler;
+import org.apache.wicket.request.Request;
+import org.apache.wicket.request.Url;
+import org.junit.Test;
+
+/**
+ * Tests for {@link CompoundRequestMapper}
+ */
+public class CompoundRequestMapperTest
+{
+	private final CompoundRequestMapper compound = new CompoundRequestMapper()
+	{
+		@Override
+		protected Object getHandlerKey(IRequestHandler handler)
+		{
+			return ((TestHandler)handler).key;
+		}
+	};
+
+	/**
+	 * Only the mappers whose segments match the URL are asked to map a request.
+	 */
+	@Test
+	public void mapRequest()
+	{
+		List<TestMapper> mounted = new ArrayList<TestMapper>();
+		for (int i = 0; i < 100; i++)
+		{
+			TestMapper mapper = new TestMapper("a/" + i, null, true);
+			mounted.add(mapper);
+			compound.add(mapper);
+		}
+		TestMapper placeholder = new TestMapper("a/${x}/b", null, true);
+		compound.add(placeholder);
+		TestMapper scanned = new TestMapper("a/5/b/c", null, false);
+		compound.add(scanned);
+
+		assertEquals(placeholder, map("a/5/b"));
+		assertEquals(mounted.get(5), map("a/5/c"));
+		assertEquals(scanned, map("a/5/b/c"));
+		assertEquals(placeholder, map("a/1000/b"));
+		assertNull(map("b"));
+
+		for (int i = 0; i < mounted.size(); i++)
+		{
+			assertEquals(i == 5 ? 3 : 0, mounted.get(i).scores);
+			assertEquals(i == 5 ? 1 : 0, mounted.get(i).requests);
+		}
+		assertEquals(2, scanned.requests);
+	}
+
+	/**
+	 * Mappers with the same score are asked in reverse order of registration, no matter whether
+	 * they are indexed or not.
+	 */
+	@Test
+	public void order()
+	{
+		TestMapper first = new TestMapper("x", null, true);
+		TestMapper second = new TestMapper("x", null, false);
+		compound.add(first);
+		compound.add(second);
+		assertEquals(second, map("x"));
+
+		TestMapper third = new TestMapper("x", null, true);
+		compound.add(third);
+		assertEquals(third, map("x"));
+
+		compound.remove(third);
+		compound.remove(second);
+		assertEquals(first, map("x"));
+	}
+
+	/**
+	 * URLs without segments are passed to all mappers.
+	 */
+	@Test
+	public void emptyUrl()
+	{
+		TestMapper mapper = new TestMapper("x", null, true);
+		compound.add(mapper);
+
+		assertNull(map(""));
+		assertEquals(1, mapper.requests);
+	}
+
+	/**
+	 * The mappers left out still count with a score of 0.
+	 */
+	@Test
+	public void compatibilityScore()
+	{
+		compound.add(new TestMapper("a/b", null, true));
+		compound.add(new TestMapper("c", null, true));
+
+		assertEquals(2, compound.getCompatibilityScore(getRequest(Url.parse("a/b/c"))));
+		assertEquals(0, compound.getCompatibilityScore(getRequest(Url.parse("d"))));
+	}
+
+	/**
+	 * Only the mappers with the key of the handler are asked to map it.
+	 */
+	@Test
+	public void mapHandler()
+	{
+		List<TestMapper> mounted = new ArrayList<TestMapper>();
+		for (int i = 0; i < 100; i++)
+		{
+			TestMapper mapper = new TestMapper("a/" + i, "key" + i, true);
+			mounted.add(mapper);
+			compound.add(mapper);
+		}
+		TestMapper scanned = new TestMapper("b", "other", false);
+		compound.add(scanned);
+
+		assertEquals(Url.parse("a/42"), compound.mapHandler(new TestHandler("key42")));
+		assertEquals(Url.parse("b"), compound.mapHandler(new TestHandler("other")));
+
+		for (int i = 0; i < mounted.size(); i++)
+		{
+			assertEquals(i == 42 ? 1 : 0, mounted.get(i).handlers);
+		}
+		assertEquals(2, scanned.handlers);
+	}
+
+	private TestMapper map(String url)
+	{
+		TestHandler handler = (TestHandler)compound.mapRequest(getRequest(Url.parse(url)));
+		return handler != null ? handler.mapper : null;
+	}
+
+	private static Request getRequest(final Url url)
+	{
+		return new Request()
+		{
+			@Override
+			public Url getUrl()
+			{
+				return url;
+			}
+
+			@Override
+			public Url getClientUrl()
+			{
+				return url;
+			}
+
+			@Override
+			public Locale getLocale()
+			{
+				return null;
+			}
+
+			@Override
+			public Charset getCharset()
+			{
+				return Charset.forName("UTF-8");
+			}
+		};
+	}
+
+	/**
+	 * Mapper for a fixed path and handler key, which counts how often it is asked.
+	 */
+	private static class TestMapper extends AbstractMapper implements IIndexableRequestMapper
+	{
+		private final String[] segments;
+		private final String key;
+		private final boolean indexed;
+		private int scores;
+		private int requests;
+		private int handlers;
+
+		private TestMapper(String path, String key, boolean indexed)
+		{
+			segments = getMountSegments(path);
+			this.key = key;
+			this.indexed = indexed;
+		}
+
+		public IRequestHandler mapRequest(Request request)
+		{
+			requests++;
+			return urlStartsWith(request.getUrl(), segments) ? new TestHandler(this) : null;
+		}
+
+		public int getCompatibilityScore(Request request)
+		{
+			scores++;
+			return urlStartsWith(request.getUrl(), segments) ? segments.length : 0;
+		}
+
+		public Url mapHandler(IRequestHandler requestHandler)
+		{
+			handlers++;
+			TestHandler handler = (TestHandler)requestHandler;
+			if (key == null || key.equals(handler.key))
+			{
+				Url url = new Url();
+				for (String segment : segments)
+				{
+					url.getSegments().add(segment);
+				}
+				return url;
+			}
+			return null;
+		}
+
+		public String[] getIndexedSegments()
+		{
+			return indexed ? segments : null;
+		}
+
+		public Object getHandlerKey()
+		{
+			return indexed ? key : null;
+		}
+	}
+
+	private static class TestHandler implements IRequestHandler
+	{
+		private final TestMapper mapper;
+		private final String key;
+
+		private TestHandler(TestMapper mapper)
+		{
+			this.mapper = mapper;
+			key = null;
+		}
+
+		private TestHandler(String key)
+		{
+			mapper = null;
+			this.key = key;
+		}
+
+		public void respond(IRequestCycle requestCycle)
+		{
+		}
+
+		public void detach(IRequestCycle requestCycle)
+		{
+		}
+	}
+}
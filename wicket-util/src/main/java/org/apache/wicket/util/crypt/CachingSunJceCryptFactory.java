@@ -18,7 +18,8 @@ package org.apache.wicket.util.crypt;
 
 /**
  * Default crypt factory. this factory will instantiate the object via the provided Class and cache
- * the result so that the object is only instantiated once.
+ * the result so that the object is only instantiated once. The shared {@link PooledSunJceCrypt}
+ * reuses its initialized ciphers.
  * 
  * @author Igor Vaynberg (ivaynberg)
  */
@@ -32,6 +33,6 @@ public class CachingSunJceCryptFactory extends CryptFactoryCachingDecorator
 	 */
 	public CachingSunJceCryptFactory(final String encryptionKey)
 	{
-		super(new ClassCryptFactory(SunJceCrypt.class, encryptionKey));
+		super(new ClassCryptFactory(PooledSunJceCrypt.class, encryptionKey));
 	}
 }
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.util.crypt;
+
+import java.security.GeneralSecurityException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javax.crypto.Cipher;
+
+/**
+ * {@link SunJceCrypt} that keeps its initialized ciphers for reuse. Deriving the key from the
+ * password happens when a cipher is initialized, which makes it by far the most expensive part of
+ * a de-/encryption. A cipher returns to its initialized state after each operation, so this
+ * implementation pays for it only once per cipher instead of once per call.
+ * <p>
+ * The results are the same as the ones of {@link SunJceCrypt}. Instances are thread safe, each
+ * thread takes a cipher from the pool while using it.
+ *
+ * @see CachingSunJceCryptFactory
+ */
+public class PooledSunJceCrypt extends SunJceCrypt
+{
+	/**
+	 * Ciphers for the current key.
+	 */
+	private static class Pool
+	{
+		private final Queue<Cipher> encrypt = new ConcurrentLinkedQueue<Cipher>();
+		private final Queue<Cipher> decrypt = new ConcurrentLinkedQueue<Cipher>();
+	}
+
+	private volatile Pool pool = new Pool();
+
+	/**
+	 * Constructor
+	 */
+	public PooledSunJceCrypt()
+	{
+	}
+
+	/**
+	 * @see org.apache.wicket.util.crypt.SunJceCrypt#crypt(byte[], int)
+	 */
+	@Override
+	protected byte[] crypt(final byte[] input, final int mode) throws GeneralSecurityException
+	{
+		Queue<Cipher> ciphers = mode == Cipher.ENCRYPT_MODE ? pool.encrypt : pool.decrypt;
+
+		Cipher cipher = ciphers.poll();
+		if (cipher == null)
+		{
+			cipher = createCipher(mode);
+		}
+
+		// a cipher that failed is not returned, as it may have to be initialized again
+		byte[] result = cipher.doFinal(input);
+		ciphers.offer(cipher);
+		return result;
+	}
+
+	/**
+	 * Drops the ciphers initialized with the previous key.
+	 *
+	 * @see org.apache.wicket.util.crypt.AbstractCrypt#setKey(java.lang.String)
+	 */
+	@Override
+	public void setKey(final String key)
+	{
+		super.setKey(key);
+		pool = new Pool();
+	}
+}
@@ -84,14 +84,26 @@ public class SunJceCrypt extends AbstractCrypt
 	 * @throws GeneralSecurityException
 	 */
 	@Override
-	protected final byte[] crypt(final byte[] input, final int mode)
-		throws GeneralSecurityException
+	protected byte[] crypt(final byte[] input, final int mode) throws GeneralSecurityException
+	{
+		return createCipher(mode).doFinal(input);
+	}
+
+	/**
+	 * Creates a cipher initialized with the encryption key.
+	 * 
+	 * @param mode
+	 *            crypt mode
+	 * @return the initialized cipher
+	 * @throws GeneralSecurityException
+	 */
+	protected final Cipher createCipher(final int mode) throws GeneralSecurityException
 	{
 		SecretKey key = generateSecretKey();
 		PBEParameterSpec spec = new PBEParameterSpec(salt, COUNT);
 		Cipher ciph = Cipher.getInstance(CRYPT_METHOD);
 		ciph.init(mode, key, spec);
-		return ciph.doFinal(input);
+		return ciph;
 	}
 
 	/**